@@ -1,11 +1,14 @@
 package com.fabrick.interview;
 
+import com.fabrick.interview.config.ModelRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
 @EnableCaching
+@ImportRuntimeHints(ModelRuntimeHints.class)
 public class FabrickInterviewApplication {
 
 	public static void main(String[] args) {
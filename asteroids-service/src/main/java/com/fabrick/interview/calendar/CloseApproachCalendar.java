@@ -0,0 +1,259 @@
+package com.fabrick.interview.calendar;
+
+import com.fabrick.interview.model.CloseApproach;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendar index of the close approaches of every asteroid the service has loaded, answering "which asteroids
+ * approach a body between two dates" without going through the asteroids one by one.
+ * <p>
+ * The index is partitioned by month. The clients hand every NASA payload they load (upstream or from a peer) to
+ * {@link #index(NasaNeoResponse)}, which only stages the approaches of the asteroid, replacing the ones staged
+ * before; an unchanged payload is ignored. Every {@code calendar.seal-interval}, the staged asteroids are sealed, on
+ * a dedicated single-threaded scheduler: each month they touch (where they approach now, and where they approached
+ * in the data sealed before) is rebuilt as a new immutable, deflated {@link MonthPartition}, and the map of the
+ * partitions is swapped at once.
+ * </p>
+ * <p>
+ * A {@link #scan(LocalDate, LocalDate, String) range scan} only inflates the partitions of the months overlapping
+ * its window, in order and lazily, and skips the months without the requested body. The staged asteroids are merged
+ * in, and hide their sealed approaches, so that a scan always sees the latest data of an asteroid, once.
+ * </p>
+ */
+@Component
+public class CloseApproachCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloseApproachCalendar.class);
+
+    /**
+     * Order of the approaches within the index and of the scan results: by date, then asteroid, then body.
+     */
+    static final Comparator<CloseApproach> ORDER = Comparator.comparing(CloseApproach::date)
+            .thenComparing(CloseApproach::asteroidId)
+            .thenComparing(CloseApproach::orbitingBody);
+
+    private final Duration sealInterval;
+    /** The approaches indexed since the last seal, by asteroid. */
+    private final Map<String, List<CloseApproach>> staged = new ConcurrentHashMap<>();
+    /** The approaches last indexed, by asteroid, to ignore the unchanged payloads. */
+    private final Map<String, List<CloseApproach>> fingerprints = new ConcurrentHashMap<>();
+    /** The months each sealed asteroid approaches in; only used while sealing. */
+    private final Map<String, Set<YearMonth>> sealedMonths = new HashMap<>();
+    private volatile NavigableMap<YearMonth, MonthPartition> partitions = Collections.emptyNavigableMap();
+    private volatile long sealedApproaches;
+    private volatile long sealedBytes;
+
+    private final Counter partitionsScanned;
+    private final Scheduler sealScheduler = Schedulers.newSingle("close-approach-calendar", true);
+    private Disposable sealTask;
+
+    public CloseApproachCalendar(MeterRegistry meterRegistry,
+                                 @Value("${calendar.seal-interval:PT10S}") Duration sealInterval) {
+        this.sealInterval = sealInterval;
+        Gauge.builder("calendar.partitions", this, calendar -> calendar.partitions.size())
+                .description("Sealed months of the close approach calendar")
+                .register(meterRegistry);
+        Gauge.builder("calendar.approaches", this, calendar -> calendar.sealedApproaches)
+                .description("Close approaches held by the sealed months")
+                .register(meterRegistry);
+        Gauge.builder("calendar.bytes", this, calendar -> calendar.sealedBytes)
+                .description("Size of the deflated sealed months")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("calendar.staged.asteroids", staged, Map::size)
+                .description("Asteroids indexed since the last seal")
+                .register(meterRegistry);
+        this.partitionsScanned = Counter.builder("calendar.partitions.scanned")
+                .description("Sealed months inflated by the range scans")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the periodic seal once the application is ready to serve.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sealTask = Flux.interval(sealInterval, sealInterval, sealScheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromRunnable(this::seal)
+                        .onErrorResume(e -> {
+                            logger.warn("Sealing the close approach calendar failed, will retry: {}", e.toString());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sealTask != null) {
+            sealTask.dispose();
+        }
+        sealScheduler.dispose();
+    }
+
+    /**
+     * Stages the close approaches of the given asteroid, replacing the ones indexed before. Cheap enough for the
+     * path of a request: nothing is sealed here.
+     * <p>
+     * The approaches are compared with those indexed last and staged within the same {@code compute}, so that
+     * concurrent payloads of one asteroid are staged in the order they are recorded.
+     * </p>
+     *
+     * @param response The NASA payload of the asteroid.
+     */
+    public void index(NasaNeoResponse response) {
+        if (response == null || response.id() == null) {
+            return;
+        }
+        List<CloseApproachData> data = response.closeApproachData() == null ? List.of() : response.closeApproachData();
+        List<CloseApproach> approaches = approaches(response.id(), data);
+        fingerprints.compute(response.id(), (id, previous) -> {
+            if (!approaches.equals(previous)) {
+                staged.put(id, approaches);
+            }
+            return approaches;
+        });
+    }
+
+    private static List<CloseApproach> approaches(String asteroidId, List<CloseApproachData> data) {
+        List<CloseApproach> approaches = new ArrayList<>(data.size());
+        for (CloseApproachData approach : data) {
+            if (approach.closeApproachDate() == null || approach.orbitingBody() == null) {
+                continue;
+            }
+            try {
+                approaches.add(new CloseApproach(LocalDate.parse(approach.closeApproachDate()), approach.orbitingBody(),
+                        asteroidId));
+            } catch (DateTimeParseException e) {
+                logger.debug("Skipping close approach of asteroid {} with invalid date: {}", asteroidId,
+                        approach.closeApproachDate());
+            }
+        }
+        return List.copyOf(approaches);
+    }
+
+    /**
+     * Lists the close approaches between two dates, in date order.
+     *
+     * @param from The first day of the window, inclusive.
+     * @param to   The last day of the window, inclusive.
+     * @param body The body approached (ignoring case), or {@code null} for all.
+     * @return A {@link Flux} of the approaches, inflating the months of the window as it is consumed.
+     */
+    public Flux<CloseApproach> scan(LocalDate from, LocalDate to, String body) {
+        if (from.isAfter(to)) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            // staged first: a seal swaps the partitions before it unstages what it sealed
+            Map<String, List<CloseApproach>> latest = Map.copyOf(staged);
+            NavigableMap<YearMonth, MonthPartition> months = partitions
+                    .subMap(YearMonth.from(from), true, YearMonth.from(to), true);
+            List<CloseApproach> unsealed = new ArrayList<>();
+            for (List<CloseApproach> approaches : latest.values()) {
+                for (CloseApproach approach : approaches) {
+                    if (!approach.date().isBefore(from) && !approach.date().isAfter(to)
+                            && (body == null || approach.orbitingBody().equalsIgnoreCase(body))) {
+                        unsealed.add(approach);
+                    }
+                }
+            }
+            unsealed.sort(ORDER);
+            Flux<CloseApproach> sealed = Flux.fromIterable(months.values())
+                    .filter(month -> month.mayContain(body))
+                    .concatMapIterable(month -> {
+                        partitionsScanned.increment();
+                        return month.scan(from, to, body, latest::containsKey);
+                    });
+            return unsealed.isEmpty() ? sealed : Flux.mergeComparing(ORDER, sealed, Flux.fromIterable(unsealed));
+        });
+    }
+
+    /**
+     * Seals the staged asteroids into new partitions of the months they touch. Package-private for the tests.
+     */
+    synchronized void seal() {
+        if (staged.isEmpty()) {
+            return;
+        }
+        Map<String, List<CloseApproach>> batch = new HashMap<>(staged);
+        Map<YearMonth, List<CloseApproach>> added = new HashMap<>();
+        Set<YearMonth> touched = new HashSet<>();
+        batch.forEach((asteroidId, approaches) -> {
+            Set<YearMonth> months = new HashSet<>();
+            for (CloseApproach approach : approaches) {
+                YearMonth month = YearMonth.from(approach.date());
+                months.add(month);
+                added.computeIfAbsent(month, m -> new ArrayList<>()).add(approach);
+            }
+            Set<YearMonth> previous = sealedMonths.put(asteroidId, months);
+            touched.addAll(months);
+            if (previous != null) {
+                touched.addAll(previous);
+            }
+        });
+
+        NavigableMap<YearMonth, MonthPartition> next = new TreeMap<>(partitions);
+        for (YearMonth month : touched) {
+            List<CloseApproach> approaches = new ArrayList<>();
+            MonthPartition current = next.get(month);
+            if (current != null) {
+                for (CloseApproach approach : current.rows()) {
+                    if (!batch.containsKey(approach.asteroidId())) {
+                        approaches.add(approach);
+                    }
+                }
+            }
+            approaches.addAll(added.getOrDefault(month, List.of()));
+            if (approaches.isEmpty()) {
+                next.remove(month);
+            } else {
+                next.put(month, MonthPartition.seal(month, approaches));
+            }
+        }
+        long approaches = 0;
+        long bytes = 0;
+        for (MonthPartition partition : next.values()) {
+            approaches += partition.size();
+            bytes += partition.compressedSize();
+        }
+        partitions = Collections.unmodifiableNavigableMap(next);
+        sealedApproaches = approaches;
+        sealedBytes = bytes;
+        // unless staged again meanwhile
+        batch.forEach(staged::remove);
+        logger.debug("Sealed {} asteroids into {} months of the close approach calendar", batch.size(), touched.size());
+    }
+}
@@ -0,0 +1,155 @@
+package com.fabrick.interview.calendar;
+
+import com.fabrick.interview.model.CloseApproach;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A sealed month of the {@link CloseApproachCalendar}: the close approaches of one calendar month, sorted by date
+ * then asteroid, held deflated.
+ * <p>
+ * Instances are immutable. The rows are encoded as the day of the month, the index of the body in the dictionary of
+ * the partition and the asteroid id, then deflated as a whole; the bodies are also kept on the heap, so that a scan
+ * for a body the month does not hold skips it without inflating anything. A change to the month is a new partition.
+ * </p>
+ */
+final class MonthPartition {
+
+    private final YearMonth month;
+    private final int size;
+    private final List<String> bodies;
+    private final byte[] data;
+
+    private MonthPartition(YearMonth month, int size, List<String> bodies, byte[] data) {
+        this.month = month;
+        this.size = size;
+        this.bodies = bodies;
+        this.data = data;
+    }
+
+    /**
+     * Seals the given close approaches, all of the given month.
+     */
+    static MonthPartition seal(YearMonth month, Collection<CloseApproach> approaches) {
+        List<CloseApproach> rows = new ArrayList<>(approaches);
+        rows.sort(CloseApproachCalendar.ORDER);
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (CloseApproach row : rows) {
+            dictionary.putIfAbsent(row.orbitingBody(), dictionary.size());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeInt(rows.size());
+            out.writeShort(dictionary.size());
+            for (String body : dictionary.keySet()) {
+                out.writeUTF(body);
+            }
+            for (CloseApproach row : rows) {
+                out.writeByte(row.date().getDayOfMonth());
+                out.writeShort(dictionary.get(row.orbitingBody()));
+                out.writeUTF(row.asteroidId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return new MonthPartition(month, rows.size(), List.copyOf(dictionary.keySet()), bytes.toByteArray());
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    /**
+     * @return The number of close approaches of the month.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The size of the deflated rows, in bytes.
+     */
+    int compressedSize() {
+        return data.length;
+    }
+
+    /**
+     * @return Whether the month holds an approach of the given body (ignoring case), or any approach if none is given.
+     */
+    boolean mayContain(String body) {
+        if (body == null) {
+            return size > 0;
+        }
+        for (String candidate : bodies) {
+            if (candidate.equalsIgnoreCase(body)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inflates the rows of the month matching the given window and body, in order.
+     *
+     * @param from       The first day of the window, inclusive.
+     * @param to         The last day of the window, inclusive.
+     * @param body       The body approached (ignoring case), or {@code null} for all.
+     * @param superseded The asteroids whose rows are not to be returned (newer data is not sealed yet).
+     */
+    List<CloseApproach> scan(LocalDate from, LocalDate to, String body, Predicate<String> superseded) {
+        List<CloseApproach> matches = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data), inflater))) {
+            int count = in.readInt();
+            String[] dictionary = new String[in.readUnsignedShort()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.readUTF();
+            }
+            int firstDay = from.isAfter(month.atDay(1)) ? from.getDayOfMonth() : 1;
+            int lastDay = to.isBefore(month.atEndOfMonth()) ? to.getDayOfMonth() : 31;
+            for (int i = 0; i < count; i++) {
+                int day = in.readUnsignedByte();
+                String rowBody = dictionary[in.readUnsignedShort()];
+                String asteroidId = in.readUTF();
+                if (day > lastDay) {
+                    break;
+                }
+                if (day >= firstDay && (body == null || rowBody.equalsIgnoreCase(body)) && !superseded.test(asteroidId)) {
+                    matches.add(new CloseApproach(month.atDay(day), rowBody, asteroidId));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inflater.end();
+        }
+        return matches;
+    }
+
+    /**
+     * @return Every row of the month, in order.
+     */
+    List<CloseApproach> rows() {
+        return scan(month.atDay(1), month.atEndOfMonth(), null, asteroidId -> false);
+    }
+}
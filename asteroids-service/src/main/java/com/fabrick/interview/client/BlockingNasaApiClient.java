@@ -0,0 +1,129 @@
+package com.fabrick.interview.client;
+
+import com.fabrick.interview.calendar.CloseApproachCalendar;
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.exception.NasaServiceException;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.support.jfr.CacheMissEvent;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fabrick.interview.upstream.UpstreamRestClientFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+/**
+ * Blocking counterpart of {@link NasaApiClient}, used by the {@code virtual-threads} profile: the same NeoWs call,
+ * error mapping, stage observations and upstream metrics, written as plain sequential code over a
+ * {@link RestClient} and meant to run on a virtual thread.
+ * <p>
+ * It reads and fills the same "asteroids" cache as the reactive client (which stays in charge of its background
+ * refresh and preload), and concurrent misses of one asteroid wait for a single call. With the peer cache tier
+ * enabled, only the asteroids this replica owns are cached here and loaded from NASA; the others are asked to their
+ * owner, exactly as the reactive client does (see {@link PeerCache}).
+ * </p>
+ */
+@Service
+@Profile("virtual-threads")
+public class BlockingNasaApiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingNasaApiClient.class);
+
+    private final RestClient restClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final ObjectReader responseReader;
+    private final PeerCache peerCache;
+    private final CloseApproachCalendar calendar;
+    private final String apiKey;
+
+    /**
+     * @param upstreamClients The factory of the blocking upstream clients (settings of {@code upstream.clients.nasa.*}).
+     * @param peerCache       The peer cache tier deciding which replica calls the NASA API for a given asteroid.
+     * @param calendar        The calendar index every loaded asteroid is handed to.
+     * @param baseUrl         The base URL of the NASA API.
+     * @param apiKey          The NASA API Key.
+     */
+    public BlockingNasaApiClient(UpstreamRestClientFactory upstreamClients, UpstreamMetrics upstreamMetrics,
+                                 ObservationRegistry observationRegistry, ObjectMapper objectMapper,
+                                 PeerCache peerCache, CloseApproachCalendar calendar,
+                                 @Value("${external.nasa.base-url}") String baseUrl,
+                                 @Value("${external.nasa.api-key}") String apiKey) {
+        this.restClient = upstreamClients.create("nasa", baseUrl);
+        this.upstreamMetrics = upstreamMetrics;
+        this.observationRegistry = observationRegistry;
+        this.responseReader = objectMapper.readerFor(NasaNeoResponse.class);
+        this.peerCache = peerCache;
+        this.calendar = calendar;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Retrieves the asteroid from the "asteroids" cache, or on a miss from the NASA API or the owner replica of the
+     * asteroid, blocking until done. Every asteroid loaded is indexed in the {@link CloseApproachCalendar}.
+     *
+     * @param asteroidId The unique SPK-ID of the asteroid (e.g., "3542519").
+     * @return The asteroid's data.
+     * @throws AsteroidNotFoundException If NASA does not know the asteroid.
+     * @throws NasaServiceException      If the NASA API answers with a server error.
+     */
+    @Cacheable(value = "asteroids", sync = true, condition = "@peerCache.owns(#asteroidId)")
+    public NasaNeoResponse getAsteroidData(String asteroidId) {
+        NasaNeoResponse asteroid = peerCache.load("asteroids", asteroidId, () -> Mono.fromCallable(() -> callNasa(asteroidId)))
+                .block();
+        calendar.index(asteroid);
+        return asteroid;
+    }
+
+    private NasaNeoResponse callNasa(String asteroidId) {
+        logger.debug("Cache MISS - Calling NASA External API for AsteroidID: {}", asteroidId);
+        CacheMissEvent.emit("asteroids", asteroidId);
+        NasaNeoResponse asteroid = upstreamMetrics.time("nasa", "neo", () -> stage("upstream.call", asteroidId).observe(() -> {
+            byte[] body = stage("upstream.fetch", asteroidId).observe(() -> restClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/{asteroidId}")
+                            .queryParam("api_key", apiKey)
+                            .build(asteroidId))
+                    .retrieve()
+                    .onStatus(status -> status.value() == 404, (request, response) -> {
+                        throw new AsteroidNotFoundException(asteroidId);
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, (request, response) -> {
+                        throw new NasaServiceException("NASA API is currently unavailable.");
+                    })
+                    .body(byte[].class));
+            return stage("upstream.decode", asteroidId)
+                    .highCardinalityKeyValue("bytes", Integer.toString(body == null ? 0 : body.length))
+                    .observe(() -> decode(body));
+        }));
+        return asteroid;
+    }
+
+    private NasaNeoResponse decode(byte[] body) {
+        try {
+            return responseReader.readValue(body);
+        } catch (IOException e) {
+            throw new DecodingException("Invalid NASA NeoWs response: " + e.getMessage(), e);
+        }
+    }
+
+    private Observation stage(String name, String asteroidId) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("upstream", "nasa")
+                .lowCardinalityKeyValue("endpoint", "neo")
+                .highCardinalityKeyValue("asteroid.id", asteroidId);
+    }
+}
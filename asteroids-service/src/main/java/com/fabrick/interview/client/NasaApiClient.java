@@ -1,14 +1,23 @@
 package com.fabrick.interview.client;
 
+import com.fabrick.interview.calendar.CloseApproachCalendar;
 import com.fabrick.interview.exception.AsteroidNotFoundException;
 import com.fabrick.interview.exception.NasaServiceException;
 import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.support.jfr.CacheMissEvent;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.tracing.ReactiveObservations;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -17,6 +26,11 @@ import reactor.core.publisher.Mono;
  * This component handles the HTTP communication using a non-blocking {@link WebClient} and implements
  * a caching mechanism to optimize performance and reduce external API usage.
  * </p>
+ * <p>
+ * Each call is observed as {@code upstream.call}, split into {@code upstream.fetch} (round trip until the response
+ * headers) and {@code upstream.decode} (the body, observed by the decoder of the client: see {@code NasaConfig}), so
+ * that a slow request can be attributed to either.
+ * </p>
  */
 @Service
 public class NasaApiClient {
@@ -24,16 +38,30 @@ public class NasaApiClient {
     private static final Logger logger = LoggerFactory.getLogger(NasaApiClient.class);
 
     private final WebClient webClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final PeerCache peerCache;
+    private final CloseApproachCalendar calendar;
     private final String apiKey;
 
     /**
      * Constructs a new NasaApiClient.
      *
-     * @param webClient The pre-configured WebClient instance (usually with base URL set).
-     * @param apiKey    The NASA API Key injected from the application properties.
+     * @param webClient           The pre-configured WebClient instance (usually with base URL set).
+     * @param upstreamMetrics     The recorder of the upstream call latencies (endpoint {@code neo}).
+     * @param observationRegistry The registry of the fetch/decode stage observations.
+     * @param peerCache           The peer cache tier deciding which replica calls the NASA API for a given asteroid.
+     * @param calendar            The calendar index every loaded asteroid is handed to.
+     * @param apiKey              The NASA API Key injected from the application properties.
      */
-    public NasaApiClient(WebClient webClient, @Value("${external.nasa.api-key}") String apiKey) {
+    public NasaApiClient(WebClient webClient, UpstreamMetrics upstreamMetrics, ObservationRegistry observationRegistry,
+                         PeerCache peerCache, CloseApproachCalendar calendar,
+                         @Value("${external.nasa.api-key}") String apiKey) {
         this.webClient = webClient;
+        this.upstreamMetrics = upstreamMetrics;
+        this.observationRegistry = observationRegistry;
+        this.peerCache = peerCache;
+        this.calendar = calendar;
         this.apiKey = apiKey;
     }
 
@@ -44,16 +72,38 @@ public class NasaApiClient {
      * is already present in the "asteroids" cache, it is returned immediately. Otherwise, a non-blocking
      * HTTP GET request is made to the NASA API.
      * </p>
+     * <p>
+     * With the peer cache tier enabled, only the asteroids this replica owns are cached here; the others are
+     * fetched from their owner (see {@link #fetchAsteroidData(String)}).
+     * </p>
      *
      * @param asteroidId The unique SPK-ID of the asteroid (e.g., "3542519").
      * @return A {@link Mono} emitting the {@link NasaNeoResponse} containing the asteroid's data,
      * or an empty/error signal if the retrieval fails.
      */
-    @Cacheable("asteroids")
+    @Cacheable(value = "asteroids", condition = "@peerCache.owns(#asteroidId)")
     public Mono<NasaNeoResponse> getAsteroidData(String asteroidId) {
+        return fetchAsteroidData(asteroidId);
+    }
+
+    /**
+     * Loads the asteroid bypassing the local cache: from the NASA API when this replica owns the key, otherwise from
+     * its owner replica (see {@link PeerCache}). The loader of the "asteroids" cache (background refresh and preload).
+     * Every asteroid loaded is indexed in the {@link CloseApproachCalendar}.
+     *
+     * @param asteroidId The unique SPK-ID of the asteroid.
+     * @return A {@link Mono} emitting the asteroid's data, or an error signal if the retrieval fails.
+     */
+    public Mono<NasaNeoResponse> fetchAsteroidData(String asteroidId) {
+        return peerCache.load("asteroids", asteroidId, () -> callNasa(asteroidId))
+                .doOnNext(calendar::index);
+    }
+
+    private Mono<NasaNeoResponse> callNasa(String asteroidId) {
         return Mono.defer(() -> {
-            logger.info("Cache MISS - Calling NASA External API for AsteroidID: {}", asteroidId);
-            return webClient.get()
+            logger.debug("Cache MISS - Calling NASA External API for AsteroidID: {}", asteroidId);
+            CacheMissEvent.emit("asteroids", asteroidId);
+            Mono<ResponseEntity<Flux<NasaNeoResponse>>> response = webClient.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/{asteroidId}")
                             .queryParam("api_key", apiKey)
@@ -61,13 +111,25 @@ public class NasaApiClient {
                     .retrieve()
                     .onStatus(
                             status -> status.value() == 404,
-                            response -> Mono.error(new AsteroidNotFoundException(asteroidId))
+                            clientResponse -> Mono.error(new AsteroidNotFoundException(asteroidId))
                     )
                     .onStatus(
                             status -> status.is5xxServerError(),
-                            response -> Mono.error(new NasaServiceException("NASA API is currently unavailable."))
+                            clientResponse -> Mono.error(new NasaServiceException("NASA API is currently unavailable."))
                     )
-                    .bodyToMono(NasaNeoResponse.class);
+                    .toEntityFlux(NasaNeoResponse.class);
+            // the body is a single object, still bound as it arrives rather than joined in memory first
+            Mono<NasaNeoResponse> call = ReactiveObservations.observe(() -> stage("upstream.fetch", asteroidId), response)
+                    .flatMap(entity -> Mono.from(entity.getBody()));
+            return upstreamMetrics.timeMono("nasa", "neo",
+                    ReactiveObservations.observe(() -> stage("upstream.call", asteroidId), call));
         }).cache();
     }
+
+    private Observation stage(String name, String asteroidId) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("upstream", "nasa")
+                .lowCardinalityKeyValue("endpoint", "neo")
+                .highCardinalityKeyValue("asteroid.id", asteroidId);
+    }
 }
@@ -1,13 +1,20 @@
 package com.fabrick.interview.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fabrick.interview.client.NasaApiClient;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Configuration class for the application's caching layer.
@@ -22,32 +29,58 @@ import java.util.concurrent.TimeUnit;
 @EnableCaching
 public class CacheConfig {
 
+    /**
+     * Default time to live of the cached NASA data, also the {@code Cache-Control} max-age of the responses computed
+     * from it.
+     */
+    public static final Duration TTL = Duration.ofMinutes(10);
+
     /**
      * Defines and configures the {@link CacheManager} bean.
      * <p>
-     * The manager is configured with specific eviction policies to balance memory usage
-     * and data freshness:
+     * The "asteroids" cache is built by {@link ManagedCaches}, with these defaults, overridable with
+     * {@code cache.policies.asteroids.*} and tunable at runtime through {@code /actuator/cacheadmin}:
      * <ul>
-     * <li><b>Maximum Size:</b> Limited to 100 entries to prevent memory overflows.</li>
+     * <li><b>Maximum Size:</b> Limited to 100 entries to prevent memory overflows. When bounded by weight instead,
+     * an asteroid weighs its number of close approaches.</li>
      * <li><b>Expiration:</b> Entries expire 10 minutes after being written (TTL), ensuring data consistency with the source.</li>
      * <li><b>Async Mode:</b> Enabled to support non-blocking operations, making it compatible with the Reactive Stack (WebFlux).</li>
+     * <li><b>Statistics:</b> Recorded, so hits, misses, evictions and load times are published as {@code cache.*} meters.</li>
+     * <li><b>Loader:</b> The uncached NASA call, used by {@code refresh-after-write} and by the preloads.</li>
+     * <li><b>Rendered responses:</b> Dropped with the entry they were computed from, whatever the removal cause.</li>
+     * <li><b>Peer cache tier:</b> With {@code peer-cache.enabled}, only the asteroids this replica owns are cached and
+     * served to the other replicas.</li>
      * </ul>
      * </p>
      *
+     * @param caches        The builder of the managed caches.
+     * @param peerCache     The peer cache tier the cache takes part in.
+     * @param client        The NASA client, resolved lazily (it is itself proxied by this cache manager).
+     * @param responseCache The cache of the rendered responses, if any.
      * @return The configured {@link CaffeineCacheManager} instance.
      */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("asteroids");
-
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(100)
-                .expireAfterWrite(10, TimeUnit.MINUTES));
+    public CacheManager cacheManager(ManagedCaches caches, PeerCache peerCache, ObjectProvider<NasaApiClient> client,
+                                     ObjectProvider<RenderedResponseCache> responseCache) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Static mode: only the cache registered below exists
+        cacheManager.setCacheNames(List.of());
 
         // Critical for WebFlux: allows the cache to return CompletableFuture
         // instead of blocking the thread.
         cacheManager.setAsyncCacheMode(true);
 
+        RenderedResponseCache responses = responseCache.getIfAvailable();
+        cacheManager.registerCustomCache("asteroids", caches.builder("asteroids")
+                .defaults(CachePolicyProperties.Policy.of(100, TTL))
+                .weigher((key, value) -> value instanceof NasaNeoResponse response && response.closeApproachData() != null
+                        ? Math.max(1, response.closeApproachData().size()) : 1)
+                .removalListener(responses != null ? responses.invalidationListener("asteroids") : null)
+                .loader(key -> client.getObject().fetchAsteroidData((String) key).toFuture())
+                .build());
+        // The other replicas ask this one for the asteroids it owns (no-op unless peer-cache.enabled)
+        peerCache.register("asteroids", NasaNeoResponse.class, id -> client.getObject().getAsteroidData(id));
+
         return cacheManager;
     }
 }
@@ -0,0 +1,27 @@
+package com.fabrick.interview.config;
+
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathsRequest;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints of the types bound by Jackson, for the AOT-processed and native builds.
+ * <p>
+ * Spring infers the hints of the types a controller declares, but the NeoWs payload is decoded with an
+ * {@code ObjectReader} in {@code NasaApiClient}, the paths are written by the rendered response cache and the
+ * RSocket payloads are bound by the messaging codecs: none of them would be reachable in a native image otherwise.
+ * Nested types (e.g. {@link CloseApproachData} in {@link NasaNeoResponse}) are registered with their owner.
+ * </p>
+ */
+public class ModelRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                NasaNeoResponse.class, CloseApproachData.class, AsteroidPath.class, PathsRequest.class);
+    }
+}
@@ -1,8 +1,13 @@
 package com.fabrick.interview.config;
 
+import com.fabrick.interview.support.tracing.ObservedDecoder;
+import com.fabrick.interview.upstream.UpstreamWebClientFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
@@ -31,14 +36,23 @@ public class NasaConfig {
      * does not need to worry about the absolute path, keeping the code cleaner and more maintainable.
      * Using {@link WebClient} ensures the application remains non-blocking and reactive.
      * </p>
+     * <p>
+     * The client uses the shared "nasa" upstream connection pool, tuned via {@code upstream.clients.nasa.*}, and
+     * decodes the JSON bodies as they are received, observing the binding as {@code upstream.decode}.
+     * </p>
      *
-     * @param builder The Spring Boot auto-configured {@link WebClient.Builder}.
+     * @param upstreamClients     The factory of the pooled upstream clients.
+     * @param objectMapper        The application's Jackson mapper, used to decode the response bodies.
+     * @param observationRegistry The registry of the decode stage observations.
      * @return A fully configured {@link WebClient} ready to make requests to NASA endpoints.
      */
     @Bean
-    public WebClient nasaWebClient(WebClient.Builder builder) {
-        return builder
-                .baseUrl(nasaBaseUrl)
+    public WebClient nasaWebClient(UpstreamWebClientFactory upstreamClients, ObjectMapper objectMapper,
+                                   ObservationRegistry observationRegistry) {
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(objectMapper);
+        decoder.setMaxInMemorySize(upstreamClients.maxInMemorySize("nasa"));
+        return upstreamClients.builder("nasa", nasaBaseUrl)
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new ObservedDecoder<>(decoder, observationRegistry, "nasa")))
                 .build();
     }
 }
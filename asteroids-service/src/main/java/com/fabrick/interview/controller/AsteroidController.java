@@ -1,14 +1,20 @@
 package com.fabrick.interview.controller;
 
+import com.fabrick.interview.config.CacheConfig;
 import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathsRequest;
 import com.fabrick.interview.service.AsteroidService;
+import com.fabrick.interview.support.response.RenderedResponseCache;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 
@@ -20,6 +26,12 @@ import java.time.LocalDate;
  * to the {@link AsteroidService}.
  * </p>
  * <p>
+ * Responses are answered from the {@link RenderedResponseCache}: the JSON of a given asteroid and date window is
+ * encoded once and written as is until the cached NASA data it was computed from changes. Each response carries a
+ * strong {@code ETag} and a {@code Cache-Control} max-age bound to the cache TTL, and a conditional request for the
+ * current version is answered with {@code 304 Not Modified} before anything is computed.
+ * </p>
+ * <p>
  * Base Path: {@code /api/fabrick/v1.0/asteroids}
  * </p>
  */
@@ -27,17 +39,18 @@ import java.time.LocalDate;
 @RequestMapping("/api/fabrick/v1.0/asteroids")
 public class AsteroidController {
 
-    private static final Logger logger = LoggerFactory.getLogger(AsteroidController.class);
-
     private final AsteroidService asteroidService;
+    private final RenderedResponseCache responseCache;
 
     /**
      * Dependency Injection constructor.
      *
      * @param asteroidService The service containing the business logic for asteroid path calculations.
+     * @param responseCache   The cache of the rendered JSON responses.
      */
-    public AsteroidController(AsteroidService asteroidService) {
+    public AsteroidController(AsteroidService asteroidService, RenderedResponseCache responseCache) {
         this.asteroidService = asteroidService;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -56,31 +69,36 @@ public class AsteroidController {
      * @param asteroidId The unique NASA SPK-ID of the asteroid (e.g., "3542519").
      * @param fromDate   (Optional) The start date of the analysis range (Format: YYYY-MM-DD).
      * @param toDate     (Optional) The end date of the analysis range (Format: YYYY-MM-DD).
-     * @return A {@link Flux} emitting {@link AsteroidPath} objects describing the asteroid's journey.
+     * @param exchange   The exchange the JSON array of the {@link AsteroidPath} objects is written to, gzipped when
+     *                   accepted, or {@code 304} when {@code If-None-Match} holds its ETag.
+     * @return A {@link Mono} completing once the response is written.
      */
     @Operation(
             summary = "Calculate Asteroid Paths",
             description = "Analyzes the movement of an asteroid between planets within a specific date range."
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Paths calculated successfully"),
+            @ApiResponse(responseCode = "200", description = "Paths calculated successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = AsteroidPath.class)))),
+            @ApiResponse(responseCode = "304", description = "Paths unchanged since the version in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Asteroid ID not found in NASA database"),
             @ApiResponse(responseCode = "502", description = "External NASA Service unavailable")
     })
     @GetMapping("/{asteroidId}/paths")
-    public Flux<AsteroidPath> getAsteroidPaths(
+    public Mono<Void> getAsteroidPaths(
             @PathVariable String asteroidId,
             @RequestParam(required = false) LocalDate fromDate,
-            @RequestParam(required = false) LocalDate toDate
+            @RequestParam(required = false) LocalDate toDate,
+            ServerWebExchange exchange
     ) {
         // Requirements: Defaults are "now-100years" and "now" if params are missing.
-        LocalDate effectiveFrom = (fromDate != null) ? fromDate : LocalDate.now().minusYears(100);
-        LocalDate effectiveTo = (toDate != null) ? toDate : LocalDate.now();
-
-        logger.info("REST Request - Get Paths for AsteroidID: [{}], Range: [{} to {}]",
-                asteroidId, effectiveFrom, effectiveTo);
+        PathsRequest window = new PathsRequest(fromDate, toDate);
+        LocalDate effectiveFrom = window.effectiveFromDate();
+        LocalDate effectiveTo = window.effectiveToDate();
 
-        return asteroidService.getAsteroidPath(asteroidId, effectiveFrom, effectiveTo);
+        return responseCache.respond(exchange, "paths:" + asteroidId + ":" + effectiveFrom + ":" + effectiveTo,
+                CacheConfig.TTL, () -> asteroidService.getAsteroidPath(asteroidId, effectiveFrom, effectiveTo));
     }
 
 
@@ -0,0 +1,87 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.exception.NasaServiceException;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathsRequest;
+import com.fabrick.interview.service.AsteroidService;
+import com.fabrick.interview.support.limit.ConcurrencyLimitExceededException;
+import com.fabrick.interview.support.peer.PeerLoadException;
+import io.rsocket.exceptions.CustomRSocketException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * RSocket endpoint exposing the asteroid operations to internal callers, on the TCP port set by
+ * {@code spring.rsocket.server.port}.
+ * <p>
+ * Callers keep one multiplexed connection open and issue request-stream interactions on it: the paths are emitted one
+ * by one, as requested (backpressure is carried by the RSocket {@code REQUEST_N} frames). Data is encoded in CBOR
+ * unless the caller sets another data MIME type (e.g. {@code application/json}) in its {@code SETUP} frame. The
+ * results come from the same service and caches as the HTTP endpoint.
+ * </p>
+ * <p>
+ * Route: {@code asteroids.{asteroidId}.paths}, payload {@link PathsRequest} (optional).
+ * </p>
+ * <p>
+ * Failures end the interaction with an {@code ERROR} frame of a stable application error code, the HTTP status the
+ * REST endpoint answers with: {@link #NOT_FOUND} (unknown asteroid), {@link #UPSTREAM_UNAVAILABLE} (NASA API
+ * failure), {@link #OVERLOADED} (upstream concurrency limit reached), and {@link #INTERNAL_ERROR} otherwise, without
+ * details. The message is the detail of the matching HTTP problem.
+ * </p>
+ */
+@Controller
+public class AsteroidRSocketController {
+
+    public static final int NOT_FOUND = 0x404;
+    public static final int INTERNAL_ERROR = 0x500;
+    public static final int UPSTREAM_UNAVAILABLE = 0x502;
+    public static final int OVERLOADED = 0x503;
+
+    private static final Logger logger = LoggerFactory.getLogger(AsteroidRSocketController.class);
+
+    private final AsteroidService asteroidService;
+
+    public AsteroidRSocketController(AsteroidService asteroidService) {
+        this.asteroidService = asteroidService;
+    }
+
+    /**
+     * Streams the paths of an asteroid within a date window, defaulting like
+     * {@link AsteroidController#getAsteroidPaths}.
+     */
+    @MessageMapping("asteroids.{asteroidId}.paths")
+    public Flux<AsteroidPath> getAsteroidPaths(@DestinationVariable String asteroidId,
+                                               @Payload(required = false) PathsRequest request) {
+        PathsRequest window = request != null ? request : new PathsRequest(null, null);
+        return asteroidService.getAsteroidPath(asteroidId, window.effectiveFromDate(), window.effectiveToDate());
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleNotFound(AsteroidNotFoundException e) {
+        return Mono.error(new CustomRSocketException(NOT_FOUND, e.getMessage()));
+    }
+
+    @MessageExceptionHandler({NasaServiceException.class, PeerLoadException.class})
+    public Mono<Void> handleNasaError(RuntimeException e) {
+        return Mono.error(new CustomRSocketException(UPSTREAM_UNAVAILABLE, e.getMessage()));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleOverload(ConcurrencyLimitExceededException e) {
+        return Mono.error(new CustomRSocketException(OVERLOADED, e.getMessage()));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleUnexpected(Exception e) {
+        logger.error("RSocket request failed", e);
+        return Mono.error(new CustomRSocketException(INTERNAL_ERROR, "Internal error"));
+    }
+}
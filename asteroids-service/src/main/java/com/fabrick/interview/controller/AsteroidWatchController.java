@@ -0,0 +1,88 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.model.PathTransition;
+import com.fabrick.interview.service.AsteroidWatchlist;
+import com.fabrick.interview.support.limit.ConcurrencyLimitWebFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Server-sent event subscriptions to the new paths of a watchlist of asteroids, replacing the periodic polling of
+ * {@code /asteroids/{id}/paths}: the watched asteroids are refreshed once for all the subscribers by the
+ * {@link AsteroidWatchlist}.
+ * <p>
+ * Base Path: {@code /api/fabrick/v1.0/asteroids}
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/fabrick/v1.0/asteroids")
+public class AsteroidWatchController {
+
+    private static final String OVERFLOW = "overflow";
+
+    private final AsteroidWatchlist watchlist;
+    private final Duration heartbeatInterval;
+
+    public AsteroidWatchController(AsteroidWatchlist watchlist,
+                                   @Value("${watchlist.heartbeat-interval:PT30S}") Duration heartbeatInterval) {
+        this.watchlist = watchlist;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Streams the paths appearing in the timelines of the given asteroids, as {@code transition} events (the
+     * {@link PathTransition} in JSON, the asteroid ID as event ID), with a comment every
+     * {@code watchlist.heartbeat-interval} keeping idle connections open.
+     * <p>
+     * A client too slow to take the events ends its stream with an {@code overflow} event: it should read the
+     * current paths and subscribe again. Once admitted, the subscription does not count against the concurrency
+     * limit of the API.
+     * </p>
+     *
+     * @param ids      The SPK-IDs of the asteroids to watch, comma-separated or repeated.
+     * @param exchange The exchange of the subscription.
+     * @return The endless stream of events.
+     */
+    @Operation(
+            summary = "Watch Asteroid Paths",
+            description = "Streams (server-sent events) the new paths of a list of asteroids as they appear."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of transition events",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = PathTransition.class))),
+            @ApiResponse(responseCode = "400", description = "No asteroid, or too many, to watch"),
+            @ApiResponse(responseCode = "404", description = "Asteroid ID not found in NASA database"),
+            @ApiResponse(responseCode = "502", description = "External NASA Service unavailable")
+    })
+    @GetMapping(path = "/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PathTransition>> watch(@RequestParam List<String> ids, ServerWebExchange exchange) {
+        Flux<ServerSentEvent<PathTransition>> events = watchlist.watch(ids)
+                .doOnSubscribe(subscription -> ConcurrencyLimitWebFilter.releaseInbound(exchange))
+                .map(transition -> ServerSentEvent.builder(transition)
+                        .event("transition")
+                        .id(transition.asteroidId())
+                        .build())
+                .onErrorResume(Exceptions::isOverflow,
+                        e -> Flux.just(ServerSentEvent.<PathTransition>builder().event(OVERFLOW).build()));
+        return events.publish(shared -> Flux.merge(shared, Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<PathTransition>builder().comment("heartbeat").build())
+                .takeUntilOther(shared.then())));
+    }
+}
@@ -0,0 +1,84 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.calendar.CloseApproachCalendar;
+import com.fabrick.interview.exception.InvalidCalendarQueryException;
+import com.fabrick.interview.model.CloseApproach;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+/**
+ * Range scans of the {@link CloseApproachCalendar}: the close approaches of all the asteroids the service has loaded,
+ * by date rather than by asteroid.
+ * <p>
+ * Base Path: {@code /api/fabrick/v1.0/asteroids}
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/fabrick/v1.0/asteroids")
+public class CloseApproachController {
+
+    private final CloseApproachCalendar calendar;
+    private final int maxResults;
+
+    public CloseApproachController(CloseApproachCalendar calendar,
+                                   @Value("${calendar.max-results:10000}") int maxResults) {
+        this.calendar = calendar;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Lists the close approaches between two dates, in date order.
+     *
+     * <h3>Default Behavior for Optional Parameters:</h3>
+     * <ul>
+     * <li>If {@code fromDate} is omitted, it defaults to <b>today</b>.</li>
+     * <li>If {@code toDate} is omitted, it defaults to <b>30 days</b> after {@code fromDate}.</li>
+     * </ul>
+     *
+     * @param fromDate (Optional) The first day of the window, inclusive (Format: YYYY-MM-DD).
+     * @param toDate   (Optional) The last day of the window, inclusive (Format: YYYY-MM-DD).
+     * @param body     (Optional) The body approached, as spelled by NASA, ignoring case (e.g. "Earth", "Juptr").
+     * @param limit    The maximum number of approaches returned, {@code calendar.max-results} at most.
+     * @return A {@link Flux} of the first {@code limit} approaches of the window.
+     */
+    @Operation(
+            summary = "Close Approach Calendar",
+            description = "Lists the close approaches of the known asteroids within a date range, optionally to one body."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Close approaches of the window",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = CloseApproach.class)))),
+            @ApiResponse(responseCode = "400", description = "Window ending before it starts, or invalid limit")
+    })
+    @GetMapping("/close-approaches")
+    public Flux<CloseApproach> getCloseApproaches(
+            @RequestParam(required = false) LocalDate fromDate,
+            @RequestParam(required = false) LocalDate toDate,
+            @RequestParam(required = false) String body,
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        LocalDate from = fromDate != null ? fromDate : LocalDate.now();
+        LocalDate to = toDate != null ? toDate : from.plusDays(30);
+        if (to.isBefore(from)) {
+            throw new InvalidCalendarQueryException("toDate " + to + " is before fromDate " + from + ".");
+        }
+        if (limit < 1 || limit > maxResults) {
+            throw new InvalidCalendarQueryException("limit must be between 1 and " + maxResults + ".");
+        }
+        return calendar.scan(from, to, body == null || body.isBlank() ? null : body.trim()).take(limit);
+    }
+}
@@ -1,5 +1,6 @@
 package com.fabrick.interview.exception;
 
+import com.fabrick.interview.support.peer.PeerLoadException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -28,4 +29,31 @@ public class GlobalExceptionHandler {
         problem.setProperty("timestamp", Instant.now());
         return problem;
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(InvalidWatchlistException.class)
+    public ProblemDetail handleInvalidWatchlist(InvalidWatchlistException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setTitle("Invalid Watchlist");
+        problem.setType(URI.create("https://api.fabrick.com/errors/invalid-watchlist"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+
+    @ExceptionHandler(InvalidCalendarQueryException.class)
+    public ProblemDetail handleInvalidCalendarQuery(InvalidCalendarQueryException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setTitle("Invalid Calendar Query");
+        problem.setType(URI.create("https://api.fabrick.com/errors/invalid-calendar-query"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+
+    @ExceptionHandler(PeerLoadException.class)
+    public ProblemDetail handlePeerLoadError(PeerLoadException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_GATEWAY, e.getMessage());
+        problem.setTitle("NASA Service Unavailable");
+        problem.setType(URI.create("https://api.fabrick.com/errors/external-service-error"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+}
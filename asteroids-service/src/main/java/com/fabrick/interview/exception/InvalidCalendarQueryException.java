@@ -0,0 +1,7 @@
+package com.fabrick.interview.exception;
+
+public class InvalidCalendarQueryException extends RuntimeException {
+    public InvalidCalendarQueryException(String message) {
+        super(message);
+    }
+}
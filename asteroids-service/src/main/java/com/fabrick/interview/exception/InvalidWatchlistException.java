@@ -0,0 +1,7 @@
+package com.fabrick.interview.exception;
+
+public class InvalidWatchlistException extends RuntimeException {
+    public InvalidWatchlistException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package com.fabrick.interview.model;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
 /**
  * Represents a segment of an asteroid's journey across the solar system.
@@ -85,4 +86,22 @@ public class AsteroidPath {
     public void setToDate(LocalDate toDate) {
         this.toDate = toDate;
     }
+
+    /**
+     * Two paths are equal when they join the same bodies on the same dates, so that timelines can be diffed.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof AsteroidPath other
+                && Objects.equals(fromPlanet, other.fromPlanet) && Objects.equals(toPlanet, other.toPlanet)
+                && Objects.equals(fromDate, other.fromDate) && Objects.equals(toDate, other.toDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromPlanet, toPlanet, fromDate, toDate);
+    }
 }
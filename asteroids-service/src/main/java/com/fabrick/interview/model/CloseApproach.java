@@ -0,0 +1,13 @@
+package com.fabrick.interview.model;
+
+import java.time.LocalDate;
+
+/**
+ * One close approach of the calendar index: an asteroid passing a body on a given date.
+ *
+ * @param date         The date of the close approach.
+ * @param orbitingBody The body approached, as spelled by NASA (e.g. "Earth", "Juptr").
+ * @param asteroidId   The SPK-ID of the asteroid.
+ */
+public record CloseApproach(LocalDate date, String orbitingBody, String asteroidId) {
+}
@@ -0,0 +1,11 @@
+package com.fabrick.interview.model;
+
+/**
+ * A path that appeared in the timeline of a watched asteroid since it was last refreshed: an orbit transition that
+ * was not there before (new close approach data, or a predicted approach now within the default window).
+ *
+ * @param asteroidId The SPK-ID of the watched asteroid.
+ * @param path       The new path.
+ */
+public record PathTransition(String asteroidId, AsteroidPath path) {
+}
@@ -0,0 +1,23 @@
+package com.fabrick.interview.model;
+
+import java.time.LocalDate;
+
+/**
+ * The optional date window of an asteroid path query, shared by the HTTP and RSocket endpoints.
+ * <p>
+ * Requirements: the window defaults to the last 100 years, up to today.
+ * </p>
+ *
+ * @param fromDate The start of the window, or {@code null} for 100 years ago.
+ * @param toDate   The end of the window, or {@code null} for today.
+ */
+public record PathsRequest(LocalDate fromDate, LocalDate toDate) {
+
+    public LocalDate effectiveFromDate() {
+        return fromDate != null ? fromDate : LocalDate.now().minusYears(100);
+    }
+
+    public LocalDate effectiveToDate() {
+        return toDate != null ? toDate : LocalDate.now();
+    }
+}
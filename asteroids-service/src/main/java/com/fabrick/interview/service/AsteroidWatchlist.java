@@ -0,0 +1,11 @@
+package com.fabrick.interview.service;
+
+import com.fabrick.interview.model.PathTransition;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface AsteroidWatchlist {
+
+    Flux<PathTransition> watch(Collection<String> asteroidIds);
+}
@@ -0,0 +1,249 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.client.NasaApiClient;
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.exception.InvalidWatchlistException;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathTransition;
+import com.fabrick.interview.model.PathsRequest;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.service.AsteroidWatchlist;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the timelines of the watched asteroids up to date and streams their new paths to the subscribers.
+ * <p>
+ * An asteroid is watched while at least one subscription lists it. Every {@code watchlist.refresh-interval}, each
+ * watched asteroid is refreshed once whatever its number of subscribers, at most
+ * {@code watchlist.refresh-concurrency} at a time, on a dedicated single-threaded scheduler:
+ * <ol>
+ * <li>The {@code asteroids} cache entry is reloaded in place through its loader, so the pollers of
+ * {@code /asteroids/{id}/paths} get the new data too (their rendered responses are dropped with the replaced entry).
+ * With the peer cache tier, the asteroids owned by another replica are fetched from it instead.</li>
+ * <li>The paths over the default window are calculated and diffed against the last known timeline; the paths that
+ * were not in it are emitted, once, to every subscriber of the asteroid. A failed refresh keeps the timeline.</li>
+ * </ol>
+ * </p>
+ * <p>
+ * Each asteroid fans out through a multicast sink; every subscription buffers up to {@code watchlist.buffer-size}
+ * transitions for a slow client, and fails with an overflow error beyond that rather than holding more memory or
+ * slowing the other subscribers down. A subscription only receives the transitions found after it started: its
+ * unknown asteroids fail it before anything is emitted.
+ * </p>
+ */
+@Service
+public class AsteroidWatchlistImpl implements AsteroidWatchlist {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsteroidWatchlistImpl.class);
+
+    private static final String CACHE = "asteroids";
+
+    private final NasaApiClient client;
+    private final ManagedCaches caches;
+    private final PeerCache peerCache;
+    private final PathCalculator pathCalculator;
+    private final Duration refreshInterval;
+    private final int refreshConcurrency;
+    private final int maxAsteroids;
+    private final int bufferSize;
+
+    private final Map<String, Watched> watched = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final Counter transitions;
+    private final Counter overflows;
+    private final Scheduler refreshScheduler = Schedulers.newSingle("asteroid-watchlist", true);
+    private Disposable refreshTask;
+
+    public AsteroidWatchlistImpl(NasaApiClient client, ManagedCaches caches, PeerCache peerCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${watchlist.refresh-interval:PT5M}") Duration refreshInterval,
+                                 @Value("${watchlist.refresh-concurrency:4}") int refreshConcurrency,
+                                 @Value("${watchlist.max-asteroids:50}") int maxAsteroids,
+                                 @Value("${watchlist.buffer-size:256}") int bufferSize) {
+        this.client = client;
+        this.caches = caches;
+        this.peerCache = peerCache;
+        this.pathCalculator = new PathCalculator(meterRegistry);
+        this.refreshInterval = refreshInterval;
+        this.refreshConcurrency = refreshConcurrency;
+        this.maxAsteroids = maxAsteroids;
+        this.bufferSize = bufferSize;
+        Gauge.builder("watchlist.asteroids", watched, Map::size)
+                .description("Asteroids watched by at least one subscription")
+                .register(meterRegistry);
+        Gauge.builder("watchlist.subscriptions", subscriptions, AtomicInteger::get)
+                .description("Open watchlist subscriptions")
+                .register(meterRegistry);
+        this.transitions = Counter.builder("watchlist.transitions")
+                .description("New paths found by the watchlist refreshes")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("watchlist.overflows")
+                .description("Subscriptions ended because their client did not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the periodic refresh once the application is ready to serve.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refreshTask = Flux.interval(refreshInterval, refreshInterval, refreshScheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> refreshAll(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+        refreshScheduler.dispose();
+    }
+
+    /**
+     * Streams the paths appearing in the timelines of the given asteroids from now on.
+     *
+     * @param asteroidIds The SPK-IDs of the asteroids, {@code watchlist.max-asteroids} at most.
+     * @return An endless {@link Flux} of the new paths, failing with {@code AsteroidNotFoundException} before any
+     * emission when an asteroid is unknown, or with an overflow error when the subscriber falls
+     * {@code watchlist.buffer-size} transitions behind.
+     * @throws InvalidWatchlistException If no asteroid or too many are listed.
+     */
+    @Override
+    public Flux<PathTransition> watch(Collection<String> asteroidIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : asteroidIds) {
+            if (id != null && !id.isBlank()) {
+                ids.add(id.trim());
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new InvalidWatchlistException("At least one asteroid ID must be watched.");
+        }
+        if (ids.size() > maxAsteroids) {
+            throw new InvalidWatchlistException("At most " + maxAsteroids + " asteroids can be watched by one subscription.");
+        }
+        return Flux.using(() -> acquire(ids), this::changes, this::release)
+                .onBackpressureBuffer(bufferSize, dropped -> overflows.increment(), BufferOverflowStrategy.ERROR);
+    }
+
+    /**
+     * Refreshes every watched asteroid once. Package-private for the tests.
+     */
+    Mono<Void> refreshAll() {
+        return Flux.fromIterable(new ArrayList<>(watched.values()))
+                .flatMap(this::refresh, refreshConcurrency)
+                .then();
+    }
+
+    private List<Watched> acquire(Set<String> ids) {
+        subscriptions.incrementAndGet();
+        List<Watched> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            entries.add(watched.compute(id, (key, entry) -> {
+                Watched acquired = entry != null ? entry : new Watched(key);
+                acquired.subscribers++;
+                return acquired;
+            }));
+        }
+        return entries;
+    }
+
+    private void release(List<Watched> entries) {
+        subscriptions.decrementAndGet();
+        for (Watched entry : entries) {
+            watched.computeIfPresent(entry.id, (key, current) -> --current.subscribers == 0 ? null : current);
+        }
+    }
+
+    /**
+     * Validates every asteroid against its baseline timeline, then merges their transitions.
+     */
+    private Flux<PathTransition> changes(List<Watched> entries) {
+        return Flux.fromIterable(entries)
+                .flatMap(entry -> entry.baseline)
+                .thenMany(Flux.merge(entries.stream().map(entry -> entry.sink.asFlux()).toList()));
+    }
+
+    private Mono<Void> refresh(Watched entry) {
+        Mono<?> reload = peerCache.owns(entry.id) ? caches.refresh(CACHE, entry.id) : client.fetchAsteroidData(entry.id);
+        return reload.cast(NasaNeoResponse.class)
+                .doOnNext(response -> entry.update(timeline(response)))
+                .onErrorResume(e -> {
+                    logger.debug("Watchlist refresh of asteroid {} failed, keeping its timeline: {}", entry.id, e.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Set<AsteroidPath> timeline(NasaNeoResponse response) {
+        PathsRequest window = new PathsRequest(null, null);
+        return new LinkedHashSet<>(pathCalculator.calculatePaths(response, window.effectiveFromDate(), window.effectiveToDate()));
+    }
+
+    /**
+     * The state shared by the subscriptions of one asteroid; {@code subscribers} is only changed within the atomic
+     * operations of the map.
+     */
+    private final class Watched {
+
+        private final String id;
+        private final AtomicReference<Set<AsteroidPath>> timeline = new AtomicReference<>();
+        private final Sinks.Many<PathTransition> sink = Sinks.many().multicast().directBestEffort();
+        /** The timeline when the asteroid started being watched, from the cache; fails if the asteroid is unknown. */
+        private final Mono<Set<AsteroidPath>> baseline;
+        private int subscribers;
+
+        private Watched(String id) {
+            this.id = id;
+            this.baseline = client.getAsteroidData(id)
+                    .switchIfEmpty(Mono.error(() -> new AsteroidNotFoundException(id)))
+                    .map(AsteroidWatchlistImpl.this::timeline)
+                    .doOnNext(initial -> timeline.compareAndSet(null, initial))
+                    .cache();
+        }
+
+        private void update(Set<AsteroidPath> current) {
+            Set<AsteroidPath> previous = timeline.getAndSet(current);
+            if (previous == null) {
+                return;
+            }
+            for (AsteroidPath path : current) {
+                if (!previous.contains(path)) {
+                    transitions.increment();
+                    sink.tryEmitNext(new PathTransition(id, path));
+                }
+            }
+        }
+    }
+}
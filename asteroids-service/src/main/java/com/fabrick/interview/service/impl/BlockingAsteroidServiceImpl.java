@@ -0,0 +1,54 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.client.BlockingNasaApiClient;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.service.AsteroidService;
+import com.fabrick.interview.support.blocking.BlockingCalls;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fabrick.interview.support.tracing.ReactiveObservations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+/**
+ * Implementation of the {@link AsteroidService} for the {@code virtual-threads} profile: the same lookup, path
+ * calculation, stages and metrics as {@link AsteroidServiceImpl}, written as sequential blocking code over
+ * {@link BlockingNasaApiClient} and run on a virtual thread per request (see {@link BlockingCalls}).
+ */
+@Service
+@Profile("virtual-threads")
+public class BlockingAsteroidServiceImpl implements AsteroidService {
+
+    private final BlockingNasaApiClient nasaApiClient;
+    private final ObservationRegistry observationRegistry;
+    private final PathCalculator pathCalculator;
+
+    public BlockingAsteroidServiceImpl(BlockingNasaApiClient nasaApiClient, MeterRegistry meterRegistry,
+                                       ObservationRegistry observationRegistry) {
+        this.nasaApiClient = nasaApiClient;
+        this.observationRegistry = observationRegistry;
+        this.pathCalculator = new PathCalculator(meterRegistry);
+    }
+
+    @Override
+    public Flux<AsteroidPath> getAsteroidPath(String asteroidId, LocalDate fromDate, LocalDate toDate) {
+        return BlockingCalls.flux(context -> {
+            RenderedResponseCache.dependsOn(context, "asteroids", asteroidId);
+            NasaNeoResponse response = ReactiveObservations.child(stage("asteroid.lookup", asteroidId), context)
+                    .observe(() -> nasaApiClient.getAsteroidData(asteroidId));
+            return ReactiveObservations.child(stage("asteroid.paths.calculate", asteroidId), context)
+                    .observe(() -> pathCalculator.calculatePaths(response, fromDate, toDate));
+        });
+    }
+
+    private Observation stage(String name, String asteroidId) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .highCardinalityKeyValue("asteroid.id", asteroidId);
+    }
+}
@@ -0,0 +1,123 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The path calculation shared by the reactive and the blocking implementations of the asteroid service: plain
+ * synchronous code over the NASA response, with the {@code asteroid.close.approaches} and {@code asteroid.paths}
+ * distributions.
+ */
+final class PathCalculator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathCalculator.class);
+
+    private final DistributionSummary closeApproaches;
+    private final DistributionSummary pathsPerAsteroid;
+
+    PathCalculator(MeterRegistry meterRegistry) {
+        this.closeApproaches = DistributionSummary.builder("asteroid.close.approaches")
+                .description("Close approach events processed per path calculation")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.pathsPerAsteroid = DistributionSummary.builder("asteroid.paths")
+                .description("Paths returned per path calculation, after the date range filter")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Core business logic that transforms raw NASA data into migration paths.
+     * <p>
+     * <b>Algorithm details:</b>
+     * <ol>
+     * <li>Extracts close approach data and maps it to a lightweight {@link SortedEvent} structure.</li>
+     * <li>Sorts all events chronologically (NASA data is not guaranteed to be sorted).</li>
+     * <li>Iterates through the timeline to detect changes in the {@code orbitingBody}.</li>
+     * <li>When the orbiting body changes (e.g., from "Earth" to "Juptr"), a new {@link AsteroidPath} is created.</li>
+     * <li>Filters the resulting path against the requested date range.</li>
+     * </ol>
+     * </p>
+     *
+     * @param response   The raw response from the NASA API.
+     * @param filterFrom The start date for filtering.
+     * @param filterTo   The end date for filtering.
+     * @return A list of valid {@link AsteroidPath} objects.
+     */
+    List<AsteroidPath> calculatePaths(NasaNeoResponse response, LocalDate filterFrom, LocalDate filterTo) {
+        List<CloseApproachData> data = response.closeApproachData();
+        List<AsteroidPath> paths = new ArrayList<>();
+
+        if (data == null || data.isEmpty()) {
+            logger.warn("No close approach data found for asteroid");
+            closeApproaches.record(0);
+            pathsPerAsteroid.record(0);
+            return paths;
+        }
+        closeApproaches.record(data.size());
+
+        logger.debug("Processing {} raw events from NASA", data.size());
+
+        // 1. Sort events chronologically to reconstruct the timeline
+        List<SortedEvent> sortedEvents = data.stream()
+                .map(d -> new SortedEvent(
+                        LocalDate.parse(d.closeApproachDate()),
+                        d.orbitingBody()
+                ))
+                .sorted(Comparator.comparing(SortedEvent::date))
+                .toList();
+
+        if (sortedEvents.isEmpty()) return paths;
+
+        SortedEvent currentStartEvent = sortedEvents.getFirst();
+
+        // 2. Detect orbit changes
+        for (int i = 1; i < sortedEvents.size(); i++) {
+            SortedEvent nextEvent = sortedEvents.get(i);
+
+            // A path exists only if the orbiting body changes
+            if (!nextEvent.body().equals(currentStartEvent.body())) {
+
+                AsteroidPath path = new AsteroidPath(
+                        currentStartEvent.body(),
+                        nextEvent.body(),
+                        currentStartEvent.date(),
+                        nextEvent.date()
+                );
+
+                if (isWithinRange(path, filterFrom, filterTo)) {
+                    paths.add(path);
+                }
+
+                // The end of the current path becomes the start of the next potential path
+                currentStartEvent = nextEvent;
+            }
+        }
+        logger.debug("Calculation finished. Found {} valid paths within date range.", paths.size());
+        pathsPerAsteroid.record(paths.size());
+        return paths;
+    }
+
+    /**
+     * Helper method to validate if a path falls within the requested date range.
+     */
+    private boolean isWithinRange(AsteroidPath path, LocalDate filterFrom, LocalDate filterTo) {
+        if (filterFrom != null && path.getFromDate().isBefore(filterFrom)) return false;
+        return filterTo == null || !path.getToDate().isAfter(filterTo);
+    }
+
+    /**
+     * Internal helper record to streamline the sorting of close approach events.
+     */
+    private record SortedEvent(LocalDate date, String body) {}
+}
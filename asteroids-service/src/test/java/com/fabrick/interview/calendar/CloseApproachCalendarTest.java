@@ -0,0 +1,101 @@
+package com.fabrick.interview.calendar;
+
+import com.fabrick.interview.model.CloseApproach;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CloseApproachCalendarTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CloseApproachCalendar calendar = new CloseApproachCalendar(meterRegistry, Duration.ofSeconds(10));
+
+    @Test
+    @DisplayName("Should answer the same range scans before and after sealing, in date order")
+    void shouldScanStagedAndSealed() {
+        calendar.index(asteroid("1", "1998-03-02", "Earth", "1998-03-20", "Mars", "2001-07-04", "Earth"));
+        calendar.index(asteroid("2", "1998-03-10", "Earth", "1998-04-01", "Venus"));
+
+        List<CloseApproach> expected = List.of(
+                new CloseApproach(LocalDate.parse("1998-03-02"), "Earth", "1"),
+                new CloseApproach(LocalDate.parse("1998-03-10"), "Earth", "2"),
+                new CloseApproach(LocalDate.parse("1998-03-20"), "Mars", "1"));
+        assertEquals(expected, scan("1998-03-01", "1998-03-31", null));
+
+        calendar.seal();
+
+        assertEquals(expected, scan("1998-03-01", "1998-03-31", null));
+        assertEquals(List.of(expected.get(0), expected.get(1)), scan("1998-03-01", "1998-03-31", "earth"));
+        assertEquals(3.0, meterRegistry.get("calendar.partitions").gauge().value());
+        assertEquals(5.0, meterRegistry.get("calendar.approaches").gauge().value());
+        assertTrue(meterRegistry.get("calendar.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Should only inflate the sealed months overlapping the window and holding the body")
+    void shouldPruneMonths() {
+        List<String> approaches = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            approaches.add("1998-%02d-15".formatted(month));
+            approaches.add(month % 2 == 0 ? "Earth" : "Mars");
+        }
+        calendar.index(asteroid("1", approaches.toArray(String[]::new)));
+        calendar.seal();
+
+        assertEquals(2, scan("1998-03-15", "1998-05-14", null).size());
+        // March, April and May
+        assertEquals(3.0, meterRegistry.get("calendar.partitions.scanned").counter().count());
+
+        assertEquals(6, scan("1998-01-01", "1998-12-31", "Earth").size());
+        // the even months only
+        assertEquals(9.0, meterRegistry.get("calendar.partitions.scanned").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should replace the approaches of a re-indexed asteroid, including in the months it left")
+    void shouldReplaceReindexedAsteroid() {
+        calendar.index(asteroid("1", "1998-03-02", "Earth", "1998-06-02", "Mars"));
+        calendar.index(asteroid("2", "1998-03-05", "Earth"));
+        calendar.seal();
+
+        calendar.index(asteroid("1", "1998-06-02", "Mars", "1998-09-02", "Venus"));
+        List<CloseApproach> expected = List.of(
+                new CloseApproach(LocalDate.parse("1998-03-05"), "Earth", "2"),
+                new CloseApproach(LocalDate.parse("1998-06-02"), "Mars", "1"),
+                new CloseApproach(LocalDate.parse("1998-09-02"), "Venus", "1"));
+        // staged: hides the sealed approaches of the asteroid
+        assertEquals(expected, scan("1998-01-01", "1998-12-31", null));
+
+        calendar.seal();
+
+        assertEquals(expected, scan("1998-01-01", "1998-12-31", null));
+        assertEquals(3.0, meterRegistry.get("calendar.partitions").gauge().value());
+        assertEquals(0.0, meterRegistry.get("calendar.staged.asteroids").gauge().value());
+    }
+
+    private List<CloseApproach> scan(String from, String to, String body) {
+        return calendar.scan(LocalDate.parse(from), LocalDate.parse(to), body).collectList().block();
+    }
+
+    /**
+     * @param approaches Dates and bodies, alternated.
+     */
+    private static NasaNeoResponse asteroid(String id, String... approaches) {
+        List<CloseApproachData> data = new ArrayList<>();
+        for (int i = 0; i < approaches.length; i += 2) {
+            data.add(new CloseApproachData(approaches[i], approaches[i + 1]));
+        }
+        return new NasaNeoResponse(id, "Asteroid " + id, data);
+    }
+}
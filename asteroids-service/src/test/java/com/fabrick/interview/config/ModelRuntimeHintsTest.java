@@ -0,0 +1,27 @@
+package com.fabrick.interview.config;
+
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelRuntimeHintsTest {
+
+    @Test
+    @DisplayName("Should register the Jackson bindings of the NeoWs payload and of the paths")
+    void shouldRegisterBindingHints() {
+        RuntimeHints hints = new RuntimeHints();
+        new ModelRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> type : new Class<?>[]{NasaNeoResponse.class, CloseApproachData.class, AsteroidPath.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), type.getName());
+        }
+    }
+}
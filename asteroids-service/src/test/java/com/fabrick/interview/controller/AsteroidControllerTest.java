@@ -1,20 +1,32 @@
 package com.fabrick.interview.controller;
 
+import com.fabrick.interview.model.AsteroidPath;
 import com.fabrick.interview.service.AsteroidService;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,6 +36,11 @@ class AsteroidControllerTest {
     @Mock
     private AsteroidService asteroidService;
 
+    @Spy
+    private RenderedResponseCache responseCache = new RenderedResponseCache(
+            JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build(),
+            ObservationRegistry.NOOP, true, DataSize.ofMegabytes(1), Duration.ofMinutes(10), DataSize.ofKilobytes(1));
+
     @InjectMocks
     private AsteroidController asteroidController;
 
@@ -32,7 +49,7 @@ class AsteroidControllerTest {
     void shouldUseDefaultDates() {
         when(asteroidService.getAsteroidPath(any(), any(), any())).thenReturn(Flux.empty());
 
-        asteroidController.getAsteroidPaths("123", null, null);
+        asteroidController.getAsteroidPaths("123", null, null, exchange()).block();
 
         ArgumentCaptor<LocalDate> fromDateCaptor = ArgumentCaptor.forClass(LocalDate.class);
         ArgumentCaptor<LocalDate> toDateCaptor = ArgumentCaptor.forClass(LocalDate.class);
@@ -51,8 +68,35 @@ class AsteroidControllerTest {
 
         LocalDate myFrom = LocalDate.of(1990, 1, 1);
         LocalDate myTo = LocalDate.of(1995, 1, 1);
-        asteroidController.getAsteroidPaths("123", myFrom, myTo);
+        asteroidController.getAsteroidPaths("123", myFrom, myTo, exchange()).block();
 
         verify(asteroidService).getAsteroidPath("123", myFrom, myTo);
     }
+
+    @Test
+    @DisplayName("Should render the paths once per asteroid and date window, and answer 304 to its ETag")
+    void shouldServeRenderedPaths() {
+        LocalDate from = LocalDate.of(2010, 1, 1);
+        LocalDate to = LocalDate.of(2020, 1, 1);
+        when(asteroidService.getAsteroidPath("123", from, to)).thenReturn(Flux.just(
+                new AsteroidPath("Earth", "Juptr", LocalDate.of(2010, 1, 1), LocalDate.of(2015, 1, 1))));
+
+        MockServerWebExchange miss = exchange();
+        asteroidController.getAsteroidPaths("123", from, to, miss).block();
+        MockServerWebExchange hit = exchange();
+        asteroidController.getAsteroidPaths("123", from, to, hit).block();
+        MockServerWebExchange notModified = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+                .ifNoneMatch(hit.getResponse().getHeaders().getETag()));
+        asteroidController.getAsteroidPaths("123", from, to, notModified).block();
+
+        verify(asteroidService, times(1)).getAsteroidPath("123", from, to);
+        assertEquals("[{\"fromPlanet\":\"Earth\",\"toPlanet\":\"Juptr\",\"fromDate\":\"2010-01-01\",\"toDate\":\"2015-01-01\"}]",
+                hit.getResponse().getBodyAsString().block());
+        assertEquals(miss.getResponse().getHeaders().getETag(), hit.getResponse().getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getResponse().getStatusCode());
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+    }
 }
\ No newline at end of file
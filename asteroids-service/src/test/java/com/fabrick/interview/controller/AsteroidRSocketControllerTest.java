@@ -0,0 +1,86 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.exception.NasaServiceException;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathsRequest;
+import com.fabrick.interview.service.AsteroidService;
+import io.rsocket.exceptions.CustomRSocketException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rsocket.server.LocalRSocketServerPort;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+@SpringBootTest(properties = "spring.rsocket.server.port=0")
+class AsteroidRSocketControllerTest {
+
+    @MockitoBean
+    private AsteroidService asteroidService;
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void connect() {
+        requester = requesterBuilder.tcp("localhost", port);
+    }
+
+    @AfterEach
+    void disconnect() {
+        requester.dispose();
+    }
+
+    @Test
+    @DisplayName("Should stream the paths of the requested window, as requested by the caller")
+    void shouldStreamPaths() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2010, 1, 1);
+        given(asteroidService.getAsteroidPath("3542519", from, to)).willReturn(Flux.just(
+                new AsteroidPath("Earth", "Mars", LocalDate.of(2001, 1, 1), LocalDate.of(2003, 1, 1)),
+                new AsteroidPath("Mars", "Juptr", LocalDate.of(2003, 1, 1), LocalDate.of(2008, 1, 1))));
+
+        StepVerifier.create(requester.route("asteroids.{id}.paths", "3542519")
+                        .data(new PathsRequest(from, to))
+                        .retrieveFlux(AsteroidPath.class), 1)
+                .expectNextMatches(path -> path.getToPlanet().equals("Mars"))
+                .thenRequest(1)
+                .expectNextMatches(path -> path.getToPlanet().equals("Juptr") && path.getToDate().equals(LocalDate.of(2008, 1, 1)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should end the stream with the stable error code of the failure")
+    void shouldMapErrors() {
+        given(asteroidService.getAsteroidPath(eq("404"), any(), any())).willReturn(Flux.error(new AsteroidNotFoundException("404")));
+        given(asteroidService.getAsteroidPath(eq("502"), any(), any()))
+                .willReturn(Flux.error(new NasaServiceException("NASA API is currently unavailable.")));
+
+        expectError("404", AsteroidRSocketController.NOT_FOUND);
+        expectError("502", AsteroidRSocketController.UPSTREAM_UNAVAILABLE);
+    }
+
+    private void expectError(String asteroidId, int code) {
+        StepVerifier.create(requester.route("asteroids.{id}.paths", asteroidId).retrieveFlux(AsteroidPath.class))
+                .expectErrorSatisfies(error -> assertEquals(code, ((CustomRSocketException) error).errorCode()))
+                .verify();
+    }
+}
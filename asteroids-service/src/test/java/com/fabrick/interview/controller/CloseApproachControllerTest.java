@@ -0,0 +1,45 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.calendar.CloseApproachCalendar;
+import com.fabrick.interview.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+class CloseApproachControllerTest {
+
+    private final CloseApproachCalendar calendar = new CloseApproachCalendar(new SimpleMeterRegistry(), Duration.ofSeconds(10));
+
+    private final WebTestClient client = WebTestClient
+            .bindToController(new CloseApproachController(calendar, 100))
+            .controllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        calendar.stop();
+    }
+
+    @Test
+    @DisplayName("Should answer 400 to an inverted window or a limit out of range")
+    void shouldRejectInvalidQueries() {
+        expectBadRequest("fromDate=1998-03-31&toDate=1998-03-01");
+        expectBadRequest("fromDate=1998-03-01&toDate=1998-03-31&limit=0");
+        expectBadRequest("fromDate=1998-03-01&toDate=1998-03-31&limit=101");
+        client.get().uri("/api/fabrick/v1.0/asteroids/close-approaches?fromDate=1998-03-01&toDate=1998-03-31&limit=100")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void expectBadRequest(String query) {
+        client.get().uri("/api/fabrick/v1.0/asteroids/close-approaches?" + query)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Invalid Calendar Query");
+    }
+}
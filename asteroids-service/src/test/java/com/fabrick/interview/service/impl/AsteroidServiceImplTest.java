@@ -3,11 +3,15 @@ package com.fabrick.interview.service.impl;
 import com.fabrick.interview.client.NasaApiClient;
 import com.fabrick.interview.model.nasa.CloseApproachData;
 import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -15,6 +19,7 @@ import reactor.test.StepVerifier;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -24,6 +29,12 @@ class AsteroidServiceImplTest {
     @Mock
     private NasaApiClient nasaApiClient;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.create();
+
     @InjectMocks
     private AsteroidServiceImpl asteroidService;
 
@@ -75,6 +86,9 @@ class AsteroidServiceImplTest {
         StepVerifier.create(asteroidService.getAsteroidPath("123", fromDate, null))
                 .expectNextMatches(path -> path.getFromPlanet().equals("Juptr"))
                 .verifyComplete();
+
+        assertEquals(3, meterRegistry.get("asteroid.close.approaches").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("asteroid.paths").summary().totalAmount());
     }
 
     @Test
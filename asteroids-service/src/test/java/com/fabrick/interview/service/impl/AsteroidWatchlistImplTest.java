@@ -0,0 +1,141 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.client.NasaApiClient;
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.exception.InvalidWatchlistException;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.PathTransition;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsteroidWatchlistImplTest {
+
+    private static final NasaNeoResponse BASELINE = response("Earth", "Juptr");
+
+    @Mock
+    private NasaApiClient nasaApiClient;
+
+    @Mock
+    private ManagedCaches caches;
+
+    @Mock
+    private PeerCache peerCache;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(peerCache.owns(anyString())).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Should refresh a watched asteroid once for all its subscribers and stream only its new paths")
+    void shouldFanOutNewPaths() {
+        AsteroidWatchlistImpl watchlist = watchlist(16);
+        when(nasaApiClient.getAsteroidData("123")).thenReturn(Mono.just(BASELINE));
+        when(nasaApiClient.getAsteroidData("456")).thenReturn(Mono.just(BASELINE));
+        when(caches.refresh("asteroids", "123")).thenReturn(Mono.just(response("Earth", "Juptr", "Mars")));
+        when(caches.refresh("asteroids", "456")).thenReturn(Mono.just(BASELINE));
+        PathTransition expected = new PathTransition("123",
+                new AsteroidPath("Juptr", "Mars", LocalDate.of(2011, 1, 1), LocalDate.of(2012, 1, 1)));
+
+        StepVerifier first = StepVerifier.create(watchlist.watch(List.of("123", "456")))
+                .expectNext(expected)
+                .thenCancel()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(watchlist.watch(List.of("123", " 123 ")))
+                .expectNext(expected)
+                .thenCancel()
+                .verifyLater();
+        assertEquals(2.0, meterRegistry.get("watchlist.asteroids").gauge().value());
+        assertEquals(2.0, meterRegistry.get("watchlist.subscriptions").gauge().value());
+
+        watchlist.refreshAll().block();
+        first.verify(Duration.ofSeconds(5));
+        second.verify(Duration.ofSeconds(5));
+
+        verify(caches).refresh("asteroids", "123");
+        assertEquals(1.0, meterRegistry.get("watchlist.transitions").counter().count());
+        assertEquals(0.0, meterRegistry.get("watchlist.asteroids").gauge().value());
+        assertEquals(0.0, meterRegistry.get("watchlist.subscriptions").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should end the subscription of a client falling behind its buffer, without affecting the others")
+    void shouldOverflowSlowSubscriber() {
+        AsteroidWatchlistImpl watchlist = watchlist(2);
+        when(nasaApiClient.getAsteroidData("123")).thenReturn(Mono.just(BASELINE));
+        when(caches.refresh("asteroids", "123")).thenReturn(Mono.just(response("Earth", "Juptr", "Mars", "Venus", "Earth")));
+
+        StepVerifier fast = StepVerifier.create(watchlist.watch(List.of("123")))
+                .expectNextCount(3)
+                .thenCancel()
+                .verifyLater();
+
+        StepVerifier.create(watchlist.watch(List.of("123")), 0)
+                .then(() -> watchlist.refreshAll().block())
+                .thenRequest(10)
+                .expectNextCount(2)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(5));
+        fast.verify(Duration.ofSeconds(5));
+        assertEquals(1.0, meterRegistry.get("watchlist.overflows").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should fail before any emission for an unknown asteroid, and reject empty or oversized watchlists")
+    void shouldValidateWatchlist() {
+        AsteroidWatchlistImpl watchlist = watchlist(16);
+        when(nasaApiClient.getAsteroidData("404")).thenReturn(Mono.error(new AsteroidNotFoundException("404")));
+        when(nasaApiClient.getAsteroidData("123")).thenReturn(Mono.just(BASELINE));
+
+        StepVerifier.create(watchlist.watch(List.of("123", "404")))
+                .verifyError(AsteroidNotFoundException.class);
+        assertEquals(0.0, meterRegistry.get("watchlist.asteroids").gauge().value());
+
+        assertThrows(InvalidWatchlistException.class, () -> watchlist.watch(List.of(" ")));
+        assertThrows(InvalidWatchlistException.class, () -> watchlist.watch(List.of("1", "2", "3", "4")));
+    }
+
+    private AsteroidWatchlistImpl watchlist(int bufferSize) {
+        return new AsteroidWatchlistImpl(nasaApiClient, caches, peerCache, meterRegistry,
+                Duration.ofMinutes(5), 2, 3, bufferSize);
+    }
+
+    /**
+     * Close approaches one year apart from 2010, to the given bodies.
+     */
+    private static NasaNeoResponse response(String... bodies) {
+        List<CloseApproachData> approaches = new ArrayList<>();
+        for (int i = 0; i < bodies.length; i++) {
+            approaches.add(new CloseApproachData((2010 + i) + "-01-01", bodies[i]));
+        }
+        return new NasaNeoResponse("123", "TestAsteroid", approaches);
+    }
+}
@@ -0,0 +1,75 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.client.BlockingNasaApiClient;
+import com.fabrick.interview.exception.AsteroidNotFoundException;
+import com.fabrick.interview.model.nasa.CloseApproachData;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlockingAsteroidServiceImplTest {
+
+    @Mock
+    private BlockingNasaApiClient nasaApiClient;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+    @InjectMocks
+    private BlockingAsteroidServiceImpl asteroidService;
+
+    @Test
+    @DisplayName("Should calculate the same filtered paths as the reactive service, on a virtual thread")
+    void shouldCalculatePathsOnVirtualThread() {
+        NasaNeoResponse mockResponse = new NasaNeoResponse(
+                "123", "TestAsteroid",
+                List.of(
+                        new CloseApproachData("2020-01-01", "Mars"),
+                        new CloseApproachData("2010-01-01", "Earth"),
+                        new CloseApproachData("2015-01-01", "Juptr")
+                )
+        );
+        when(nasaApiClient.getAsteroidData(anyString())).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().isVirtual(), "Blocking call on " + Thread.currentThread());
+            return mockResponse;
+        });
+
+        StepVerifier.create(asteroidService.getAsteroidPath("123", LocalDate.of(2012, 1, 1), null))
+                .expectNextMatches(path -> path.getFromPlanet().equals("Juptr") && path.getToPlanet().equals("Mars"))
+                .verifyComplete();
+
+        assertEquals(3, meterRegistry.get("asteroid.close.approaches").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("asteroid.paths").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should propagate the client errors")
+    void shouldPropagateErrors() {
+        when(nasaApiClient.getAsteroidData(anyString())).thenThrow(new AsteroidNotFoundException("123"));
+
+        StepVerifier.create(asteroidService.getAsteroidPath("123", null, null))
+                .expectError(AsteroidNotFoundException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,114 @@
+package com.fabrick.interview.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with a baseline and exits with status 1 when a benchmark regressed:
+ * <ul>
+ * <li>its score is worse than the baseline by more than the tolerance and by more than the two error margins
+ * combined (so noise alone does not fail the comparison);</li>
+ * <li>or it allocates more per operation ({@code gc.alloc.rate.norm}) than the baseline by more than the tolerance.
+ * Allocation is mostly independent of the machine, which makes it the most reliable signal across hosts.</li>
+ * </ul>
+ * Usage: {@code BaselineComparison <baseline.json> <result.json> [tolerance %, default 10]}.
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    /**
+     * Allocation differences below this many bytes per operation are ignored (e.g. for allocation-free benchmarks).
+     */
+    private static final double ALLOCATION_SLACK = 16;
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <result.json> [tolerance %]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            boolean higherIsBetter = after.path("mode").asText().equals("thrpt");
+            JsonNode scoreBefore = before.path("primaryMetric");
+            JsonNode scoreAfter = after.path("primaryMetric");
+            double change = relativeChange(scoreBefore.path("score").asDouble(), scoreAfter.path("score").asDouble());
+            double worsening = higherIsBetter ? -change : change;
+            double delta = Math.abs(scoreAfter.path("score").asDouble() - scoreBefore.path("score").asDouble());
+            double noise = error(scoreBefore) + error(scoreAfter);
+            boolean slower = worsening > tolerance && delta > noise;
+
+            JsonNode allocationBefore = before.path("secondaryMetrics").path(ALLOCATION);
+            JsonNode allocationAfter = after.path("secondaryMetrics").path(ALLOCATION);
+            boolean allocates = false;
+            String allocation = "";
+            if (!allocationBefore.isMissingNode() && !allocationAfter.isMissingNode()) {
+                double bytesBefore = allocationBefore.path("score").asDouble();
+                double bytesAfter = allocationAfter.path("score").asDouble();
+                allocates = bytesAfter - bytesBefore > ALLOCATION_SLACK && relativeChange(bytesBefore, bytesAfter) > tolerance;
+                allocation = String.format(Locale.US, ", %.0f -> %.0f B/op", bytesBefore, bytesAfter);
+            }
+
+            String status = slower || allocates ? "REGRESSION" : "OK";
+            if (slower || allocates) {
+                regressions++;
+            }
+            System.out.printf(Locale.US, "%-10s %s: %.3f -> %.3f %s (%+.1f%%)%s%n", status, entry.getKey(),
+                    scoreBefore.path("score").asDouble(), scoreAfter.path("score").asDouble(),
+                    scoreAfter.path("scoreUnit").asText(), change * 100, allocation);
+        }
+        baseline.keySet().stream()
+                .filter(key -> !current.containsKey(key))
+                .forEach(key -> System.out.printf("MISSING    %s%n", key));
+
+        System.out.printf("%d benchmark(s) compared, %d regression(s)%n", current.size(), regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return The results of the file keyed by benchmark name, mode and parameters.
+     */
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+                    .append(" [").append(result.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").properties().forEach(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(", ").append(name).append('=').append(value));
+            results.put(key.append(']').toString(), result);
+        }
+        return results;
+    }
+
+    private static double relativeChange(double before, double after) {
+        return before == 0 ? (after == 0 ? 0 : Double.POSITIVE_INFINITY) : (after - before) / before;
+    }
+
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
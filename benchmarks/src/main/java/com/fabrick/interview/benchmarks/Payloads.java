@@ -0,0 +1,130 @@
+package com.fabrick.interview.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Upstream response payloads of a chosen size, derived from the samples under {@code payloads/}, which follow the
+ * exact format of the NASA NeoWs {@code /neo/{id}} and Aviation Weather {@code /stationinfo} and {@code /airport}
+ * responses (including the fields the services ignore, which the parser still has to skip).
+ * <p>
+ * Larger payloads repeat the sample entries with deterministic variations (seeded random), so every run of
+ * every machine binds exactly the same bytes and no network access is needed.
+ * </p>
+ */
+public final class Payloads {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final DateTimeFormatter FULL_DATE = DateTimeFormatter.ofPattern("yyyy-MMM-dd HH:mm", Locale.US);
+
+    /**
+     * Key renames turning the upstream station/airport format into the canonical one served by the APIs
+     * (and stored in the reference datasets), both accepted thanks to the {@code @JsonAlias} declarations.
+     */
+    private static final Map<String, String> CANONICAL_KEYS = Map.of(
+            "icaoId", "id", "lat", "latitude", "lon", "longitude", "elev", "elevation");
+
+    private Payloads() {
+    }
+
+    /**
+     * @param approaches Number of close approach events.
+     * @return A NeoWs asteroid response with the given number of chronologically ordered close approaches.
+     */
+    public static byte[] neo(int approaches) {
+        ObjectNode neo = (ObjectNode) read("neo.json");
+        ArrayNode samples = (ArrayNode) neo.get("close_approach_data");
+        ArrayNode generated = MAPPER.createArrayNode();
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(1900, 1, 1);
+        int sample = 0;
+        for (int i = 0; i < approaches; i++) {
+            // The body stays the same for a few approaches, then the asteroid moves on, as in real data
+            if (random.nextInt(3) == 0) {
+                sample = (sample + 1) % samples.size();
+            }
+            date = date.plusDays(20 + random.nextInt(200));
+            ObjectNode approach = samples.get(sample).deepCopy();
+            approach.put("close_approach_date", date.toString());
+            approach.put("close_approach_date_full", FULL_DATE.format(date.atTime(random.nextInt(24), random.nextInt(60))));
+            approach.put("epoch_date_close_approach", date.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+            generated.add(approach);
+        }
+        neo.set("close_approach_data", generated);
+        return write(neo);
+    }
+
+    /**
+     * @param count     Number of stations.
+     * @param canonical Whether to use the canonical keys ({@code id}, {@code latitude}, ...) instead of the upstream ones.
+     * @return A {@code /stationinfo} response with the given number of stations.
+     */
+    public static byte[] stations(int count, boolean canonical) {
+        return geoEntities("stationinfo.json", count, canonical);
+    }
+
+    /**
+     * @param count     Number of airports.
+     * @param canonical Whether to use the canonical keys ({@code id}, {@code latitude}, ...) instead of the upstream ones.
+     * @return An {@code /airport} response with the given number of airports.
+     */
+    public static byte[] airports(int count, boolean canonical) {
+        return geoEntities("airport.json", count, canonical);
+    }
+
+    private static byte[] geoEntities(String resource, int count, boolean canonical) {
+        ArrayNode samples = (ArrayNode) read(resource);
+        ArrayNode generated = MAPPER.createArrayNode();
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            ObjectNode entity = samples.get(i % samples.size()).deepCopy();
+            if (i >= samples.size()) {
+                entity.put("icaoId", String.format(Locale.US, "K%03d", i % 1000) + (char) ('A' + i / 1000 % 26));
+                entity.put("lat", Math.round((entity.get("lat").asDouble() + random.nextGaussian()) * 1e4) / 1e4);
+                entity.put("lon", Math.round((entity.get("lon").asDouble() + random.nextGaussian()) * 1e4) / 1e4);
+                entity.put("elev", entity.get("elev").asInt() + random.nextInt(200) - 100);
+            }
+            generated.add(canonical ? canonical(entity) : entity);
+        }
+        return write(generated);
+    }
+
+    private static ObjectNode canonical(ObjectNode entity) {
+        ObjectNode renamed = MAPPER.createObjectNode();
+        for (Map.Entry<String, JsonNode> field : entity.properties()) {
+            renamed.set(CANONICAL_KEYS.getOrDefault(field.getKey(), field.getKey()), field.getValue());
+        }
+        return renamed;
+    }
+
+    private static JsonNode read(String resource) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload sample " + resource);
+            }
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] write(JsonNode node) {
+        try {
+            return MAPPER.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.fabrick.interview.benchmarks;
+
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.function.Function;
+
+/**
+ * In-memory replacement of the upstream APIs for the benchmarks going through a real {@code WebClient}: every
+ * exchange is answered immediately with a recorded payload, so that no network is involved.
+ */
+public final class UpstreamStub {
+
+    private UpstreamStub() {
+    }
+
+    /**
+     * @param bodies The JSON body to return for a request URL.
+     * @return An exchange function answering {@code 200 OK} with the selected body.
+     */
+    public static ExchangeFunction respondingWith(Function<URI, byte[]> bodies) {
+        return request -> Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bodies.apply(request.url()))))
+                .build());
+    }
+}
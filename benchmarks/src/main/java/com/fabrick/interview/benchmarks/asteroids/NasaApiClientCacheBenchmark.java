@@ -0,0 +1,105 @@
+package com.fabrick.interview.benchmarks.asteroids;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.benchmarks.UpstreamStub;
+import com.fabrick.interview.calendar.CloseApproachCalendar;
+import com.fabrick.interview.client.NasaApiClient;
+import com.fabrick.interview.config.CacheConfig;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.peer.PeerCacheProperties;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@code @Cacheable("asteroids")} proxy of {@link NasaApiClient} backed by the application's async
+ * Caffeine cache: a hit (proxy, key generation, cache lookup and completion of the cached {@code Mono}) against a
+ * miss through the whole client pipeline (upstream answered in memory, body decoding, cache population).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NasaApiClientCacheBenchmark {
+
+    private static final int KEYS = 64;
+
+    private AnnotationConfigApplicationContext context;
+    private NasaApiClient client;
+    private Cache cache;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        byte[] payload = Payloads.neo(100);
+        context = new AnnotationConfigApplicationContext();
+        context.register(CacheConfig.class);
+        ManagedCaches caches = new ManagedCaches(new CachePolicyProperties());
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        context.registerBean(ManagedCaches.class, () -> caches);
+        context.registerBean("peerCache", PeerCache.class, () -> new PeerCache(new PeerCacheProperties(), caches,
+                WebClient.builder(), objectMapper, null));
+        context.registerBean(NasaApiClient.class, () -> new NasaApiClient(
+                WebClient.builder().baseUrl("http://nasa.invalid/neo")
+                        .exchangeFunction(UpstreamStub.respondingWith(url -> payload)).build(),
+                new UpstreamMetrics(new SimpleMeterRegistry()), ObservationRegistry.NOOP,
+                context.getBean(PeerCache.class),
+                new CloseApproachCalendar(new SimpleMeterRegistry(), Duration.ofSeconds(10)), "DEMO_KEY"));
+        context.refresh();
+        client = context.getBean(NasaApiClient.class);
+        cache = context.getBean(CacheManager.class).getCache("asteroids");
+        ids = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ids[i] = Integer.toString(3542519 + i);
+            client.getAsteroidData(ids[i]).block();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public NasaNeoResponse hit() {
+        return client.getAsteroidData(nextId()).block();
+    }
+
+    @Benchmark
+    public NasaNeoResponse miss() {
+        String id = nextId();
+        cache.evict(id);
+        return client.getAsteroidData(id).block();
+    }
+
+    private String nextId() {
+        next = (next + 1) % KEYS;
+        return ids[next];
+    }
+}
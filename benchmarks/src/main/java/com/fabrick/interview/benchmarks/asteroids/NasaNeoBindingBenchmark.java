@@ -0,0 +1,51 @@
+package com.fabrick.interview.benchmarks.asteroids;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson binding of a NeoWs {@code /neo/{id}} response into {@link NasaNeoResponse}, as done by
+ * {@code NasaApiClient} on a cache miss, for a growing number of close approaches. Most of the document
+ * (velocities, distances, orbital data) is skipped by the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NasaNeoBindingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int approaches;
+
+    private ObjectReader reader;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        reader = Jackson2ObjectMapperBuilder.json().build().readerFor(NasaNeoResponse.class);
+        payload = Payloads.neo(approaches);
+    }
+
+    @Benchmark
+    public NasaNeoResponse bind() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fabrick.interview.benchmarks.asteroids;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.calendar.CloseApproachCalendar;
+import com.fabrick.interview.client.NasaApiClient;
+import com.fabrick.interview.model.AsteroidPath;
+import com.fabrick.interview.model.nasa.NasaNeoResponse;
+import com.fabrick.interview.service.impl.AsteroidServiceImpl;
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.peer.PeerCacheProperties;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the path calculation of {@link AsteroidServiceImpl} (sort of the close approaches and detection of the
+ * orbiting body changes) for asteroids with a growing number of close approaches, the NASA response being
+ * already available as on a cache hit.
+ * <p>
+ * The date range keeps the middle of the timeline, so both the filter and the result list are exercised.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathCalculationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int approaches;
+
+    private AsteroidServiceImpl service;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        NasaNeoResponse response = objectMapper.readValue(Payloads.neo(approaches), NasaNeoResponse.class);
+        NasaApiClient client = new NasaApiClient(WebClient.create(), new UpstreamMetrics(new SimpleMeterRegistry()),
+                ObservationRegistry.NOOP, new PeerCache(new PeerCacheProperties(),
+                new ManagedCaches(new CachePolicyProperties()), WebClient.builder(), objectMapper, null),
+                new CloseApproachCalendar(new SimpleMeterRegistry(), Duration.ofSeconds(10)), "DEMO_KEY") {
+            @Override
+            public Mono<NasaNeoResponse> getAsteroidData(String asteroidId) {
+                return Mono.just(response);
+            }
+        };
+        service = new AsteroidServiceImpl(client, new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+
+        List<String> dates = response.closeApproachData().stream().map(d -> d.closeApproachDate()).toList();
+        fromDate = LocalDate.parse(dates.get(dates.size() / 4));
+        toDate = LocalDate.parse(dates.get(dates.size() * 3 / 4));
+    }
+
+    @Benchmark
+    public List<AsteroidPath> calculatePaths() {
+        return service.getAsteroidPath("3542519", fromDate, toDate).collectList().block();
+    }
+}
@@ -0,0 +1,137 @@
+package com.fabrick.interview.benchmarks.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.fabrick.interview.support.logging.LockFreeAsyncAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the logging cost borne by the request thread for one airport proximity search answered from upstream
+ * with {@value #RESULTS} airports: the previous setup (DEBUG on the application loggers, the controller, service and
+ * client lines, one DEBUG line per airport, written synchronously by a console appender) against the single summary
+ * line of the {@code RequestLogWebFilter} handed to the {@link LockFreeAsyncAppender}, written for every request or
+ * sampled at 1%. Both write Spring Boot's console pattern to a discarding stream, so the cost measured is the one of
+ * the logging calls, not of the terminal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestLoggingBenchmark {
+
+    private static final int RESULTS = 50;
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p 12345 --- [%15.15t] %-40.40logger{39} : %m%n";
+
+    private LoggerContext scatteredContext;
+    private Logger controller;
+    private Logger service;
+    private Logger client;
+    private LoggerContext summaryContext;
+    private Logger request;
+    private String[] airportIds;
+
+    @Setup
+    public void setUp() {
+        scatteredContext = context();
+        scatteredContext.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.DEBUG);
+        scatteredContext.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(console(scatteredContext));
+        controller = scatteredContext.getLogger("com.fabrick.interview.weather.controller.WeatherController");
+        service = scatteredContext.getLogger("com.fabrick.interview.weather.service.impl.WeatherServiceImpl");
+        client = scatteredContext.getLogger("com.fabrick.interview.weather.client.AviationApiClient");
+
+        summaryContext = context();
+        LockFreeAsyncAppender async = new LockFreeAsyncAppender();
+        async.setContext(summaryContext);
+        async.setName("ASYNC_CONSOLE");
+        async.addAppender(console(summaryContext));
+        async.start();
+        summaryContext.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        summaryContext.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(async);
+        request = summaryContext.getLogger("com.fabrick.interview.request");
+
+        airportIds = new String[RESULTS];
+        for (int i = 0; i < RESULTS; i++) {
+            airportIds[i] = "K" + (char) ('A' + i % 26) + (char) ('A' + i / 26) + 'X';
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scatteredContext.stop();
+        summaryContext.stop();
+    }
+
+    @Benchmark
+    public void scatteredLines() {
+        controller.info(">>> CONTROLLER: Richiesta ricevuta. Airport: {}, Range: {}", "KDEN", 50.0);
+        service.debug("SERVICE: Cerco metadati per aeroporto {}", "KDEN");
+        service.info("SERVICE: Trovato {}. Coord: Lat={}, Lon={}", "Denver Intl", 39.8617, -104.6731);
+        service.info("SERVICE: Cerco stazioni nel BBOX: {}", "39.14,-105.61,40.58,-103.73");
+        client.info("Cache MISS - Fetching Airports bbox: {}", "39.14,-105.61,40.58,-103.73");
+        for (String id : airportIds) {
+            client.debug("CLIENT: Ricevuto aeroporto: {}", id);
+        }
+    }
+
+    @Benchmark
+    public void asyncSummary() {
+        summary();
+    }
+
+    @Benchmark
+    public void asyncSummarySampled() {
+        // the RequestLogWebFilter decision at request-log.sample-rate=0.01
+        if (ThreadLocalRandom.current().nextDouble() < 0.01) {
+            summary();
+        }
+    }
+
+    private void summary() {
+        request.info("method={} path={} status={} ms={} key={} cache={} upstream.calls={} upstream.ms={} results={}",
+                "GET", "/api/fabrick/v1.0/stations/KDEN/airports?closestBy=50", "200", 212.4,
+                "airports:39.14,-105.61,40.58,-103.73", "miss", 1, 205.9, Integer.toString(RESULTS));
+    }
+
+    private static LoggerContext context() {
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        context.start();
+        return context;
+    }
+
+    private static Appender<ILoggingEvent> console(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+        console.setContext(context);
+        console.setName("CONSOLE");
+        console.setEncoder(encoder);
+        console.setOutputStream(OutputStream.nullOutputStream());
+        console.start();
+        return console;
+    }
+}
@@ -0,0 +1,107 @@
+package com.fabrick.interview.benchmarks.weather;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.benchmarks.UpstreamStub;
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.peer.PeerCacheProperties;
+import com.fabrick.interview.upstream.UpstreamClientProperties;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fabrick.interview.upstream.UpstreamWebClientFactory;
+import com.fabrick.interview.weather.client.AviationApiClient;
+import com.fabrick.interview.weather.config.CacheConfig;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@code @Cacheable("stations")} proxy of {@link AviationApiClient} backed by the application's async
+ * Caffeine cache: a hit (proxy, key generation, cache lookup and replay of the cached {@code Flux}) against a miss
+ * through the whole client pipeline (upstream answered in memory with 100 stations, decoding, cache population).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AviationApiClientCacheBenchmark {
+
+    private static final int KEYS = 64;
+
+    private AnnotationConfigApplicationContext context;
+    private AviationApiClient client;
+    private Cache cache;
+    private String[] boxes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        byte[] payload = Payloads.stations(100, false);
+        UpstreamWebClientFactory upstreamClients = new UpstreamWebClientFactory(
+                WebClient.builder().exchangeFunction(UpstreamStub.respondingWith(url -> payload)),
+                new UpstreamClientProperties());
+        context = new AnnotationConfigApplicationContext();
+        context.register(CacheConfig.class);
+        ManagedCaches caches = new ManagedCaches(new CachePolicyProperties());
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        context.registerBean(ManagedCaches.class, () -> caches);
+        context.registerBean("peerCache", PeerCache.class, () -> new PeerCache(new PeerCacheProperties(), caches,
+                WebClient.builder(), objectMapper, null));
+        context.registerBean(AviationApiClient.class, () -> new AviationApiClient(upstreamClients,
+                new UpstreamMetrics(new SimpleMeterRegistry()), ObservationRegistry.NOOP,
+                objectMapper, context.getBean(PeerCache.class), "http://aviation.invalid/api"));
+        context.refresh();
+        client = context.getBean(AviationApiClient.class);
+        cache = context.getBean(CacheManager.class).getCache("stations");
+        boxes = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            boxes[i] = BoundingBox.around(30.0 + i * 0.25, -100.0, 0.5).toQueryParam();
+            client.getStationsInBox(boxes[i]).collectList().block();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Station> hit() {
+        return client.getStationsInBox(nextBox()).collectList().block();
+    }
+
+    @Benchmark
+    public List<Station> miss() {
+        String bbox = nextBox();
+        cache.evict(bbox);
+        return client.getStationsInBox(bbox).collectList().block();
+    }
+
+    private String nextBox() {
+        next = (next + 1) % KEYS;
+        return boxes[next];
+    }
+}
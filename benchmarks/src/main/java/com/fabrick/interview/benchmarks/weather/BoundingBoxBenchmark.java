@@ -0,0 +1,60 @@
+package com.fabrick.interview.benchmarks.weather;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bbox calculation of {@code WeatherServiceImpl}: the box around the origin alone, and the box
+ * rendered as the {@code bbox} query parameter (and cache key) of the upstream calls, which formats four
+ * decimals per coordinate.
+ * <p>
+ * Origins cycle through a fixed set of random coordinates so the results cannot be constant-folded.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundingBoxBenchmark {
+
+    private static final int ORIGINS = 1024;
+
+    private final double[] latitudes = new double[ORIGINS];
+    private final double[] longitudes = new double[ORIGINS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < ORIGINS; i++) {
+            latitudes[i] = -80.0 + random.nextDouble() * 160.0;
+            longitudes[i] = -180.0 + random.nextDouble() * 360.0;
+        }
+    }
+
+    @Benchmark
+    public BoundingBox around() {
+        next = (next + 1) & (ORIGINS - 1);
+        return BoundingBox.around(latitudes[next], longitudes[next], 0.5);
+    }
+
+    @Benchmark
+    public String toQueryParam() {
+        next = (next + 1) & (ORIGINS - 1);
+        return BoundingBox.around(latitudes[next], longitudes[next], 0.5).toQueryParam();
+    }
+}
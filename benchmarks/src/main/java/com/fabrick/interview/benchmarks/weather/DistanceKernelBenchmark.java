@@ -0,0 +1,77 @@
+package com.fabrick.interview.benchmarks.weather;
+
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.DistanceKernels;
+import com.fabrick.interview.weather.model.BoundingBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the Vector API implementations of {@link DistanceKernel} on candidate sets
+ * of increasing size, for both bounding-box filtering and haversine distance computation.
+ * <p>
+ * Points are spread over a 20x20 degree area and the box covers roughly a quarter of it, which is
+ * representative of a wide {@code closestBy} query.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DistanceKernelBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"scalar", "vector"})
+    private String kernelType;
+
+    private DistanceKernel kernel;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] matches;
+    private double[] distances;
+    private final BoundingBox box = BoundingBox.around(40.0, -100.0, 5.0);
+
+    @Setup
+    public void setUp() {
+        kernel = DistanceKernels.select(kernelType);
+        if (!kernel.name().startsWith(kernelType)) {
+            throw new IllegalStateException("Requested " + kernelType + " kernel but got " + kernel.name());
+        }
+        Random random = new Random(42);
+        latitudes = new double[size];
+        longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = 30.0 + random.nextDouble() * 20.0;
+            longitudes[i] = -110.0 + random.nextDouble() * 20.0;
+        }
+        matches = new int[size];
+        distances = new double[size];
+    }
+
+    @Benchmark
+    public int filterInBox() {
+        return kernel.filterInBox(latitudes, longitudes, size, box, matches);
+    }
+
+    @Benchmark
+    public double[] haversine() {
+        kernel.distances(40.0, -100.0, latitudes, longitudes, size, distances);
+        return distances;
+    }
+}
@@ -0,0 +1,113 @@
+package com.fabrick.interview.benchmarks.weather;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson binding of {@code /stationinfo} and {@code /airport} responses into {@link Station} and
+ * {@link Airport} lists, as done by {@code AviationApiClient}, for a growing number of entities and for both key
+ * sets accepted: the upstream one ({@code icaoId}, {@code lat}, ...) and the canonical one ({@code id},
+ * {@code latitude}, ...).
+ * <p>
+ * {@code specialized} is the {@code GeoEntityDeserializer} the models are annotated with; {@code generic} restores,
+ * through mix-ins, the former binding by Jackson's bean deserializer with {@code @JsonAlias} and
+ * {@code ignoreUnknown}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoEntityBindingBenchmark {
+
+    @Param({"stations", "airports"})
+    private String entity;
+
+    @Param({"10", "100", "1000"})
+    private int count;
+
+    @Param({"upstream", "canonical"})
+    private String keys;
+
+    @Param({"generic", "specialized"})
+    private String deserializer;
+
+    private ObjectReader reader;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (deserializer.equals("generic")) {
+            builder.mixIn(Station.class, GenericBinding.class).mixIn(Airport.class, GenericBinding.class);
+        }
+        ObjectMapper objectMapper = builder.build();
+        boolean canonical = keys.equals("canonical");
+        if (entity.equals("stations")) {
+            reader = objectMapper.readerForListOf(Station.class);
+            payload = Payloads.stations(count, canonical);
+        } else {
+            reader = objectMapper.readerForListOf(Airport.class);
+            payload = Payloads.airports(count, canonical);
+        }
+    }
+
+    @Benchmark
+    public List<?> bind() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    /**
+     * The annotations of the models before their dedicated deserializer.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    abstract static class GenericBinding {
+
+        @JsonAlias({"icaoId", "station_id", "id", "siteId"})
+        private String id;
+
+        @JsonAlias({"site", "name", "siteName"})
+        private String name;
+
+        @JsonAlias({"state", "region"})
+        private String state;
+
+        @JsonAlias({"country"})
+        private String country;
+
+        @JsonAlias({"lat", "latitude"})
+        private double latitude;
+
+        @JsonAlias({"lon", "longitude"})
+        private double longitude;
+
+        @JsonAlias({"elev", "elevation", "elevation_m"})
+        private Double elevation;
+    }
+}
@@ -0,0 +1,138 @@
+package com.fabrick.interview.benchmarks.weather;
+
+import com.fabrick.interview.benchmarks.Payloads;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.i18n.LocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.WebSessionManager;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the production of a proximity search response body for a hot key: encoding the {@link Station} list
+ * with Jackson on every request (as the JSON codec does, or in CBOR / Smile) versus writing the bytes held by the
+ * {@link RenderedResponseCache} (plain or gzipped), or answering a conditional request with {@code 304}. The rendered
+ * variants include the creation of an exchange per request, whose codecs and session manager are shared as in a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseRenderingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int count;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter cborWriter;
+    private ObjectWriter smileWriter;
+    private List<Station> stations;
+    private RenderedResponseCache responseCache;
+    private final ServerCodecConfigurer codecs = ServerCodecConfigurer.create();
+    private final WebSessionManager sessions = new DefaultWebSessionManager();
+    private final LocaleContextResolver locales = new AcceptHeaderLocaleContextResolver();
+    private MockServerHttpRequest plain;
+    private MockServerHttpRequest gzip;
+    private MockServerHttpRequest conditional;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborWriter = objectMapper.writer().with(new CBORFactory());
+        smileWriter = objectMapper.writer().with(new SmileFactory());
+        stations = objectMapper.readerForListOf(Station.class).readValue(Payloads.stations(count, false));
+        responseCache = new RenderedResponseCache(objectMapper, ObservationRegistry.NOOP, true,
+                DataSize.ofMegabytes(16), Duration.ofMinutes(10), DataSize.ofKilobytes(1));
+        plain = MockServerHttpRequest.get("/").build();
+        gzip = MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip").build();
+        ServerWebExchange exchange = exchange(plain);
+        responseCache.respond(exchange, "stations", Duration.ofMinutes(10), () -> Flux.fromIterable(stations)).block();
+        conditional = MockServerHttpRequest.get("/").ifNoneMatch(exchange.getResponse().getHeaders().getETag()).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        responseCache.destroy();
+    }
+
+    @Benchmark
+    public byte[] jackson() throws IOException {
+        return objectMapper.writeValueAsBytes(stations);
+    }
+
+    @Benchmark
+    public byte[] jacksonCbor() throws IOException {
+        return cborWriter.writeValueAsBytes(stations);
+    }
+
+    @Benchmark
+    public byte[] jacksonSmile() throws IOException {
+        return smileWriter.writeValueAsBytes(stations);
+    }
+
+    @Benchmark
+    public int renderedHit() {
+        return write(plain);
+    }
+
+    @Benchmark
+    public int renderedGzipHit() {
+        return write(gzip);
+    }
+
+    @Benchmark
+    public int notModified() {
+        return write(conditional);
+    }
+
+    private int write(MockServerHttpRequest request) {
+        ServerWebExchange exchange = exchange(request);
+        responseCache.respond(exchange, "stations", Duration.ofMinutes(10), () -> Flux.fromIterable(stations)).block();
+        DataBuffer body = ((MockServerHttpResponse) exchange.getResponse()).getBody().blockFirst();
+        if (body == null) {
+            return 0;
+        }
+        int size = body.readableByteCount();
+        DataBufferUtils.release(body);
+        return size;
+    }
+
+    private ServerWebExchange exchange(MockServerHttpRequest request) {
+        return new DefaultServerWebExchange(request, new MockServerHttpResponse(), sessions, codecs, locales);
+    }
+}
@@ -0,0 +1,175 @@
+package com.fabrick.interview.loadtest;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end capacity runs of both services, each started from its executable jar against the
+ * {@link UpstreamSimulator}, under an open-model workload with Zipfian key popularity.
+ * <p>
+ * Only runs with {@code -Pload-test}. The workload is tuned with system properties: {@code load.rate},
+ * {@code load.warmup}, {@code load.duration}, {@code load.keys}, {@code load.zipf-exponent}, the upstream
+ * behaviour with {@code sim.nasa.*} / {@code sim.aviation.*} (see {@link UpstreamSimulator.Behaviour}), and
+ * {@code load.slo.p99-millis} turns the run into a regression check. Extra service arguments (e.g. connection pool
+ * sizes) are passed with {@code load.asteroids-service-args} / {@code load.weather-service-args}, and
+ * {@code load.asteroids-service-url} / {@code load.weather-service-url} target an already running service instead.
+ * Reports are printed and written to
+ * {@code target/load-reports/}.
+ * </p>
+ */
+@Tag("load")
+class CapacityLoadTest {
+
+    private static final UpstreamSimulator.Behaviour NASA = new UpstreamSimulator.Behaviour(
+            new UpstreamSimulator.LatencyDistribution(Duration.ofMillis(150), Duration.ofMillis(800)), 0.01, 0);
+    private static final UpstreamSimulator.Behaviour AVIATION = new UpstreamSimulator.Behaviour(
+            new UpstreamSimulator.LatencyDistribution(Duration.ofMillis(80), Duration.ofMillis(400)), 0.01, 0);
+
+    /**
+     * Date windows of the path queries: none (whole history), a decade, half a century and a single year.
+     */
+    private static final List<String> DATE_WINDOWS = List.of("",
+            window(1990, 10), window(1950, 50), window(2005, 1), window(1920, 10));
+
+    private static final List<Double> CLOSEST_BY = List.of(0.1, 0.25, 0.5, 1.0, 2.0);
+
+    static final List<String> WEATHER_JVM_ARGS = List.of("--add-modules", "jdk.incubator.vector");
+
+    static final Path REPORTS = Path.of("target", "load-reports");
+
+    private static UpstreamSimulator simulator;
+
+    @BeforeAll
+    static void startSimulator() {
+        simulator = UpstreamSimulator.start(
+                UpstreamSimulator.Behaviour.fromSystemProperties("nasa", NASA),
+                UpstreamSimulator.Behaviour.fromSystemProperties("aviation", AVIATION));
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    @Test
+    @DisplayName("Asteroids service under open-model load")
+    void asteroidsService() throws Exception {
+        run("asteroids-service", asteroidsJar(), List.of(),
+                List.of("--external.nasa.base-url=" + simulator.nasaBaseUrl()), asteroidsWorkload());
+    }
+
+    @Test
+    @DisplayName("Weather service under open-model load")
+    void weatherService() throws Exception {
+        run("weather-service", weatherJar(), WEATHER_JVM_ARGS,
+                List.of("--external.aviation.base-url=" + simulator.aviationBaseUrl()), weatherWorkload());
+    }
+
+    static Path asteroidsJar() {
+        return Path.of(System.getProperty("load.asteroids-jar", "../asteroids-service/target/asteroids-service-0.0.1-SNAPSHOT-exec.jar"));
+    }
+
+    static Path weatherJar() {
+        return Path.of(System.getProperty("load.weather-jar", "../weather-service/target/weather-service-0.0.1-SNAPSHOT-exec.jar"));
+    }
+
+    /**
+     * Path queries of Zipf-distributed asteroids, with or without a date window.
+     */
+    static Function<Random, LoadDriver.Request> asteroidsWorkload() {
+        ZipfianKeys asteroids = keys(i -> Integer.toString(2_000_000 + 7 * i));
+        return random -> {
+            String window = DATE_WINDOWS.get(random.nextInt(DATE_WINDOWS.size()));
+            return new LoadDriver.Request(window.isEmpty() ? "paths" : "paths (date window)",
+                    "/api/fabrick/v1.0/asteroids/" + asteroids.next(random) + "/paths" + window);
+        };
+    }
+
+    /**
+     * Proximity searches around Zipf-distributed airports and stations, half each.
+     */
+    static Function<Random, LoadDriver.Request> weatherWorkload() {
+        ZipfianKeys airports = keys(i -> String.format(Locale.US, "A%04d", i));
+        ZipfianKeys stations = keys(i -> String.format(Locale.US, "S%04d", i));
+        return random -> {
+            double closestBy = CLOSEST_BY.get(random.nextInt(CLOSEST_BY.size()));
+            return random.nextBoolean()
+                    ? new LoadDriver.Request("stations near airport",
+                    "/api/fabrick/v1.0/airports/" + airports.next(random) + "/stations?closestBy=" + closestBy)
+                    : new LoadDriver.Request("airports near station",
+                    "/api/fabrick/v1.0/stations/" + stations.next(random) + "/airports?closestBy=" + closestBy);
+        };
+    }
+
+    private void run(String name, Path jar, List<String> jvmArgs, List<String> appArgs,
+                     Function<Random, LoadDriver.Request> workload) throws Exception {
+        LoadDriver.Settings settings = LoadDriver.Settings.fromSystemProperties();
+        String externalUrl = System.getProperty("load." + name + "-url");
+        List<String> serviceArgs = new ArrayList<>(appArgs);
+        String extraArgs = System.getProperty("load." + name + "-args", "");
+        if (!extraArgs.isBlank()) {
+            serviceArgs.addAll(List.of(extraArgs.trim().split("\\s+")));
+        }
+        ServiceProcess service = externalUrl == null
+                ? ServiceProcess.start(jar, jvmArgs, serviceArgs, REPORTS.resolve(name + ".log"))
+                : null;
+        LoadDriver driver = new LoadDriver(externalUrl != null ? externalUrl : service.baseUrl(), settings.maxInFlight());
+        try {
+            LoadReport report = driver.run(settings, workload);
+            System.out.print(report.format(name, settings.duration()));
+            System.out.printf("upstream: nasa %s, aviation %s%n", simulator.nasaStats(), simulator.aviationStats());
+
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("driver", settings);
+            parameters.put("keys", Integer.getInteger("load.keys", 1000));
+            parameters.put("zipfExponent", zipfExponent());
+            parameters.put("serviceArgs", serviceArgs);
+            report.write(REPORTS.resolve(name + ".json"), parameters, settings.duration());
+
+            LoadReport.Summary total = report.total(settings.duration());
+            assertTrue(total.requests() > 0, "No request completed");
+            String slo = System.getProperty("load.slo.p99-millis");
+            if (slo != null) {
+                assertTrue(total.p99Millis() <= Double.parseDouble(slo),
+                        () -> "p99 " + total.p99Millis() + " ms above the " + slo + " ms objective");
+            }
+        } finally {
+            driver.close();
+            if (service != null) {
+                service.close();
+            }
+        }
+    }
+
+    private static ZipfianKeys keys(IntFunction<String> key) {
+        int count = Integer.getInteger("load.keys", 1000);
+        return new ZipfianKeys(IntStream.range(0, count).mapToObj(key).toList(), zipfExponent());
+    }
+
+    private static double zipfExponent() {
+        return Double.parseDouble(System.getProperty("load.zipf-exponent", "1.0"));
+    }
+
+    private static String window(int fromYear, int years) {
+        LocalDate from = LocalDate.of(fromYear, 1, 1);
+        return "?fromDate=" + from + "&toDate=" + from.plusYears(years).minusDays(1);
+    }
+}
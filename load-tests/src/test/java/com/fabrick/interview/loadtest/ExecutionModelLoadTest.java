@@ -0,0 +1,166 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Both services run twice under the same workload, seed and upstream behaviour: on the default reactive stack and
+ * with the {@code virtual-threads} profile (blocking services and upstream clients, one virtual thread per request).
+ * <p>
+ * Only runs with {@code -Pload-test}; the workload is tuned as in {@link CapacityLoadTest}. The rendered response
+ * cache is disabled in both variants (unless {@code exec.response-cache=true}), so that the requests reach the
+ * services instead of being answered from encoded bytes. Each variant reports throughput and latency percentiles,
+ * and, once the run is over, the resident set size of the process, the heap in use and the live platform threads
+ * (from the actuator metrics). The comparison is printed and written to
+ * {@code target/load-reports/execution-model.json}.
+ * </p>
+ */
+@Tag("load")
+class ExecutionModelLoadTest {
+
+    private static final UpstreamSimulator.Behaviour NASA = new UpstreamSimulator.Behaviour(
+            new UpstreamSimulator.LatencyDistribution(Duration.ofMillis(150), Duration.ofMillis(800)), 0.01, 0);
+    private static final UpstreamSimulator.Behaviour AVIATION = new UpstreamSimulator.Behaviour(
+            new UpstreamSimulator.LatencyDistribution(Duration.ofMillis(80), Duration.ofMillis(400)), 0.01, 0);
+
+    private static final List<String> MODELS = List.of("reactive", "virtual-threads");
+
+    private static final JsonMapper JSON = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .build();
+
+    private static UpstreamSimulator simulator;
+
+    /**
+     * @param rssBytes      The resident set size after the run, {@code -1} where not available.
+     * @param heapUsedBytes The heap in use after the run.
+     * @param liveThreads   The live (platform) threads after the run.
+     */
+    record Result(String service, String model, long requests, long errors, double throughput, double p50Millis,
+                  double p90Millis, double p99Millis, double p999Millis, long rssBytes, long heapUsedBytes,
+                  long liveThreads) {
+    }
+
+    @BeforeAll
+    static void startSimulator() {
+        simulator = UpstreamSimulator.start(
+                UpstreamSimulator.Behaviour.fromSystemProperties("nasa", NASA),
+                UpstreamSimulator.Behaviour.fromSystemProperties("aviation", AVIATION));
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    @Test
+    @DisplayName("Reactive and virtual-thread variants of both services under the same load")
+    void compareExecutionModels() throws Exception {
+        LoadDriver.Settings settings = LoadDriver.Settings.fromSystemProperties();
+        List<Result> results = new ArrayList<>();
+        for (String model : MODELS) {
+            results.add(run("asteroids-service", model, CapacityLoadTest.asteroidsJar(), List.of(),
+                    "--external.nasa.base-url=" + simulator.nasaBaseUrl(), CapacityLoadTest.asteroidsWorkload(), settings));
+        }
+        for (String model : MODELS) {
+            results.add(run("weather-service", model, CapacityLoadTest.weatherJar(), CapacityLoadTest.WEATHER_JVM_ARGS,
+                    "--external.aviation.base-url=" + simulator.aviationBaseUrl(), CapacityLoadTest.weatherWorkload(), settings));
+        }
+
+        System.out.printf("%n=== execution models: %.0f req/s ===%n", settings.ratePerSecond());
+        System.out.printf("%-18s %-16s %9s %7s %9s %8s %8s %8s %8s %8s %8s %8s%n", "service", "model", "requests",
+                "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "RSS MB", "heap MB", "threads");
+        results.forEach(r -> System.out.printf("%-18s %-16s %9d %7d %9.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8d%n",
+                r.service(), r.model(), r.requests(), r.errors(), r.throughput(), r.p50Millis(), r.p90Millis(),
+                r.p99Millis(), r.p999Millis(), megabytes(r.rssBytes()), megabytes(r.heapUsedBytes()), r.liveThreads()));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("driver", settings);
+        json.put("keys", Integer.getInteger("load.keys", 1000));
+        json.put("responseCache", responseCache());
+        json.put("results", results);
+        Files.createDirectories(CapacityLoadTest.REPORTS);
+        JSON.writeValue(CapacityLoadTest.REPORTS.resolve("execution-model.json").toFile(), json);
+    }
+
+    private Result run(String service, String model, Path jar, List<String> jvmArgs, String upstreamArg,
+                       Function<Random, LoadDriver.Request> workload, LoadDriver.Settings settings) throws Exception {
+        List<String> appArgs = new ArrayList<>(List.of(upstreamArg,
+                "--spring.rsocket.server.port=" + ServiceProcess.freePort()));
+        if (!responseCache()) {
+            appArgs.add("--response-cache.enabled=false");
+        }
+        if (!model.equals("reactive")) {
+            appArgs.add("--spring.profiles.active=" + model);
+        }
+        ServiceProcess process = ServiceProcess.start(jar, jvmArgs, appArgs,
+                CapacityLoadTest.REPORTS.resolve("execution-model-" + service + "-" + model + ".log"));
+        LoadDriver driver = new LoadDriver(process.baseUrl(), settings.maxInFlight());
+        try {
+            LoadReport.Summary total = driver.run(settings, workload).total(settings.duration());
+            assertTrue(total.requests() > 0, "No request completed");
+            return new Result(service, model, total.requests(), total.errors(), total.throughput(), total.p50Millis(),
+                    total.p90Millis(), total.p99Millis(), total.p999Millis(), process.residentSetSize(),
+                    metric(process, "jvm.memory.used?tag=area:heap"), metric(process, "jvm.threads.live"));
+        } finally {
+            driver.close();
+            process.close();
+        }
+    }
+
+    /**
+     * @return The value of an actuator metric (summed over its series), or {@code -1} if it cannot be read.
+     */
+    private static long metric(ServiceProcess process, String metric) throws InterruptedException {
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(
+                            URI.create(process.managementUrl() + "/actuator/metrics/" + metric)).timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return -1;
+            }
+            for (JsonNode measurement : JSON.readTree(response.body()).path("measurements")) {
+                if (measurement.path("statistic").asText().equals("VALUE")) {
+                    return measurement.path("value").asLong();
+                }
+            }
+        } catch (IOException e) {
+            // service gone
+        }
+        return -1;
+    }
+
+    private static boolean responseCache() {
+        return Boolean.getBoolean("exec.response-cache");
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes < 0 ? -1 : bytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,101 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Upstream responses derived from the fixtures under {@code fixtures/}, which follow the exact format of the
+ * NASA NeoWs {@code /neo/{id}} and Aviation Weather {@code /stationinfo} and {@code /airport} responses.
+ * <p>
+ * Every asteroid ID gets its own deterministic close approach history (10 to 300 events, depending on the ID),
+ * and the station and airport universes spread copies of the fixture entries over the contiguous United States.
+ * </p>
+ */
+final class Fixtures {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    static byte[] neo(String asteroidId) {
+        ObjectNode neo = (ObjectNode) read("neo.json");
+        ArrayNode samples = (ArrayNode) neo.get("close_approach_data");
+        Random random = new Random(asteroidId.hashCode());
+        int approaches = 10 + random.nextInt(291);
+        ArrayNode generated = MAPPER.createArrayNode();
+        LocalDate date = LocalDate.of(1900, 1, 1);
+        int sample = 0;
+        for (int i = 0; i < approaches; i++) {
+            if (random.nextInt(3) == 0) {
+                sample = (sample + 1) % samples.size();
+            }
+            date = date.plusDays(20 + random.nextInt(300));
+            ObjectNode approach = samples.get(sample).deepCopy();
+            approach.put("close_approach_date", date.toString());
+            approach.put("epoch_date_close_approach", date.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+            generated.add(approach);
+        }
+        neo.put("id", asteroidId);
+        neo.put("neo_reference_id", asteroidId);
+        neo.set("close_approach_data", generated);
+        return write(neo);
+    }
+
+    /**
+     * @param count  Size of the universe.
+     * @param prefix Prefix of the generated IDs (followed by 4 digits).
+     */
+    static List<ObjectNode> stations(int count, String prefix) {
+        return universe("stationinfo.json", count, prefix);
+    }
+
+    static List<ObjectNode> airports(int count, String prefix) {
+        return universe("airport.json", count, prefix);
+    }
+
+    static byte[] write(JsonNode node) {
+        try {
+            return MAPPER.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<ObjectNode> universe(String resource, int count, String prefix) {
+        ArrayNode samples = (ArrayNode) read(resource);
+        Random random = new Random(resource.hashCode());
+        List<ObjectNode> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ObjectNode entity = samples.get(i % samples.size()).deepCopy();
+            entity.put("icaoId", prefix + String.format(Locale.US, "%04d", i));
+            entity.put("lat", Math.round((25.0 + random.nextDouble() * 24.0) * 1e4) / 1e4);
+            entity.put("lon", Math.round((-125.0 + random.nextDouble() * 58.0) * 1e4) / 1e4);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static JsonNode read(String resource) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + resource);
+            }
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
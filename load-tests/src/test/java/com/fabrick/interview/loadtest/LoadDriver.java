@@ -0,0 +1,125 @@
+package com.fabrick.interview.loadtest;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model load generator: requests arrive as a Poisson process at the configured rate, independently of how
+ * fast the service answers (as real users do), and are sent without waiting for the previous responses.
+ * <p>
+ * A warmup phase runs the same workload first and is not recorded. Requests that would exceed the in-flight cap
+ * are counted as dropped rather than delayed, so that an overloaded service cannot slow the arrivals down.
+ * </p>
+ */
+public final class LoadDriver {
+
+    /**
+     * @param ratePerSecond Mean arrival rate.
+     * @param warmup        Unrecorded phase before the measurement.
+     * @param duration      Measured phase.
+     * @param maxInFlight   Cap of outstanding requests.
+     * @param seed          Seed of the arrivals and of the workload choices.
+     */
+    public record Settings(double ratePerSecond, Duration warmup, Duration duration, int maxInFlight, long seed) {
+
+        /**
+         * Reads {@code load.rate}, {@code load.warmup}, {@code load.duration}, {@code load.max-in-flight} and
+         * {@code load.seed} from the system properties.
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Double.parseDouble(System.getProperty("load.rate", "100")),
+                    Duration.parse(System.getProperty("load.warmup", "PT10S")),
+                    Duration.parse(System.getProperty("load.duration", "PT30S")),
+                    Integer.getInteger("load.max-in-flight", 5000),
+                    Long.getLong("load.seed", 42));
+        }
+    }
+
+    /**
+     * One request of the workload.
+     *
+     * @param scenario Name the request is reported under.
+     * @param uri      Path and query, relative to the base URL.
+     */
+    public record Request(String scenario, String uri) {
+    }
+
+    private final HttpClient client;
+    private final ConnectionProvider connections;
+
+    public LoadDriver(String baseUrl, int maxConnections) {
+        this.connections = ConnectionProvider.builder("load-driver")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.client = HttpClient.create(connections)
+                .baseUrl(baseUrl)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .responseTimeout(Duration.ofSeconds(60));
+    }
+
+    /**
+     * Runs the warmup and the measurement, then waits for the outstanding requests.
+     *
+     * @param workload Picks the next request.
+     * @return The report of the measured phase.
+     */
+    public LoadReport run(Settings settings, Function<Random, Request> workload) {
+        Random random = new Random(settings.seed());
+        run(settings, settings.warmup(), workload, random, new LoadReport());
+        LoadReport report = new LoadReport();
+        run(settings, settings.duration(), workload, random, report);
+        return report;
+    }
+
+    public void close() {
+        connections.disposeLater().block(Duration.ofSeconds(10));
+    }
+
+    private void run(Settings settings, Duration phase, Function<Random, Request> workload, Random random, LoadReport report) {
+        AtomicInteger inFlight = new AtomicInteger();
+        double meanGapNanos = 1e9 / settings.ratePerSecond();
+        long next = System.nanoTime();
+        long end = next + phase.toNanos();
+        while (true) {
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (next >= end) {
+                break;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Request request = workload.apply(random);
+            if (inFlight.incrementAndGet() > settings.maxInFlight()) {
+                inFlight.decrementAndGet();
+                report.drop();
+                continue;
+            }
+            long intendedStart = next;
+            client.get()
+                    .uri(request.uri())
+                    .responseSingle((response, body) -> body.asByteArray()
+                            .then(Mono.just(response.status().code())))
+                    .onErrorReturn(0)
+                    .subscribe(status -> {
+                        report.record(request.scenario(), System.nanoTime() - intendedStart, status);
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and response status counts of a load run, per scenario and overall.
+ * <p>
+ * Latencies are measured from the <em>intended</em> start of each request, so a saturated service shows up in
+ * the percentiles instead of silently lowering the offered load (no coordinated omission).
+ * </p>
+ */
+public final class LoadReport {
+
+    private static final long MAX_LATENCY_NANOS = Duration.ofMinutes(2).toNanos();
+
+    private final Map<String, Recording> scenarios = new ConcurrentHashMap<>();
+    private final Recording total = new Recording();
+    private final LongAdder dropped = new LongAdder();
+
+    void record(String scenario, long latencyNanos, int status) {
+        scenarios.computeIfAbsent(scenario, s -> new Recording()).record(latencyNanos, status);
+        total.record(latencyNanos, status);
+    }
+
+    void drop() {
+        dropped.increment();
+    }
+
+    /**
+     * Summary of one scenario (or of all of them).
+     *
+     * @param requests   Completed requests, including the failed ones.
+     * @param errors     Requests answered with a non-2xx status or failed without response ({@code status 0}).
+     * @param throughput Completed requests per second of measurement.
+     * @param statuses   Requests per response status.
+     */
+    public record Summary(long requests, long errors, double throughput, double p50Millis, double p90Millis,
+                          double p99Millis, double p999Millis, double maxMillis, Map<Integer, Long> statuses) {
+    }
+
+    public Summary total(Duration measured) {
+        return total.summary(measured);
+    }
+
+    public Map<String, Summary> scenarios(Duration measured) {
+        Map<String, Summary> summaries = new TreeMap<>();
+        scenarios.forEach((name, recording) -> summaries.put(name, recording.summary(measured)));
+        return summaries;
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return A fixed-width table of the scenarios and of the total.
+     */
+    public String format(String title, Duration measured) {
+        StringBuilder out = new StringBuilder(String.format(Locale.US, "%n== %s (%s, %d dropped by the driver) ==%n%-28s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                title, measured, dropped(), "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        Map<String, Summary> rows = new LinkedHashMap<>(scenarios(measured));
+        rows.put("TOTAL", total(measured));
+        rows.forEach((name, s) -> out.append(String.format(Locale.US, "%-28s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, s.requests(), s.errors(), s.throughput(), s.p50Millis(), s.p90Millis(), s.p99Millis(),
+                s.p999Millis(), s.maxMillis())));
+        out.append("statuses: ").append(total(measured).statuses()).append(System.lineSeparator());
+        return out.toString();
+    }
+
+    /**
+     * Writes the report as JSON (settings, total, scenarios), for capacity tracking across runs.
+     */
+    public void write(Path file, Map<String, Object> settings, Duration measured) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", settings);
+        json.put("dropped", dropped());
+        json.put("total", total(measured));
+        json.put("scenarios", scenarios(measured));
+        JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValue(file.toFile(), json);
+    }
+
+    private static final class Recording {
+
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, int status) {
+            latencies.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        Summary summary(Duration measured) {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            long errors = counts.entrySet().stream()
+                    .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            long requests = latencies.getTotalCount();
+            return new Summary(requests, errors, requests / (measured.toNanos() / 1e9),
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()), counts);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
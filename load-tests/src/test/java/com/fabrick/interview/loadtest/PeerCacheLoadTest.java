@@ -0,0 +1,153 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Upstream calls of the asteroids service scaled out, with and without the peer cache tier, under the
+ * capacity-test workload split evenly across the replicas:
+ * <ul>
+ * <li><b>single</b>: one replica taking the whole rate, the baseline;</li>
+ * <li><b>independent</b>: {@code peer.replicas} replicas, each with its own data cache, so a popular key is loaded
+ * by every replica;</li>
+ * <li><b>peered</b>: the same replicas with {@code peer-cache.enabled=true} and a static membership of their URLs, so
+ * a key is loaded by its owner only.</li>
+ * </ul>
+ * <p>
+ * Only runs with {@code -Pload-test}; the workload is tuned as in {@link CapacityLoadTest}. The peered run is
+ * expected to call NASA about as often as the single replica (within {@code peer.max-upstream-ratio}, 1.25 by
+ * default). The comparison is printed and written to {@code target/load-reports/peer-cache.json}.
+ * </p>
+ */
+@Tag("load")
+class PeerCacheLoadTest {
+
+    private static final UpstreamSimulator.Behaviour NASA = new UpstreamSimulator.Behaviour(
+            new UpstreamSimulator.LatencyDistribution(Duration.ofMillis(50), Duration.ofMillis(200)), 0, 0);
+
+    private static UpstreamSimulator simulator;
+
+    /**
+     * @param upstreamCalls NASA calls during the run, warmup included.
+     * @param p99Millis     The highest p99 latency among the replicas.
+     */
+    record Result(String configuration, int replicas, long upstreamCalls, long requests, long errors, double p99Millis) {
+    }
+
+    @BeforeAll
+    static void startSimulator() {
+        simulator = UpstreamSimulator.start(UpstreamSimulator.Behaviour.fromSystemProperties("nasa", NASA),
+                UpstreamSimulator.Behaviour.IMMEDIATE);
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    @Test
+    @DisplayName("Peered replicas call the upstream about as often as a single replica")
+    void peeredReplicasShareTheirCaches() throws Exception {
+        int replicas = Integer.getInteger("peer.replicas", 3);
+        LoadDriver.Settings settings = LoadDriver.Settings.fromSystemProperties();
+        List<Result> results = List.of(
+                run("single", 1, false, settings),
+                run("independent", replicas, false, settings),
+                run("peered", replicas, true, settings));
+
+        System.out.printf("%n=== peer cache: %d replicas, %.0f req/s ===%n", replicas, settings.ratePerSecond());
+        System.out.printf("%-12s %9s %14s %10s %10s %10s%n", "config", "replicas", "upstream calls", "requests", "errors", "p99 ms");
+        results.forEach(result -> System.out.printf("%-12s %9d %14d %10d %10d %10.1f%n", result.configuration(),
+                result.replicas(), result.upstreamCalls(), result.requests(), result.errors(), result.p99Millis()));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("driver", settings);
+        json.put("results", results);
+        Files.createDirectories(CapacityLoadTest.REPORTS);
+        JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValue(CapacityLoadTest.REPORTS.resolve("peer-cache.json").toFile(), json);
+
+        long single = results.get(0).upstreamCalls();
+        long independent = results.get(1).upstreamCalls();
+        long peered = results.get(2).upstreamCalls();
+        double maxRatio = Double.parseDouble(System.getProperty("peer.max-upstream-ratio", "1.25"));
+        assertTrue(peered <= single * maxRatio,
+                () -> "Peered replicas called NASA " + peered + " times, the single replica " + single);
+        assertTrue(peered < independent,
+                () -> "Peered replicas called NASA " + peered + " times, independent ones " + independent);
+    }
+
+    private Result run(String configuration, int replicas, boolean peered, LoadDriver.Settings settings)
+            throws Exception {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            ports.add(ServiceProcess.freePort());
+        }
+        List<String> members = ports.stream().map(port -> "http://localhost:" + port).toList();
+        List<ServiceProcess> services = new ArrayList<>();
+        List<LoadDriver> drivers = new ArrayList<>();
+        try {
+            for (int i = 0; i < replicas; i++) {
+                List<String> appArgs = new ArrayList<>(List.of(
+                        "--external.nasa.base-url=" + simulator.nasaBaseUrl(),
+                        "--spring.rsocket.server.port=" + ServiceProcess.freePort()));
+                if (peered) {
+                    appArgs.addAll(List.of("--peer-cache.enabled=true",
+                            "--peer-cache.self=" + members.get(i),
+                            "--peer-cache.members=" + String.join(",", members),
+                            "--peer-cache.secret=load-test"));
+                }
+                ServiceProcess service = ServiceProcess.start(CapacityLoadTest.asteroidsJar(), List.of(), appArgs,
+                        CapacityLoadTest.REPORTS.resolve("peer-cache-" + configuration + "-" + i + ".log"), ports.get(i));
+                services.add(service);
+                drivers.add(new LoadDriver(service.baseUrl(), settings.maxInFlight()));
+            }
+
+            long before = simulator.nasaStats().requests();
+            List<CompletableFuture<LoadReport>> reports = new ArrayList<>();
+            for (int i = 0; i < replicas; i++) {
+                LoadDriver driver = drivers.get(i);
+                LoadDriver.Settings share = new LoadDriver.Settings(settings.ratePerSecond() / replicas,
+                        settings.warmup(), settings.duration(), settings.maxInFlight(), settings.seed() + i);
+                reports.add(CompletableFuture.supplyAsync(() -> driver.run(share, CapacityLoadTest.asteroidsWorkload())));
+            }
+            long requests = 0;
+            long errors = 0;
+            double p99 = 0;
+            for (CompletableFuture<LoadReport> report : reports) {
+                LoadReport.Summary summary = report.join().total(settings.duration());
+                requests += summary.requests();
+                errors += summary.errors();
+                p99 = Math.max(p99, summary.p99Millis());
+            }
+            long upstreamCalls = simulator.nasaStats().requests() - before;
+            assertTrue(requests > 0, "No request completed");
+            return new Result(configuration, replicas, upstreamCalls, requests, errors, p99);
+        } finally {
+            drivers.forEach(LoadDriver::close);
+            for (ServiceProcess service : services) {
+                service.close();
+            }
+        }
+    }
+}
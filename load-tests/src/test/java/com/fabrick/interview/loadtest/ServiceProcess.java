@@ -0,0 +1,176 @@
+package com.fabrick.interview.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One of the services running in its own JVM from its executable jar, as in production, so that the load
+ * driver and the simulator do not share a heap, a JIT or event loops with it.
+ */
+final class ServiceProcess implements AutoCloseable {
+
+    private final Process process;
+    private final String baseUrl;
+    private final String managementUrl;
+    private final long launchedAt;
+
+    private ServiceProcess(Process process, String baseUrl, String managementUrl, long launchedAt) {
+        this.process = process;
+        this.baseUrl = baseUrl;
+        this.managementUrl = managementUrl;
+        this.launchedAt = launchedAt;
+    }
+
+    /**
+     * Starts the jar on a free port and waits until {@code /actuator/health} answers.
+     *
+     * @param jar      The executable jar.
+     * @param jvmArgs  Extra JVM options (e.g. heap size).
+     * @param appArgs  Spring Boot arguments (e.g. {@code --external.nasa.base-url=...}).
+     * @param log      File receiving the service output.
+     */
+    static ServiceProcess start(Path jar, List<String> jvmArgs, List<String> appArgs, Path log) throws IOException, InterruptedException {
+        return start(jar, jvmArgs, appArgs, log, freePort());
+    }
+
+    /**
+     * Starts the jar on the given port and waits until {@code /actuator/health} answers.
+     */
+    static ServiceProcess start(Path jar, List<String> jvmArgs, List<String> appArgs, Path log, int port)
+            throws IOException, InterruptedException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found: package the services first (mvn package -DskipTests)");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.toString());
+        ServiceProcess service = launch(command, appArgs, log, port);
+        service.await("/actuator/health", Duration.ofSeconds(120), Duration.ofMillis(500), log);
+        return service;
+    }
+
+    /**
+     * Starts a service on a free port without waiting for it.
+     *
+     * @param command The launcher and its options: a {@code java} command line, or a native executable.
+     * @param appArgs Spring Boot arguments.
+     * @param log     File receiving the service output.
+     */
+    static ServiceProcess launch(List<String> command, List<String> appArgs, Path log) throws IOException {
+        return launch(command, appArgs, log, freePort());
+    }
+
+    private static ServiceProcess launch(List<String> command, List<String> appArgs, Path log, int port) throws IOException {
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        // Actuator (health, metrics) on a free management port of its own, on the loopback interface
+        int managementPort = freePort();
+        arguments.add("--management.server.port=" + managementPort);
+        arguments.addAll(appArgs);
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        long launchedAt = System.nanoTime();
+        Process process = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ServiceProcess(process, "http://localhost:" + port, "http://localhost:" + managementPort, launchedAt);
+    }
+
+    /**
+     * @return A port nothing listens on, for a service whose URL must be known before it starts.
+     */
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @return The path of the {@code java} launcher of the running JVM.
+     */
+    static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return The URL of the management server, serving {@code /actuator}.
+     */
+    String managementUrl() {
+        return managementUrl;
+    }
+
+    /**
+     * Polls {@code path} closely until it answers {@code 200}; {@code /actuator} paths are polled on the management
+     * server.
+     *
+     * @return The time from the launch of the process to the first successful response.
+     */
+    Duration awaitFirstResponse(String path, Duration timeout, Path log) throws InterruptedException {
+        await(path, timeout, Duration.ofMillis(5), log);
+        return Duration.ofNanos(System.nanoTime() - launchedAt);
+    }
+
+    /**
+     * @return The resident set size of the process in bytes ({@code VmRSS}), or {@code -1} where {@code /proc} is
+     * not available.
+     */
+    long residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(process.pid()), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void await(String path, Duration timeout, Duration pollInterval, Path log) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        String url = (path.startsWith("/actuator/") ? managementUrl : baseUrl) + path;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Service exited with status " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+        process.destroyForcibly();
+        throw new UncheckedIOException(new IOException("No response from " + path + " after " + timeout + ", see " + log));
+    }
+}
@@ -0,0 +1,240 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Time to first request and memory footprint of each startup variant of both services, against the
+ * {@link UpstreamSimulator} answering immediately:
+ * <ul>
+ * <li><b>jar</b>: the executable jar as built;</li>
+ * <li><b>extracted</b>: the same jar extracted with the Spring Boot {@code tools} jar mode (plain classpath);</li>
+ * <li><b>aot</b>: extracted, with the Spring AOT-generated initialization ({@code -Dspring.aot.enabled=true}), when
+ * the jar was built with {@code -Paot};</li>
+ * <li><b>cds</b> / <b>aot+cds</b>: plus a dynamic AppCDS archive, created by a training run that serves the
+ * capacity-test workload for {@code startup.training-duration} and is stopped gracefully;</li>
+ * <li><b>native</b>: the GraalVM executable given with {@code startup.asteroids-service-native} /
+ * {@code startup.weather-service-native} (built with {@code -Pnative}).</li>
+ * </ul>
+ * <p>
+ * Each variant is started {@code startup.runs} times. The time to first request runs from the launch of the process
+ * to the first {@code 200} of an API request (a cache miss); the RSS is read from {@code /proc} after that request,
+ * and again after {@code startup.warm-duration} of workload at {@code startup.rate}. Medians are printed and written
+ * to {@code target/load-reports/startup-<service>.json}. Only runs with {@code -Pstartup}.
+ * </p>
+ */
+@Tag("startup")
+class StartupLoadTest {
+
+    private static UpstreamSimulator simulator;
+
+    /**
+     * One way of launching a service.
+     *
+     * @param name    The name of the variant in the report.
+     * @param command The launcher and its options, without the application arguments.
+     */
+    private record Variant(String name, List<String> command) {
+    }
+
+    /**
+     * Medians of the runs of one variant.
+     */
+    record Measurement(String variant, Duration timeToFirstRequest, long rssAfterFirstRequest, long rssAfterWarmup) {
+    }
+
+    @BeforeAll
+    static void startSimulator() {
+        simulator = UpstreamSimulator.start(UpstreamSimulator.Behaviour.IMMEDIATE, UpstreamSimulator.Behaviour.IMMEDIATE);
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    @Test
+    @DisplayName("Asteroids service startup variants")
+    void asteroidsService() throws Exception {
+        measure("asteroids-service", CapacityLoadTest.asteroidsJar(), List.of(),
+                List.of("--external.nasa.base-url=" + simulator.nasaBaseUrl()),
+                "/api/fabrick/v1.0/asteroids/2000000/paths", CapacityLoadTest.asteroidsWorkload());
+    }
+
+    @Test
+    @DisplayName("Weather service startup variants")
+    void weatherService() throws Exception {
+        measure("weather-service", CapacityLoadTest.weatherJar(), CapacityLoadTest.WEATHER_JVM_ARGS,
+                List.of("--external.aviation.base-url=" + simulator.aviationBaseUrl()),
+                "/api/fabrick/v1.0/airports/A0000/stations?closestBy=1.0", CapacityLoadTest.weatherWorkload());
+    }
+
+    private void measure(String name, Path jar, List<String> jvmArgs, List<String> appArgs, String firstRequest,
+                         Function<Random, LoadDriver.Request> workload) throws Exception {
+        Path work = Path.of("target", "startup", name);
+        boolean aot = hasAotCode(jar);
+        Path app = extract(jar, work.resolve("app"));
+
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant("jar", java(jvmArgs, List.of(), jar)));
+        variants.add(new Variant("extracted", java(jvmArgs, List.of(), app)));
+        List<String> aotArgs = aot ? List.of("-Dspring.aot.enabled=true") : List.of();
+        if (aot) {
+            variants.add(new Variant("aot", java(jvmArgs, aotArgs, app)));
+        }
+        Path archive = train(name, java(jvmArgs, aotArgs, app), appArgs, work, workload);
+        List<String> cdsArgs = new ArrayList<>(aotArgs);
+        cdsArgs.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        variants.add(new Variant(aot ? "aot+cds" : "cds", java(jvmArgs, cdsArgs, app)));
+        String nativeExecutable = System.getProperty("startup." + name + "-native");
+        if (nativeExecutable != null) {
+            variants.add(new Variant("native", List.of(Path.of(nativeExecutable).toAbsolutePath().toString())));
+        }
+
+        int runs = Integer.getInteger("startup.runs", 3);
+        List<Measurement> measurements = new ArrayList<>();
+        for (Variant variant : variants) {
+            List<Measurement> samples = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                samples.add(run(variant, appArgs, firstRequest, workload,
+                        CapacityLoadTest.REPORTS.resolve("startup-" + name + "-" + variant.name() + ".log")));
+            }
+            measurements.add(median(variant.name(), samples));
+        }
+
+        System.out.print(format(name + (aot ? "" : " (not AOT-processed: build with -Paot for the aot variants)"), measurements));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("runs", runs);
+        json.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        json.put("variants", measurements);
+        Files.createDirectories(CapacityLoadTest.REPORTS);
+        JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValue(CapacityLoadTest.REPORTS.resolve("startup-" + name + ".json").toFile(), json);
+        assertFalse(measurements.isEmpty());
+    }
+
+    private Measurement run(Variant variant, List<String> appArgs, String firstRequest,
+                            Function<Random, LoadDriver.Request> workload, Path log) throws Exception {
+        ServiceProcess service = ServiceProcess.launch(variant.command(), appArgs, log);
+        try {
+            Duration ttfr = service.awaitFirstResponse(firstRequest, Duration.ofSeconds(120), log);
+            long rssFirst = service.residentSetSize();
+            drive(service, workload, Duration.parse(System.getProperty("startup.warm-duration", "PT5S")));
+            return new Measurement(variant.name(), ttfr, rssFirst, service.residentSetSize());
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Serves the workload with {@code -XX:ArchiveClassesAtExit}, so that the archive holds the classes loaded by the
+     * startup and by the request paths, then stops the service gracefully: the archive is written at exit.
+     */
+    private Path train(String name, List<String> command, List<String> appArgs, Path work,
+                       Function<Random, LoadDriver.Request> workload) throws Exception {
+        Path archive = work.resolve(name + ".jsa").toAbsolutePath();
+        Files.deleteIfExists(archive);
+        List<String> training = new ArrayList<>(command);
+        training.add(1, "-XX:ArchiveClassesAtExit=" + archive);
+        Path log = CapacityLoadTest.REPORTS.resolve("startup-" + name + "-training.log");
+        ServiceProcess service = ServiceProcess.launch(training, appArgs, log);
+        try {
+            service.awaitFirstResponse("/actuator/health", Duration.ofSeconds(120), log);
+            drive(service, workload, Duration.parse(System.getProperty("startup.training-duration", "PT20S")));
+        } finally {
+            service.close();
+        }
+        assertTrue(Files.isRegularFile(archive), "No CDS archive written by the training run");
+        return archive;
+    }
+
+    private static void drive(ServiceProcess service, Function<Random, LoadDriver.Request> workload, Duration duration) {
+        LoadDriver driver = new LoadDriver(service.baseUrl(), 1000);
+        try {
+            driver.run(new LoadDriver.Settings(Double.parseDouble(System.getProperty("startup.rate", "100")),
+                    Duration.ZERO, duration, 1000, 42), workload);
+        } finally {
+            driver.close();
+        }
+    }
+
+    private static List<String> java(List<String> jvmArgs, List<String> extraArgs, Path jar) {
+        List<String> command = new ArrayList<>();
+        command.add(ServiceProcess.java());
+        command.addAll(jvmArgs);
+        command.addAll(extraArgs);
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        return command;
+    }
+
+    /**
+     * Extracts the executable jar (application jar plus {@code lib/}), the layout AppCDS needs: it does not archive
+     * classes loaded from nested jars.
+     */
+    private static Path extract(Path jar, Path destination) throws IOException, InterruptedException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found: package the services first (mvn package -DskipTests)");
+        }
+        Process process = new ProcessBuilder(ServiceProcess.java(), "-Djarmode=tools", "-jar", jar.toString(),
+                "extract", "--destination", destination.toString(), "--application-filename", "app.jar", "--force")
+                .inheritIO()
+                .start();
+        if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            throw new IllegalStateException("Could not extract " + jar);
+        }
+        return destination.resolve("app.jar");
+    }
+
+    private static boolean hasAotCode(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.stream().anyMatch(entry -> entry.getName().endsWith("__ApplicationContextInitializer.class"));
+        }
+    }
+
+    private static Measurement median(String variant, List<Measurement> samples) {
+        List<Duration> ttfr = samples.stream().map(Measurement::timeToFirstRequest).sorted().toList();
+        List<Long> rssFirst = samples.stream().map(Measurement::rssAfterFirstRequest).sorted(Comparator.naturalOrder()).toList();
+        List<Long> rssWarm = samples.stream().map(Measurement::rssAfterWarmup).sorted(Comparator.naturalOrder()).toList();
+        int middle = samples.size() / 2;
+        return new Measurement(variant, ttfr.get(middle), rssFirst.get(middle), rssWarm.get(middle));
+    }
+
+    private static String format(String title, List<Measurement> measurements) {
+        StringBuilder out = new StringBuilder(String.format(Locale.US, "%n== %s startup ==%n%-12s %10s %16s %16s%n",
+                title, "variant", "TTFR ms", "RSS first MB", "RSS warm MB"));
+        for (Measurement m : measurements) {
+            out.append(String.format(Locale.US, "%-12s %10d %16.1f %16.1f%n", m.variant(), m.timeToFirstRequest().toMillis(),
+                    m.rssAfterFirstRequest() / 1048576.0, m.rssAfterWarmup() / 1048576.0));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Embedded HTTP server standing in for the upstream APIs during load tests:
+ * <ul>
+ * <li>{@code GET /neo/{id}}: NeoWs asteroid lookup (any ID is known);</li>
+ * <li>{@code GET /api/stationinfo?bbox=}: stations of the universe inside the box;</li>
+ * <li>{@code GET /api/airport?bbox=} or {@code ?ids=}: airports inside the box, or the station/airport with that ID.</li>
+ * </ul>
+ * Each upstream behaves according to its {@link Behaviour}: a log-normal latency, a rate of {@code 503} errors and
+ * a per-second rate limit answered with {@code 429} and {@code Retry-After}.
+ */
+public final class UpstreamSimulator implements AutoCloseable {
+
+    /**
+     * @param latency            Response latency distribution.
+     * @param errorRate          Fraction of requests answered with {@code 503}.
+     * @param rateLimitPerSecond Requests accepted per second, {@code 0} for no limit.
+     */
+    public record Behaviour(LatencyDistribution latency, double errorRate, int rateLimitPerSecond) {
+
+        public static final Behaviour IMMEDIATE = new Behaviour(LatencyDistribution.NONE, 0, 0);
+
+        /**
+         * Reads {@code sim.<upstream>.latency-median}, {@code .latency-p99}, {@code .error-rate} and
+         * {@code .rate-limit} from the system properties, falling back to the given defaults.
+         */
+        public static Behaviour fromSystemProperties(String upstream, Behaviour defaults) {
+            String prefix = "sim." + upstream + ".";
+            return new Behaviour(
+                    new LatencyDistribution(
+                            duration(prefix + "latency-median", defaults.latency().median()),
+                            duration(prefix + "latency-p99", defaults.latency().p99())),
+                    Double.parseDouble(System.getProperty(prefix + "error-rate", Double.toString(defaults.errorRate()))),
+                    Integer.getInteger(prefix + "rate-limit", defaults.rateLimitPerSecond()));
+        }
+
+        private static Duration duration(String property, Duration defaultValue) {
+            String value = System.getProperty(property);
+            return value == null ? defaultValue : Duration.parse(value);
+        }
+    }
+
+    /**
+     * Log-normal latency with the given median and 99th percentile, the usual shape of remote API latencies.
+     */
+    public record LatencyDistribution(Duration median, Duration p99) {
+
+        public static final LatencyDistribution NONE = new LatencyDistribution(Duration.ZERO, Duration.ZERO);
+
+        private static final double Z_99 = 2.3263;
+
+        Duration sample() {
+            if (median.isZero()) {
+                return Duration.ZERO;
+            }
+            double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+            double nanos = median.toNanos() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+            return Duration.ofNanos((long) nanos);
+        }
+    }
+
+    /**
+     * Requests received, answered with an injected error and throttled, per upstream.
+     */
+    public record Stats(long requests, long errors, long throttled) {
+    }
+
+    private final Upstream nasa;
+    private final Upstream aviation;
+    private final Map<String, byte[]> neoResponses = new ConcurrentHashMap<>();
+    private final List<Entity> stations;
+    private final List<Entity> airports;
+    private final Map<String, Entity> entitiesById = new HashMap<>();
+    private final DisposableServer server;
+
+    private UpstreamSimulator(Behaviour nasa, Behaviour aviation, int stationCount, int airportCount) {
+        this.nasa = new Upstream(nasa);
+        this.aviation = new Upstream(aviation);
+        this.stations = Fixtures.stations(stationCount, "S").stream().map(Entity::of).toList();
+        this.airports = Fixtures.airports(airportCount, "A").stream().map(Entity::of).toList();
+        stations.forEach(station -> entitiesById.put(station.id(), station));
+        airports.forEach(airport -> entitiesById.put(airport.id(), airport));
+        this.server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/neo/{id}", (request, response) -> this.nasa.respond(response,
+                                () -> neoResponses.computeIfAbsent(request.param("id"), Fixtures::neo)))
+                        .get("/api/stationinfo", (request, response) -> this.aviation.respond(response,
+                                () -> inBox(this.stations, query(request.uri(), "bbox"))))
+                        .get("/api/airport", (request, response) -> {
+                            String ids = query(request.uri(), "ids");
+                            return this.aviation.respond(response, () -> ids != null
+                                    ? byId(ids) : inBox(this.airports, query(request.uri(), "bbox")));
+                        }))
+                .bindNow();
+    }
+
+    /**
+     * Starts a simulator with 5000 stations ({@code S0000}...) and 2000 airports ({@code A0000}...).
+     */
+    public static UpstreamSimulator start(Behaviour nasa, Behaviour aviation) {
+        return new UpstreamSimulator(nasa, aviation, 5000, 2000);
+    }
+
+    public String nasaBaseUrl() {
+        return "http://localhost:" + server.port() + "/neo";
+    }
+
+    public String aviationBaseUrl() {
+        return "http://localhost:" + server.port() + "/api";
+    }
+
+    public Stats nasaStats() {
+        return nasa.stats();
+    }
+
+    public Stats aviationStats() {
+        return aviation.stats();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private byte[] byId(String id) {
+        Entity entity = entitiesById.get(id);
+        return entity == null ? "[]".getBytes() : join(List.of(entity));
+    }
+
+    private static byte[] inBox(List<Entity> entities, String bbox) {
+        if (bbox == null) {
+            return "[]".getBytes();
+        }
+        String[] bounds = bbox.split(",");
+        double minLon = Double.parseDouble(bounds[0]);
+        double minLat = Double.parseDouble(bounds[1]);
+        double maxLon = Double.parseDouble(bounds[2]);
+        double maxLat = Double.parseDouble(bounds[3]);
+        return join(entities.stream()
+                .filter(e -> e.lat() >= minLat && e.lat() <= maxLat && e.lon() >= minLon && e.lon() <= maxLon)
+                .toList());
+    }
+
+    private static byte[] join(List<Entity> entities) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < entities.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(entities.get(i).json());
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private static String query(String uri, String name) {
+        List<String> values = new QueryStringDecoder(uri).parameters().get(name);
+        return values == null || values.isEmpty() ? null : values.getFirst();
+    }
+
+    /**
+     * A station or airport of the universe, with its coordinates and pre-encoded JSON.
+     */
+    private record Entity(String id, double lat, double lon, byte[] json) {
+
+        static Entity of(ObjectNode node) {
+            return new Entity(node.get("icaoId").asText(), node.get("lat").asDouble(), node.get("lon").asDouble(),
+                    Fixtures.write(node));
+        }
+    }
+
+    /**
+     * Behaviour and counters of one simulated upstream.
+     */
+    private static final class Upstream {
+
+        private final Behaviour behaviour;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicInteger windowCount = new AtomicInteger();
+
+        private Upstream(Behaviour behaviour) {
+            this.behaviour = behaviour;
+        }
+
+        private Mono<Void> respond(HttpServerResponse response, Supplier<byte[]> body) {
+            requests.increment();
+            if (!acquire()) {
+                throttled.increment();
+                return response.status(HttpResponseStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").send();
+            }
+            Duration latency = behaviour.latency().sample();
+            if (ThreadLocalRandom.current().nextDouble() < behaviour.errorRate()) {
+                errors.increment();
+                return Mono.delay(latency).then(response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send());
+            }
+            return Mono.delay(latency)
+                    .then(Mono.fromSupplier(body))
+                    .flatMap(bytes -> response.header("Content-Type", "application/json")
+                            .sendByteArray(Mono.just(bytes))
+                            .then());
+        }
+
+        /**
+         * Fixed one-second window limiter, like the hourly/per-second quotas of the real APIs.
+         */
+        private boolean acquire() {
+            if (behaviour.rateLimitPerSecond() <= 0) {
+                return true;
+            }
+            long second = System.nanoTime() / 1_000_000_000L;
+            long current = window.get();
+            if (current != second && window.compareAndSet(current, second)) {
+                windowCount.set(0);
+            }
+            return windowCount.incrementAndGet() <= behaviour.rateLimitPerSecond();
+        }
+
+        private Stats stats() {
+            return new Stats(requests.sum(), errors.sum(), throttled.sum());
+        }
+    }
+}
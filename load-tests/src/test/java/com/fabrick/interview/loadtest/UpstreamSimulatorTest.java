@@ -0,0 +1,90 @@
+package com.fabrick.interview.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamSimulatorTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should serve the entities inside the bbox, lookups by ID and any asteroid")
+    void shouldServeFixtures() throws Exception {
+        try (UpstreamSimulator simulator = UpstreamSimulator.start(UpstreamSimulator.Behaviour.IMMEDIATE, UpstreamSimulator.Behaviour.IMMEDIATE)) {
+            JsonNode stations = get(simulator.aviationBaseUrl() + "/stationinfo?bbox=-105.0000,39.0000,-100.0000,42.0000&format=json");
+            assertTrue(stations.size() > 0);
+            stations.forEach(station -> assertTrue(station.get("lat").asDouble() >= 39.0 && station.get("lon").asDouble() <= -100.0));
+
+            JsonNode airport = get(simulator.aviationBaseUrl() + "/airport?ids=A0042&format=json");
+            assertEquals("A0042", airport.get(0).get("icaoId").asText());
+
+            JsonNode neo = get(simulator.nasaBaseUrl() + "/2000007?api_key=DEMO_KEY");
+            assertEquals("2000007", neo.get("id").asText());
+            assertTrue(neo.get("close_approach_data").size() >= 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Should throttle above the rate limit and inject errors at the configured rate")
+    void shouldApplyBehaviour() throws Exception {
+        UpstreamSimulator.Behaviour limited = new UpstreamSimulator.Behaviour(UpstreamSimulator.LatencyDistribution.NONE, 0, 3);
+        UpstreamSimulator.Behaviour failing = new UpstreamSimulator.Behaviour(UpstreamSimulator.LatencyDistribution.NONE, 1, 0);
+        try (UpstreamSimulator simulator = UpstreamSimulator.start(limited, failing)) {
+            Map<Integer, Long> statuses = IntStream.range(0, 10)
+                    .mapToObj(i -> status(simulator.nasaBaseUrl() + "/2000007"))
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            // The ten requests may straddle two one-second windows
+            assertTrue(statuses.getOrDefault(429, 0L) >= 4);
+            assertEquals(503, status(simulator.aviationBaseUrl() + "/airport?ids=A0001"));
+            assertEquals(1, simulator.aviationStats().errors());
+        }
+    }
+
+    @Test
+    @DisplayName("Should draw the most popular keys most often")
+    void shouldDrawZipfianKeys() {
+        ZipfianKeys keys = new ZipfianKeys(IntStream.range(0, 100).mapToObj(Integer::toString).toList(), 1.0);
+        Random random = new Random(42);
+        Map<String, Long> draws = IntStream.range(0, 10_000).mapToObj(i -> keys.next(random))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        // P(rank 1) = 1 / H(100) ~ 19%, P(rank 100) ~ 0.2%
+        assertTrue(draws.get("0") > 1700 && draws.get("0") < 2100);
+        assertTrue(draws.get("0") > 20 * draws.getOrDefault("99", 0L));
+        assertEquals(List.of("0", "1", "2"), draws.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()).limit(3).map(Map.Entry::getKey).toList());
+    }
+
+    private JsonNode get(String url) throws Exception {
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    private int status(String url) {
+        try {
+            return http.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.fabrick.interview.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws keys with a Zipfian popularity: the key of rank {@code k} is drawn with a probability proportional to
+ * {@code 1 / k^exponent}, so a few hot keys get most of the traffic while a long tail keeps missing the caches.
+ */
+public final class ZipfianKeys {
+
+    private final List<String> keys;
+    private final double[] cumulative;
+
+    /**
+     * @param keys     The keys, most popular first.
+     * @param exponent The skew: {@code 0} is uniform, around {@code 1} is typical of web traffic.
+     */
+    public ZipfianKeys(List<String> keys, double exponent) {
+        this.keys = List.copyOf(keys);
+        this.cumulative = new double[keys.size()];
+        double sum = 0;
+        for (int rank = 1; rank <= keys.size(); rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public String next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return keys.get(Math.min(index < 0 ? -index - 1 : index, keys.size() - 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.fabrick.interview.support.blocking;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Runs blocking code (plain imperative services, blocking HTTP clients) behind the reactive interfaces the
+ * controllers and the response cache expect, one virtual thread per call: a call blocked on I/O only parks its
+ * virtual thread, never an event loop.
+ * <p>
+ * The blocking code gets the Reactor context of the request, so that it can still record the cache entries its
+ * result depends on ({@code RenderedResponseCache.dependsOn}) and parent its stage observations to the request
+ * ({@code ReactiveObservations.child}).
+ * </p>
+ */
+public final class BlockingCalls {
+
+    private static final Scheduler VIRTUAL_THREADS = Schedulers.fromExecutorService(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-", 0).factory()), "virtualThreads");
+
+    private BlockingCalls() {
+    }
+
+    /**
+     * @param call The blocking call, given the context of the subscriber; a {@code null} result completes empty.
+     * @return A {@link Mono} running {@code call} on a virtual thread of its own at each subscription.
+     */
+    public static <T> Mono<T> mono(Function<ContextView, T> call) {
+        return Mono.deferContextual(context -> Mono.fromCallable(() -> call.apply(context)))
+                .subscribeOn(VIRTUAL_THREADS);
+    }
+
+    /**
+     * Like {@link #mono(Function)}, emitting the elements of the returned collection.
+     */
+    public static <T> Flux<T> flux(Function<ContextView, ? extends Iterable<T>> call) {
+        return BlockingCalls.<Iterable<T>>mono(call::apply).flatMapIterable(items -> items);
+    }
+}
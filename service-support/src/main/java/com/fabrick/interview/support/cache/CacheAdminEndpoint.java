@@ -0,0 +1,99 @@
+package com.fabrick.interview.support.cache;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Admin endpoint ({@code /actuator/cacheadmin}) over the {@link ManagedCaches}:
+ * <ul>
+ * <li>{@code GET /actuator/cacheadmin}: size, policy and statistics (hit ratio included) of every cache;</li>
+ * <li>{@code GET /actuator/cacheadmin/{name}} with optional {@code top} (default 10): the same, plus the hottest keys;</li>
+ * <li>{@code POST /actuator/cacheadmin/{name}} with any of {@code maximumSize}, {@code maximumWeight},
+ * {@code expireAfterWrite}, {@code expireAfterAccess}, {@code refreshAfterWrite}: changes the live policy;</li>
+ * <li>{@code DELETE /actuator/cacheadmin/{name}} with optional {@code keys}: invalidates them, or the whole cache;</li>
+ * <li>{@code POST /actuator/cacheadmin/{name}/preload} with {@code keys}: loads the keys not cached yet.</li>
+ * </ul>
+ * The {@code keys} are separated by {@code ;} or whitespace (the cache keys themselves may contain commas, like the
+ * bounding boxes).
+ */
+@Endpoint(id = "cacheadmin")
+public class CacheAdminEndpoint {
+
+    private static final int DEFAULT_TOP_KEYS = 10;
+    private static final Pattern KEY_SEPARATOR = Pattern.compile("[;\\s]+");
+
+    private final ManagedCaches caches;
+
+    public CacheAdminEndpoint(ManagedCaches caches) {
+        this.caches = caches;
+    }
+
+    @ReadOperation
+    public Map<String, ManagedCaches.CacheState> caches() {
+        Map<String, ManagedCaches.CacheState> states = new LinkedHashMap<>();
+        for (String name : caches.names()) {
+            states.put(name, caches.state(name, 0));
+        }
+        return states;
+    }
+
+    /**
+     * @return The state of the cache, or {@code null} (404) for an unknown cache.
+     */
+    @ReadOperation
+    public ManagedCaches.CacheState cache(@Selector String name, @Nullable Integer top) {
+        return caches.state(name, top != null ? Math.max(0, top) : DEFAULT_TOP_KEYS);
+    }
+
+    @WriteOperation
+    public ManagedCaches.CacheState policy(@Selector String name, @Nullable Long maximumSize, @Nullable Long maximumWeight,
+                                           @Nullable Duration expireAfterWrite, @Nullable Duration expireAfterAccess,
+                                           @Nullable Duration refreshAfterWrite) {
+        CachePolicyProperties.Policy changes = new CachePolicyProperties.Policy();
+        changes.setMaximumSize(maximumSize);
+        changes.setMaximumWeight(maximumWeight);
+        changes.setExpireAfterWrite(expireAfterWrite);
+        changes.setExpireAfterAccess(expireAfterAccess);
+        changes.setRefreshAfterWrite(refreshAfterWrite);
+        return invalidRequestOnError(() -> caches.update(name, changes));
+    }
+
+    @WriteOperation
+    public Mono<ManagedCaches.PreloadResult> preload(@Selector String name, @Selector String operation, String keys) {
+        if (!"preload".equals(operation)) {
+            throw new InvalidEndpointRequestException("Unknown operation '" + operation + "'", "Unknown operation");
+        }
+        return invalidRequestOnError(() -> caches.preload(name, split(keys)));
+    }
+
+    @DeleteOperation
+    public ManagedCaches.CacheState invalidate(@Selector String name, @Nullable String keys) {
+        return invalidRequestOnError(() -> caches.invalidate(name, keys != null ? split(keys) : List.of()));
+    }
+
+    private static List<String> split(String keys) {
+        return Arrays.stream(KEY_SEPARATOR.split(keys)).filter(key -> !key.isEmpty()).toList();
+    }
+
+    private static <T> T invalidRequestOnError(Supplier<T> operation) {
+        try {
+            return operation.get();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.fabrick.interview.support.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Policies of the data caches built by {@link ManagedCaches}, bound from {@code cache.policies.<name>.*}.
+ * <p>
+ * A cache is built with the defaults of its service, overridden by whatever is configured here, setting by setting.
+ * Example:
+ * <pre>
+ * cache.policies.stations.maximum-weight=200000
+ * cache.policies.stations.expire-after-write=10m
+ * cache.policies.stations.refresh-after-write=5m
+ * </pre>
+ * Every dimension configured at startup can then be changed at runtime through {@code /actuator/cacheadmin}; a
+ * dimension that is not configured at startup cannot be added later (Caffeine fixes the policy kinds at build time).
+ * </p>
+ */
+@ConfigurationProperties("cache")
+public class CachePolicyProperties {
+
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    public Map<String, Policy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, Policy> policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * @return The policy of the given cache: {@code defaults} overridden by the configured settings.
+     */
+    public Policy policy(String name, Policy defaults) {
+        Policy configured = policies.get(name);
+        return configured == null ? defaults.copy() : defaults.overriddenBy(configured);
+    }
+
+    /**
+     * Bounds, expiration and refresh of one cache; unset values are not applied.
+     */
+    public static class Policy {
+
+        /** Maximum number of entries; exclusive with {@code maximumWeight}. */
+        private Long maximumSize;
+        /** Maximum total weight of the entries (a collection weighs its size, any other value 1). */
+        private Long maximumWeight;
+        /** Entries expire this long after being loaded or replaced. */
+        private Duration expireAfterWrite;
+        /** Entries expire after not being read for this long. */
+        private Duration expireAfterAccess;
+        /** Entries read this long after being loaded are reloaded in the background, the old value being served meanwhile. */
+        private Duration refreshAfterWrite;
+        /** Whether hits, misses, loads and evictions are counted (the {@code cache.*} meters and the hit ratio). */
+        private Boolean recordStats;
+
+        /**
+         * @return A policy bounded by number of entries and expiring after write, with statistics.
+         */
+        public static Policy of(long maximumSize, Duration expireAfterWrite) {
+            Policy policy = new Policy();
+            policy.setMaximumSize(maximumSize);
+            policy.setExpireAfterWrite(expireAfterWrite);
+            policy.setRecordStats(true);
+            return policy;
+        }
+
+        Policy copy() {
+            return overriddenBy(new Policy());
+        }
+
+        /**
+         * A configured weight bound replaces a default size bound, and the other way round.
+         */
+        Policy overriddenBy(Policy other) {
+            Policy merged = new Policy();
+            if (other.maximumSize != null || other.maximumWeight != null) {
+                merged.maximumSize = other.maximumSize;
+                merged.maximumWeight = other.maximumWeight;
+            } else {
+                merged.maximumSize = maximumSize;
+                merged.maximumWeight = maximumWeight;
+            }
+            merged.expireAfterWrite = other.expireAfterWrite != null ? other.expireAfterWrite : expireAfterWrite;
+            merged.expireAfterAccess = other.expireAfterAccess != null ? other.expireAfterAccess : expireAfterAccess;
+            merged.refreshAfterWrite = other.refreshAfterWrite != null ? other.refreshAfterWrite : refreshAfterWrite;
+            merged.recordStats = other.recordStats != null ? other.recordStats : recordStats;
+            return merged;
+        }
+
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Long getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public void setMaximumWeight(Long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+
+        public Boolean getRecordStats() {
+            return recordStats;
+        }
+
+        public void setRecordStats(Boolean recordStats) {
+            this.recordStats = recordStats;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.fabrick.interview.support.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Provides the {@link ManagedCaches} the services build their Caffeine caches with, tuned with
+ * {@code cache.policies.<name>.*} (see {@link CachePolicyProperties}), and the {@code /actuator/cacheadmin} endpoint
+ * over them.
+ */
+@AutoConfiguration
+@ConditionalOnClass(Caffeine.class)
+@EnableConfigurationProperties(CachePolicyProperties.class)
+public class ManagedCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ManagedCaches managedCaches(CachePolicyProperties properties) {
+        return new ManagedCaches(properties);
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public CacheAdminEndpoint cacheAdminEndpoint(ManagedCaches managedCaches) {
+        return new CacheAdminEndpoint(managedCaches);
+    }
+}
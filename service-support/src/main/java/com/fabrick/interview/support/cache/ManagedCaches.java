@@ -0,0 +1,391 @@
+package com.fabrick.interview.support.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Builds the Caffeine data caches of a service from their {@link CachePolicyProperties policies}, and keeps track of
+ * them so that {@code /actuator/cacheadmin} can inspect and tune them at runtime.
+ * <p>
+ * A cache given a loader (the uncached fetch of its values) is built as an {@link AsyncLoadingCache}: it can be
+ * refreshed in the background ({@code refresh-after-write}) and preloaded. The loader must return values in the
+ * representation the Spring cache stores: the value of a {@code Mono}, the {@code List} of a {@code Flux}.
+ * </p>
+ */
+public class ManagedCaches {
+
+    /** Upstream calls in flight at once while preloading. */
+    static final int PRELOAD_CONCURRENCY = 8;
+
+    private final CachePolicyProperties properties;
+    private final Map<String, ManagedCache> caches = new ConcurrentHashMap<>();
+
+    public ManagedCaches(CachePolicyProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return A builder of the cache {@code name}; the cache is managed once built.
+     */
+    public Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Live state of a managed cache.
+     *
+     * @param policy        The current policy (runtime changes included).
+     * @param stats         The statistics, or {@code null} if the cache does not record them.
+     * @param preloadable   Whether the cache has a loader (refresh and preload).
+     * @param topKeys       The keys most likely to be retained, hottest first, when requested.
+     */
+    public record CacheState(String name, long estimatedSize, @Nullable Long weightedSize,
+                             CachePolicyProperties.Policy policy, @Nullable Stats stats, boolean preloadable,
+                             @Nullable List<String> topKeys) {
+    }
+
+    public record Stats(long hitCount, long missCount, double hitRatio, long loadSuccessCount, long loadFailureCount,
+                        double averageLoadPenaltyMillis, long evictionCount, long evictionWeight) {
+
+        static Stats of(CacheStats stats) {
+            return new Stats(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.loadSuccessCount(),
+                    stats.loadFailureCount(), stats.averageLoadPenalty() / 1_000_000.0, stats.evictionCount(),
+                    stats.evictionWeight());
+        }
+    }
+
+    /**
+     * @param loaded  Keys loaded by the preload.
+     * @param present Keys that were already cached (not reloaded).
+     * @param failed  Keys whose load failed or found nothing, with the reason.
+     */
+    public record PreloadResult(int loaded, int present, Map<String, String> failed) {
+    }
+
+    private record ManagedCache(AsyncCache<Object, Object> cache,
+                                @Nullable Function<Object, ? extends CompletableFuture<?>> loader,
+                                boolean recordingStats) {
+    }
+
+    /**
+     * @return The names of the managed caches, sorted.
+     */
+    public List<String> names() {
+        return caches.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * @param topKeys The number of hottest keys to list, 0 for none.
+     * @return The state of the cache, or {@code null} if there is no such cache.
+     */
+    @Nullable
+    public CacheState state(String name, int topKeys) {
+        ManagedCache managed = caches.get(name);
+        if (managed == null) {
+            return null;
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = managed.cache().synchronous();
+        // apply the pending writes and evictions, so that the sizes are exact
+        cache.cleanUp();
+        Policy<Object, Object> policy = cache.policy();
+        CachePolicyProperties.Policy current = new CachePolicyProperties.Policy();
+        Long weightedSize = null;
+        if (policy.eviction().isPresent()) {
+            Policy.Eviction<Object, Object> eviction = policy.eviction().get();
+            if (eviction.isWeighted()) {
+                current.setMaximumWeight(eviction.getMaximum());
+                weightedSize = eviction.weightedSize().orElse(0L);
+            } else {
+                current.setMaximumSize(eviction.getMaximum());
+            }
+        }
+        policy.expireAfterWrite().ifPresent(expiration -> current.setExpireAfterWrite(expiration.getExpiresAfter()));
+        policy.expireAfterAccess().ifPresent(expiration -> current.setExpireAfterAccess(expiration.getExpiresAfter()));
+        policy.refreshAfterWrite().ifPresent(refresh -> current.setRefreshAfterWrite(refresh.getRefreshesAfter()));
+        current.setRecordStats(managed.recordingStats());
+        return new CacheState(name, cache.estimatedSize(), weightedSize, current,
+                managed.recordingStats() ? Stats.of(cache.stats()) : null, managed.loader() != null,
+                topKeys > 0 ? topKeys(policy, topKeys) : null);
+    }
+
+    /**
+     * @return How long ago the entry {@code key} of the cache {@code name} was loaded or last refreshed, or
+     * {@code null} if there is no such cache or entry, or the cache does not track write times (neither
+     * {@code expire-after-write} nor {@code refresh-after-write}).
+     */
+    @Nullable
+    public Duration age(String name, Object key) {
+        ManagedCache managed = caches.get(name);
+        if (managed == null) {
+            return null;
+        }
+        Policy<Object, Object> policy = managed.cache().synchronous().policy();
+        return policy.refreshAfterWrite().flatMap(refresh -> refresh.ageOf(key))
+                .or(() -> policy.expireAfterWrite().flatMap(expiration -> expiration.ageOf(key)))
+                .orElse(null);
+    }
+
+    /**
+     * The hottest keys when the cache is bounded, otherwise the most recently read or written ones.
+     */
+    private static List<String> topKeys(Policy<Object, Object> policy, int limit) {
+        Map<Object, Object> ordered = policy.eviction().map(eviction -> eviction.hottest(limit))
+                .or(() -> policy.expireAfterAccess().map(expiration -> expiration.youngest(limit)))
+                .or(() -> policy.expireAfterWrite().map(expiration -> expiration.youngest(limit)))
+                .orElse(Map.of());
+        return ordered.keySet().stream().map(String::valueOf).toList();
+    }
+
+    /**
+     * Applies the non-null settings of {@code changes} to the live cache, all or none of them.
+     *
+     * @throws IllegalArgumentException If the cache is unknown, a value is negative, or a setting targets a
+     *                                  dimension the cache was not built with.
+     */
+    public CacheState update(String name, CachePolicyProperties.Policy changes) {
+        Policy<Object, Object> policy = cache(name).cache().synchronous().policy();
+        if (changes.getRecordStats() != null) {
+            throw new IllegalArgumentException("Statistics recording cannot be changed at runtime");
+        }
+        if (changes.getMaximumSize() != null && changes.getMaximumWeight() != null) {
+            throw new IllegalArgumentException("maximumSize and maximumWeight are exclusive");
+        }
+        requireNonNegative(changes.getMaximumSize(), "maximumSize");
+        requireNonNegative(changes.getMaximumWeight(), "maximumWeight");
+        requireNonNegative(changes.getExpireAfterWrite(), "expireAfterWrite");
+        requireNonNegative(changes.getExpireAfterAccess(), "expireAfterAccess");
+        requireNonNegative(changes.getRefreshAfterWrite(), "refreshAfterWrite");
+
+        Policy.Eviction<Object, Object> eviction = policy.eviction().orElse(null);
+        Long maximum = changes.getMaximumSize() != null ? changes.getMaximumSize() : changes.getMaximumWeight();
+        if (maximum != null && (eviction == null || eviction.isWeighted() != (changes.getMaximumWeight() != null))) {
+            throw notBuiltWith(name, changes.getMaximumWeight() != null ? "maximum-weight" : "maximum-size");
+        }
+        Policy.FixedExpiration<Object, Object> afterWrite = dimension(name, "expire-after-write",
+                changes.getExpireAfterWrite(), policy.expireAfterWrite().orElse(null));
+        Policy.FixedExpiration<Object, Object> afterAccess = dimension(name, "expire-after-access",
+                changes.getExpireAfterAccess(), policy.expireAfterAccess().orElse(null));
+        Policy.FixedRefresh<Object, Object> refresh = dimension(name, "refresh-after-write",
+                changes.getRefreshAfterWrite(), policy.refreshAfterWrite().orElse(null));
+
+        if (maximum != null) {
+            eviction.setMaximum(maximum);
+        }
+        if (afterWrite != null) {
+            afterWrite.setExpiresAfter(changes.getExpireAfterWrite());
+        }
+        if (afterAccess != null) {
+            afterAccess.setExpiresAfter(changes.getExpireAfterAccess());
+        }
+        if (refresh != null) {
+            refresh.setRefreshesAfter(changes.getRefreshAfterWrite());
+        }
+        return state(name, 0);
+    }
+
+    /**
+     * Drops the given keys, or every entry when {@code keys} is empty; the removal listener is notified.
+     */
+    public CacheState invalidate(String name, Collection<?> keys) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = cache(name).cache().synchronous();
+        if (keys.isEmpty()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidateAll(keys);
+        }
+        return state(name, 0);
+    }
+
+    /**
+     * Loads the keys that are not cached yet, {@value #PRELOAD_CONCURRENCY} at a time. The loads complete even if the
+     * caller goes away.
+     *
+     * @throws IllegalArgumentException If the cache is unknown or has no loader.
+     */
+    public Mono<PreloadResult> preload(String name, Collection<?> keys) {
+        ManagedCache managed = cache(name);
+        if (!(managed.cache() instanceof AsyncLoadingCache<Object, Object> loading)) {
+            throw new IllegalArgumentException("Cache '" + name + "' has no loader and cannot be preloaded");
+        }
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        return Flux.fromIterable(keys)
+                .distinct()
+                .flatMap(key -> {
+                    if (loading.asMap().containsKey(key)) {
+                        return Mono.just(Boolean.FALSE);
+                    }
+                    return Mono.fromFuture(() -> loading.get(key), true)
+                            .map(value -> Boolean.TRUE)
+                            .switchIfEmpty(Mono.fromRunnable(() -> failed.put(String.valueOf(key), "not found")))
+                            .onErrorResume(e -> {
+                                failed.put(String.valueOf(key), String.valueOf(e.getMessage()));
+                                return Mono.empty();
+                            });
+                }, PRELOAD_CONCURRENCY)
+                .collectList()
+                .map(outcomes -> {
+                    int loaded = (int) outcomes.stream().filter(Boolean::booleanValue).count();
+                    return new PreloadResult(loaded, outcomes.size() - loaded, new TreeMap<>(failed));
+                });
+    }
+
+    /**
+     * Reloads a key with the cache loader, in place: readers keep getting the current value until the new one
+     * replaces it (the removal listener sees the replacement), and a failed reload keeps the current value.
+     *
+     * @return The reloaded value, empty if the loader found none.
+     * @throws IllegalArgumentException If the cache is unknown or has no loader.
+     */
+    public Mono<Object> refresh(String name, Object key) {
+        ManagedCache managed = cache(name);
+        if (!(managed.cache() instanceof AsyncLoadingCache<Object, Object> loading)) {
+            throw new IllegalArgumentException("Cache '" + name + "' has no loader and cannot be refreshed");
+        }
+        return Mono.fromFuture(() -> loading.synchronous().refresh(key), true);
+    }
+
+    private ManagedCache cache(String name) {
+        ManagedCache managed = caches.get(name);
+        if (managed == null) {
+            throw new IllegalArgumentException("Unknown cache '" + name + "'");
+        }
+        return managed;
+    }
+
+    @Nullable
+    private static <T> T dimension(String name, String setting, @Nullable Duration change, @Nullable T dimension) {
+        if (change == null) {
+            return null;
+        }
+        if (dimension == null) {
+            throw notBuiltWith(name, setting);
+        }
+        return dimension;
+    }
+
+    private static IllegalArgumentException notBuiltWith(String name, String setting) {
+        return new IllegalArgumentException("Cache '" + name + "' was not built with " + setting
+                + ": configure cache.policies." + name + "." + setting + " and restart");
+    }
+
+    private static void requireNonNegative(@Nullable Long value, String setting) {
+        if (value != null && value < 0) {
+            throw new IllegalArgumentException(setting + " must not be negative");
+        }
+    }
+
+    private static void requireNonNegative(@Nullable Duration value, String setting) {
+        if (value != null && value.isNegative()) {
+            throw new IllegalArgumentException(setting + " must not be negative");
+        }
+    }
+
+    /**
+     * A collection weighs its number of elements, any other value 1.
+     */
+    static int weigh(Object key, Object value) {
+        return value instanceof Collection<?> collection ? Math.max(1, collection.size()) : 1;
+    }
+
+    /**
+     * Collects the defaults and hooks of one cache; the configured policy is applied on {@link #build()}.
+     */
+    public final class Builder {
+
+        private final String name;
+        private CachePolicyProperties.Policy defaults = new CachePolicyProperties.Policy();
+        private Weigher<Object, Object> weigher = ManagedCaches::weigh;
+        @Nullable
+        private RemovalListener<Object, Object> removalListener;
+        @Nullable
+        private Function<Object, ? extends CompletableFuture<?>> loader;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The policy of the cache when nothing is configured under {@code cache.policies.<name>}.
+         */
+        public Builder defaults(CachePolicyProperties.Policy defaults) {
+            this.defaults = defaults;
+            return this;
+        }
+
+        /**
+         * The weigher used when the cache is bounded by {@code maximum-weight}, instead of {@link #weigh}.
+         */
+        public Builder weigher(Weigher<Object, Object> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder removalListener(@Nullable RemovalListener<Object, Object> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
+        /**
+         * The uncached fetch of a value; a future completing with {@code null} means there is no value.
+         */
+        public Builder loader(Function<Object, ? extends CompletableFuture<?>> loader) {
+            this.loader = loader;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException If the policy refreshes entries but there is no loader.
+         */
+        public AsyncCache<Object, Object> build() {
+            CachePolicyProperties.Policy policy = properties.policy(name, defaults);
+            Caffeine<Object, Object> caffeine = Caffeine.newBuilder();
+            if (policy.getMaximumWeight() != null) {
+                caffeine.maximumWeight(policy.getMaximumWeight()).weigher(weigher);
+            } else if (policy.getMaximumSize() != null) {
+                caffeine.maximumSize(policy.getMaximumSize());
+            }
+            if (policy.getExpireAfterWrite() != null) {
+                caffeine.expireAfterWrite(policy.getExpireAfterWrite());
+            }
+            if (policy.getExpireAfterAccess() != null) {
+                caffeine.expireAfterAccess(policy.getExpireAfterAccess());
+            }
+            if (policy.getRefreshAfterWrite() != null) {
+                if (loader == null) {
+                    throw new IllegalStateException("Cache '" + name + "' has no loader and cannot be refreshed");
+                }
+                caffeine.refreshAfterWrite(policy.getRefreshAfterWrite());
+            }
+            boolean recordingStats = Boolean.TRUE.equals(policy.getRecordStats());
+            if (recordingStats) {
+                caffeine.recordStats();
+            }
+            if (removalListener != null) {
+                caffeine.removalListener(removalListener);
+            }
+            Function<Object, ? extends CompletableFuture<?>> load = loader;
+            AsyncCache<Object, Object> cache = load == null
+                    ? caffeine.buildAsync()
+                    : caffeine.buildAsync((key, executor) -> load.apply(key));
+            caches.put(name, new ManagedCache(cache, load, recordingStats));
+            return cache;
+        }
+    }
+}
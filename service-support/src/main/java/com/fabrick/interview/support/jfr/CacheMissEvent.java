@@ -0,0 +1,44 @@
+package com.fabrick.interview.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Instant JFR event marking a miss of a Spring cache, emitted by the {@code @Cacheable} methods themselves
+ * (their body only runs on a miss). Hits are the remaining {@code cache.gets} of the same cache.
+ */
+@Name("com.fabrick.interview.CacheMiss")
+@Label("Cache Miss")
+@Category({"Fabrick Interview", "Cache"})
+@StackTrace(false)
+public class CacheMissEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(CacheMissEvent.class);
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Key")
+    @Description("Key of the missing entry")
+    String key;
+
+    /**
+     * Records a miss; a no-op costing a single check (and no allocation) while no recording enables the event.
+     */
+    public static void emit(String cache, String key) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        CacheMissEvent event = new CacheMissEvent();
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.key = key;
+            event.commit();
+        }
+    }
+}
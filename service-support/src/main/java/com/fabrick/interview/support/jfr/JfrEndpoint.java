@@ -0,0 +1,59 @@
+package com.fabrick.interview.support.jfr;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Admin endpoint ({@code /actuator/jfr}) driving the {@link JfrRecorder}:
+ * <ul>
+ * <li>{@code GET /actuator/jfr}: state of the current recording;</li>
+ * <li>{@code POST /actuator/jfr} with optional {@code duration} and {@code settings}: starts a recording;</li>
+ * <li>{@code DELETE /actuator/jfr}: stops it;</li>
+ * <li>{@code GET /actuator/jfr/{id}}: downloads the {@code .jfr} file (a snapshot while still running).</li>
+ * </ul>
+ */
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private final JfrRecorder recorder;
+
+    public JfrEndpoint(JfrRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public JfrRecorder.RecordingStatus status() {
+        return recorder.status();
+    }
+
+    @WriteOperation
+    public JfrRecorder.RecordingStatus start(@Nullable Duration duration, @Nullable String settings) {
+        try {
+            return recorder.start(duration, settings);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public JfrRecorder.RecordingStatus stop() {
+        return recorder.stop();
+    }
+
+    /**
+     * @return The recording file, or {@code null} (404) for an unknown recording.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource recording(@Selector long id) {
+        return recorder.file(id).map(FileSystemResource::new).orElse(null);
+    }
+}
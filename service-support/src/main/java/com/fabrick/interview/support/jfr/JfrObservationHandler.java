@@ -0,0 +1,66 @@
+package com.fabrick.interview.support.jfr;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import jdk.jfr.EventType;
+
+/**
+ * Turns every observation (the request stages and the HTTP server/client observations) into a
+ * {@link StageEvent}, so that JFR recordings can correlate CPU and allocation samples with the stages
+ * and upstream keys being processed.
+ * <p>
+ * The event is only allocated when a recording enables its type, so the handler costs a single check otherwise.
+ * </p>
+ */
+public class JfrObservationHandler implements ObservationHandler<Observation.Context> {
+
+    private static final String[] KEY_NAMES = {"key", "asteroid.id"};
+    private static final EventType STAGE_EVENT = EventType.getEventType(StageEvent.class);
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (!STAGE_EVENT.isEnabled()) {
+            return;
+        }
+        StageEvent event = new StageEvent();
+        event.begin();
+        context.put(StageEvent.class, event);
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        StageEvent event = context.get(StageEvent.class);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = context.getName();
+            event.upstream = value(context, "upstream");
+            event.endpoint = value(context, "endpoint");
+            for (String name : KEY_NAMES) {
+                if (event.key == null) {
+                    event.key = value(context, name);
+                }
+            }
+            String bytes = value(context, "bytes");
+            event.bytes = bytes == null ? 0 : Long.parseLong(bytes);
+            event.error = context.getError() == null ? null : context.getError().getClass().getSimpleName();
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    private static String value(Observation.Context context, String name) {
+        KeyValue keyValue = context.getLowCardinalityKeyValue(name);
+        if (keyValue == null) {
+            keyValue = context.getHighCardinalityKeyValue(name);
+        }
+        return keyValue == null ? null : keyValue.getValue();
+    }
+}
@@ -0,0 +1,166 @@
+package com.fabrick.interview.support.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Owns the on-demand Java Flight Recorder recording of the process.
+ * <p>
+ * At most one recording exists at a time. Every recording is bounded: its duration is capped at
+ * {@code maxDuration} (it stops by itself when it elapses) and the data kept on disk at {@code maxSize}.
+ * The file of the last recording stays available until the next one starts or the application stops.
+ * </p>
+ */
+public class JfrRecorder implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecorder.class);
+
+    private final Duration maxDuration;
+    private final DataSize maxSize;
+    private final Path directory;
+
+    private Recording recording;
+    private Path file;
+    private Path snapshot;
+
+    public JfrRecorder(Duration maxDuration, DataSize maxSize, Path directory) {
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        this.directory = directory;
+    }
+
+    /**
+     * Starts a new recording, discarding the previous one.
+     *
+     * @param duration Requested duration, capped at the configured maximum (the maximum when null).
+     * @param settings JFR settings name ({@code default}, low overhead, or {@code profile}, the default).
+     * @throws IllegalStateException    If a recording is already running.
+     * @throws IllegalArgumentException If the settings are unknown.
+     */
+    public synchronized RecordingStatus start(@Nullable Duration duration, @Nullable String settings) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Recording " + recording.getId() + " is already running");
+        }
+        String settingsName = settings == null ? "profile" : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settingsName, e);
+        }
+        discard();
+
+        Duration bounded = duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+        try {
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "recording-", ".jfr");
+            Recording newRecording = new Recording(configuration);
+            newRecording.setName("on-demand-" + settingsName);
+            newRecording.setToDisk(true);
+            newRecording.setDuration(bounded);
+            newRecording.setMaxSize(maxSize.toBytes());
+            newRecording.setDestination(file);
+            newRecording.enable(StageEvent.class);
+            newRecording.enable(CacheMissEvent.class);
+            newRecording.start();
+            recording = newRecording;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info("JFR recording {} started ({} settings, {} max, {})", recording.getId(), settingsName, bounded, maxSize);
+        return status();
+    }
+
+    /**
+     * Stops the running recording, writing its file (a recording also stops by itself once its duration elapsed).
+     */
+    public synchronized RecordingStatus stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            logger.info("JFR recording {} stopped, written to {}", recording.getId(), file);
+        }
+        return status();
+    }
+
+    /**
+     * Returns the file of the given recording: the final file once stopped, or a snapshot of the data
+     * recorded so far while it is running.
+     */
+    public synchronized Optional<Path> file(long id) {
+        if (recording == null || recording.getId() != id) {
+            return Optional.empty();
+        }
+        try {
+            return switch (recording.getState()) {
+                case RUNNING -> {
+                    deleteIfPresent(snapshot);
+                    snapshot = Files.createTempFile(directory, "snapshot-", ".jfr");
+                    recording.dump(snapshot);
+                    yield Optional.of(snapshot);
+                }
+                // A recording with a destination is closed once written, on stop or when its duration elapsed
+                case STOPPED, CLOSED -> Optional.of(file).filter(Files::exists);
+                default -> Optional.empty();
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized RecordingStatus status() {
+        if (recording == null) {
+            return new RecordingStatus(null, null, RecordingState.NEW.name(), null, null, 0, maxDuration, maxSize.toBytes());
+        }
+        return new RecordingStatus(recording.getId(), recording.getName(), recording.getState().name(),
+                recording.getStartTime(), recording.getDuration(), recording.getSize(), maxDuration, maxSize.toBytes());
+    }
+
+    @Override
+    public synchronized void destroy() {
+        discard();
+    }
+
+    private void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteIfPresent(file);
+        deleteIfPresent(snapshot);
+        file = null;
+        snapshot = null;
+    }
+
+    private static void deleteIfPresent(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete JFR file {}", path, e);
+        }
+    }
+
+    /**
+     * State of the current (or last) recording. {@code size} is the amount of data recorded so far.
+     */
+    public record RecordingStatus(Long id, String name, String state, Instant startedAt, Duration duration,
+                                  long size, Duration maxDuration, long maxSize) {
+    }
+}
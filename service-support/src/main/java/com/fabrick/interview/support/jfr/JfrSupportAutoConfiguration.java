@@ -0,0 +1,44 @@
+package com.fabrick.interview.support.jfr;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * On-demand Java Flight Recorder support: the custom JFR events of the request stages and the
+ * {@code /actuator/jfr} endpoint starting and stopping bounded recordings.
+ * <p>
+ * Disable with {@code jfr.enabled=false}.
+ * </p>
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "jfr.enabled", matchIfMissing = true)
+public class JfrSupportAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JfrObservationHandler jfrObservationHandler() {
+        return new JfrObservationHandler();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JfrRecorder jfrRecorder(@Value("${jfr.max-duration:PT15M}") Duration maxDuration,
+                                   @Value("${jfr.max-size:256MB}") DataSize maxSize,
+                                   @Value("${jfr.directory:${java.io.tmpdir}/jfr}") String directory) {
+        return new JfrRecorder(maxDuration, maxSize, Path.of(directory));
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public JfrEndpoint jfrEndpoint(JfrRecorder jfrRecorder) {
+        return new JfrEndpoint(jfrRecorder);
+    }
+}
@@ -0,0 +1,42 @@
+package com.fabrick.interview.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one observed request stage (upstream call, decoding, path/bbox computation, ...),
+ * emitted by the {@link JfrObservationHandler}. The event duration is the stage duration; the recording
+ * thread is the one that completed it.
+ */
+@Name("com.fabrick.interview.Stage")
+@Label("Request Stage")
+@Description("A request stage observed by the service (upstream call, decoding, computation, serialization)")
+@Category({"Fabrick Interview", "Requests"})
+@StackTrace(false)
+class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Upstream")
+    String upstream;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Key")
+    @Description("Asteroid ID, bbox or entity ID the stage worked on")
+    String key;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Error")
+    String error;
+}
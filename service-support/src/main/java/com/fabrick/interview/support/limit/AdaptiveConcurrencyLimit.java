@@ -0,0 +1,216 @@
+package com.fabrick.interview.support.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit adjusted from the observed latency, in the style of the gradient algorithms (TCP Vegas,
+ * Netflix Gradient2): the limit grows while the latency stays at its baseline, and shrinks as soon as requests
+ * start queueing somewhere (the latency of the recent requests rising above the long-term one).
+ * <p>
+ * On every completed request:
+ * <pre>
+ * gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1)
+ * limit    = smoothed(limit * gradient + sqrt(limit))
+ * </pre>
+ * where {@code shortRtt} and {@code longRtt} are exponential moving averages over about 10 and 600 samples. A dropped
+ * request (timeout, overloaded upstream) backs the limit off multiplicatively, AIMD style, at most once per round
+ * trip. The limit neither grows nor backs off while less than half of it is used: an idle period does not inflate it,
+ * and the occasional failures of an upstream under light load do not deflate it.
+ * </p>
+ * <p>
+ * Requests of very different costs (cache hits in microseconds, misses waiting for an upstream) are sampled in
+ * separate latency classes, each with its own averages and tolerance: a sample is only compared with the baseline of
+ * its class, so a change in the mix of the traffic is not mistaken for queueing.
+ * </p>
+ * <p>
+ * Acquiring is lock-free; the updates are serialized, and cost a few arithmetic operations.
+ * </p>
+ */
+final class AdaptiveConcurrencyLimit implements MeterBinder {
+
+    /**
+     * What a completed request tells about the load.
+     */
+    enum Outcome {
+        /** Completed: its latency is a sample. */
+        SUCCESS,
+        /** Failed because something is overloaded: the limit backs off. */
+        DROPPED,
+        /** Cancelled or failed for an unrelated reason: only the slot is released. */
+        IGNORED
+    }
+
+    /**
+     * A kind of requests whose latencies are comparable.
+     *
+     * @param tolerance How much the recent latency of the class may exceed its long-term one before the limit shrinks.
+     */
+    record LatencyClass(String name, double tolerance) {
+    }
+
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final List<LatencyClass> classes;
+    private final ConcurrencyLimitProperties.Limit settings;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private final double[] shortRtt;
+    private final double[] longRtt;
+    private long lastBackoff;
+
+    AdaptiveConcurrencyLimit(String name, ConcurrencyLimitProperties.Limit settings) {
+        this(name, List.of(new LatencyClass("all", settings.getTolerance())), settings);
+    }
+
+    /**
+     * @param classes The latency classes the samples fall in, by index (see {@link #release(long, Outcome, int)}).
+     */
+    AdaptiveConcurrencyLimit(String name, List<LatencyClass> classes, ConcurrencyLimitProperties.Limit settings) {
+        this.name = name;
+        this.classes = List.copyOf(classes);
+        this.shortRtt = new double[classes.size()];
+        this.longRtt = new double[classes.size()];
+        this.settings = settings;
+        this.estimatedLimit = clamp(settings.getInitialLimit());
+        this.limit = (int) estimatedLimit;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Takes a slot if the limit allows it; every acquired slot must be {@link #release released} exactly once.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long rttNanos, Outcome outcome) {
+        release(rttNanos, outcome, 0);
+    }
+
+    /**
+     * @param latencyClass The index of the latency class of the sample.
+     */
+    void release(long rttNanos, Outcome outcome, int latencyClass) {
+        int used = inFlight.getAndDecrement();
+        if (outcome != Outcome.IGNORED) {
+            update(rttNanos, used, outcome == Outcome.DROPPED, latencyClass);
+        }
+    }
+
+    private synchronized void update(long rttNanos, int used, boolean dropped, int latencyClass) {
+        if (dropped) {
+            if (used < estimatedLimit / 2) {
+                // isolated failures of a mostly idle limit do not tell that it is too high
+                return;
+            }
+            // the requests in flight when the overload started fail together: back off once per round trip
+            long now = System.nanoTime();
+            if (lastBackoff == 0 || now - lastBackoff >= shortRtt[latencyClass]) {
+                lastBackoff = now;
+                estimatedLimit = clamp(estimatedLimit * settings.getBackoffRatio());
+                limit = (int) estimatedLimit;
+            }
+            return;
+        }
+        double rtt = Math.max(rttNanos, 1);
+        double recent = shortRtt[latencyClass] == 0 ? rtt : shortRtt[latencyClass] + (rtt - shortRtt[latencyClass]) * SHORT_ALPHA;
+        double baseline = longRtt[latencyClass] == 0 ? rtt : longRtt[latencyClass] + (rtt - longRtt[latencyClass]) * LONG_ALPHA;
+        // after a latency spike, let the baseline come back down quickly
+        if (baseline > 2 * recent) {
+            baseline *= 0.95;
+        }
+        shortRtt[latencyClass] = recent;
+        longRtt[latencyClass] = baseline;
+        if (used < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, classes.get(latencyClass).tolerance() * baseline / recent));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = clamp(estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING);
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @return The time after which a rejected client may retry: the recent latency of the slowest class, at least one
+     * second.
+     */
+    synchronized Duration retryAfter() {
+        double slowest = 0;
+        for (double rtt : shortRtt) {
+            slowest = Math.max(slowest, rtt);
+        }
+        return Duration.ofSeconds(Math.max(1, (long) Math.ceil(slowest / TimeUnit.SECONDS.toNanos(1))));
+    }
+
+    private synchronized double rtt(boolean recent, int latencyClass) {
+        return (recent ? shortRtt[latencyClass] : longRtt[latencyClass]) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), value));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimit::limit)
+                .tag("limiter", name)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("concurrency.in.flight", this, AdaptiveConcurrencyLimit::inFlight)
+                .tag("limiter", name)
+                .description("Requests holding a slot of the limiter")
+                .register(registry);
+        FunctionCounter.builder("concurrency.rejected", rejected, LongAdder::sum)
+                .tag("limiter", name)
+                .description("Requests rejected because the limit was reached")
+                .register(registry);
+        for (int i = 0; i < classes.size(); i++) {
+            int latencyClass = i;
+            Gauge.builder("concurrency.rtt", this, limiter -> limiter.rtt(true, latencyClass))
+                    .tags("limiter", name, "class", classes.get(i).name(), "window", "short")
+                    .baseUnit("seconds")
+                    .description("Moving average of the latency the limit is adjusted from")
+                    .register(registry);
+            Gauge.builder("concurrency.rtt", this, limiter -> limiter.rtt(false, latencyClass))
+                    .tags("limiter", name, "class", classes.get(i).name(), "window", "long")
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+}
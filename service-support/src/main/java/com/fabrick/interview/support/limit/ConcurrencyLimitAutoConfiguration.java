@@ -0,0 +1,36 @@
+package com.fabrick.interview.support.limit;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registers the {@link ConcurrencyLimitWebFilter} in the reactive services, and its upstream limit on every
+ * {@code WebClient} built from the Boot-managed builder (the upstream clients included).
+ * <p>
+ * Tuned with {@code concurrency-limit.*} (see {@link ConcurrencyLimitProperties}); {@code concurrency-limit.enabled=false}
+ * turns both limits off. The limits are published as {@code concurrency.limit}, {@code concurrency.in.flight},
+ * {@code concurrency.rejected} and {@code concurrency.rtt}, tagged with the {@code limiter}.
+ * </p>
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "concurrency-limit", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConcurrencyLimitWebFilter concurrencyLimitWebFilter(ConcurrencyLimitProperties properties) {
+        return new ConcurrencyLimitWebFilter(properties);
+    }
+
+    @Bean
+    public WebClientCustomizer concurrencyLimitWebClientCustomizer(ConcurrencyLimitWebFilter filter) {
+        return builder -> builder.filter(filter.upstreamFilter());
+    }
+}
@@ -0,0 +1,27 @@
+package com.fabrick.interview.support.limit;
+
+import java.time.Duration;
+
+/**
+ * Signals that a request was shed by a concurrency limit, to be answered with {@code 503} and {@code Retry-After}
+ * by the {@link ConcurrencyLimitWebFilter}. Code catching upstream errors must let it through untouched.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    private final String limiter;
+    private final transient Duration retryAfter;
+
+    public ConcurrencyLimitExceededException(String limiter, Duration retryAfter) {
+        super("Concurrency limit '" + limiter + "' reached", null, false, false);
+        this.limiter = limiter;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getLimiter() {
+        return limiter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,134 @@
+package com.fabrick.interview.support.limit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the adaptive concurrency limits, bound from {@code concurrency-limit.*}.
+ * <p>
+ * Two limits apply to the requests under {@code path-prefix}: {@code inbound} bounds the requests being served
+ * (mostly cache hits, cheap and fast), and {@code upstream} bounds the upstream calls made while serving them, so
+ * that a slow upstream sheds the requests that need it while cache hits keep flowing. Example:
+ * <pre>
+ * concurrency-limit.upstream.max-limit=50
+ * concurrency-limit.upstream.tolerance=2.0
+ * </pre>
+ * </p>
+ */
+@ConfigurationProperties("concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    /** Requests whose path starts with this prefix are limited (the API, not the actuator or the docs). */
+    private String pathPrefix = "/api/";
+    private Limit inbound = new Limit(200, 20, 2000);
+    private Limit upstream = new Limit(20, 4, 200);
+    /**
+     * Tolerance of the {@code inbound} limit to the latency of the cache misses, which includes the upstream one (see
+     * {@link Limit#getTolerance()}).
+     */
+    private double missTolerance = 3.0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    public void setPathPrefix(String pathPrefix) {
+        this.pathPrefix = pathPrefix;
+    }
+
+    public Limit getInbound() {
+        return inbound;
+    }
+
+    public void setInbound(Limit inbound) {
+        this.inbound = inbound;
+    }
+
+    public double getMissTolerance() {
+        return missTolerance;
+    }
+
+    public void setMissTolerance(double missTolerance) {
+        this.missTolerance = missTolerance;
+    }
+
+    public Limit getUpstream() {
+        return upstream;
+    }
+
+    public void setUpstream(Limit upstream) {
+        this.upstream = upstream;
+    }
+
+    /**
+     * Bounds and sensitivity of one limit.
+     */
+    public static class Limit {
+
+        /** Limit before any latency has been observed. */
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+        /** How much the recent latency may exceed the long-term one before the limit shrinks (1.0 = not at all). */
+        private double tolerance = 1.5;
+        /** Factor applied to the limit on a dropped request (timeout, overloaded upstream). */
+        private double backoffRatio = 0.9;
+
+        public Limit() {
+        }
+
+        Limit(int initialLimit, int minLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.fabrick.interview.support.limit;
+
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds load before it queues up: the API requests are bounded by an adaptive {@code inbound} limit, and the upstream
+ * calls made while serving them by an adaptive {@code upstream} limit (see {@link AdaptiveConcurrencyLimit}).
+ * <p>
+ * A request over a limit is answered at once with {@code 503 Service Unavailable}, a {@code Retry-After} header and a
+ * problem document, instead of waiting behind the requests already in progress: under overload the service keeps
+ * completing what it admitted at the latency it can sustain, rather than timing everything out. Since cache hits only
+ * hold an {@code inbound} slot for the few microseconds they take, a slow upstream shrinks the {@code upstream} limit
+ * and sheds the cache misses, while the hits keep being served.
+ * </p>
+ * <p>
+ * The {@code inbound} limit learns from every request completed without a server error, in two latency classes: the
+ * requests answered by the {@link RenderedResponseCache} ({@code hit}), whose latency is the one of the service itself
+ * (event loops, CPU), and the others ({@code miss}), which also wait for the data caches and the upstream. Each is only
+ * compared with its own baseline, so that a burst of misses does not read as queueing of the hits, and the misses
+ * with a wider tolerance ({@code miss-tolerance}), since the upstream latency they include varies widely from one
+ * call to the next and is already bounded by the {@code upstream} limit. Every request holds
+ * its {@code inbound} slot until it completes, except the streams giving it back once admitted (see
+ * {@link #releaseInbound(ServerWebExchange)}).
+ * </p>
+ * <p>
+ * The {@code upstream} limit is applied by {@link #upstreamFilter()}, registered on every upstream client; a call over
+ * it fails with {@link ConcurrencyLimitExceededException}, turned into the {@code 503} here. A call holds its slot
+ * until the response headers arrive, and a {@code 5xx}, {@code 429}, timeout or dropped connection backs the limit off.
+ * </p>
+ */
+public class ConcurrencyLimitWebFilter implements WebFilter, Ordered, MeterBinder {
+
+    private static final MediaType PROBLEM_JSON = MediaType.APPLICATION_PROBLEM_JSON;
+    private static final String RELEASE_ATTRIBUTE = ConcurrencyLimitWebFilter.class.getName() + ".RELEASE";
+    private static final int HIT = 0;
+    private static final int MISS = 1;
+
+    private final AdaptiveConcurrencyLimit inbound;
+    private final AdaptiveConcurrencyLimit upstream;
+    private final String pathPrefix;
+
+    public ConcurrencyLimitWebFilter(ConcurrencyLimitProperties properties) {
+        this.inbound = new AdaptiveConcurrencyLimit("inbound", List.of(
+                new AdaptiveConcurrencyLimit.LatencyClass("hit", properties.getInbound().getTolerance()),
+                new AdaptiveConcurrencyLimit.LatencyClass("miss", properties.getMissTolerance())), properties.getInbound());
+        this.upstream = new AdaptiveConcurrencyLimit("upstream", properties.getUpstream());
+        this.pathPrefix = properties.getPathPrefix();
+    }
+
+    /**
+     * Runs first, so that a rejected request costs as little as possible.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().pathWithinApplication().value().startsWith(pathPrefix)) {
+            return chain.filter(exchange);
+        }
+        if (!inbound.tryAcquire()) {
+            return reject(exchange.getResponse(), inbound.name(), inbound.retryAfter());
+        }
+        long start = System.nanoTime();
+        AtomicBoolean shed = new AtomicBoolean();
+        AtomicBoolean released = new AtomicBoolean();
+        exchange.getAttributes().put(RELEASE_ATTRIBUTE, (Runnable) () -> {
+            if (released.compareAndSet(false, true)) {
+                inbound.release(System.nanoTime() - start, AdaptiveConcurrencyLimit.Outcome.IGNORED);
+            }
+        });
+        return chain.filter(exchange)
+                .onErrorResume(ConcurrencyLimitExceededException.class, e -> {
+                    if (exchange.getResponse().isCommitted()) {
+                        return Mono.error(e);
+                    }
+                    shed.set(true);
+                    return reject(exchange.getResponse(), e.getLimiter(), e.getRetryAfter());
+                })
+                .doFinally(signal -> {
+                    if (!released.compareAndSet(false, true)) {
+                        return;
+                    }
+                    boolean hit = exchange.getAttribute(RenderedResponseCache.CACHE_HIT_ATTRIBUTE) != null;
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean sample = signal == SignalType.ON_COMPLETE && !shed.get()
+                            && (status == null || !status.is5xxServerError());
+                    inbound.release(System.nanoTime() - start, sample
+                            ? AdaptiveConcurrencyLimit.Outcome.SUCCESS : AdaptiveConcurrencyLimit.Outcome.IGNORED, hit ? HIT : MISS);
+                });
+    }
+
+    /**
+     * Gives the {@code inbound} slot of a long-lived request back once it is admitted, e.g. a server-sent event stream
+     * that would otherwise hold it for as long as the client listens. A no-op outside of a limited request.
+     */
+    public static void releaseInbound(ServerWebExchange exchange) {
+        if (exchange.getAttributes().get(RELEASE_ATTRIBUTE) instanceof Runnable release) {
+            release.run();
+        }
+    }
+
+    /**
+     * @return The filter applying the {@code upstream} limit to the calls of a {@code WebClient}.
+     */
+    public ExchangeFilterFunction upstreamFilter() {
+        return (request, next) -> Mono.defer(() -> {
+            if (!upstream.tryAcquire()) {
+                return Mono.error(new ConcurrencyLimitExceededException(upstream.name(), upstream.retryAfter()));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+            return next.exchange(request)
+                    .doOnNext(response -> {
+                        if (released.compareAndSet(false, true)) {
+                            upstream.release(System.nanoTime() - start, overloaded(response.statusCode())
+                                    ? AdaptiveConcurrencyLimit.Outcome.DROPPED : AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (released.compareAndSet(false, true)) {
+                            upstream.release(System.nanoTime() - start, overloaded(e)
+                                    ? AdaptiveConcurrencyLimit.Outcome.DROPPED : AdaptiveConcurrencyLimit.Outcome.IGNORED);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (released.compareAndSet(false, true)) {
+                            upstream.release(0, AdaptiveConcurrencyLimit.Outcome.IGNORED);
+                        }
+                    });
+        });
+    }
+
+    private static boolean overloaded(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private static boolean overloaded(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ReadTimeoutException
+                    || cause instanceof ConnectTimeoutException || cause instanceof ConnectException
+                    || cause instanceof PrematureCloseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, String limiter, Duration retryAfter) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        HttpHeaders headers = response.getHeaders();
+        headers.clear();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter.toSeconds()));
+        headers.setContentType(PROBLEM_JSON);
+        headers.setCacheControl("no-store");
+        byte[] body = ("{\"type\":\"https://api.fabrick.com/errors/overloaded\",\"title\":\"Service Overloaded\","
+                + "\"status\":503,\"detail\":\"Concurrency limit '" + limiter + "' reached, retry later.\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        headers.setContentLength(body.length);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        inbound.bindTo(registry);
+        upstream.bindTo(registry);
+    }
+}
@@ -0,0 +1,224 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import reactor.util.concurrent.Queues;
+
+import java.time.temporal.Temporal;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logback appender handing the events over to its attached appenders (e.g. the console) on a single background
+ * thread, without ever blocking or locking the logging thread.
+ * <p>
+ * Unlike Logback's {@code AsyncAppender}, which puts the events in an {@code ArrayBlockingQueue} (one lock shared by
+ * all the producers and the consumer) and blocks the caller when it is full, the events go through a lock-free
+ * multi-producer queue bounded by a counter: above {@code discardingThreshold} of the {@code capacity} the events
+ * below {@code WARN} are dropped, and at {@code capacity} every event is, counted in {@link #getDroppedCount()}.
+ * </p>
+ * <p>
+ * Formatting is deferred too: the caller only captures the thread name and the MDC, and the message is formatted on
+ * the background thread when all its arguments are immutable values (strings, numbers, enums, dates). Events with
+ * other arguments, which could change before being written, are formatted by the caller as usual.
+ * </p>
+ */
+public class LockFreeAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final Queue<ILoggingEvent> queue = Queues.<ILoggingEvent>unboundedMultiproducer().get();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private int capacity = 8192;
+    private double discardingThreshold = 0.8;
+    private long maxFlushTime = 1000;
+    private int discardAbove;
+    private volatile Thread worker;
+    private volatile boolean idle;
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param discardingThreshold Fraction of the capacity above which the events below {@code WARN} are dropped.
+     */
+    public void setDiscardingThreshold(double discardingThreshold) {
+        this.discardingThreshold = discardingThreshold;
+    }
+
+    /**
+     * @param maxFlushTime Milliseconds allowed to write the queued events when stopping.
+     */
+    public void setMaxFlushTime(long maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    /**
+     * @return The events waiting to be written.
+     */
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    /**
+     * @return The events dropped since the start because the queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (capacity < 1) {
+            addError("Invalid capacity " + capacity);
+            return;
+        }
+        discardAbove = (int) (capacity * discardingThreshold);
+        Thread thread = new Thread(this::drain, "log-appender-" + getName());
+        thread.setDaemon(true);
+        worker = thread;
+        super.start();
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        Thread thread = worker;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(maxFlushTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            addWarn("Still " + size.get() + " queued events after " + maxFlushTime + " ms, discarding them");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int queued = size.incrementAndGet();
+        if (queued > capacity || (queued > discardAbove && !event.getLevel().isGreaterOrEqual(Level.WARN))) {
+            size.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        try {
+            prepare(event);
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        queue.offer(event);
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Captures on the logging thread what is read from it, leaving the formatting of immutable arguments to the
+     * background thread.
+     */
+    private static void prepare(ILoggingEvent event) {
+        if (event instanceof LoggingEvent loggingEvent && immutable(loggingEvent.getArgumentArray())) {
+            loggingEvent.getThreadName();
+            loggingEvent.getMDCPropertyMap();
+        } else {
+            event.prepareForDeferredProcessing();
+        }
+    }
+
+    private static boolean immutable(Object[] arguments) {
+        if (arguments == null) {
+            return true;
+        }
+        for (Object argument : arguments) {
+            if (argument != null && !(argument instanceof String) && !(argument instanceof Boolean)
+                    && !(argument instanceof Character) && !(argument instanceof Enum<?>)
+                    && !(argument instanceof Number && argument.getClass().getName().startsWith("java.lang."))
+                    && !(argument instanceof Temporal && argument.getClass().getName().startsWith("java.time."))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            ILoggingEvent event = queue.poll();
+            if (event != null) {
+                size.decrementAndGet();
+                appenders.appendLoopOnAppenders(event);
+                continue;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            idle = true;
+            if (queue.isEmpty() && isStarted()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
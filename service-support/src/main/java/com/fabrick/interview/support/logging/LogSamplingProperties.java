@@ -0,0 +1,53 @@
+package com.fabrick.interview.support.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-logger sampling and rate limits applied by the {@link LogSamplingTurboFilter}, bound from
+ * {@code log-sampling.loggers[<logger>].*}. A limit applies to the named logger and the loggers below it; the most
+ * specific one wins. Example:
+ * <pre>
+ * log-sampling.loggers[com.fabrick.interview.request].max-per-second=100
+ * log-sampling.loggers[com.fabrick.interview.weather.client].sample-rate=0.1
+ * </pre>
+ */
+@ConfigurationProperties("log-sampling")
+public class LogSamplingProperties {
+
+    private Map<String, Limit> loggers = new LinkedHashMap<>();
+
+    public Map<String, Limit> getLoggers() {
+        return loggers;
+    }
+
+    public void setLoggers(Map<String, Limit> loggers) {
+        this.loggers = loggers;
+    }
+
+    public static class Limit {
+
+        /** Fraction of the events below {@code WARN} that are kept; warnings and errors are never sampled out. */
+        private double sampleRate = 1.0;
+        /** Events kept per second at most, whatever their level; 0 for no limit. */
+        private int maxPerSecond = 0;
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public int getMaxPerSecond() {
+            return maxPerSecond;
+        }
+
+        public void setMaxPerSecond(int maxPerSecond) {
+            this.maxPerSecond = maxPerSecond;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback turbo filter sampling and rate-limiting the events of the configured loggers (see
+ * {@link LogSamplingProperties}).
+ * <p>
+ * Turbo filters run before the logging event is even created: an event sampled out or over its rate costs a lookup
+ * (cached per logger), a random draw and, for rate limits, one compare-and-set on a per-second counter; its message
+ * is never formatted and its arguments never rendered. Level checks ({@code isDebugEnabled()} and the like) are left
+ * to the logger levels and never consume the rate.
+ * </p>
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+
+    private static final Limit UNLIMITED = new Limit("", new LogSamplingProperties.Limit());
+
+    private final List<Limit> limits;
+    private final Map<String, Limit> byLogger = new ConcurrentHashMap<>();
+    private LoggerContext installedIn;
+
+    public LogSamplingTurboFilter(Map<String, LogSamplingProperties.Limit> limits) {
+        List<Limit> sorted = new ArrayList<>();
+        limits.forEach((logger, limit) -> sorted.add(new Limit(logger, limit)));
+        // most specific first
+        sorted.sort(Comparator.comparingInt((Limit limit) -> limit.logger.length()).reversed());
+        this.limits = List.copyOf(sorted);
+        setName("log-sampling");
+    }
+
+    /**
+     * @return The configured limits with their counts of suppressed events.
+     */
+    public List<Limit> limits() {
+        return limits;
+    }
+
+    /**
+     * Adds the filter to the given context, if it has any limit to apply.
+     */
+    public void install(LoggerContext context) {
+        if (limits.isEmpty()) {
+            return;
+        }
+        setContext(context);
+        start();
+        context.addTurboFilter(this);
+        installedIn = context;
+    }
+
+    public void uninstall() {
+        if (installedIn != null) {
+            installedIn.getTurboFilterList().remove(this);
+            stop();
+            installedIn = null;
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || !isStarted() || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Limit limit = byLogger.computeIfAbsent(logger.getName(), this::limitOf);
+        return limit == UNLIMITED || limit.admit(level) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private Limit limitOf(String loggerName) {
+        for (Limit limit : limits) {
+            if (loggerName.equals(limit.logger)
+                    || (loggerName.startsWith(limit.logger) && loggerName.charAt(limit.logger.length()) == '.')) {
+                return limit;
+            }
+        }
+        return UNLIMITED;
+    }
+
+    /**
+     * The sampling and rate limit of one logger (and the loggers below it).
+     */
+    public static final class Limit {
+
+        private final String logger;
+        private final double sampleRate;
+        private final int maxPerSecond;
+        /** Current second (high 32 bits) and the events admitted during it (low 32 bits). */
+        private final AtomicLong window = new AtomicLong();
+        private final LongAdder sampledOut = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+
+        Limit(String logger, LogSamplingProperties.Limit settings) {
+            this.logger = logger;
+            this.sampleRate = settings.getSampleRate();
+            this.maxPerSecond = settings.getMaxPerSecond();
+        }
+
+        public String logger() {
+            return logger;
+        }
+
+        public long sampledOut() {
+            return sampledOut.sum();
+        }
+
+        public long rateLimited() {
+            return rateLimited.sum();
+        }
+
+        boolean admit(Level level) {
+            if (sampleRate < 1 && !level.isGreaterOrEqual(Level.WARN)
+                    && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                sampledOut.increment();
+                return false;
+            }
+            if (maxPerSecond > 0 && !acquire(System.nanoTime() / 1_000_000_000L)) {
+                rateLimited.increment();
+                return false;
+            }
+            return true;
+        }
+
+        private boolean acquire(long second) {
+            while (true) {
+                long current = window.get();
+                long currentSecond = current >>> 32;
+                long admitted = current & 0xFFFF_FFFFL;
+                if (currentSecond == (second & 0xFFFF_FFFFL)) {
+                    if (admitted >= maxPerSecond) {
+                        return false;
+                    }
+                    if (window.compareAndSet(current, current + 1)) {
+                        return true;
+                    }
+                } else if (window.compareAndSet(current, ((second & 0xFFFF_FFFFL) << 32) | 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
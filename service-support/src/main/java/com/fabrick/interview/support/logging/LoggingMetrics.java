@@ -0,0 +1,58 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+
+/**
+ * Meters of the logging pipeline: {@code logging.async.queue.size} and {@code logging.async.dropped} for every
+ * {@link LockFreeAsyncAppender} of the root logger (tagged with the {@code appender}), and
+ * {@code logging.events.suppressed} for every limit of the {@link LogSamplingTurboFilter} (tagged with the
+ * {@code logger} and the {@code reason}, {@code sampled} or {@code rate-limited}).
+ */
+public class LoggingMetrics implements MeterBinder {
+
+    private final LogSamplingTurboFilter turboFilter;
+
+    public LoggingMetrics(LogSamplingTurboFilter turboFilter) {
+        this.turboFilter = turboFilter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext) {
+            bindAppenders(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME), registry);
+        }
+        for (LogSamplingTurboFilter.Limit limit : turboFilter.limits()) {
+            FunctionCounter.builder("logging.events.suppressed", limit, LogSamplingTurboFilter.Limit::sampledOut)
+                    .tags("logger", limit.logger(), "reason", "sampled")
+                    .register(registry);
+            FunctionCounter.builder("logging.events.suppressed", limit, LogSamplingTurboFilter.Limit::rateLimited)
+                    .tags("logger", limit.logger(), "reason", "rate-limited")
+                    .register(registry);
+        }
+    }
+
+    private static void bindAppenders(Logger root, MeterRegistry registry) {
+        for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+            if (it.next() instanceof LockFreeAsyncAppender appender) {
+                Gauge.builder("logging.async.queue.size", appender, LockFreeAsyncAppender::getQueueSize)
+                        .tag("appender", appender.getName())
+                        .description("Events waiting to be written by the asynchronous appender")
+                        .register(registry);
+                FunctionCounter.builder("logging.async.dropped", appender, LockFreeAsyncAppender::getDroppedCount)
+                        .tag("appender", appender.getName())
+                        .description("Events dropped because the queue of the asynchronous appender was full")
+                        .register(registry);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Structured logging shared by both services:
+ * <ul>
+ * <li>the {@link LogSamplingTurboFilter}, sampling and rate-limiting the loggers listed in
+ * {@code log-sampling.loggers[<logger>].*} (see {@link LogSamplingProperties});</li>
+ * <li>the {@link RequestLogWebFilter} and {@link RequestLogObservationHandler}, writing one summary line per API
+ * request (see {@link RequestLogProperties}; off with {@code request-log.enabled=false});</li>
+ * <li>the {@link LoggingMetrics} of the asynchronous appender and of the suppressed events.</li>
+ * </ul>
+ * The {@link LockFreeAsyncAppender} itself is declared in the Logback configuration of the services, through the
+ * shared {@code com/fabrick/interview/support/logging/async-console-appender.xml} include.
+ */
+@AutoConfiguration
+@ConditionalOnClass(LoggerContext.class)
+@EnableConfigurationProperties({RequestLogProperties.class, LogSamplingProperties.class})
+public class LoggingSupportAutoConfiguration {
+
+    @Bean(destroyMethod = "uninstall")
+    @ConditionalOnMissingBean
+    public LogSamplingTurboFilter logSamplingTurboFilter(LogSamplingProperties properties) {
+        LogSamplingTurboFilter filter = new LogSamplingTurboFilter(properties.getLoggers());
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            filter.install(context);
+        }
+        return filter;
+    }
+
+    @Bean
+    public LoggingMetrics loggingMetrics(LogSamplingTurboFilter logSamplingTurboFilter) {
+        return new LoggingMetrics(logSamplingTurboFilter);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnProperty(prefix = "request-log", name = "enabled", matchIfMissing = true)
+    public RequestLogWebFilter requestLogWebFilter(RequestLogProperties properties) {
+        return new RequestLogWebFilter(properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnProperty(prefix = "request-log", name = "enabled", matchIfMissing = true)
+    public RequestLogObservationHandler requestLogObservationHandler() {
+        return new RequestLogObservationHandler();
+    }
+}
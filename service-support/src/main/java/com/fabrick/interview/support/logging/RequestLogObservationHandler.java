@@ -0,0 +1,43 @@
+package com.fabrick.interview.support.logging;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+
+/**
+ * Adds the time of every {@code upstream.call} stage to the {@link RequestSummary} of the request it belongs to,
+ * found on the server observation at the root of its parents. Calls made outside of a request (cache refresh and
+ * preload) have none and are ignored.
+ */
+public class RequestLogObservationHandler implements ObservationHandler<Observation.Context> {
+
+    static final String UPSTREAM_CALL = "upstream.call";
+
+    private static final String START = RequestLogObservationHandler.class.getName() + ".START";
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(START, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long start = context.get(START);
+        if (start == null) {
+            return;
+        }
+        for (ObservationView parent = context.getParentObservation(); parent != null;
+             parent = parent.getContextView().getParentObservation()) {
+            RequestSummary summary = parent.getContextView().get(RequestSummary.class);
+            if (summary != null) {
+                summary.upstreamCall(System.nanoTime() - start);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return UPSTREAM_CALL.equals(context.getName());
+    }
+}
@@ -0,0 +1,54 @@
+package com.fabrick.interview.support.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the per-request summary lines written by the {@link RequestLogWebFilter}, bound from
+ * {@code request-log.*}.
+ */
+@ConfigurationProperties("request-log")
+public class RequestLogProperties {
+
+    /** Whether API requests are summarised at all. */
+    private boolean enabled = true;
+    /** Requests summarised: those whose path starts with it. */
+    private String pathPrefix = "/api/";
+    /** Fraction of the successful requests faster than {@code slowThreshold} that are summarised. */
+    private double sampleRate = 0.01;
+    /** Requests at least this slow are always summarised, like server errors. */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    public void setPathPrefix(String pathPrefix) {
+        this.pathPrefix = pathPrefix;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+}
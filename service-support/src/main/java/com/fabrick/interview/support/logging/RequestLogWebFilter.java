@@ -0,0 +1,98 @@
+package com.fabrick.interview.support.logging;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one line per API request ({@code request-log.path-prefix}) on the {@value #LOGGER_NAME} logger, from its
+ * {@link RequestSummary}, in {@code key=value} form:
+ * <pre>
+ * method=GET path=/api/fabrick/v1.0/asteroids/3542519/paths status=200 ms=212.4 key=asteroids:3542519 cache=miss upstream.calls=1 upstream.ms=205.9 results=4
+ * </pre>
+ * <p>
+ * Server errors and requests slower than {@code request-log.slow-threshold} are always written; the others only with
+ * the probability {@code request-log.sample-rate}, decided before anything is formatted. The rate of the logger can
+ * be capped on top of that with {@code log-sampling.loggers[com.fabrick.interview.request].max-per-second}.
+ * </p>
+ * <p>
+ * Runs ahead of the concurrency limit, so that rejected requests are summarised too.
+ * </p>
+ */
+public class RequestLogWebFilter implements WebFilter, Ordered {
+
+    public static final String LOGGER_NAME = "com.fabrick.interview.request";
+
+    private static final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final String pathPrefix;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public RequestLogWebFilter(RequestLogProperties properties) {
+        this.pathPrefix = properties.getPathPrefix();
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith(pathPrefix)) {
+            return chain.filter(exchange);
+        }
+        RequestSummary summary = new RequestSummary();
+        exchange.getAttributes().put(RequestSummary.ATTRIBUTE, summary);
+        return chain.filter(exchange)
+                .doFinally(signal -> complete(exchange, summary, signal))
+                .contextWrite(context -> {
+                    Observation observation = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+                    if (observation != null) {
+                        observation.getContext().put(RequestSummary.class, summary);
+                    }
+                    return context.put(RequestSummary.class, summary);
+                });
+    }
+
+    private void complete(ServerWebExchange exchange, RequestSummary summary, SignalType signal) {
+        long elapsed = System.nanoTime() - summary.startNanos();
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        int code = signal == SignalType.ON_ERROR && status == null ? 500 : status == null ? 200 : status.value();
+        boolean always = code >= 500 || elapsed >= slowThresholdNanos;
+        if (!always && (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate))) {
+            return;
+        }
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        // only strings and numbers, formatted by the async appender off the request thread
+        logger.info("method={} path={} status={} ms={} key={} cache={} upstream.calls={} upstream.ms={} results={}",
+                request.getMethod().name(),
+                query == null ? request.getPath().value() : request.getPath().value() + '?' + query,
+                signal == SignalType.CANCEL ? "cancelled" : Integer.toString(code),
+                millis(elapsed), summary.key() == null ? "-" : summary.key(), summary.cache(),
+                summary.upstreamCalls(), millis(summary.upstreamNanos()),
+                summary.results() < 0 ? "-" : Integer.toString(summary.results()));
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 5;
+    }
+}
@@ -0,0 +1,104 @@
+package com.fabrick.interview.support.logging;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one API request did, written as a single line by the {@link RequestLogWebFilter} once it completes: the key
+ * of the data it was answered from, how it was answered (from the rendered response cache, joined to an identical
+ * request, from cached data or with upstream calls), the upstream calls it made and their total time, and the number
+ * of elements returned.
+ * <p>
+ * The summary of a request is held in the exchange attributes, in the Reactor context of the request and in the
+ * context of its server observation, so that the stages can fill it wherever they run: the services name the key
+ * (through {@code RenderedResponseCache.dependsOn}), the {@link RequestLogObservationHandler} adds the
+ * {@code upstream.call} stages, and the rendered response cache its own outcome and the element count. Every method
+ * is a no-op outside of a summarised request.
+ * </p>
+ */
+public final class RequestSummary {
+
+    static final String ATTRIBUTE = RequestSummary.class.getName();
+
+    private final long startNanos = System.nanoTime();
+    private volatile String key;
+    private volatile String cache;
+    private volatile int results = -1;
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final LongAdder upstreamNanos = new LongAdder();
+
+    RequestSummary() {
+    }
+
+    /**
+     * Names the key of the request ({@code source:key}), unless one was already named.
+     */
+    public static void key(ContextView context, String source, Object key) {
+        RequestSummary summary = context.getOrDefault(RequestSummary.class, null);
+        if (summary != null && summary.key == null) {
+            summary.key = source + ':' + key;
+        }
+    }
+
+    /**
+     * Records that the response was produced without computing it, e.g. {@code response} when it was written from the
+     * rendered response cache.
+     */
+    public static void cache(ServerWebExchange exchange, String outcome) {
+        if (exchange.getAttributes().get(ATTRIBUTE) instanceof RequestSummary summary) {
+            summary.cache = outcome;
+        }
+    }
+
+    /**
+     * Records the number of elements of the response body.
+     */
+    public static void results(ServerWebExchange exchange, int count) {
+        if (exchange.getAttributes().get(ATTRIBUTE) instanceof RequestSummary summary) {
+            summary.results = count;
+        }
+    }
+
+    void upstreamCall(long nanos) {
+        upstreamCalls.incrementAndGet();
+        upstreamNanos.add(nanos);
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    String key() {
+        return key;
+    }
+
+    /**
+     * @return How the response was produced: the recorded outcome, else {@code miss} with upstream calls,
+     * {@code hit} when computed from data held locally, {@code none} when no data was looked up.
+     */
+    String cache() {
+        String outcome = cache;
+        if (outcome != null) {
+            return outcome;
+        }
+        if (upstreamCalls.get() > 0) {
+            return "miss";
+        }
+        return key == null ? "none" : "hit";
+    }
+
+    int results() {
+        return results;
+    }
+
+    int upstreamCalls() {
+        return upstreamCalls.get();
+    }
+
+    long upstreamNanos() {
+        return upstreamNanos.sum();
+    }
+}
@@ -0,0 +1,57 @@
+package com.fabrick.interview.support.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Instruments the executors backing the Reactor {@link Schedulers} ({@code parallel}, {@code boundedElastic},
+ * named single schedulers, ...) with Micrometer {@link ExecutorServiceMetrics}.
+ * <p>
+ * Meters are published with the {@code reactor.executor.*} prefix (queued/active/completed tasks, idle
+ * and execution timers) and tagged with the scheduler name. The decorator only applies to the workers
+ * created after the registration, which happens while the application context starts, before any request
+ * is served.
+ * </p>
+ */
+public class ReactorSchedulerMetrics implements DisposableBean {
+
+    static final String DECORATOR_KEY = "fabrick-scheduler-metrics";
+
+    private final AtomicInteger executors = new AtomicInteger();
+
+    public ReactorSchedulerMetrics(MeterRegistry registry) {
+        Schedulers.addExecutorServiceDecorator(DECORATOR_KEY, (scheduler, executor) -> {
+            String name = schedulerName(scheduler);
+            return ExecutorServiceMetrics.monitor(registry, executor, name + "-" + executors.incrementAndGet(),
+                    "reactor", Tags.of("scheduler", name));
+        });
+    }
+
+    /**
+     * Reactor names its schedulers after their factory call, e.g. {@code boundedElastic("name",maxThreads=...)}:
+     * the quoted name is kept as the tag value, the factory name otherwise ({@code parallel}, {@code single}).
+     */
+    static String schedulerName(Scheduler scheduler) {
+        String name = Scannable.from(scheduler).scanOrDefault(Scannable.Attr.NAME, scheduler.getClass().getSimpleName());
+        int open = name.indexOf('"');
+        int close = name.indexOf('"', open + 1);
+        if (open >= 0 && close > open) {
+            return name.substring(open + 1, close);
+        }
+        int paren = name.indexOf('(');
+        String factory = paren > 0 ? name.substring(0, paren) : name;
+        return factory.startsWith("Schedulers.") ? factory.substring("Schedulers.".length()) : factory;
+    }
+
+    @Override
+    public void destroy() {
+        Schedulers.removeExecutorServiceDecorator(DECORATOR_KEY);
+    }
+}
@@ -0,0 +1,33 @@
+package com.fabrick.interview.support.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.netty4.NettyAllocatorMetrics;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Runtime meters not covered by the Spring Boot auto-configuration: the Reactor scheduler executors
+ * and the pooled Netty buffer allocator shared by the server and the upstream clients.
+ * <p>
+ * Disable with {@code management.metrics.runtime.enabled=false}.
+ * </p>
+ */
+@AutoConfiguration(after = CompositeMeterRegistryAutoConfiguration.class)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(name = "management.metrics.runtime.enabled", matchIfMissing = true)
+public class RuntimeMetricsAutoConfiguration {
+
+    @Bean
+    public ReactorSchedulerMetrics reactorSchedulerMetrics(MeterRegistry registry) {
+        return new ReactorSchedulerMetrics(registry);
+    }
+
+    @Bean
+    public NettyAllocatorMetrics nettyAllocatorMetrics() {
+        return new NettyAllocatorMetrics(PooledByteBufAllocator.DEFAULT);
+    }
+}
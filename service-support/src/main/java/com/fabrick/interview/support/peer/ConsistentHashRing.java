@@ -0,0 +1,61 @@
+package com.fabrick.interview.support.peer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns every key to one member: each member is hashed to {@code virtualNodes} points of a 64-bit ring, and a key
+ * belongs to the member of the first point at or after its own hash. Adding or removing a member only moves the keys
+ * of the arc it takes or leaves (about {@code 1/N} of them).
+ * <p>
+ * Immutable; a lookup is one hash and a binary search.
+ * </p>
+ */
+final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+
+    ConsistentHashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs at least one member and one point per member");
+        }
+        record Point(long hash, String member) {
+        }
+        Point[] ring = members.stream()
+                .distinct()
+                .flatMap(member -> IntStream.range(0, virtualNodes)
+                        .mapToObj(i -> new Point(hash(member + "#" + i), member)))
+                .sorted(Comparator.comparingLong(Point::hash))
+                .toArray(Point[]::new);
+        this.points = Arrays.stream(ring).mapToLong(Point::hash).toArray();
+        this.owners = Arrays.stream(ring).map(Point::member).toArray(String[]::new);
+    }
+
+    String owner(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a over the characters, then the MurmurHash3 finalizer so that close keys land far apart.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,270 @@
+package com.fabrick.interview.support.peer;
+
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Peer-to-peer cache tier across the replicas of a service, in the style of groupcache: every key has one owner
+ * replica, chosen by consistent hashing over {@code peer-cache.members}, and only the owner loads it from the
+ * upstream and keeps it in its data cache. The other replicas ask the owner over {@value #PATH} and keep what they
+ * get in a small near-cache ({@code <cache>-near}, also managed by {@link ManagedCaches}). The upstream is then
+ * called about once per key whatever the number of replicas.
+ * <p>
+ * The internal route lies under the API prefix, so that the inbound concurrency limit and the request log apply to
+ * it, and only answers the callers presenting the shared {@code peer-cache.secret} in the {@value #SECRET_HEADER}
+ * header.
+ * </p>
+ * <p>
+ * A cache takes part once {@link #register registered} with the type of its values and its cached local lookup;
+ * its load path goes through {@link #load}, and its {@code @Cacheable} only stores the keys this replica
+ * {@link #owns}. When the owner does not answer in time or cannot be reached, the replica loads the key itself, so
+ * the tier never makes a replica less available; when the owner answers that its own upstream load failed
+ * ({@code 502}), the replica fails with {@link PeerLoadException} instead of calling a failing upstream again. A
+ * replica serving a peer always loads locally, so that replicas with different views of the membership never
+ * bounce a request between them.
+ * </p>
+ * <p>
+ * Values travel as Smile documents of the application's {@link ObjectMapper}. Disabled
+ * ({@code peer-cache.enabled=false}, the default), every replica owns every key and nothing else happens. The
+ * routes taken are counted as {@code peer.cache.requests}, tagged with the {@code cache} and the {@code route}
+ * ({@code owned}, {@code near}, {@code remote}, {@code fallback}, {@code failed}, {@code served}).
+ * </p>
+ */
+public class PeerCache implements MeterBinder {
+
+    /** Path of the internal endpoint answering the other replicas, with the key as {@code key} parameter. */
+    public static final String PATH = "/api/internal/peer-cache/{cache}";
+
+    /** Header carrying the shared secret of the replicas. */
+    public static final String SECRET_HEADER = "X-Peer-Cache-Secret";
+
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final String SERVING_PEER = PeerCache.class.getName() + ".SERVING_PEER";
+
+    private final PeerCacheProperties properties;
+    @Nullable
+    private final ConsistentHashRing ring;
+    private final ManagedCaches caches;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final byte[] secret;
+    @Nullable
+    private final RenderedResponseCache responseCache;
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile MeterRegistry registry;
+
+    /**
+     * A cache taking part in the tier.
+     *
+     * @param local The cached local lookup of a key (on the owner, its data cache, then the upstream).
+     */
+    private record Source(String name, ObjectReader reader, Function<String, ? extends Mono<?>> local,
+                          AsyncCache<Object, Object> near, Map<String, LongAdder> routes) {
+
+        void count(String route) {
+            routes.get(route).increment();
+        }
+    }
+
+    /**
+     * @param webClientBuilder The builder of the client calling the other replicas (observed, so traces span them),
+     *                         dedicated to them: the filters of the upstream clients do not apply.
+     * @param responseCache    The cache of the rendered responses, dropped with the near-cache entries, if any.
+     * @throws IllegalStateException If the tier is enabled and {@code self} is not one of the {@code members}, or
+     *                               there is no {@code secret}.
+     */
+    public PeerCache(PeerCacheProperties properties, ManagedCaches caches, WebClient.Builder webClientBuilder,
+                     ObjectMapper objectMapper, @Nullable RenderedResponseCache responseCache) {
+        this.properties = properties;
+        this.caches = caches;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().with(new SmileFactory());
+        this.responseCache = responseCache;
+        this.secret = properties.getSecret() == null ? new byte[0] : properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        this.webClient = webClientBuilder
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) properties.getMaxResponseSize().toBytes()))
+                .build();
+        if (properties.isEnabled()) {
+            if (!properties.getMembers().contains(properties.getSelf())) {
+                throw new IllegalStateException("peer-cache.self (" + properties.getSelf()
+                        + ") must be one of peer-cache.members " + properties.getMembers());
+            }
+            if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+                throw new IllegalStateException("peer-cache.secret must be set, the same on every replica");
+            }
+            this.ring = new ConsistentHashRing(properties.getMembers(), properties.getVirtualNodes());
+        } else {
+            this.ring = null;
+        }
+    }
+
+    /**
+     * Makes a cache take part in the tier; nothing happens when the tier is disabled.
+     *
+     * @param name  The name of the cache, also the one used in {@link #load}.
+     * @param type  The type of its values.
+     * @param local The cached local lookup of a key, answering the other replicas.
+     */
+    public void register(String name, Type type, Function<String, ? extends Mono<?>> local) {
+        if (ring == null) {
+            return;
+        }
+        CachePolicyProperties.Policy nearDefaults = CachePolicyProperties.Policy.of(properties.getNearCacheMaxSize(),
+                properties.getNearCacheTtl());
+        AsyncCache<Object, Object> near = caches.builder(name + "-near")
+                .defaults(nearDefaults)
+                .removalListener(responseCache != null ? responseCache.invalidationListener(name) : null)
+                .build();
+        Map<String, LongAdder> routes = new ConcurrentHashMap<>();
+        for (String route : new String[]{"owned", "near", "remote", "fallback", "failed", "served"}) {
+            routes.put(route, new LongAdder());
+        }
+        Source source = new Source(name, objectMapper.readerFor(objectMapper.constructType(type)).with(new SmileFactory()),
+                local, near, routes);
+        sources.put(name, source);
+        MeterRegistry bound = registry;
+        if (bound != null) {
+            bind(bound, source);
+        }
+    }
+
+    /**
+     * @return Whether this replica owns {@code key}: always true when the tier is disabled.
+     */
+    public boolean owns(String key) {
+        return ring == null || ring.owner(key).equals(properties.getSelf());
+    }
+
+    /**
+     * Loads {@code key} of the cache: with {@code upstream} when this replica owns it (or serves a peer), otherwise
+     * from the near-cache or the owner, falling back to {@code upstream} if the owner cannot answer.
+     *
+     * @param upstream The uncached load from the upstream.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> load(String cache, String key, Supplier<? extends Mono<T>> upstream) {
+        Source source = ring != null ? sources.get(cache) : null;
+        if (source == null) {
+            return Mono.defer(upstream);
+        }
+        String owner = ring.owner(key);
+        return Mono.deferContextual(context -> {
+            if (owner.equals(properties.getSelf()) || context.hasKey(SERVING_PEER)) {
+                source.count("owned");
+                return upstream.get();
+            }
+            CompletableFuture<Object> value = source.near().getIfPresent(key);
+            if (value != null) {
+                source.count("near");
+            } else {
+                value = source.near().get(key, (k, executor) -> {
+                    source.count("remote");
+                    return fetch(owner, source, key).toFuture();
+                });
+            }
+            return Mono.fromFuture(value, true)
+                    .map(v -> (T) v)
+                    .onErrorResume(e -> {
+                        if (e instanceof WebClientResponseException response && response.getStatusCode().isSameCodeAs(HttpStatus.BAD_GATEWAY)) {
+                            source.count("failed");
+                            return Mono.error(new PeerLoadException(source.name(), key, owner));
+                        }
+                        source.count("fallback");
+                        return upstream.get();
+                    });
+        });
+    }
+
+    private Mono<Object> fetch(String owner, Source source, String key) {
+        return webClient.get()
+                .uri(owner + PATH + "?key={key}", source.name(), key)
+                .accept(APPLICATION_SMILE)
+                .header(SECRET_HEADER, properties.getSecret())
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .timeout(properties.getTimeout())
+                .map(body -> {
+                    try {
+                        return source.reader().readValue(body);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Answers a peer from the local cache: {@code 200} with the value, {@code 404} for an unknown cache or no value,
+     * {@code 502} if the load failed (the peer then fails too), and {@code 403} without the shared secret.
+     */
+    public Mono<ServerResponse> serve(ServerRequest request) {
+        String presented = request.headers().firstHeader(SECRET_HEADER);
+        if (presented == null || secret.length == 0
+                || !MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8))) {
+            return ServerResponse.status(HttpStatus.FORBIDDEN).build();
+        }
+        Source source = sources.get(request.pathVariable("cache"));
+        Optional<String> key = request.queryParam("key");
+        if (source == null || key.isEmpty()) {
+            return ServerResponse.notFound().build();
+        }
+        return source.local().apply(key.get())
+                .contextWrite(Context.of(SERVING_PEER, Boolean.TRUE))
+                .flatMap(value -> {
+                    source.count("served");
+                    try {
+                        return ServerResponse.ok().contentType(APPLICATION_SMILE).bodyValue(writer.writeValueAsBytes(value));
+                    } catch (IOException e) {
+                        return Mono.error(e);
+                    }
+                })
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()))
+                .onErrorResume(e -> ServerResponse.status(HttpStatus.BAD_GATEWAY).build());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        sources.values().forEach(source -> bind(registry, source));
+    }
+
+    private static void bind(MeterRegistry registry, Source source) {
+        source.routes().forEach((route, count) -> FunctionCounter.builder("peer.cache.requests", count, LongAdder::sum)
+                .tags("cache", source.name(), "route", route)
+                .description("Loads of the peer cache tier, by route")
+                .register(registry));
+    }
+}
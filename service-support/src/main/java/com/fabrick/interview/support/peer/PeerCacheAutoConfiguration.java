@@ -0,0 +1,47 @@
+package com.fabrick.interview.support.peer;
+
+import com.fabrick.interview.support.cache.ManagedCacheAutoConfiguration;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Provides the {@link PeerCache} (bean {@code peerCache}, referenced by the {@code @Cacheable} conditions of the
+ * clients) and, when the tier is enabled with {@code peer-cache.enabled=true}, the internal route answering the other
+ * replicas. See {@link PeerCacheProperties} for the membership and the shared secret.
+ */
+@AutoConfiguration(after = ManagedCacheAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(PeerCacheProperties.class)
+public class PeerCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PeerCache peerCache(PeerCacheProperties properties, ManagedCaches managedCaches,
+                               ObjectProvider<ObservationRegistry> observationRegistry, ObjectMapper objectMapper,
+                               ObjectProvider<RenderedResponseCache> responseCache) {
+        // not the Boot-managed builder: the customizers of the upstream clients (concurrency limit) do not apply
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .observationRegistry(observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+        return new PeerCache(properties, managedCaches, webClientBuilder, objectMapper, responseCache.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "peer-cache", name = "enabled", havingValue = "true")
+    public RouterFunction<ServerResponse> peerCacheRoute(PeerCache peerCache) {
+        return RouterFunctions.route(RequestPredicates.GET(PeerCache.PATH), peerCache::serve);
+    }
+}
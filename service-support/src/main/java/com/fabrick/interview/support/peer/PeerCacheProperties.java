@@ -0,0 +1,116 @@
+package com.fabrick.interview.support.peer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the peer cache tier, bound from {@code peer-cache.*}.
+ * <p>
+ * Every replica is configured with the same {@code members} and its own base URL as {@code self}. Example, for the
+ * first of three local instances:
+ * <pre>
+ * peer-cache.enabled=true
+ * peer-cache.self=http://localhost:8080
+ * peer-cache.members=http://localhost:8080,http://localhost:8090,http://localhost:8100
+ * peer-cache.secret=${PEER_CACHE_SECRET}
+ * </pre>
+ * </p>
+ */
+@ConfigurationProperties("peer-cache")
+public class PeerCacheProperties {
+
+    /** Whether keys are owned by one replica each; when off, every replica loads every key itself. */
+    private boolean enabled = false;
+    /** Base URL under which the other replicas reach this one; must be one of {@code members}. */
+    private String self;
+    /** Base URLs of all the replicas, this one included. */
+    private List<String> members = new ArrayList<>();
+    /** Secret shared by the replicas, required by the internal route; mandatory when enabled. */
+    private String secret;
+    /** Points of each member on the hash ring: more points spread the keys more evenly. */
+    private int virtualNodes = 128;
+    /** Maximum time to wait for the owner; after it the replica loads the key itself. */
+    private Duration timeout = Duration.ofSeconds(2);
+    /** Largest value accepted from an owner. */
+    private DataSize maxResponseSize = DataSize.ofMegabytes(16);
+    /** Default number of values fetched from their owners kept by each cache ({@code cache.policies.<name>-near.*}). */
+    private long nearCacheMaxSize = 1000;
+    /** Default time values fetched from their owners are kept. */
+    private Duration nearCacheTtl = Duration.ofMinutes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public void setSelf(String self) {
+        this.self = self;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<String> members) {
+        this.members = members;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public DataSize getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    public void setMaxResponseSize(DataSize maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    public long getNearCacheMaxSize() {
+        return nearCacheMaxSize;
+    }
+
+    public void setNearCacheMaxSize(long nearCacheMaxSize) {
+        this.nearCacheMaxSize = nearCacheMaxSize;
+    }
+
+    public Duration getNearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    public void setNearCacheTtl(Duration nearCacheTtl) {
+        this.nearCacheTtl = nearCacheTtl;
+    }
+}
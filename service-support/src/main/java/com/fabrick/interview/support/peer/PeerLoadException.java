@@ -0,0 +1,12 @@
+package com.fabrick.interview.support.peer;
+
+/**
+ * The owner replica of a key answered that its own load from the upstream failed: the upstream is failing, and the
+ * replica asking does not call it again.
+ */
+public class PeerLoadException extends RuntimeException {
+
+    public PeerLoadException(String cache, String key, String owner) {
+        super("The upstream is currently unavailable (load of " + cache + " [" + key + "] failed on " + owner + ").");
+    }
+}
@@ -0,0 +1,139 @@
+package com.fabrick.interview.support.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.IllegalReferenceCountException;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * An encoded body (JSON or a binary format) held in pooled direct buffers, with its gzipped variant when the body was large enough.
+ * <p>
+ * The entry owns one reference to each buffer, released when it leaves the cache; every response written from it
+ * holds its own reference (a retained duplicate, sharing the memory), released by the server once written.
+ * </p>
+ * <p>
+ * Each variant has a strong ETag, derived from the digest of the encoded body: it changes exactly when the data or
+ * the request parameters produce different bytes, and is the same on every instance of the service. The ETags are
+ * held by the {@link ResponseValidator} of the entry, which is kept a while longer if the body is evicted.
+ * </p>
+ */
+final class RenderedResponse {
+
+    private static final NettyDataBufferFactory BUFFERS = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+
+    private final ByteBuf identity;
+    @Nullable
+    private final ByteBuf gzip;
+    private final MediaType contentType;
+    private final int elements;
+    private final ResponseValidator validator;
+
+    /**
+     * @param loadedAt When the oldest entry the body was rendered from was loaded, in {@link System#nanoTime()} terms.
+     */
+    RenderedResponse(ByteBuf identity, @Nullable ByteBuf gzip, MediaType contentType, int elements,
+                     RenderedResponseCache.Registration registration, long loadedAt) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.contentType = contentType;
+        this.elements = elements;
+        this.validator = new ResponseValidator(digest(identity), gzip != null, loadedAt, registration);
+    }
+
+    RenderedResponseCache.Registration registration() {
+        return validator.registration();
+    }
+
+    ResponseValidator validator() {
+        return validator;
+    }
+
+    /**
+     * @return The number of elements of the body: the size of an array, 1 for a single value.
+     */
+    int elements() {
+        return elements;
+    }
+
+    /**
+     * @return The memory held by the entry, in bytes.
+     */
+    int weight() {
+        return identity.capacity() + (gzip == null ? 0 : gzip.capacity());
+    }
+
+    /**
+     * Writes the response, gzipped when the client accepts it, or {@code 304 Not Modified} without any body when
+     * the client already holds that variant. {@code Cache-Control} lets clients and shared caches keep it for what
+     * is left of {@code maxAge} since its data was loaded.
+     *
+     * @return The completion of the write, or {@code null} if the entry was released concurrently (evicted or
+     * invalidated) and the response was left untouched.
+     */
+    @Nullable
+    Mono<Void> write(ServerHttpResponse response, boolean acceptsGzip, @Nullable List<String> ifNoneMatch, Duration maxAge) {
+        Mono<Void> notModified = validator.notModified(response, acceptsGzip, ifNoneMatch, maxAge);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        boolean gzipped = acceptsGzip && gzip != null;
+        ByteBuf content = gzipped ? gzip : identity;
+        ByteBuf duplicate;
+        try {
+            duplicate = content.retainedDuplicate();
+        } catch (IllegalReferenceCountException e) {
+            return null;
+        }
+        HttpHeaders headers = response.getHeaders();
+        validator.setCacheHeaders(headers, validator.etag(acceptsGzip), maxAge);
+        headers.setContentType(contentType);
+        headers.setContentLength(duplicate.readableBytes());
+        if (gzipped) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatusCode(HttpStatus.OK);
+        return response.writeWith(Mono.just(BUFFERS.wrap(duplicate)));
+    }
+
+    void retain() {
+        identity.retain();
+        if (gzip != null) {
+            gzip.retain();
+        }
+    }
+
+    void release() {
+        identity.release();
+        if (gzip != null) {
+            gzip.release();
+        }
+    }
+
+    /**
+     * The first 128 bits of the SHA-256 of the body, base64url encoded.
+     */
+    private static String digest(ByteBuf body) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(body.nioBuffer());
+            byte[] hash = sha256.digest();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
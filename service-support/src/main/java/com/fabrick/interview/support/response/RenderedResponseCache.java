@@ -0,0 +1,611 @@
+package com.fabrick.interview.support.response;
+
+import com.fabrick.interview.support.logging.RequestSummary;
+import com.fabrick.interview.support.tracing.ReactiveObservations;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of already encoded responses, keyed by the normalized request (e.g. asteroid id and date window) and the
+ * format negotiated with the {@code Accept} header: JSON by default, CBOR ({@code application/cbor}) or Smile
+ * ({@code application/x-jackson-smile}) for the internal callers that ask for them, and {@code 406} otherwise.
+ * <p>
+ * On a miss the body is encoded once with the application's {@link ObjectMapper} (or its binary copy), straight into a
+ * pooled direct buffer, and gzipped next to it when large enough. Hits skip the domain objects and Jackson
+ * altogether: they write a retained duplicate of those buffers to the channel, so the bytes are neither copied
+ * nor allocated again. The memory held is bounded by {@code maxSize}.
+ * </p>
+ * <p>
+ * While a body is produced, the entries of the underlying caches it is derived from are recorded with
+ * {@link #dependsOn(ContextView, String, Object)}. The rendered response is dropped as soon as one of them is
+ * invalidated ({@link #invalidate(String, Object)}, wired to the removal listener of the underlying cache with
+ * {@link #invalidationListener(String)}), including while it is still being rendered, so it never outlives the
+ * data it was built from. The {@code Cache-Control} max-age of a response counts down from the load of the oldest
+ * of those entries, as told by the {@link SourceAge}.
+ * </p>
+ * <p>
+ * When a response is evicted for lack of room, its {@link ResponseValidator} (ETags and load time) is kept a while
+ * longer, as long as its sources are not invalidated: a request revalidating that response is still answered
+ * {@code 304} up front, without computing it again.
+ * </p>
+ * <p>
+ * Identical requests arriving while their response is being rendered are coalesced: they wait for the rendering
+ * already in flight (single-flight, keyed like the cache) instead of starting their own, so a spike on a hot key costs
+ * one computation and one encoding, whatever the number of concurrent callers, even with the cache disabled. The
+ * rendering is not cancelled when the request that started it goes away, as long as others wait for it, and is
+ * cancelled once none of them waits any more. The requests
+ * are counted as {@code response.coalescing.requests}, tagged {@code role=leader} (rendered) or {@code follower}
+ * (joined a rendering in flight).
+ * </p>
+ * <p>
+ * Responses are written to the exchange directly (not as a {@code ResponseEntity}), so that conditional requests are
+ * answered here, before any buffer is retained.
+ * </p>
+ */
+public class RenderedResponseCache implements MeterBinder, DisposableBean {
+
+    /**
+     * Exchange attribute set ({@code TRUE}) when the response was written from the cache, without producing the body.
+     */
+    public static final String CACHE_HIT_ATTRIBUTE = RenderedResponseCache.class.getName() + ".CACHE_HIT";
+
+    /**
+     * Exchange attribute set ({@code TRUE}) when the response was written from a rendering started by another request.
+     */
+    public static final String COALESCED_ATTRIBUTE = RenderedResponseCache.class.getName() + ".COALESCED";
+
+    /**
+     * Validators kept for the responses evicted for lack of room, a few hundred bytes each.
+     */
+    static final int MAX_VALIDATORS = 16_384;
+
+    private final List<ResponseFormat> formats;
+    private final ObservationRegistry observationRegistry;
+    private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    private final boolean enabled;
+    private final boolean coalesce;
+    private final int gzipMinSize;
+    private final SourceAge sourceAge;
+    private final Cache<String, RenderedResponse> responses;
+    private final Cache<String, ResponseValidator> validators;
+    private final ConcurrentMap<Dependency, Set<Registration>> dependents = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+
+    /**
+     * A rendering in flight, the number of requests that joined it besides the one that started it, and the number
+     * of those still waiting for it. The counts only change inside {@code inFlight.compute}, so they are final once
+     * the flight is removed.
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<RenderedResponse> result = new CompletableFuture<>();
+        private int followers;
+        private int waiting = 1;
+        private volatile Disposable rendering;
+    }
+
+    /**
+     * @param objectMapper        The application's Jackson mapper, so that the bytes match those of the JSON codec
+     *                            (the binary formats use its writer too).
+     * @param observationRegistry The registry of the {@code response.render} stage observations.
+     * @param enabled             Whether responses are kept; when disabled every request is rendered.
+     * @param maxSize             The maximum memory held by the rendered responses.
+     * @param expireAfterWrite    The time to live of a rendered response, as a bound to the underlying caches' one.
+     * @param gzipMinSize         The size from which a gzipped variant is kept as well, or {@code null} for none.
+     */
+    public RenderedResponseCache(ObjectMapper objectMapper, ObservationRegistry observationRegistry, boolean enabled,
+                                 DataSize maxSize, Duration expireAfterWrite, @Nullable DataSize gzipMinSize) {
+        this(objectMapper, observationRegistry, enabled, true, maxSize, expireAfterWrite, gzipMinSize);
+    }
+
+    /**
+     * @param coalesce Whether identical concurrent requests share the rendering in flight.
+     */
+    public RenderedResponseCache(ObjectMapper objectMapper, ObservationRegistry observationRegistry, boolean enabled,
+                                 boolean coalesce, DataSize maxSize, Duration expireAfterWrite,
+                                 @Nullable DataSize gzipMinSize) {
+        this(objectMapper, observationRegistry, enabled, coalesce, maxSize, expireAfterWrite, gzipMinSize, SourceAge.UNKNOWN);
+    }
+
+    /**
+     * @param sourceAge The age of the entries of the underlying caches, which the max-age counts down from.
+     */
+    public RenderedResponseCache(ObjectMapper objectMapper, ObservationRegistry observationRegistry, boolean enabled,
+                                 boolean coalesce, DataSize maxSize, Duration expireAfterWrite,
+                                 @Nullable DataSize gzipMinSize, SourceAge sourceAge) {
+        this.coalesce = coalesce;
+        this.sourceAge = sourceAge;
+        this.formats = ResponseFormat.of(objectMapper);
+        this.observationRegistry = observationRegistry;
+        this.enabled = enabled;
+        this.gzipMinSize = gzipMinSize == null ? -1 : (int) gzipMinSize.toBytes();
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<String, RenderedResponse>weigher((key, response) -> response.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .executor(Runnable::run)
+                .removalListener((String key, RenderedResponse response, RemovalCause cause) -> {
+                    response.release();
+                    if (cause == RemovalCause.SIZE) {
+                        retire(key, response.validator());
+                    } else {
+                        response.registration().unregister();
+                    }
+                })
+                .recordStats()
+                .build();
+        this.validators = Caffeine.newBuilder()
+                .maximumSize(MAX_VALIDATORS)
+                .expireAfterWrite(expireAfterWrite)
+                .executor(Runnable::run)
+                .removalListener((String key, ResponseValidator validator, RemovalCause cause) ->
+                        validator.registration().unregister())
+                .build();
+    }
+
+    /**
+     * Records, for the response being rendered in this context, that it is derived from the entry {@code key} of
+     * the underlying cache {@code source}. No-op outside of {@link #respond}.
+     * <p>
+     * The first dependency is also the key of the request in its {@link RequestSummary}.
+     * </p>
+     */
+    public static void dependsOn(ContextView context, String source, Object key) {
+        RequestSummary.key(context, source, key);
+        Registration registration = context.getOrDefault(Registration.class, null);
+        if (registration != null) {
+            registration.add(new Dependency(source, key));
+        }
+    }
+
+    /**
+     * Answers the request with the array of the elements of {@code body}, in the negotiated format, written from the
+     * rendered response of {@code key} in that format (rendered and kept first if there is none).
+     * <p>
+     * The response carries a strong {@code ETag} and a {@code Cache-Control} max-age of what is left of
+     * {@code maxAge} since its data was loaded; a request whose {@code If-None-Match} holds the current ETag gets a
+     * {@code 304} without a body, and without subscribing to {@code body} at all when the response, or only its
+     * validator, is still kept.
+     * </p>
+     *
+     * @param exchange The exchange, written directly.
+     * @param key      The normalized request.
+     * @param maxAge   The time clients and shared caches may keep a response, normally the TTL of the data it is
+     *                 computed from.
+     * @param body     The elements, subscribed only on a miss; its errors are propagated as they are.
+     * @return The completion of the response.
+     */
+    public <T> Mono<Void> respond(ServerWebExchange exchange, String key, Duration maxAge, Supplier<? extends Publisher<T>> body) {
+        return render(exchange, key, maxAge, () -> Flux.from(body.get()).collectList());
+    }
+
+    /**
+     * Like {@link #respond}, for a body made of a single value.
+     */
+    public <T> Mono<Void> respondValue(ServerWebExchange exchange, String key, Duration maxAge, Supplier<? extends Mono<T>> body) {
+        return render(exchange, key, maxAge, () -> body.get());
+    }
+
+    private Mono<Void> render(ServerWebExchange exchange, String requestKey, Duration maxAge, Supplier<Mono<?>> value) {
+        HttpHeaders request = exchange.getRequest().getHeaders();
+        ResponseFormat format;
+        try {
+            format = ResponseFormat.negotiate(formats, request.getAccept());
+        } catch (InvalidMediaTypeException e) {
+            return Mono.error(new NotAcceptableStatusException("Could not parse the Accept header: " + e.getMessage()));
+        }
+        if (format == null) {
+            return Mono.error(new NotAcceptableStatusException(formats.stream().map(ResponseFormat::mediaType).toList()));
+        }
+        String key = requestKey + '|' + format.name();
+        boolean acceptsGzip = acceptsGzip(request.get(HttpHeaders.ACCEPT_ENCODING));
+        List<String> ifNoneMatch = request.get(HttpHeaders.IF_NONE_MATCH);
+        return Mono.defer(() -> {
+            RenderedResponse cached = enabled ? responses.getIfPresent(key) : null;
+            Mono<Void> hit = cached == null ? null : cached.write(exchange.getResponse(), acceptsGzip, ifNoneMatch, maxAge);
+            if (hit != null) {
+                exchange.getAttributes().put(CACHE_HIT_ATTRIBUTE, Boolean.TRUE);
+                RequestSummary.cache(exchange, "response");
+                RequestSummary.results(exchange, cached.elements());
+                return hit;
+            }
+            ResponseValidator validator = cached == null && enabled && ifNoneMatch != null ? validators.getIfPresent(key) : null;
+            Mono<Void> notModified = validator == null || validator.registration().invalidated ? null
+                    : validator.notModified(exchange.getResponse(), acceptsGzip, ifNoneMatch, maxAge);
+            if (notModified != null) {
+                exchange.getAttributes().put(CACHE_HIT_ATTRIBUTE, Boolean.TRUE);
+                RequestSummary.cache(exchange, "validator");
+                return notModified;
+            }
+            Mono<RenderedResponse> rendered = coalesce ? coalesced(exchange, key, () -> renderAndKeep(key, format, value))
+                    : renderAndKeep(key, format, value);
+            return rendered
+                    .flatMap(response -> {
+                        // never null: each request holds a reference of its own, only released here
+                        RequestSummary.results(exchange, response.elements());
+                        Mono<Void> write = response.write(exchange.getResponse(), acceptsGzip, ifNoneMatch, maxAge);
+                        response.release();
+                        return write;
+                    })
+                    .doOnDiscard(RenderedResponse.class, RenderedResponse::release);
+        });
+    }
+
+    /**
+     * Renders (and keeps) the response, holding one reference for the caller.
+     */
+    private Mono<RenderedResponse> renderAndKeep(String key, ResponseFormat format, Supplier<Mono<?>> value) {
+        Registration registration = new Registration(key);
+        return value.get()
+                .transform(ReactiveObservations.map(rendered -> stage(key, rendered), rendered -> keep(encode(rendered, format, registration))))
+                .doFinally(signal -> {
+                    if (!registration.stored) {
+                        registration.unregister();
+                    }
+                })
+                .contextWrite(context -> context.put(Registration.class, registration));
+    }
+
+    /**
+     * Joins the rendering of {@code key} in flight, or starts it (in the context of this request) if there is none.
+     * <p>
+     * Once the rendering is done, its flight is removed first, so that no request joins it any more, and the
+     * reference of the rendering is retained once per follower: each request then owns one reference, released after
+     * its write, or discarded if it was cancelled meanwhile. When every request waiting for it is cancelled before,
+     * the flight is removed and the rendering cancelled (see {@link #abandon(String, Flight)}).
+     * </p>
+     */
+    private Mono<RenderedResponse> coalesced(ServerWebExchange exchange, String key, Supplier<Mono<RenderedResponse>> render) {
+        return Mono.deferContextual(context -> {
+            Flight started = new Flight();
+            Flight flight = inFlight.compute(key, (k, current) -> {
+                if (current == null) {
+                    return started;
+                }
+                current.followers++;
+                current.waiting++;
+                return current;
+            });
+            if (flight == started) {
+                leaders.increment();
+                flight.rendering = render.get().contextWrite(context).subscribe(
+                        rendered -> land(key, flight, rendered, null),
+                        error -> land(key, flight, null, error),
+                        () -> land(key, flight, null, null));
+            } else {
+                followers.increment();
+                exchange.getAttributes().put(COALESCED_ATTRIBUTE, Boolean.TRUE);
+                RequestSummary.cache(exchange, "coalesced");
+            }
+            return Mono.<RenderedResponse>create(sink -> {
+                sink.onCancel(() -> abandon(key, flight));
+                flight.result.whenComplete((rendered, error) -> {
+                    if (error != null) {
+                        sink.error(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    } else if (rendered == null) {
+                        sink.success();
+                    } else {
+                        // released by the discard hook if this request was cancelled meanwhile
+                        sink.success(rendered);
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * Hands the outcome of a rendering to the requests waiting for it; the empty completion following a rendered
+     * response is ignored.
+     */
+    private void land(String key, Flight flight, @Nullable RenderedResponse rendered, @Nullable Throwable error) {
+        if (flight.result.isDone()) {
+            return;
+        }
+        inFlight.remove(key, flight);
+        if (error != null) {
+            flight.result.completeExceptionally(error);
+            return;
+        }
+        if (rendered != null) {
+            for (int i = 0; i < flight.followers; i++) {
+                rendered.retain();
+            }
+        }
+        flight.result.complete(rendered);
+    }
+
+    /**
+     * A request waiting for {@code flight} was cancelled: when it was the last one, no request can join the flight
+     * any more and its rendering is cancelled. A rendering done meanwhile is left alone, its reference being
+     * discarded by the cancelled requests.
+     */
+    private void abandon(String key, Flight flight) {
+        AtomicBoolean last = new AtomicBoolean();
+        inFlight.computeIfPresent(key, (k, current) -> {
+            if (current != flight || --current.waiting > 0) {
+                return current;
+            }
+            last.set(true);
+            return null;
+        });
+        if (last.get()) {
+            flight.rendering.dispose();
+        }
+    }
+
+    /**
+     * Keeps the rendered response unless one of its sources changed meanwhile.
+     * <p>
+     * An invalidation sets the flag of the registration before removing its entry, and the entry is stored before
+     * the flag is read: either the invalidation finds the entry, or the flag is seen here. The reference of the
+     * rendering itself is released by the caller once the response holds its own.
+     * </p>
+     */
+    private RenderedResponse keep(RenderedResponse rendered) {
+        Registration registration = rendered.registration();
+        if (enabled && !registration.invalidated) {
+            // the entry owns a reference of its own, since the cache may release it as soon as it is stored
+            rendered.retain();
+            registration.stored = true;
+            // before the put, which may evict the response at once and keep its validator
+            validators.invalidate(registration.key);
+            responses.put(registration.key, rendered);
+            if (registration.invalidated) {
+                responses.asMap().remove(registration.key, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Keeps the validator of a response evicted for lack of room, with the same invalidation protocol as
+     * {@link #keep}; its removal unregisters the response.
+     */
+    private void retire(String key, ResponseValidator validator) {
+        Registration registration = validator.registration();
+        if (registration.invalidated) {
+            registration.unregister();
+            return;
+        }
+        validators.put(key, validator);
+        if (registration.invalidated) {
+            validators.asMap().remove(key, validator);
+        }
+    }
+
+    private RenderedResponse encode(Object value, ResponseFormat format, Registration registration) {
+        ByteBuf identity = allocator.directBuffer();
+        ByteBuf gzip = null;
+        try {
+            try (OutputStream out = new ByteBufOutputStream(identity)) {
+                format.writer().writeValue(out, value);
+            }
+            if (gzipMinSize >= 0 && identity.readableBytes() >= gzipMinSize) {
+                gzip = allocator.directBuffer(identity.readableBytes() / 4);
+                try (OutputStream out = new GZIPOutputStream(new ByteBufOutputStream(gzip))) {
+                    identity.getBytes(identity.readerIndex(), out, identity.readableBytes());
+                }
+            }
+            int elements = value instanceof Collection<?> collection ? collection.size() : 1;
+            return new RenderedResponse(identity, gzip, format.mediaType(), elements, registration, registration.loadedAt());
+        } catch (IOException | RuntimeException e) {
+            identity.release();
+            if (gzip != null) {
+                gzip.release();
+            }
+            throw new EncodingException("Could not render the response " + registration.key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Observation stage(String key, Object value) {
+        Observation observation = Observation.createNotStarted("response.render", observationRegistry)
+                .highCardinalityKeyValue("key", key);
+        if (value instanceof List<?> items) {
+            observation.highCardinalityKeyValue("items", Integer.toString(items.size()));
+        }
+        return observation;
+    }
+
+    /**
+     * Drops the rendered responses derived from the entry {@code key} of the underlying cache {@code source},
+     * including those being rendered.
+     */
+    public void invalidate(String source, Object key) {
+        Set<Registration> registrations = dependents.remove(new Dependency(source, key));
+        if (registrations == null) {
+            return;
+        }
+        for (Registration registration : registrations) {
+            registration.invalidated = true;
+            responses.asMap().computeIfPresent(registration.key,
+                    (k, response) -> response.registration() == registration ? null : response);
+            validators.asMap().computeIfPresent(registration.key,
+                    (k, validator) -> validator.registration() == registration ? null : validator);
+        }
+    }
+
+    /**
+     * Drops every rendered response, and the validators of those already evicted.
+     */
+    public void invalidateAll() {
+        responses.invalidateAll();
+        validators.invalidateAll();
+    }
+
+    /**
+     * @return A removal listener for the underlying cache {@code source}, invalidating the responses derived from
+     * an entry when it is evicted, expired, replaced or removed.
+     */
+    public <K, V> RemovalListener<K, V> invalidationListener(String source) {
+        return (key, value, cause) -> {
+            if (key != null) {
+                invalidate(source, key);
+            }
+        };
+    }
+
+    /**
+     * Publishes the statistics of the cache as {@code cache.*} meters ({@code cache=responses}) and the memory held
+     * as {@code response.cache.bytes}. The meters carry the same tag keys as those Spring Boot binds for the data
+     * caches, which Prometheus requires of meters sharing a name.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, responses, "responses",
+                Tags.of("name", "responses", "cache.manager", "renderedResponseCache"));
+        Gauge.builder("response.cache.bytes", responses, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .description("Memory held by the rendered responses (identity and gzip)")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("response.coalescing.requests", leaders, LongAdder::sum)
+                .tag("role", "leader")
+                .description("Requests that rendered their response, other identical requests joining them")
+                .register(registry);
+        FunctionCounter.builder("response.coalescing.requests", followers, LongAdder::sum)
+                .tag("role", "follower")
+                .description("Requests that joined the rendering of an identical request in flight")
+                .register(registry);
+        Gauge.builder("response.coalescing.ratio", this, cache -> {
+                    double joined = cache.followers.sum();
+                    double total = joined + cache.leaders.sum();
+                    return total == 0 ? 0 : joined / total;
+                })
+                .description("Share of the rendered requests served by a rendering in flight, since startup")
+                .register(registry);
+        Gauge.builder("response.coalescing.in.flight", inFlight, Map::size)
+                .description("Renderings in flight")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        invalidateAll();
+    }
+
+    /**
+     * Whether the {@code Accept-Encoding} header lists gzip with a non-zero quality.
+     */
+    static boolean acceptsGzip(@Nullable List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                    return parts.length == 1 || !parts[1].trim().toLowerCase(Locale.ROOT).matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    private void register(Dependency dependency, Registration registration) {
+        dependents.compute(dependency, (d, registrations) -> {
+            Set<Registration> set = registrations == null ? ConcurrentHashMap.newKeySet() : registrations;
+            set.add(registration);
+            return set;
+        });
+    }
+
+    private void unregister(Dependency dependency, Registration registration) {
+        dependents.computeIfPresent(dependency, (d, registrations) -> {
+            registrations.remove(registration);
+            return registrations.isEmpty() ? null : registrations;
+        });
+    }
+
+    private record Dependency(String source, Object key) {
+    }
+
+    /**
+     * The sources of one rendered response, held in the Reactor context while it is rendered, then by its entry.
+     */
+    final class Registration {
+
+        private final String key;
+        private final Set<Dependency> dependencies = ConcurrentHashMap.newKeySet();
+        private volatile boolean invalidated;
+        private volatile boolean stored;
+
+        private Registration(String key) {
+            this.key = key;
+        }
+
+        private void add(Dependency dependency) {
+            if (dependencies.add(dependency)) {
+                register(dependency, this);
+            }
+        }
+
+        void unregister() {
+            for (Dependency dependency : dependencies) {
+                RenderedResponseCache.this.unregister(dependency, this);
+            }
+        }
+
+        /**
+         * @return When the oldest entry the response depends on was loaded, in {@link System#nanoTime()} terms: now
+         * if no age is known.
+         */
+        private long loadedAt() {
+            long now = System.nanoTime();
+            long loadedAt = now;
+            for (Dependency dependency : dependencies) {
+                Duration age = sourceAge.of(dependency.source(), dependency.key());
+                if (age != null) {
+                    loadedAt = Math.min(loadedAt, now - age.toNanos());
+                }
+            }
+            return loadedAt;
+        }
+    }
+}
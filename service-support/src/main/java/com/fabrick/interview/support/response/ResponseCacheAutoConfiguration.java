@@ -0,0 +1,48 @@
+package com.fabrick.interview.support.response;
+
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * The {@link RenderedResponseCache} of the read endpoints (JSON, CBOR and Smile), also registered in the {@code @WebFluxTest} slice
+ * since the controllers answer through it.
+ * <p>
+ * Tuned with {@code response-cache.*}: {@code enabled} (otherwise every response is rendered), {@code coalesce}
+ * (identical concurrent requests share one rendering), {@code max-size},
+ * {@code expire-after-write}, {@code gzip} and {@code gzip-min-size}. The max-age of the responses counts down from the
+ * load of their data, as told by the {@link ManagedCaches} when there are some.
+ * </p>
+ */
+@AutoConfiguration(after = {JacksonAutoConfiguration.class, ObservationAutoConfiguration.class})
+@ConditionalOnBean(ObjectMapper.class)
+public class ResponseCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RenderedResponseCache renderedResponseCache(ObjectMapper objectMapper,
+                                                       ObjectProvider<ObservationRegistry> observationRegistry,
+                                                       ObjectProvider<ManagedCaches> managedCaches,
+                                                       @Value("${response-cache.enabled:true}") boolean enabled,
+                                                       @Value("${response-cache.coalesce:true}") boolean coalesce,
+                                                       @Value("${response-cache.max-size:64MB}") DataSize maxSize,
+                                                       @Value("${response-cache.expire-after-write:PT10M}") Duration expireAfterWrite,
+                                                       @Value("${response-cache.gzip:true}") boolean gzip,
+                                                       @Value("${response-cache.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        ManagedCaches caches = managedCaches.getIfAvailable();
+        return new RenderedResponseCache(objectMapper, observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP),
+                enabled, coalesce, maxSize, expireAfterWrite, gzip ? gzipMinSize : null,
+                caches != null ? caches::age : SourceAge.UNKNOWN);
+    }
+}
@@ -0,0 +1,72 @@
+package com.fabrick.interview.support.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * An encoding the rendered responses can be negotiated in: JSON, or the binary CBOR and Smile encodings of the same
+ * document for service-to-service callers (smaller, and cheaper to parse).
+ * <p>
+ * The binary writers are those of the application's {@link ObjectMapper} bound to another generator factory, so that
+ * every format carries the same fields, names and date representations.
+ * </p>
+ *
+ * @param name      The short name of the format, part of the cache key.
+ * @param mediaType The {@code Content-Type} of the responses.
+ * @param writer    The writer of the format.
+ */
+record ResponseFormat(String name, MediaType mediaType, ObjectWriter writer) {
+
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    /**
+     * @return JSON first (the default), then CBOR and Smile.
+     */
+    static List<ResponseFormat> of(ObjectMapper objectMapper) {
+        return List.of(
+                new ResponseFormat("json", MediaType.APPLICATION_JSON, objectMapper.writer()),
+                new ResponseFormat("cbor", MediaType.APPLICATION_CBOR, objectMapper.writer().with(new CBORFactory())),
+                new ResponseFormat("smile", APPLICATION_SMILE, objectMapper.writer().with(new SmileFactory())));
+    }
+
+    /**
+     * Picks the format of the highest quality in {@code accept} (the quality of the most specific range including
+     * it), the most specific range deciding between equal qualities and the first format between equally specific
+     * ones: {@code *}{@code /*} is JSON, {@code application/cbor, *}{@code /*} is CBOR.
+     *
+     * @return The format, the first one when {@code accept} is empty, or {@code null} if none is acceptable.
+     */
+    @Nullable
+    static ResponseFormat negotiate(List<ResponseFormat> formats, List<MediaType> accept) {
+        if (accept.isEmpty()) {
+            return formats.get(0);
+        }
+        ResponseFormat best = null;
+        double bestQuality = 0;
+        int bestSpecificity = -1;
+        for (ResponseFormat format : formats) {
+            // the quality of a format is the one of the most specific range including it
+            double quality = 0;
+            int specificity = -1;
+            for (MediaType range : accept) {
+                int rangeSpecificity = range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+                if (range.includes(format.mediaType) && rangeSpecificity > specificity) {
+                    quality = range.getQualityValue();
+                    specificity = rangeSpecificity;
+                }
+            }
+            if (quality > bestQuality || (quality > 0 && quality == bestQuality && specificity > bestSpecificity)) {
+                best = format;
+                bestQuality = quality;
+                bestSpecificity = specificity;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,99 @@
+package com.fabrick.interview.support.response;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * What a conditional request is answered from: the ETag of a rendered response, whether it has a gzipped variant,
+ * and when the data it was rendered from was loaded.
+ * <p>
+ * It outlives the body when the latter is evicted for lack of room, so that a client revalidating a response it
+ * already holds still gets a {@code 304} without the response being computed again.
+ * </p>
+ */
+final class ResponseValidator {
+
+    private final String etag;
+    private final boolean gzipVariant;
+    private final long loadedAt;
+    private final RenderedResponseCache.Registration registration;
+
+    /**
+     * @param etag        The digest of the identity body.
+     * @param gzipVariant Whether a gzipped variant was kept as well.
+     * @param loadedAt    When the oldest entry the response was rendered from was loaded, in {@link System#nanoTime()} terms.
+     */
+    ResponseValidator(String etag, boolean gzipVariant, long loadedAt, RenderedResponseCache.Registration registration) {
+        this.etag = etag;
+        this.gzipVariant = gzipVariant;
+        this.loadedAt = loadedAt;
+        this.registration = registration;
+    }
+
+    RenderedResponseCache.Registration registration() {
+        return registration;
+    }
+
+    /**
+     * @return The quoted ETag of the variant sent to a client that does or does not accept gzip.
+     */
+    String etag(boolean acceptsGzip) {
+        return acceptsGzip && gzipVariant ? "\"" + etag + "-gzip\"" : "\"" + etag + "\"";
+    }
+
+    /**
+     * Answers {@code 304 Not Modified}, without any body, when {@code ifNoneMatch} holds the ETag of the variant.
+     *
+     * @return The completion of the response, or {@code null} if the client does not hold that variant and the
+     * response was left untouched.
+     */
+    @Nullable
+    Mono<Void> notModified(ServerHttpResponse response, boolean acceptsGzip, @Nullable List<String> ifNoneMatch, Duration maxAge) {
+        String variantEtag = etag(acceptsGzip);
+        if (!matches(ifNoneMatch, variantEtag)) {
+            return null;
+        }
+        setCacheHeaders(response.getHeaders(), variantEtag, maxAge);
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        return response.setComplete();
+    }
+
+    /**
+     * Sets the ETag, {@code Vary}, and a {@code Cache-Control} letting clients and shared caches keep the response
+     * for what is left of {@code maxAge} since its data was loaded.
+     */
+    void setCacheHeaders(HttpHeaders headers, String variantEtag, Duration maxAge) {
+        headers.setETag(variantEtag);
+        Duration remaining = maxAge.minusNanos(System.nanoTime() - loadedAt);
+        headers.setCacheControl(CacheControl.maxAge(remaining.isNegative() ? Duration.ZERO : remaining).cachePublic());
+        headers.setVary(gzipVariant ? List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING) : List.of(HttpHeaders.ACCEPT));
+    }
+
+    /**
+     * Weak comparison, as required for {@code If-None-Match}: {@code W/"x"} matches {@code "x"}.
+     */
+    private static boolean matches(@Nullable List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package com.fabrick.interview.support.response;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Tells how long ago an entry of an underlying cache was loaded, so that the {@code Cache-Control} max-age of the
+ * responses rendered from it counts down from the data rather than from the rendering.
+ */
+@FunctionalInterface
+public interface SourceAge {
+
+    /**
+     * Ages that are never known: the max-age counts down from the rendering.
+     */
+    SourceAge UNKNOWN = (source, key) -> null;
+
+    /**
+     * @return How long ago the entry {@code key} of the underlying cache {@code source} was loaded, or {@code null}
+     * if it is unknown.
+     */
+    @Nullable
+    Duration of(String source, Object key);
+}
@@ -0,0 +1,160 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Decoder} decorator observing the binding of an upstream response body as the
+ * {@value #OBSERVATION_NAME} stage, while the delegate keeps decoding it as a stream.
+ * <p>
+ * The observation starts when the first buffer reaches the decoder and stops with the last element, so that it
+ * does not include the round trip until the first bytes, and is parented to the observation held in the Reactor
+ * context (the enclosing {@code upstream.call}). As the body is bound while it is still being received, the time
+ * spent inside the delegate is added as the {@code decode.nanos} key value, along with the element count and the
+ * {@code bytes} received.
+ * </p>
+ */
+public class ObservedDecoder<T> implements Decoder<T> {
+
+    public static final String OBSERVATION_NAME = "upstream.decode";
+
+    private final Decoder<T> delegate;
+    private final ObservationRegistry registry;
+    private final String upstream;
+
+    /**
+     * @param delegate The decoder binding the body.
+     * @param registry The registry of the decode observations.
+     * @param upstream The upstream name, the {@code upstream} key value of the observations.
+     */
+    public ObservedDecoder(Decoder<T> delegate, ObservationRegistry registry, String upstream) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.upstream = upstream;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return delegate.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<T> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                          @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.deferContextual(context -> {
+            StreamTiming timing = new StreamTiming(elementType, context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            return delegate.decode(Flux.from(inputStream).doOnNext(timing::bufferArrived), elementType, mimeType, hints)
+                    .doOnNext(value -> timing.elementDecoded())
+                    .doOnError(timing::error)
+                    .doOnTerminate(timing::stop)
+                    .doOnCancel(timing::stop);
+        });
+    }
+
+    @Override
+    public Mono<T> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Mono.deferContextual(context -> {
+            StreamTiming timing = new StreamTiming(elementType, context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            return delegate.decodeToMono(Flux.from(inputStream).doOnNext(timing::bufferArrived), elementType, mimeType, hints)
+                    .doOnNext(value -> timing.elementDecoded())
+                    .doOnError(timing::error)
+                    .doOnTerminate(timing::stop)
+                    .doOnCancel(timing::stop);
+        });
+    }
+
+    @Override
+    @Nullable
+    public T decode(DataBuffer buffer, ResolvableType targetType, @Nullable MimeType mimeType,
+                    @Nullable Map<String, Object> hints) {
+        return delegate.decode(buffer, targetType, mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return delegate.getDecodableMimeTypes();
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes(ResolvableType targetType) {
+        return delegate.getDecodableMimeTypes(targetType);
+    }
+
+    /**
+     * Per-subscription state of a streamed decoding. Buffers are bound synchronously by the delegate, so the time
+     * between a buffer reaching the decoder and the elements it completes leaving it is decoding time. The
+     * elements of one buffer are timed one after the other, so each also counts the downstream handling of the
+     * previous one (a mere collect in the upstream clients); the tokenizing of a buffer completing no element is
+     * not counted, which only matters for elements spanning several buffers.
+     */
+    private final class StreamTiming {
+
+        private final ResolvableType elementType;
+        private final Observation parent;
+        private Observation observation;
+        private long bufferStart;
+        private long decodeNanos;
+        private long elements;
+        private long bytes;
+        private boolean stopped;
+
+        private StreamTiming(ResolvableType elementType, @Nullable Observation parent) {
+            this.elementType = elementType;
+            this.parent = parent;
+        }
+
+        private void bufferArrived(DataBuffer buffer) {
+            if (observation == null) {
+                observation = Observation.createNotStarted(OBSERVATION_NAME, registry)
+                        .lowCardinalityKeyValue("upstream", upstream)
+                        .highCardinalityKeyValue("value.type", elementType.toClass().getSimpleName());
+                if (parent != null) {
+                    observation.parentObservation(parent);
+                }
+                observation.start();
+            }
+            bytes += buffer.readableByteCount();
+            bufferStart = System.nanoTime();
+        }
+
+        private void elementDecoded() {
+            elements++;
+            if (bufferStart != 0) {
+                long now = System.nanoTime();
+                decodeNanos += now - bufferStart;
+                // the next element of the same buffer is timed from this one
+                bufferStart = now;
+            }
+        }
+
+        private void error(Throwable error) {
+            if (observation != null) {
+                observation.error(error);
+            }
+        }
+
+        private void stop() {
+            if (observation == null || stopped) {
+                return;
+            }
+            stopped = true;
+            observation.highCardinalityKeyValue("decode.nanos", Long.toString(decodeNanos))
+                    .highCardinalityKeyValue("decode.elements", Long.toString(elements))
+                    .highCardinalityKeyValue("bytes", Long.toString(bytes))
+                    .stop();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HttpMessageEncoder} decorator observing response serialization as the
+ * {@value #OBSERVATION_NAME} stage.
+ * <p>
+ * The observation of a response body starts when its first element reaches the encoder, so that it does
+ * not include the time spent producing the results, and the exact time spent inside the delegate is added
+ * as the {@code encode.nanos} key value along with the element and byte counts. Direct
+ * {@link #encodeValue} calls (e.g. server-sent events) are observed synchronously.
+ * </p>
+ */
+public class ObservedEncoder<T> implements HttpMessageEncoder<T> {
+
+    public static final String OBSERVATION_NAME = "http.codec.encode";
+
+    private final HttpMessageEncoder<T> delegate;
+    private final ObservationRegistry registry;
+
+    public ObservedEncoder(HttpMessageEncoder<T> delegate, ObservationRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return delegate.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends T> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.deferContextual(context -> {
+            StreamTiming timing = new StreamTiming(elementType, mimeType,
+                    context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            // The delegate encodes a Mono as a single value and anything else as a stream: keep the input type
+            Publisher<T> timedInput = inputStream instanceof Mono<? extends T> mono
+                    ? Mono.<T>from(mono).doOnNext(value -> timing.elementArrived())
+                    : Flux.<T>from(inputStream).doOnNext(value -> timing.elementArrived());
+            return delegate.encode(timedInput, bufferFactory, elementType, mimeType, hints)
+                    .doOnNext(timing::bufferEncoded)
+                    .doOnError(timing::error)
+                    .doFinally(signal -> timing.stop());
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(T value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return observation(valueType, mimeType)
+                .observe(() -> delegate.encodeValue(value, bufferFactory, valueType, mimeType, hints));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return delegate.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes(ResolvableType elementType) {
+        return delegate.getEncodableMimeTypes(elementType);
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return delegate.getStreamingMediaTypes();
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType,
+                                              @Nullable MediaType mediaType, ServerHttpRequest request,
+                                              ServerHttpResponse response) {
+        return delegate.getEncodeHints(actualType, elementType, mediaType, request, response);
+    }
+
+    private Observation observation(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return Observation.createNotStarted(OBSERVATION_NAME, registry)
+                .lowCardinalityKeyValue("media.type", mimeType == null ? "none" : mimeType.getSubtype())
+                .highCardinalityKeyValue("value.type", elementType.toClass().getSimpleName());
+    }
+
+    /**
+     * Per-subscription state of a streamed encoding. Elements are encoded synchronously by the delegate, so
+     * the time between an element reaching the encoder and the next buffer leaving it is encoding time.
+     */
+    private final class StreamTiming {
+
+        private final ResolvableType elementType;
+        private final MimeType mimeType;
+        private final Observation parent;
+        private Observation observation;
+        private long elementStart;
+        private long encodeNanos;
+        private long elements;
+        private long bytes;
+
+        private StreamTiming(ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Observation parent) {
+            this.elementType = elementType;
+            this.mimeType = mimeType;
+            this.parent = parent;
+        }
+
+        private void elementArrived() {
+            if (observation == null) {
+                observation = observation(elementType, mimeType);
+                if (parent != null) {
+                    observation.parentObservation(parent);
+                }
+                observation.start();
+            }
+            elements++;
+            elementStart = System.nanoTime();
+        }
+
+        private void bufferEncoded(DataBuffer buffer) {
+            bytes += buffer.readableByteCount();
+            if (elementStart != 0) {
+                encodeNanos += System.nanoTime() - elementStart;
+                elementStart = 0;
+            }
+        }
+
+        private void error(Throwable error) {
+            if (observation != null) {
+                observation.error(error);
+            }
+        }
+
+        private void stop() {
+            if (observation == null) {
+                return;
+            }
+            observation.highCardinalityKeyValue("encode.nanos", Long.toString(encodeNanos))
+                    .highCardinalityKeyValue("encode.elements", Long.toString(elements))
+                    .highCardinalityKeyValue("encode.bytes", Long.toString(bytes))
+                    .stop();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a reactive stage in a Micrometer {@link Observation} (and therefore in a span when tracing is
+ * enabled).
+ * <p>
+ * The observation is created at subscription time, parented to the observation found in the Reactor
+ * context (the inbound request, or an enclosing stage) and written back into the context, so that the
+ * stages subscribed upstream of it become its children. It stops on the first terminal signal or on
+ * cancellation; errors are attached to it. No-op observations are not wrapped at all.
+ * </p>
+ * <p>
+ * Synchronous stages running inside an operator are parented explicitly with {@link #child(Observation, ContextView)}
+ * (or the {@link #map}/{@link #flatMapIterable} transformers) rather than through the thread-local current
+ * observation: signals completing a {@code CompletableFuture}, such as those of the async cache, arrive on
+ * threads where no observation has been restored.
+ * </p>
+ */
+public final class ReactiveObservations {
+
+    private ReactiveObservations() {
+    }
+
+    /**
+     * Parents the given (not started) observation to the one held in the Reactor context, if any.
+     */
+    public static Observation child(Observation observation, ContextView context) {
+        Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        return parent == null ? observation : observation.parentObservation(parent);
+    }
+
+    /**
+     * Transformer applying a synchronous stage to the value, observed (with an observation built from the value)
+     * as a child of the context's observation.
+     */
+    public static <T, R> Function<Mono<T>, Mono<R>> map(Function<? super T, Observation> observation,
+                                                         Function<? super T, ? extends R> mapper) {
+        return source -> source.transformDeferredContextual((mono, context) ->
+                mono.map(value -> child(observation.apply(value), context).observe(() -> mapper.apply(value))));
+    }
+
+    /**
+     * Function (for {@link Mono#as}) expanding the value into elements with a synchronous stage, observed as a child of the
+     * context's observation.
+     */
+    public static <T, R> Function<Mono<T>, Flux<R>> flatMapIterable(Function<? super T, Observation> observation,
+                                                                     Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        return source -> Flux.deferContextual(context ->
+                source.flatMapIterable(value -> child(observation.apply(value), context).observe(() -> mapper.apply(value))));
+    }
+
+    public static <T> Mono<T> observe(Supplier<Observation> observation, Mono<T> source) {
+        return Mono.deferContextual(context -> {
+            Observation stage = observation.get();
+            if (stage.isNoop()) {
+                return source;
+            }
+            child(stage, context).start();
+            Runnable stop = stopOnce(stage);
+            return source.doOnError(stage::error)
+                    .doOnTerminate(stop)
+                    .doOnCancel(stop)
+                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, stage));
+        });
+    }
+
+    public static <T> Flux<T> observe(Supplier<Observation> observation, Flux<T> source) {
+        return Flux.deferContextual(context -> {
+            Observation stage = observation.get();
+            if (stage.isNoop()) {
+                return source;
+            }
+            child(stage, context).start();
+            Runnable stop = stopOnce(stage);
+            return source.doOnError(stage::error)
+                    .doOnTerminate(stop)
+                    .doOnCancel(stop)
+                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, stage));
+        });
+    }
+
+    /**
+     * Stops the stage when it signals its result, before the signal is propagated downstream (unlike
+     * {@code doFinally}), so that its duration excludes the downstream processing and it is stopped before the
+     * request completes; a cancellation after the result does not stop it twice.
+     */
+    private static Runnable stopOnce(Observation stage) {
+        AtomicBoolean stopped = new AtomicBoolean();
+        return () -> {
+            if (stopped.compareAndSet(false, true)) {
+                stage.stop();
+            }
+        };
+    }
+}
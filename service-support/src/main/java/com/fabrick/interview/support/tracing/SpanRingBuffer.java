@@ -0,0 +1,195 @@
+package com.fabrick.interview.support.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the last {@code capacity} finished spans in memory, so that the per-stage breakdown of recent
+ * requests can be inspected without an external collector (see {@link SpansEndpoint}).
+ * <p>
+ * Registered as an OpenTelemetry {@link SpanProcessor}: spans are stored synchronously when they end,
+ * with a single slot write into a fixed array, and old spans are overwritten once the buffer wraps.
+ * Reads copy the slots and group them by trace; a trace may be partial if some of its spans have
+ * already been overwritten.
+ * </p>
+ */
+public class SpanRingBuffer implements SpanProcessor {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final AtomicReferenceArray<SpanData> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SpanRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Span ring buffer capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        // Only finished spans are kept
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        slots.set((int) (sequence.getAndIncrement() % slots.length()), span.toSpanData());
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    /**
+     * @return The number of spans currently held.
+     */
+    public int size() {
+        return (int) Math.min(sequence.get(), slots.length());
+    }
+
+    /**
+     * Lists the most recent traces, newest first.
+     *
+     * @param limit     Maximum number of traces returned.
+     * @param minMillis Only traces lasting at least this long (0 for all).
+     */
+    public List<TraceSummary> traces(int limit, double minMillis) {
+        List<TraceSummary> summaries = new ArrayList<>();
+        for (Map.Entry<String, List<SpanData>> trace : groupByTrace().entrySet()) {
+            Bounds bounds = Bounds.of(trace.getValue());
+            if (bounds.durationMillis() < minMillis) {
+                continue;
+            }
+            SpanData root = roots(trace.getValue()).getFirst();
+            summaries.add(new TraceSummary(trace.getKey(), root.getName(), bounds.startedAt(), bounds.durationMillis(),
+                    trace.getValue().size()));
+        }
+        summaries.sort(Comparator.comparing(TraceSummary::startedAt).reversed());
+        return summaries.size() > limit ? summaries.subList(0, limit) : summaries;
+    }
+
+    /**
+     * Returns the spans of one trace as a waterfall: depth-first from the root(s), children ordered by
+     * start time, each with its offset from the start of the trace.
+     */
+    public Optional<TraceWaterfall> trace(String traceId) {
+        List<SpanData> spans = groupByTrace().get(traceId);
+        if (spans == null) {
+            return Optional.empty();
+        }
+        Bounds bounds = Bounds.of(spans);
+        Map<String, List<SpanData>> children = new HashMap<>();
+        for (SpanData span : spans) {
+            children.computeIfAbsent(span.getParentSpanId(), id -> new ArrayList<>()).add(span);
+        }
+        children.values().forEach(list -> list.sort(Comparator.comparingLong(SpanData::getStartEpochNanos)));
+
+        List<SpanView> rows = new ArrayList<>(spans.size());
+        for (SpanData root : roots(spans)) {
+            appendSubtree(root, 0, bounds.startNanos(), children, rows);
+        }
+        return Optional.of(new TraceWaterfall(traceId, bounds.startedAt(), bounds.durationMillis(), rows));
+    }
+
+    private static void appendSubtree(SpanData span, int depth, long traceStart, Map<String, List<SpanData>> children,
+                                      List<SpanView> rows) {
+        Map<String, String> attributes = new TreeMap<>();
+        span.getAttributes().forEach((AttributeKey<?> key, Object value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        rows.add(new SpanView(span.getSpanId(), SpanId.isValid(span.getParentSpanId()) ? span.getParentSpanId() : null,
+                span.getName(), depth,
+                (span.getStartEpochNanos() - traceStart) / NANOS_PER_MILLI,
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / NANOS_PER_MILLI,
+                span.getStatus().getStatusCode().name(), attributes));
+        for (SpanData child : children.getOrDefault(span.getSpanId(), List.of())) {
+            appendSubtree(child, depth + 1, traceStart, children, rows);
+        }
+    }
+
+    /**
+     * Spans whose parent is not in the buffer (the actual root, or orphans whose parent was overwritten
+     * or belongs to another process), earliest first.
+     */
+    private static List<SpanData> roots(List<SpanData> spans) {
+        Map<String, SpanData> byId = new HashMap<>();
+        spans.forEach(span -> byId.put(span.getSpanId(), span));
+        return spans.stream()
+                .filter(span -> !byId.containsKey(span.getParentSpanId()))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .toList();
+    }
+
+    private Map<String, List<SpanData>> groupByTrace() {
+        Map<String, List<SpanData>> traces = new LinkedHashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            SpanData span = slots.get(i);
+            if (span != null) {
+                traces.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>()).add(span);
+            }
+        }
+        return traces;
+    }
+
+    private record Bounds(long startNanos, long endNanos) {
+
+        static Bounds of(List<SpanData> spans) {
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
+            for (SpanData span : spans) {
+                start = Math.min(start, span.getStartEpochNanos());
+                end = Math.max(end, span.getEndEpochNanos());
+            }
+            return new Bounds(start, end);
+        }
+
+        Instant startedAt() {
+            return Instant.ofEpochSecond(0, startNanos);
+        }
+
+        double durationMillis() {
+            return (endNanos - startNanos) / NANOS_PER_MILLI;
+        }
+    }
+
+    /**
+     * One recent trace.
+     */
+    public record TraceSummary(String traceId, String rootName, Instant startedAt, double durationMillis, int spans) {
+    }
+
+    /**
+     * All the buffered spans of one trace, in waterfall order.
+     */
+    public record TraceWaterfall(String traceId, Instant startedAt, double durationMillis, List<SpanView> spans) {
+    }
+
+    /**
+     * One span of a waterfall; {@code offsetMillis} is relative to the start of the trace.
+     */
+    public record SpanView(String spanId, String parentSpanId, String name, int depth, double offsetMillis,
+                           double durationMillis, String status, Map<String, String> attributes) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.fabrick.interview.support.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint ({@code /actuator/spans}) exposing the traces held by the {@link SpanRingBuffer}:
+ * the list of recent traces (optionally only the slow ones), and the waterfall of a single trace at
+ * {@code /actuator/spans/{traceId}}.
+ */
+@Endpoint(id = "spans")
+public class SpansEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final SpanRingBuffer buffer;
+
+    public SpansEndpoint(SpanRingBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @ReadOperation
+    public List<SpanRingBuffer.TraceSummary> traces(@Nullable Integer limit, @Nullable Double minMillis) {
+        return buffer.traces(limit == null ? DEFAULT_LIMIT : limit, minMillis == null ? 0 : minMillis);
+    }
+
+    /**
+     * @return The waterfall, or {@code null} (404) when no span of the trace is buffered.
+     */
+    @ReadOperation
+    public SpanRingBuffer.TraceWaterfall trace(@Selector String traceId) {
+        return buffer.trace(traceId).orElse(null);
+    }
+}
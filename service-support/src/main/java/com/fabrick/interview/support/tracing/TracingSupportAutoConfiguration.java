@@ -0,0 +1,56 @@
+package com.fabrick.interview.support.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+/**
+ * Per-stage tracing support shared by both services:
+ * <ul>
+ * <li>a {@link SpanRingBuffer} keeping the recent spans in memory, picked up by the Boot-managed
+ * OpenTelemetry tracer provider next to the OTLP exporter (enabled by {@code management.otlp.tracing.endpoint});</li>
+ * <li>the {@link SpansEndpoint} ({@code /actuator/spans}) rendering them as per-request waterfalls;</li>
+ * <li>the {@link ObservedEncoder} around the JSON encoder, adding the response serialization stage.</li>
+ * </ul>
+ */
+@AutoConfiguration(after = {ObservationAutoConfiguration.class, JacksonAutoConfiguration.class})
+@ConditionalOnClass(SdkTracerProvider.class)
+public class TracingSupportAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SpanRingBuffer spanRingBuffer(@Value("${tracing.ring-buffer.capacity:4096}") int capacity) {
+        return new SpanRingBuffer(capacity);
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public SpansEndpoint spansEndpoint(SpanRingBuffer spanRingBuffer) {
+        return new SpansEndpoint(spanRingBuffer);
+    }
+
+    /**
+     * Runs after Boot's Jackson customizer (order 0) and replaces its encoder with the same one, observed.
+     */
+    @Bean
+    @Order(10)
+    @ConditionalOnBean({ObjectMapper.class, ObservationRegistry.class})
+    @ConditionalOnProperty(name = "tracing.observe-encoding", matchIfMissing = true)
+    public CodecCustomizer observedJsonEncoderCustomizer(ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+        return configurer -> configurer.defaultCodecs()
+                .jackson2JsonEncoder(new ObservedEncoder<>(new Jackson2JsonEncoder(objectMapper), observationRegistry));
+    }
+}
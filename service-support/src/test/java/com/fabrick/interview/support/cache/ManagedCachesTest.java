@@ -0,0 +1,127 @@
+package com.fabrick.interview.support.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ManagedCachesTest {
+
+    @Test
+    @DisplayName("Should override the defaults with the configured policy, a weight bound replacing the size bound")
+    void shouldApplyConfiguredPolicy() {
+        CachePolicyProperties.Policy configured = new CachePolicyProperties.Policy();
+        configured.setMaximumWeight(10L);
+        configured.setExpireAfterAccess(Duration.ofMinutes(1));
+        CachePolicyProperties properties = new CachePolicyProperties();
+        properties.getPolicies().put("stations", configured);
+        ManagedCaches caches = new ManagedCaches(properties);
+
+        AsyncCache<Object, Object> cache = caches.builder("stations")
+                .defaults(CachePolicyProperties.Policy.of(500, Duration.ofMinutes(10)))
+                .build();
+        cache.synchronous().put("a", List.of(1, 2, 3));
+        cache.synchronous().put("b", "x");
+
+        ManagedCaches.CacheState state = caches.state("stations", 5);
+        assertNull(state.policy().getMaximumSize());
+        assertEquals(10L, state.policy().getMaximumWeight());
+        assertEquals(Duration.ofMinutes(10), state.policy().getExpireAfterWrite());
+        assertEquals(Duration.ofMinutes(1), state.policy().getExpireAfterAccess());
+        assertEquals(4L, state.weightedSize());
+        assertNotNull(state.stats());
+        assertEquals(2, state.topKeys().size());
+        assertNull(caches.state("unknown", 0));
+        Duration age = caches.age("stations", "a");
+        assertNotNull(age);
+        assertTrue(age.compareTo(Duration.ofMinutes(1)) < 0, age::toString);
+        assertNull(caches.age("stations", "c"));
+        assertNull(caches.age("unknown", "a"));
+    }
+
+    @Test
+    @DisplayName("Should change the live policy, and reject dimensions the cache was not built with")
+    void shouldUpdatePolicyAtRuntime() {
+        ManagedCaches caches = new ManagedCaches(new CachePolicyProperties());
+        caches.builder("asteroids").defaults(CachePolicyProperties.Policy.of(100, Duration.ofMinutes(10))).build();
+
+        CachePolicyProperties.Policy changes = new CachePolicyProperties.Policy();
+        changes.setMaximumSize(20L);
+        changes.setExpireAfterWrite(Duration.ofMinutes(2));
+        ManagedCaches.CacheState state = caches.update("asteroids", changes);
+        assertEquals(20L, state.policy().getMaximumSize());
+        assertEquals(Duration.ofMinutes(2), state.policy().getExpireAfterWrite());
+
+        // all or nothing: the valid size change is not applied either
+        CachePolicyProperties.Policy unsupported = new CachePolicyProperties.Policy();
+        unsupported.setMaximumSize(30L);
+        unsupported.setRefreshAfterWrite(Duration.ofMinutes(1));
+        assertThrows(IllegalArgumentException.class, () -> caches.update("asteroids", unsupported));
+        CachePolicyProperties.Policy byWeight = new CachePolicyProperties.Policy();
+        byWeight.setMaximumWeight(1000L);
+        assertThrows(IllegalArgumentException.class, () -> caches.update("asteroids", byWeight));
+        assertEquals(20L, caches.state("asteroids", 0).policy().getMaximumSize());
+    }
+
+    @Test
+    @DisplayName("Should preload the missing keys and refresh a present one through the loader, and report the failures")
+    void shouldPreloadThroughLoader() {
+        AtomicInteger loads = new AtomicInteger();
+        ManagedCaches caches = new ManagedCaches(new CachePolicyProperties());
+        AsyncCache<Object, Object> cache = caches.builder("asteroids")
+                .defaults(CachePolicyProperties.Policy.of(100, Duration.ofMinutes(10)))
+                .loader(key -> {
+                    loads.incrementAndGet();
+                    return switch ((String) key) {
+                        case "missing" -> CompletableFuture.completedFuture(null);
+                        case "broken" -> CompletableFuture.failedFuture(new IllegalStateException("upstream down"));
+                        default -> CompletableFuture.completedFuture("value-" + key);
+                    };
+                })
+                .build();
+        cache.synchronous().put("cached", "value");
+
+        StepVerifier.create(caches.preload("asteroids", List.of("a", "b", "a", "cached", "missing", "broken")))
+                .assertNext(result -> {
+                    assertEquals(2, result.loaded());
+                    assertEquals(1, result.present());
+                    assertEquals(Map.of("missing", "not found", "broken", "upstream down"), result.failed());
+                })
+                .verifyComplete();
+        assertEquals(4, loads.get());
+        assertEquals("value-a", cache.synchronous().getIfPresent("a"));
+        StepVerifier.create(caches.refresh("asteroids", "cached")).expectNext("value-cached").verifyComplete();
+        assertEquals(5, loads.get());
+        assertEquals("value-cached", cache.synchronous().getIfPresent("cached"));
+
+        ManagedCaches.CacheState state = caches.invalidate("asteroids", List.of("a"));
+        assertEquals(2, state.estimatedSize());
+        assertTrue(state.preloadable());
+        assertEquals(0, caches.invalidate("asteroids", List.of()).estimatedSize());
+    }
+
+    @Test
+    @DisplayName("Should not preload a cache without loader, nor refresh it")
+    void shouldRequireLoader() {
+        ManagedCaches caches = new ManagedCaches(new CachePolicyProperties());
+        caches.builder("plain").build();
+        assertThrows(IllegalArgumentException.class, () -> caches.preload("plain", List.of("a")));
+        assertThrows(IllegalArgumentException.class, () -> caches.refresh("plain", "a"));
+
+        CachePolicyProperties.Policy refreshing = CachePolicyProperties.Policy.of(10, Duration.ofMinutes(10));
+        refreshing.setRefreshAfterWrite(Duration.ofMinutes(1));
+        assertThrows(IllegalStateException.class, () -> caches.builder("refreshing").defaults(refreshing).build());
+    }
+}
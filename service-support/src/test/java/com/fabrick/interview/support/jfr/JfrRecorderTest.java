@@ -0,0 +1,70 @@
+package com.fabrick.interview.support.jfr;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JfrRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    private JfrRecorder recorder;
+
+    @AfterEach
+    void tearDown() {
+        recorder.destroy();
+    }
+
+    @Test
+    @DisplayName("Should record the observed stages and the cache misses as custom JFR events")
+    void shouldRecordCustomEvents() throws Exception {
+        recorder = new JfrRecorder(Duration.ofMinutes(1), DataSize.ofMegabytes(16), directory);
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new JfrObservationHandler());
+
+        JfrRecorder.RecordingStatus started = recorder.start(null, "default");
+        Observation.createNotStarted("upstream.decode", registry)
+                .lowCardinalityKeyValue("upstream", "nasa")
+                .highCardinalityKeyValue("asteroid.id", "3542519")
+                .highCardinalityKeyValue("bytes", "2048")
+                .observe(() -> { });
+        CacheMissEvent.emit("asteroids", "3542519");
+        recorder.stop();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recorder.file(started.id()).orElseThrow());
+        RecordedEvent stage = events.stream().filter(e -> e.getEventType().getName().equals("com.fabrick.interview.Stage")).findFirst().orElseThrow();
+        assertEquals("upstream.decode", stage.getString("stage"));
+        assertEquals("nasa", stage.getString("upstream"));
+        assertEquals("3542519", stage.getString("key"));
+        assertEquals(2048, stage.getLong("bytes"));
+        RecordedEvent miss = events.stream().filter(e -> e.getEventType().getName().equals("com.fabrick.interview.CacheMiss")).findFirst().orElseThrow();
+        assertEquals("asteroids", miss.getString("cache"));
+    }
+
+    @Test
+    @DisplayName("Should cap the duration and refuse a second concurrent recording")
+    void shouldBoundRecordings() {
+        recorder = new JfrRecorder(Duration.ofSeconds(30), DataSize.ofMegabytes(16), directory);
+
+        JfrRecorder.RecordingStatus status = recorder.start(Duration.ofHours(1), "default");
+
+        assertEquals(Duration.ofSeconds(30), status.duration());
+        assertEquals("RUNNING", status.state());
+        assertThrows(IllegalStateException.class, () -> recorder.start(null, null));
+        assertThrows(IllegalArgumentException.class, () -> new JfrRecorder(Duration.ofSeconds(30), DataSize.ofMegabytes(16), directory).start(null, "nope"));
+    }
+}
@@ -0,0 +1,212 @@
+package com.fabrick.interview.support.limit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitWebFilterTest {
+
+    @Test
+    @DisplayName("Should answer 503 with Retry-After at once when the inbound limit is reached")
+    void shouldRejectOverInboundLimit() {
+        ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(properties(2, 2));
+        Sinks.Empty<Void> pending = Sinks.empty();
+        filter.filter(exchange("/api/a"), e -> pending.asMono()).subscribe();
+        filter.filter(exchange("/api/b"), e -> pending.asMono()).subscribe();
+
+        MockServerWebExchange rejected = exchange("/api/c");
+        StepVerifier.create(filter.filter(rejected, e -> Mono.error(new AssertionError("admitted")))).verifyComplete();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, rejected.getResponse().getHeaders().getContentType());
+        StepVerifier.create(rejected.getResponse().getBodyAsString())
+                .assertNext(body -> assertTrue(body.contains("\"status\":503")))
+                .verifyComplete();
+
+        // paths outside the API are never limited, and a completed request frees its slot
+        MockServerWebExchange health = exchange("/actuator/health");
+        StepVerifier.create(filter.filter(health, e -> Mono.empty())).verifyComplete();
+        assertEquals(null, health.getResponse().getStatusCode());
+        pending.tryEmitEmpty();
+        MockServerWebExchange admitted = exchange("/api/d");
+        StepVerifier.create(filter.filter(admitted, e -> Mono.empty())).verifyComplete();
+        assertEquals(null, admitted.getResponse().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should admit new requests once a stream gave its inbound slot back, releasing it only once")
+    void shouldReleaseStreamSlotEarly() {
+        ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(properties(1, 1));
+        Sinks.Empty<Void> stream = Sinks.empty();
+        filter.filter(exchange("/api/watch"), e -> {
+            ConcurrencyLimitWebFilter.releaseInbound(e);
+            ConcurrencyLimitWebFilter.releaseInbound(e);
+            return stream.asMono();
+        }).subscribe();
+
+        MockServerWebExchange admitted = exchange("/api/a");
+        Sinks.Empty<Void> pending = Sinks.empty();
+        filter.filter(admitted, e -> pending.asMono()).subscribe();
+        assertEquals(null, admitted.getResponse().getStatusCode());
+        // the stream completing does not free a second slot
+        stream.tryEmitEmpty();
+        MockServerWebExchange rejected = exchange("/api/b");
+        StepVerifier.create(filter.filter(rejected, e -> Mono.error(new AssertionError("admitted")))).verifyComplete();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should turn an upstream call over the upstream limit into a 503")
+    void shouldRejectOverUpstreamLimit() {
+        ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(properties(10, 1));
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://upstream/x")).build();
+        Sinks.One<ClientResponse> slow = Sinks.one();
+        filter.upstreamFilter().filter(request, r -> slow.asMono()).subscribe();
+
+        MockServerWebExchange exchange = exchange("/api/a");
+        StepVerifier.create(filter.filter(exchange, e -> filter.upstreamFilter()
+                        .filter(request, r -> Mono.error(new AssertionError("sent"))).then()))
+                .verifyComplete();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getHeaders().containsKey(HttpHeaders.RETRY_AFTER));
+
+        slow.tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+        StepVerifier.create(filter.upstreamFilter().filter(request, r -> Mono.just(ClientResponse.create(HttpStatus.OK).build())))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should grow the limit at a stable latency and shrink it when the latency rises")
+    void shouldFollowLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", properties(20, 20).getInbound());
+        for (int i = 0; i < 200; i++) {
+            saturate(limit, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        int grown = limit.limit();
+        assertTrue(grown > 20, "limit should grow, was " + grown);
+
+        // queueing: the recent latency moves away from the baseline, which only follows it over hundreds of samples
+        for (int i = 0; i < 3; i++) {
+            saturate(limit, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertTrue(limit.limit() < grown / 2, "limit should shrink from " + grown + ", was " + limit.limit());
+        assertEquals(1, limit.retryAfter().toSeconds());
+    }
+
+    @Test
+    @DisplayName("Should compare each latency class with its own baseline, and still shrink when misses queue up")
+    void shouldSampleLatencyClassesSeparately() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", List.of(
+                new AdaptiveConcurrencyLimit.LatencyClass("hit", 1.5), new AdaptiveConcurrencyLimit.LatencyClass("miss", 3.0)),
+                properties(20, 20).getInbound());
+        for (int i = 0; i < 200; i++) {
+            saturate(limit, TimeUnit.MILLISECONDS.toNanos(1), 0);
+            saturate(limit, TimeUnit.MILLISECONDS.toNanos(400), 1);
+        }
+        // misses at a stable 400 ms do not read as queueing of the 1 ms hits
+        int grown = limit.limit();
+        assertTrue(grown > 20, "limit should grow, was " + grown);
+        assertEquals(1, limit.retryAfter().toSeconds());
+
+        // twice the baseline of the misses is within their tolerance, a hundred times is not
+        for (int i = 0; i < 3; i++) {
+            saturate(limit, TimeUnit.MILLISECONDS.toNanos(800), 1);
+        }
+        assertTrue(limit.limit() >= grown, "limit should not shrink from " + grown + ", was " + limit.limit());
+        saturate(limit, TimeUnit.SECONDS.toNanos(40), 1);
+        assertTrue(limit.limit() < grown / 2, "limit should shrink from " + grown + ", was " + limit.limit());
+        assertTrue(limit.retryAfter().toSeconds() > 1);
+    }
+
+    @Test
+    @DisplayName("Should back off multiplicatively on dropped requests of a busy limit, once per round trip")
+    void shouldBackOffOnDrop() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", properties(100, 100).getInbound());
+        // an occasional failure while the limit is mostly idle does not shrink it
+        assertTrue(limit.tryAcquire());
+        limit.release(1, AdaptiveConcurrencyLimit.Outcome.DROPPED);
+        assertEquals(100, limit.limit());
+        for (int i = 0; i < 10; i++) {
+            dropSaturated(limit);
+        }
+        // no latency observed yet: every drop counts
+        assertTrue(limit.limit() < 40, "limit should back off, was " + limit.limit());
+
+        AdaptiveConcurrencyLimit slow = new AdaptiveConcurrencyLimit("slow", properties(100, 100).getInbound());
+        assertTrue(slow.tryAcquire());
+        slow.release(TimeUnit.SECONDS.toNanos(60), AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+        for (int i = 0; i < 10; i++) {
+            dropSaturated(slow);
+        }
+        assertEquals(90, slow.limit());
+        assertEquals(0, slow.inFlight());
+    }
+
+    /**
+     * Fills the limit, then drops one request and releases the others.
+     */
+    private static void dropSaturated(AdaptiveConcurrencyLimit limit) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        limit.release(1, AdaptiveConcurrencyLimit.Outcome.DROPPED);
+        for (int i = 1; i < acquired; i++) {
+            limit.release(1, AdaptiveConcurrencyLimit.Outcome.IGNORED);
+        }
+    }
+
+    /**
+     * Fills the limit, then completes every request with the given latency.
+     */
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos) {
+        saturate(limit, rttNanos, 0);
+    }
+
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int latencyClass) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, AdaptiveConcurrencyLimit.Outcome.SUCCESS, latencyClass);
+        }
+    }
+
+    private static ConcurrencyLimitProperties properties(int inbound, int upstream) {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInbound(limit(inbound));
+        properties.setUpstream(limit(upstream));
+        return properties;
+    }
+
+    private static ConcurrencyLimitProperties.Limit limit(int initial) {
+        ConcurrencyLimitProperties.Limit limit = new ConcurrencyLimitProperties.Limit();
+        limit.setInitialLimit(initial);
+        limit.setMinLimit(Math.min(initial, 5));
+        limit.setMaxLimit(initial * 10);
+        return limit;
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -0,0 +1,80 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockFreeAsyncAppenderTest {
+
+    @Test
+    @DisplayName("Should write the events in order on its own thread, dropping the low levels first when full")
+    void shouldDeliverAndDropWhenFull() throws InterruptedException {
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        BlockingAppender downstream = new BlockingAppender();
+        downstream.setContext(context);
+        downstream.start();
+        LockFreeAsyncAppender appender = new LockFreeAsyncAppender();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setCapacity(4);
+        appender.setDiscardingThreshold(0.5);
+        appender.addAppender(downstream);
+        appender.start();
+        Logger logger = context.getLogger("test");
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        // the background thread blocks on the first event, the others stay queued
+        logger.info("blocker");
+        assertTrue(downstream.entered.await(5, TimeUnit.SECONDS));
+        StringBuilder mutable = new StringBuilder("before");
+        logger.info("mutable {}", mutable);
+        logger.info("immutable {} {}", "text", 42);
+        logger.info("dropped above the discarding threshold");
+        logger.warn("warn {}", 1);
+        logger.warn("warn {}", 2);
+        logger.warn("dropped at capacity");
+        mutable.append("-after");
+        assertEquals(4, appender.getQueueSize());
+        assertEquals(2, appender.getDroppedCount());
+
+        downstream.release.countDown();
+        appender.stop();
+        assertEquals(List.of("blocker", "mutable before", "immutable text 42", "warn 1", "warn 2"), downstream.messages);
+        assertTrue(downstream.threads.stream().allMatch("log-appender-test"::equals));
+        assertEquals(0, appender.getQueueSize());
+    }
+
+    private static class BlockingAppender extends AppenderBase<ILoggingEvent> {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(event.getFormattedMessage());
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+}
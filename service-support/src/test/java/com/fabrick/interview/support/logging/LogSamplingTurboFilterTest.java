@@ -0,0 +1,66 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogSamplingTurboFilterTest {
+
+    @Test
+    @DisplayName("Should sample and rate-limit the configured loggers only, the most specific limit winning")
+    void shouldApplyLimitsPerLogger() {
+        LoggerContext context = new LoggerContext();
+        ListAppender<ILoggingEvent> events = new ListAppender<>();
+        events.setContext(context);
+        events.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.DEBUG);
+        root.addAppender(events);
+        LogSamplingTurboFilter filter = new LogSamplingTurboFilter(Map.of(
+                "app", limit(1.0, 5),
+                "app.noisy", limit(0.0, 0)));
+        filter.install(context);
+
+        for (int i = 0; i < 20; i++) {
+            context.getLogger("app.client").info("limited {}", i);
+            context.getLogger("app.noisy.client").debug("sampled out {}", i);
+            context.getLogger("other").debug("kept {}", i);
+            context.getLogger("app.client").trace("below the level {}", i);
+        }
+        context.getLogger("app.noisy.client").warn("never sampled out");
+
+        long limited = count(events, "app.client");
+        // 5 per second, the loop possibly spanning two seconds
+        assertTrue(limited >= 5 && limited <= 10, "limited: " + limited);
+        assertEquals(1, count(events, "app.noisy.client"));
+        assertEquals(20, count(events, "other"));
+        LogSamplingTurboFilter.Limit app = filter.limits().stream().filter(l -> l.logger().equals("app")).findFirst().orElseThrow();
+        LogSamplingTurboFilter.Limit noisy = filter.limits().stream().filter(l -> l.logger().equals("app.noisy")).findFirst().orElseThrow();
+        assertEquals(20 - limited, app.rateLimited());
+        assertEquals(20, noisy.sampledOut());
+
+        filter.uninstall();
+        context.getLogger("app.noisy.client").debug("kept once uninstalled");
+        assertEquals(2, count(events, "app.noisy.client"));
+    }
+
+    private static long count(ListAppender<ILoggingEvent> events, String logger) {
+        return events.list.stream().filter(e -> e.getLoggerName().equals(logger)).count();
+    }
+
+    private static LogSamplingProperties.Limit limit(double sampleRate, int maxPerSecond) {
+        LogSamplingProperties.Limit limit = new LogSamplingProperties.Limit();
+        limit.setSampleRate(sampleRate);
+        limit.setMaxPerSecond(maxPerSecond);
+        return limit;
+    }
+}
@@ -0,0 +1,102 @@
+package com.fabrick.interview.support.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestLogWebFilterTest {
+
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLogWebFilter.LOGGER_NAME);
+
+    @BeforeEach
+    void attach() {
+        events.start();
+        logger.addAppender(events);
+    }
+
+    @AfterEach
+    void detach() {
+        logger.detachAppender(events);
+    }
+
+    @Test
+    @DisplayName("Should write one line per request with its key, cache outcome, upstream calls and result count")
+    void shouldSummariseRequest() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new RequestLogObservationHandler());
+        Observation server = Observation.start("http.server.requests", registry);
+        RequestLogWebFilter filter = new RequestLogWebFilter(properties(1.0));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/asteroids/1/paths?from=x"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.deferContextual(context -> {
+                            RequestSummary.key(context, "asteroids", "1");
+                            RequestSummary.key(context, "ignored", "2");
+                            Observation.createNotStarted("upstream.call", registry)
+                                    .parentObservation(context.get(ObservationThreadLocalAccessor.KEY))
+                                    .observe(() -> {
+                                    });
+                            RequestSummary.results(e, 3);
+                            return Mono.<Void>empty();
+                        }))
+                        .contextWrite(Context.of(ObservationThreadLocalAccessor.KEY, server)))
+                .verifyComplete();
+        server.stop();
+
+        assertEquals(1, events.list.size());
+        String line = events.list.get(0).getFormattedMessage();
+        assertTrue(line.matches("method=GET path=/api/asteroids/1/paths\\?from=x status=200 ms=[0-9.]+ "
+                + "key=asteroids:1 cache=miss upstream.calls=1 upstream.ms=[0-9.]+ results=3"), line);
+    }
+
+    @Test
+    @DisplayName("Should sample out successful requests but always write server errors, and skip other paths")
+    void shouldSampleSuccessesOnly() {
+        RequestLogWebFilter filter = new RequestLogWebFilter(properties(0.0));
+
+        StepVerifier.create(filter.filter(exchange("/api/a"), e -> Mono.empty())).verifyComplete();
+        StepVerifier.create(filter.filter(exchange("/actuator/health"), e -> Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+        assertEquals(0, events.list.size());
+
+        MockServerWebExchange failed = exchange("/api/b");
+        StepVerifier.create(filter.filter(failed, e -> {
+            RequestSummary.cache(e, "response");
+            e.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+            return Mono.empty();
+        })).verifyComplete();
+        assertEquals(1, events.list.size());
+        assertTrue(events.list.get(0).getFormattedMessage().contains("status=502"));
+        assertTrue(events.list.get(0).getFormattedMessage().contains("key=- cache=response upstream.calls=0"));
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private static RequestLogProperties properties(double sampleRate) {
+        RequestLogProperties properties = new RequestLogProperties();
+        properties.setSampleRate(sampleRate);
+        properties.setSlowThreshold(Duration.ofMinutes(1));
+        return properties;
+    }
+}
@@ -0,0 +1,42 @@
+package com.fabrick.interview.support.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ReactorSchedulerMetricsTest {
+
+    @Test
+    @DisplayName("Should publish executor meters tagged with the name of the schedulers created after registration")
+    void shouldInstrumentNewSchedulers() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReactorSchedulerMetrics metrics = new ReactorSchedulerMetrics(registry);
+        Scheduler scheduler = Schedulers.newSingle("metrics-test");
+        try {
+            assertEquals("done", Mono.fromCallable(() -> "done").subscribeOn(scheduler).block());
+
+            assertNotNull(registry.find("reactor.executor.completed").tag("scheduler", "metrics-test").functionCounter());
+        } finally {
+            scheduler.dispose();
+            metrics.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should tag the executors with the bare scheduler name")
+    void shouldExtractSchedulerName() {
+        Scheduler named = Schedulers.newBoundedElastic(2, 10, "reload");
+        try {
+            assertEquals("reload", ReactorSchedulerMetrics.schedulerName(named));
+            assertEquals("parallel", ReactorSchedulerMetrics.schedulerName(Schedulers.parallel()));
+        } finally {
+            named.dispose();
+        }
+    }
+}
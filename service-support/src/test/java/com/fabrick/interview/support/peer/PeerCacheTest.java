@@ -0,0 +1,163 @@
+package com.fabrick.interview.support.peer;
+
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeerCacheTest {
+
+    private static final String SELF = "http://replica-a";
+    private static final String OTHER = "http://replica-b";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should spread the keys evenly and only move the keys of a joining member")
+    void shouldSpreadKeysConsistently() {
+        List<String> members = new ArrayList<>(List.of("http://a", "http://b", "http://c"));
+        ConsistentHashRing ring = new ConsistentHashRing(members, 128);
+        List<String> keys = IntStream.range(0, 30_000).mapToObj(i -> Integer.toString(2_000_000 + 7 * i)).toList();
+        Map<String, Integer> owned = new HashMap<>();
+        keys.forEach(key -> owned.merge(ring.owner(key), 1, Integer::sum));
+        owned.values().forEach(count -> assertTrue(Math.abs(count - 10_000) < 1_500, "Uneven spread: " + owned));
+
+        members.add("http://d");
+        ConsistentHashRing grown = new ConsistentHashRing(members, 128);
+        long moved = keys.stream().filter(key -> !ring.owner(key).equals(grown.owner(key))).count();
+        assertTrue(keys.stream().filter(key -> !ring.owner(key).equals(grown.owner(key)))
+                .allMatch(key -> grown.owner(key).equals("http://d")));
+        assertTrue(moved > 5_000 && moved < 10_000, "Moved " + moved);
+    }
+
+    @Test
+    @DisplayName("Should fetch a key owned by another replica once, then serve it from the near-cache")
+    void shouldFetchFromOwnerThenNearCache() throws Exception {
+        byte[] body = objectMapper.writer().with(new SmileFactory()).writeValueAsBytes("from-owner");
+        AtomicInteger calls = new AtomicInteger();
+        PeerCache peers = peerCache(request -> {
+            calls.incrementAndGet();
+            assertTrue(request.url().toString().startsWith(OTHER + "/api/internal/peer-cache/asteroids?key="));
+            assertEquals("s3cret", request.headers().getFirst(PeerCache.SECRET_HEADER));
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))).build());
+        });
+        String key = keyOwnedBy(peers, false);
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(peers.load("asteroids", key, () -> Mono.error(new AssertionError("upstream called"))))
+                    .expectNext("from-owner")
+                    .verifyComplete();
+        }
+        assertEquals(1, calls.get());
+
+        // the owner loads its own keys from the upstream
+        String owned = keyOwnedBy(peers, true);
+        StepVerifier.create(peers.load("asteroids", owned, () -> Mono.just("from-upstream")))
+                .expectNext("from-upstream")
+                .verifyComplete();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should load the key itself when the owner cannot answer, and fail when the owner's upstream load failed")
+    void shouldFallBackWhenOwnerFails() {
+        PeerCache unreachable = peerCache(request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()));
+        StepVerifier.create(unreachable.load("asteroids", keyOwnedBy(unreachable, false), () -> Mono.just("from-upstream")))
+                .expectNext("from-upstream")
+                .verifyComplete();
+
+        PeerCache failing = peerCache(request -> Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).build()));
+        StepVerifier.create(failing.load("asteroids", keyOwnedBy(failing, false),
+                        () -> Mono.error(new AssertionError("upstream called"))))
+                .expectError(PeerLoadException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should answer a peer from the local lookup, without forwarding it again")
+    void shouldServePeersLocally() {
+        PeerCache peers = new PeerCache(properties(), new ManagedCaches(new CachePolicyProperties()),
+                WebClient.builder().exchangeFunction(request -> Mono.error(new AssertionError("forwarded"))),
+                objectMapper, null);
+        AtomicInteger upstream = new AtomicInteger();
+        peers.register("asteroids", String.class,
+                key -> peers.load("asteroids", key, () -> Mono.fromSupplier(() -> "v" + upstream.incrementAndGet())));
+        String key = keyOwnedBy(peers, false);
+
+        StepVerifier.create(peers.serve(MockServerRequest.builder().header(PeerCache.SECRET_HEADER, "s3cret")
+                        .pathVariable("cache", "asteroids").queryParam("key", key).build()))
+                .assertNext(response -> assertEquals(HttpStatus.OK, response.statusCode()))
+                .verifyComplete();
+        assertEquals(1, upstream.get());
+        StepVerifier.create(peers.serve(MockServerRequest.builder().header(PeerCache.SECRET_HEADER, "s3cret")
+                        .pathVariable("cache", "unknown").queryParam("key", key).build()))
+                .assertNext(response -> assertEquals(HttpStatus.NOT_FOUND, response.statusCode()))
+                .verifyComplete();
+        StepVerifier.create(peers.serve(MockServerRequest.builder().header(PeerCache.SECRET_HEADER, "guess")
+                        .pathVariable("cache", "asteroids").queryParam("key", key).build()))
+                .assertNext(response -> assertEquals(HttpStatus.FORBIDDEN, response.statusCode()))
+                .verifyComplete();
+        StepVerifier.create(peers.serve(MockServerRequest.builder()
+                        .pathVariable("cache", "asteroids").queryParam("key", key).build()))
+                .assertNext(response -> assertEquals(HttpStatus.FORBIDDEN, response.statusCode()))
+                .verifyComplete();
+        assertEquals(1, upstream.get());
+    }
+
+    @Test
+    @DisplayName("Should own every key when disabled")
+    void shouldOwnEverythingWhenDisabled() {
+        PeerCache peers = new PeerCache(new PeerCacheProperties(), new ManagedCaches(new CachePolicyProperties()),
+                WebClient.builder(), objectMapper, null);
+        peers.register("asteroids", String.class, Mono::just);
+        assertTrue(peers.owns("anything"));
+        StepVerifier.create(peers.load("asteroids", "anything", () -> Mono.just("local")))
+                .expectNext("local")
+                .verifyComplete();
+    }
+
+    private PeerCache peerCache(ExchangeFunction owner) {
+        PeerCache peers = new PeerCache(properties(), new ManagedCaches(new CachePolicyProperties()),
+                WebClient.builder().exchangeFunction(owner), objectMapper, null);
+        peers.register("asteroids", String.class, Mono::just);
+        return peers;
+    }
+
+    private static PeerCacheProperties properties() {
+        PeerCacheProperties properties = new PeerCacheProperties();
+        properties.setEnabled(true);
+        properties.setSelf(SELF);
+        properties.setMembers(List.of(SELF, OTHER));
+        properties.setSecret("s3cret");
+        return properties;
+    }
+
+    private static String keyOwnedBy(PeerCache peers, boolean self) {
+        return IntStream.range(0, 1000).mapToObj(Integer::toString)
+                .filter(candidate -> peers.owns(candidate) == self)
+                .findFirst()
+                .orElseThrow();
+    }
+}
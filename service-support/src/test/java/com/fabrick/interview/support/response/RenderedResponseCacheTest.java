@@ -0,0 +1,302 @@
+package com.fabrick.interview.support.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.NotAcceptableStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderedResponseCacheTest {
+
+    private final RenderedResponseCache cache = new RenderedResponseCache(new ObjectMapper(), ObservationRegistry.NOOP,
+            true, DataSize.ofMegabytes(1), Duration.ofMinutes(10), DataSize.ofBytes(64));
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    @DisplayName("Should render once and serve the same bytes, gzipped when accepted")
+    void shouldServeRenderedBytes() throws IOException {
+        List<String> items = IntStream.range(0, 50).mapToObj(i -> "item-" + i).toList();
+
+        MockServerHttpResponse miss = respond("list", MockServerHttpRequest.get("/"), items);
+        MockServerHttpResponse hit = respond("list", MockServerHttpRequest.get("/"), items);
+        MockServerHttpResponse gzipped = respond("list",
+                MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"), items);
+
+        String json = new ObjectMapper().writeValueAsString(items);
+        assertEquals(1, renders.get());
+        assertEquals(json, miss.getBodyAsString().block());
+        assertEquals(json, hit.getBodyAsString().block());
+        assertNull(hit.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING), gzipped.getHeaders().getVary());
+        byte[] body = bytes(gzipped);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(json, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(RenderedResponseCache.acceptsGzip(List.of("deflate, GZIP")));
+        assertFalse(RenderedResponseCache.acceptsGzip(List.of("gzip;q=0")));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 to the ETag of the current response without rendering, and 200 once it changed")
+    void shouldAnswerConditionalRequests() {
+        MockServerHttpResponse first = respond("list", MockServerHttpRequest.get("/"), List.of("KAPA"));
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(first.getHeaders().getCacheControl().matches("max-age=\\d+, public"), first.getHeaders().getCacheControl());
+
+        MockServerHttpResponse notModified = respond("list", MockServerHttpRequest.get("/").ifNoneMatch("W/" + etag), List.of("KAPA"));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(etag, notModified.getHeaders().getETag());
+        assertEquals("", notModified.getBodyAsString().block());
+        assertEquals(1, renders.get());
+
+        // same data rendered again (e.g. on another instance): same ETag
+        cache.invalidate("asteroids", "1");
+        MockServerHttpResponse rendered = respond("list", MockServerHttpRequest.get("/").ifNoneMatch(etag), List.of("KAPA"));
+        assertEquals(HttpStatus.NOT_MODIFIED, rendered.getStatusCode());
+        assertEquals(2, renders.get());
+
+        cache.invalidate("asteroids", "1");
+        MockServerHttpResponse changed = respond("list", MockServerHttpRequest.get("/").ifNoneMatch(etag), List.of("KAPA", "KDEN"));
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertEquals("[\"KAPA\",\"KDEN\"]", changed.getBodyAsString().block());
+    }
+
+    @Test
+    @DisplayName("Should count the max-age down from the load of the oldest data entry, not from the rendering")
+    void shouldCountMaxAgeFromDataLoad() {
+        RenderedResponseCache aged = new RenderedResponseCache(new ObjectMapper(), ObservationRegistry.NOOP, true, true,
+                DataSize.ofMegabytes(1), Duration.ofMinutes(10), null,
+                (source, key) -> source.equals("stations") ? Duration.ofMinutes(4) : null);
+        try {
+            MockServerHttpResponse response = respond(aged, "list", MockServerHttpRequest.get("/"), () -> Flux.concat(
+                    body("reference", "v1", List.of("KAPA")), body("stations", "bbox-1", List.of("KDEN"))));
+            assertTrue(response.getHeaders().getCacheControl().matches("max-age=(359|360), public"),
+                    response.getHeaders().getCacheControl());
+        } finally {
+            aged.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 304 from the validator of an evicted response without rendering, until its data changes")
+    void shouldRevalidateEvictedResponses() {
+        // a single response does not fit: it is evicted as soon as stored
+        RenderedResponseCache small = new RenderedResponseCache(new ObjectMapper(), ObservationRegistry.NOOP,
+                true, DataSize.ofBytes(16), Duration.ofMinutes(10), null);
+        try {
+            List<String> items = List.of("KAPA", "KDEN", "KBJC");
+            String etag = respond(small, "list", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-1", items))
+                    .getHeaders().getETag();
+
+            MockServerWebExchange revalidated = MockServerWebExchange.from(MockServerHttpRequest.get("/").ifNoneMatch(etag));
+            small.respond(revalidated, "list", Duration.ofMinutes(10), () -> body("stations", "bbox-1", items)).block();
+            assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getResponse().getStatusCode());
+            assertEquals(etag, revalidated.getResponse().getHeaders().getETag());
+            assertEquals(Boolean.TRUE, revalidated.getAttribute(RenderedResponseCache.CACHE_HIT_ATTRIBUTE));
+            assertEquals(1, renders.get());
+
+            // the body itself is gone
+            respond(small, "list", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-1", items));
+            assertEquals(2, renders.get());
+
+            small.invalidate("stations", "bbox-1");
+            MockServerHttpResponse changed = respond(small, "list", MockServerHttpRequest.get("/").ifNoneMatch(etag),
+                    () -> body("stations", "bbox-1", List.of("KAPA")));
+            assertEquals(HttpStatus.OK, changed.getStatusCode());
+            assertEquals(3, renders.get());
+        } finally {
+            small.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should render each negotiated format once, and answer 406 when none is acceptable")
+    void shouldNegotiateBinaryFormats() throws IOException {
+        List<String> items = IntStream.range(0, 50).mapToObj(i -> "item-" + i).toList();
+
+        MockServerHttpResponse cbor = respond("list", MockServerHttpRequest.get("/")
+                .accept(MediaType.APPLICATION_CBOR, MediaType.ALL), items);
+        MockServerHttpResponse smile = respond("list", MockServerHttpRequest.get("/")
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"), items);
+        MockServerHttpResponse json = respond("list", MockServerHttpRequest.get("/").accept(MediaType.ALL), items);
+        respond("list", MockServerHttpRequest.get("/").accept(MediaType.APPLICATION_CBOR), items);
+
+        assertEquals(3, renders.get());
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertEquals(items, new CBORMapper().readValue(bytes(cbor), List.class));
+        assertEquals(ResponseFormat.APPLICATION_SMILE, smile.getHeaders().getContentType());
+        assertEquals(items, new SmileMapper().readValue(bytes(smile), List.class));
+        assertEquals(MediaType.APPLICATION_JSON, json.getHeaders().getContentType());
+        assertTrue(json.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+        assertNotEquals(json.getHeaders().getETag(), cbor.getHeaders().getETag());
+
+        MockServerWebExchange xml = MockServerWebExchange.from(MockServerHttpRequest.get("/").accept(MediaType.APPLICATION_XML));
+        StepVerifier.create(cache.respond(xml, "list", Duration.ofMinutes(10), () -> body("asteroids", "1", items)))
+                .expectError(NotAcceptableStatusException.class)
+                .verify();
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should drop the rendered response when an entry it depends on is invalidated, even while rendering")
+    void shouldInvalidateWithTheSource() {
+        respond("a", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-1", List.of("KAPA")));
+        respond("b", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-2", List.of("KDEN")));
+
+        cache.invalidate("stations", "bbox-1");
+        respond("a", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-1", List.of("KAPA")));
+        respond("b", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-2", List.of("KDEN")));
+        assertEquals(3, renders.get());
+
+        // the source changes while the response is being rendered: served, but not kept
+        respond("c", MockServerHttpRequest.get("/"), () -> Flux.deferContextual(context -> {
+            RenderedResponseCache.dependsOn(context, "stations", "bbox-3");
+            renders.incrementAndGet();
+            cache.invalidate("stations", "bbox-3");
+            return Flux.just("KBJC");
+        }));
+        respond("c", MockServerHttpRequest.get("/"), () -> body("stations", "bbox-3", List.of("KBJC")));
+        assertEquals(5, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should render identical concurrent requests once, even when the first one goes away")
+    void shouldCoalesceConcurrentRequests() {
+        RenderedResponseCache uncached = new RenderedResponseCache(new ObjectMapper(), ObservationRegistry.NOOP,
+                false, DataSize.ofMegabytes(1), Duration.ofMinutes(10), null);
+        Sinks.Empty<Void> computed = Sinks.empty();
+        Supplier<Flux<String>> slowBody = () -> computed.asMono().thenMany(body("asteroids", "1", List.of("KAPA")));
+
+        List<MockServerWebExchange> exchanges = IntStream.range(0, 4)
+                .mapToObj(i -> MockServerWebExchange.from(MockServerHttpRequest.get("/"))).toList();
+        Disposable leader = uncached.respond(exchanges.get(0), "list", Duration.ofMinutes(10), slowBody).subscribe();
+        List<Mono<Void>> followers = exchanges.subList(1, 4).stream()
+                .map(exchange -> uncached.respond(exchange, "list", Duration.ofMinutes(10), slowBody).cache())
+                .toList();
+        followers.forEach(Mono::subscribe);
+        Disposable cancelled = uncached.respond(MockServerWebExchange.from(MockServerHttpRequest.get("/")), "list",
+                Duration.ofMinutes(10), slowBody).subscribe();
+        leader.dispose();
+        cancelled.dispose();
+
+        computed.tryEmitEmpty();
+        followers.forEach(Mono::block);
+        assertEquals(1, renders.get());
+        exchanges.subList(1, 4).forEach(exchange -> {
+            assertEquals("[\"KAPA\"]", exchange.getResponse().getBodyAsString().block());
+            assertEquals(Boolean.TRUE, exchange.getAttribute(RenderedResponseCache.COALESCED_ATTRIBUTE));
+        });
+
+        // nothing in flight any more and nothing kept: rendered again, and errors are shared as well
+        Sinks.Empty<Void> failing = Sinks.empty();
+        Supplier<Flux<String>> failingBody = () -> failing.asMono().thenMany(Flux.error(new IllegalStateException("upstream down")));
+        Mono<Void> first = uncached.respond(MockServerWebExchange.from(MockServerHttpRequest.get("/")), "list",
+                Duration.ofMinutes(10), failingBody).cache();
+        Mono<Void> second = uncached.respond(MockServerWebExchange.from(MockServerHttpRequest.get("/")), "list",
+                Duration.ofMinutes(10), failingBody).cache();
+        first.subscribe(v -> { }, e -> { });
+        second.subscribe(v -> { }, e -> { });
+        failing.tryEmitEmpty();
+        StepVerifier.create(first).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(second).expectError(IllegalStateException.class).verify();
+        respond(uncached, "list", MockServerHttpRequest.get("/"), () -> body("asteroids", "1", List.of("KAPA")));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should cancel a rendering in flight once none of the requests waits for it any more")
+    void shouldCancelAbandonedRenderings() {
+        RenderedResponseCache uncached = new RenderedResponseCache(new ObjectMapper(), ObservationRegistry.NOOP,
+                false, DataSize.ofMegabytes(1), Duration.ofMinutes(10), null);
+        AtomicInteger cancellations = new AtomicInteger();
+        Supplier<Flux<String>> endlessBody = () -> Flux.<String>never().doOnCancel(cancellations::incrementAndGet);
+
+        Disposable leader = uncached.respond(MockServerWebExchange.from(MockServerHttpRequest.get("/")), "list",
+                Duration.ofMinutes(10), endlessBody).subscribe();
+        Disposable follower = uncached.respond(MockServerWebExchange.from(MockServerHttpRequest.get("/")), "list",
+                Duration.ofMinutes(10), endlessBody).subscribe();
+        leader.dispose();
+        assertEquals(0, cancellations.get());
+        follower.dispose();
+        assertEquals(1, cancellations.get());
+
+        // the abandoned flight is gone: the next request renders again
+        respond(uncached, "list", MockServerHttpRequest.get("/"), () -> body("asteroids", "1", List.of("KAPA")));
+        assertEquals(1, renders.get());
+    }
+
+    private MockServerHttpResponse respond(String key, MockServerHttpRequest.BaseBuilder<?> request, List<String> items) {
+        return respond(key, request, () -> body("asteroids", "1", items));
+    }
+
+    private MockServerHttpResponse respond(String key, MockServerHttpRequest.BaseBuilder<?> request,
+                                           Supplier<Flux<String>> body) {
+        return respond(cache, key, request, body);
+    }
+
+    private static MockServerHttpResponse respond(RenderedResponseCache cache, String key,
+                                                  MockServerHttpRequest.BaseBuilder<?> request, Supplier<Flux<String>> body) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        cache.respond(exchange, key, Duration.ofMinutes(10), body).block();
+        return exchange.getResponse();
+    }
+
+    private Flux<String> body(String source, String key, List<String> items) {
+        return Flux.deferContextual(context -> {
+            RenderedResponseCache.dependsOn(context, source, key);
+            renders.incrementAndGet();
+            return Flux.fromIterable(items);
+        });
+    }
+
+    private static byte[] bytes(MockServerHttpResponse response) {
+        return DataBufferUtils.join(response.getBody()).map(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            return bytes;
+        }).block();
+    }
+}
@@ -0,0 +1,98 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservedDecoderTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private ObservationRegistry registry;
+    private ObservedDecoder<Object> decoder;
+
+    @BeforeEach
+    void setUp() {
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        decoder = new ObservedDecoder<>(new Jackson2JsonDecoder(), registry, "aviation");
+    }
+
+    @Test
+    @DisplayName("Should stream a JSON array split across buffers, observing the binding under the upstream call")
+    void shouldObserveStreamedDecoding() {
+        Observation call = Observation.start("upstream.call", registry);
+        Flux<DataBuffer> body = Flux.just("[{\"x\":1,\"y\":2},{\"x\":3,", "\"y\":4}]").map(ObservedDecoderTest::buffer);
+
+        StepVerifier.create(decoder.decode(body, ResolvableType.forClass(Point.class), MediaType.APPLICATION_JSON, null)
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, call)))
+                .expectNext(new Point(1, 2), new Point(3, 4))
+                .verifyComplete();
+
+        Observation.Context decode = stopped.getFirst();
+        assertEquals(ObservedDecoder.OBSERVATION_NAME, decode.getName());
+        assertEquals("aviation", decode.getLowCardinalityKeyValue("upstream").getValue());
+        assertEquals("2", decode.getHighCardinalityKeyValue("decode.elements").getValue());
+        assertEquals("29", decode.getHighCardinalityKeyValue("bytes").getValue());
+        assertTrue(Long.parseLong(decode.getHighCardinalityKeyValue("decode.nanos").getValue()) > 0);
+        assertEquals(call.getContextView(), decode.getParentObservation().getContextView());
+    }
+
+    @Test
+    @DisplayName("Should observe a single object decoded to a Mono")
+    void shouldObserveDecodeToMono() {
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("{\"x\":5,\"y\":6}")), ResolvableType.forClass(Point.class),
+                        MediaType.APPLICATION_JSON, null))
+                .expectNext(new Point(5, 6))
+                .verifyComplete();
+
+        assertEquals(List.of(ObservedDecoder.OBSERVATION_NAME), stopped.stream().map(Observation.Context::getName).toList());
+        assertEquals("1", stopped.getFirst().getHighCardinalityKeyValue("decode.elements").getValue());
+    }
+
+    @Test
+    @DisplayName("Should attach the binding error to the observation")
+    void shouldRecordDecodingErrors() {
+        StepVerifier.create(decoder.decode(Flux.just(buffer("[{\"x\":\"one\"}]")), ResolvableType.forClass(Point.class),
+                        MediaType.APPLICATION_JSON, null))
+                .verifyError(DecodingException.class);
+
+        assertEquals(1, stopped.size());
+        assertInstanceOf(DecodingException.class, stopped.getFirst().getError());
+    }
+
+    private static DataBuffer buffer(String json) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    record Point(int x, int y) {}
+}
@@ -0,0 +1,97 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservedEncoderTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private ObservationRegistry registry;
+    private ObservedEncoder<Object> encoder;
+
+    @BeforeEach
+    void setUp() {
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        encoder = new ObservedEncoder<>(new Jackson2JsonEncoder(), registry);
+    }
+
+    @Test
+    @DisplayName("Should observe a streamed body with its element and byte counts, under the request observation")
+    void shouldObserveStreamedEncoding() {
+        Observation request = Observation.start("http.server.requests", registry);
+
+        String body = encoder.encode(Flux.just(new Point(1, 2), new Point(3, 4)), DefaultDataBufferFactory.sharedInstance,
+                        ResolvableType.forClass(Point.class), MediaType.APPLICATION_NDJSON, null)
+                .map(ObservedEncoderTest::read)
+                .reduce(String::concat)
+                .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, request))
+                .block();
+
+        assertEquals("{\"x\":1,\"y\":2}\n{\"x\":3,\"y\":4}\n", body);
+        Observation.Context encode = stopped.getFirst();
+        assertEquals(ObservedEncoder.OBSERVATION_NAME, encode.getName());
+        assertEquals("x-ndjson", encode.getLowCardinalityKeyValue("media.type").getValue());
+        assertEquals("2", encode.getHighCardinalityKeyValue("encode.elements").getValue());
+        assertEquals(Integer.toString(body.length()), encode.getHighCardinalityKeyValue("encode.bytes").getValue());
+        assertTrue(Long.parseLong(encode.getHighCardinalityKeyValue("encode.nanos").getValue()) > 0);
+        assertEquals(request.getContextView(), encode.getParentObservation().getContextView());
+    }
+
+    @Test
+    @DisplayName("Should not observe a body until its first element reaches the encoder")
+    void shouldSkipEmptyBodies() {
+        encoder.encode(Flux.empty(), DefaultDataBufferFactory.sharedInstance, ResolvableType.forClass(Point.class),
+                MediaType.APPLICATION_NDJSON, null).blockLast();
+
+        assertEquals(List.of(), stopped);
+    }
+
+    @Test
+    @DisplayName("Should observe a single value encoded synchronously")
+    void shouldObserveEncodeValue() {
+        DataBuffer buffer = encoder.encodeValue(new Point(5, 6), DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(Point.class), MediaType.APPLICATION_JSON, null);
+
+        assertEquals("{\"x\":5,\"y\":6}", read(buffer));
+        assertEquals(List.of(ObservedEncoder.OBSERVATION_NAME), stopped.stream().map(Observation.Context::getName).toList());
+        assertEquals("Point", stopped.getFirst().getHighCardinalityKeyValue("value.type").getValue());
+    }
+
+    private static String read(DataBuffer buffer) {
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return text;
+    }
+
+    record Point(int x, int y) {}
+}
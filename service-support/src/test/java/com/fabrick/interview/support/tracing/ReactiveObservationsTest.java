@@ -0,0 +1,96 @@
+package com.fabrick.interview.support.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReactiveObservationsTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private ObservationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Should parent the stages subscribed upstream, and the synchronous ones, to the enclosing stage")
+    void shouldParentStagesThroughTheContext() {
+        Mono<Integer> fetch = ReactiveObservations.observe(() -> Observation.createNotStarted("fetch", registry), Mono.just(21));
+        Mono<Integer> call = ReactiveObservations.observe(() -> Observation.createNotStarted("call", registry),
+                fetch.transform(ReactiveObservations.map(value -> Observation.createNotStarted("double", registry), value -> value * 2)));
+
+        StepVerifier.create(call).expectNext(42).verifyComplete();
+
+        assertEquals(List.of("fetch", "double", "call"), stopped.stream().map(Observation.Context::getName).toList());
+        assertEquals("call", stopped.get(0).getParentObservation().getContextView().getName());
+        assertEquals("call", stopped.get(1).getParentObservation().getContextView().getName());
+        assertNull(stopped.get(2).getParentObservation());
+    }
+
+    @Test
+    @DisplayName("Should expand a value into elements within a child stage")
+    void shouldObserveFlatMapIterable() {
+        Flux<Integer> call = ReactiveObservations.observe(() -> Observation.createNotStarted("call", registry),
+                Mono.just(3).as(ReactiveObservations.flatMapIterable(value -> Observation.createNotStarted("split", registry),
+                        value -> List.of(value, value + 1))));
+
+        StepVerifier.create(call).expectNext(3, 4).verifyComplete();
+
+        assertEquals(List.of("split", "call"), stopped.stream().map(Observation.Context::getName).toList());
+        assertEquals("call", stopped.get(0).getParentObservation().getContextView().getName());
+    }
+
+    @Test
+    @DisplayName("Should attach the error, and stop a cancelled stage exactly once")
+    void shouldRecordErrorsAndCancellations() {
+        StepVerifier.create(ReactiveObservations.observe(() -> Observation.createNotStarted("failing", registry),
+                        Flux.<Integer>error(new IllegalStateException("boom"))))
+                .verifyError(IllegalStateException.class);
+        Disposable pending = ReactiveObservations.observe(() -> Observation.createNotStarted("pending", registry), Flux.never())
+                .subscribe();
+        pending.dispose();
+        pending.dispose();
+
+        assertEquals(List.of("failing", "pending"), stopped.stream().map(Observation.Context::getName).toList());
+        assertInstanceOf(IllegalStateException.class, stopped.get(0).getError());
+    }
+
+    @Test
+    @DisplayName("Should not wrap the source in a no-op observation")
+    void shouldSkipNoopObservations() {
+        Mono<Integer> source = Mono.just(1);
+
+        StepVerifier.create(ReactiveObservations.observe(() -> Observation.createNotStarted("noop", ObservationRegistry.NOOP), source))
+                .expectNext(1)
+                .verifyComplete();
+
+        assertEquals(List.of(), stopped);
+    }
+}
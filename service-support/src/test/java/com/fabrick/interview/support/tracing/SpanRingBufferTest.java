@@ -0,0 +1,59 @@
+package com.fabrick.interview.support.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpanRingBufferTest {
+
+    @Test
+    @DisplayName("Should render the buffered spans of a trace as a depth-first waterfall")
+    void shouldBuildWaterfall() {
+        SpanRingBuffer buffer = new SpanRingBuffer(16);
+        Tracer tracer = SdkTracerProvider.builder().addSpanProcessor(buffer).build().get("test");
+
+        Span request = tracer.spanBuilder("http.server.requests").startSpan();
+        Context requestContext = Context.root().with(request);
+        Span fetch = tracer.spanBuilder("upstream.fetch").setParent(requestContext).startSpan();
+        fetch.setAttribute("endpoint", "neo");
+        Span decode = tracer.spanBuilder("upstream.decode").setParent(requestContext.with(fetch)).startSpan();
+        decode.end();
+        fetch.end();
+        Span calculate = tracer.spanBuilder("asteroid.paths.calculate").setParent(requestContext).startSpan();
+        calculate.end();
+        request.end();
+
+        String traceId = request.getSpanContext().getTraceId();
+        List<SpanRingBuffer.SpanView> spans = buffer.trace(traceId).orElseThrow().spans();
+
+        assertEquals(List.of("http.server.requests", "upstream.fetch", "upstream.decode", "asteroid.paths.calculate"),
+                spans.stream().map(SpanRingBuffer.SpanView::name).toList());
+        assertEquals(List.of(0, 1, 2, 1), spans.stream().map(SpanRingBuffer.SpanView::depth).toList());
+        assertEquals("neo", spans.get(1).attributes().get("endpoint"));
+        assertEquals("http.server.requests", buffer.traces(10, 0).getFirst().rootName());
+        assertEquals(4, buffer.traces(10, 0).getFirst().spans());
+    }
+
+    @Test
+    @DisplayName("Should overwrite the oldest spans once full")
+    void shouldWrap() {
+        SpanRingBuffer buffer = new SpanRingBuffer(2);
+        Tracer tracer = SdkTracerProvider.builder().addSpanProcessor(buffer).build().get("test");
+
+        for (int i = 0; i < 5; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.traces(10, 0).size());
+        assertTrue(buffer.traces(10, 0).stream().allMatch(trace -> trace.rootName().equals("span-3") || trace.rootName().equals("span-4")));
+    }
+}
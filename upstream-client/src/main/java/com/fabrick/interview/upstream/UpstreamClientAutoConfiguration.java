@@ -0,0 +1,49 @@
+package com.fabrick.interview.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Registers the {@link UpstreamWebClientFactory} in every application depending on this module.
+ * <p>
+ * The factory starts from the Boot-managed {@link WebClient.Builder}, so the Jackson codecs and any
+ * customizer of the application still apply.
+ * </p>
+ * <p>
+ * The blocking {@link UpstreamRestClientFactory} shares the same settings, for the code running on virtual threads.
+ * </p>
+ * <p>
+ * {@link UpstreamMetrics} records to the application's {@link MeterRegistry}, or to the global one when
+ * the application has no registry.
+ * </p>
+ */
+@AutoConfiguration(after = WebClientAutoConfiguration.class)
+@EnableConfigurationProperties(UpstreamClientProperties.class)
+public class UpstreamClientAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public UpstreamWebClientFactory upstreamWebClientFactory(ObjectProvider<WebClient.Builder> webClientBuilder,
+                                                             UpstreamClientProperties properties) {
+        return new UpstreamWebClientFactory(webClientBuilder.getIfAvailable(WebClient::builder), properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public UpstreamRestClientFactory upstreamRestClientFactory(UpstreamClientProperties properties) {
+        return new UpstreamRestClientFactory(properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public UpstreamMetrics upstreamMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new UpstreamMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
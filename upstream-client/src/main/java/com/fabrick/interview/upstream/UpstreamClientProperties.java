@@ -0,0 +1,176 @@
+package com.fabrick.interview.upstream;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the upstream HTTP clients, bound from {@code upstream.clients.<name>.*}.
+ * <p>
+ * Every named client gets its own connection pool; a client that is not configured explicitly uses
+ * the defaults below. Example:
+ * <pre>
+ * upstream.clients.nasa.max-connections=50
+ * upstream.clients.nasa.response-timeout=5s
+ * </pre>
+ * </p>
+ */
+@ConfigurationProperties("upstream")
+public class UpstreamClientProperties {
+
+    private Map<String, Client> clients = new LinkedHashMap<>();
+
+    public Map<String, Client> getClients() {
+        return clients;
+    }
+
+    public void setClients(Map<String, Client> clients) {
+        this.clients = clients;
+    }
+
+    /**
+     * @return The settings of the given client, or the defaults if it is not configured.
+     */
+    public Client client(String name) {
+        return clients.getOrDefault(name, new Client());
+    }
+
+    /**
+     * Connection pool, protocol and timeout settings of one upstream.
+     */
+    public static class Client {
+
+        /** Maximum number of connections (HTTP/1.1) or of HTTP/2 connections in the pool. */
+        private int maxConnections = 50;
+        /** Maximum number of requests waiting for a connection; -1 for twice {@code maxConnections}. */
+        private int pendingAcquireMaxCount = -1;
+        /** How long a request waits for a pooled connection before failing. */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        /** Idle connections are closed after this time (keep it below the upstream keep-alive timeout). */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        /** Connections are recycled after this time, so that DNS changes are eventually picked up. */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        /** Period of the background eviction of idle/expired connections; zero to evict only on acquire. */
+        private Duration evictionInterval = Duration.ofSeconds(15);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        /** Maximum time between sending the request and receiving the response headers. */
+        private Duration responseTimeout = Duration.ofSeconds(10);
+        /** Negotiate HTTP/2 via ALPN on HTTPS upstreams (HTTP/1.1 otherwise or as fallback). */
+        private boolean http2 = true;
+        /** Send {@code Accept-Encoding: gzip} and decompress the responses. */
+        private boolean compression = true;
+        /** Maximum size of a response body aggregated in memory (e.g. decoded as a single object). */
+        private DataSize maxInMemorySize = DataSize.ofMegabytes(2);
+        /** Time to live of resolved addresses (bounded by the DNS record TTL). */
+        private Duration dnsCacheTtl = Duration.ofMinutes(5);
+        /** Publish connection pool and request latency meters. */
+        private boolean metrics = true;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getResponseTimeout() {
+            return responseTimeout;
+        }
+
+        public void setResponseTimeout(Duration responseTimeout) {
+            this.responseTimeout = responseTimeout;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        public boolean isCompression() {
+            return compression;
+        }
+
+        public void setCompression(boolean compression) {
+            this.compression = compression;
+        }
+
+        public DataSize getMaxInMemorySize() {
+            return maxInMemorySize;
+        }
+
+        public void setMaxInMemorySize(DataSize maxInMemorySize) {
+            this.maxInMemorySize = maxInMemorySize;
+        }
+
+        public Duration getDnsCacheTtl() {
+            return dnsCacheTtl;
+        }
+
+        public void setDnsCacheTtl(Duration dnsCacheTtl) {
+            this.dnsCacheTtl = dnsCacheTtl;
+        }
+
+        public boolean isMetrics() {
+            return metrics;
+        }
+
+        public void setMetrics(boolean metrics) {
+            this.metrics = metrics;
+        }
+    }
+}
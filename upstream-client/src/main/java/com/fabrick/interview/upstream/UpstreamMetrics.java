@@ -0,0 +1,194 @@
+package com.fabrick.interview.upstream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Records the logical calls made to the upstream APIs, one level above the transport meters published by
+ * Reactor Netty:
+ * <ul>
+ * <li>{@code upstream.requests}: timer (with percentile histogram) of each call until its last signal, tagged
+ * with {@code upstream}, {@code endpoint}, {@code outcome} and {@code exception}.</li>
+ * <li>{@code upstream.requests.active}: gauge of the calls in flight per {@code upstream}.</li>
+ * <li>{@code upstream.response.items}: distribution of the number of elements returned by a
+ * {@link #timeFlux(String, String, Flux) streamed} or {@link #time(String, String, Supplier) blocking} call.</li>
+ * </ul>
+ * The endpoint is a logical name chosen by the caller (e.g. {@code neo}, {@code stationinfo}) so that the tag
+ * cardinality never depends on the request parameters.
+ */
+public class UpstreamMetrics {
+
+    public static final String REQUESTS = "upstream.requests";
+    public static final String ACTIVE_REQUESTS = "upstream.requests.active";
+    public static final String RESPONSE_ITEMS = "upstream.response.items";
+
+    /**
+     * Outcome of an upstream call, derived from its terminal signal.
+     */
+    public enum Outcome {
+        SUCCESS, CLIENT_ERROR, SERVER_ERROR, TIMEOUT, ERROR, CANCELLED
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+    /** The meters of each tag combination, built on its first call rather than looked up in the registry on each. */
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<SummaryKey, DistributionSummary> itemSummaries = new ConcurrentHashMap<>();
+
+    public UpstreamMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Times the given call each time it is subscribed.
+     */
+    public <T> Mono<T> timeMono(String upstream, String endpoint, Mono<T> call) {
+        return Mono.defer(() -> {
+            Call recording = start(upstream);
+            return call.doOnError(recording.error::set)
+                    .doFinally(signal -> recording.stop(endpoint, signal, -1));
+        });
+    }
+
+    /**
+     * Times the given call each time it is subscribed and records the number of elements it emitted.
+     */
+    public <T> Flux<T> timeFlux(String upstream, String endpoint, Flux<T> call) {
+        return Flux.defer(() -> {
+            Call recording = start(upstream);
+            AtomicInteger items = new AtomicInteger();
+            return call.doOnNext(item -> items.incrementAndGet())
+                    .doOnError(recording.error::set)
+                    .doFinally(signal -> recording.stop(endpoint, signal, items.get()));
+        });
+    }
+
+    /**
+     * Times a blocking call (e.g. made with a {@code RestClient} on a virtual thread), recording the number of
+     * elements returned when the result is a collection.
+     */
+    public <T> T time(String upstream, String endpoint, Supplier<T> call) {
+        Call recording = start(upstream);
+        SignalType signal = SignalType.ON_ERROR;
+        int items = -1;
+        try {
+            T result = call.get();
+            signal = SignalType.ON_COMPLETE;
+            if (result instanceof Collection<?> collection) {
+                items = collection.size();
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            recording.error.set(e);
+            throw e;
+        } finally {
+            recording.stop(endpoint, signal, items);
+        }
+    }
+
+    private Call start(String upstream) {
+        AtomicInteger inFlight = active.computeIfAbsent(upstream, name -> {
+            AtomicInteger gauge = new AtomicInteger();
+            Gauge.builder(ACTIVE_REQUESTS, gauge, AtomicInteger::get)
+                    .description("Upstream calls in flight")
+                    .tag("upstream", name)
+                    .register(registry);
+            return gauge;
+        });
+        inFlight.incrementAndGet();
+        return new Call(upstream, inFlight, System.nanoTime());
+    }
+
+    private Timer timer(String upstream, String endpoint, Outcome outcome, String exception) {
+        return timers.computeIfAbsent(new TimerKey(upstream, endpoint, outcome, exception), key -> Timer.builder(REQUESTS)
+                .description("Upstream calls, from subscription to the last signal")
+                .tag("upstream", key.upstream())
+                .tag("endpoint", key.endpoint())
+                .tag("outcome", key.outcome().name())
+                .tag("exception", key.exception())
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry));
+    }
+
+    private DistributionSummary itemSummary(String upstream, String endpoint) {
+        return itemSummaries.computeIfAbsent(new SummaryKey(upstream, endpoint), key -> DistributionSummary.builder(RESPONSE_ITEMS)
+                .description("Elements returned by one upstream call")
+                .tag("upstream", key.upstream())
+                .tag("endpoint", key.endpoint())
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private record TimerKey(String upstream, String endpoint, Outcome outcome, String exception) {}
+
+    private record SummaryKey(String upstream, String endpoint) {}
+
+    /**
+     * Classifies the terminal signal: error responses by status family, read/response timeouts (anywhere in the
+     * cause chain, as the client wraps them) as {@link Outcome#TIMEOUT}, anything else as {@link Outcome#ERROR}.
+     */
+    static Outcome outcome(SignalType signal, Throwable error) {
+        if (signal == SignalType.CANCEL) {
+            return Outcome.CANCELLED;
+        }
+        if (error == null) {
+            return Outcome.SUCCESS;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException response) {
+                return response.getStatusCode().is4xxClientError() ? Outcome.CLIENT_ERROR : Outcome.SERVER_ERROR;
+            }
+            if (cause instanceof RestClientResponseException response) {
+                return response.getStatusCode().is4xxClientError() ? Outcome.CLIENT_ERROR : Outcome.SERVER_ERROR;
+            }
+            if (cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException
+                    || cause instanceof HttpTimeoutException) {
+                return Outcome.TIMEOUT;
+            }
+        }
+        return Outcome.ERROR;
+    }
+
+    private final class Call {
+
+        private final String upstream;
+        private final AtomicInteger inFlight;
+        private final long startNanos;
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        private Call(String upstream, AtomicInteger inFlight, long startNanos) {
+            this.upstream = upstream;
+            this.inFlight = inFlight;
+            this.startNanos = startNanos;
+        }
+
+        private void stop(String endpoint, SignalType signal, int items) {
+            inFlight.decrementAndGet();
+            Throwable failure = error.get();
+            timer(upstream, endpoint, outcome(signal, failure), failure == null ? "none" : failure.getClass().getSimpleName())
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (items >= 0 && failure == null) {
+                itemSummary(upstream, endpoint).record(items);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.fabrick.interview.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates blocking {@link RestClient}s for the upstream APIs, the counterpart of {@link UpstreamWebClientFactory}
+ * for code running on virtual threads.
+ * <p>
+ * Every client is backed by a JDK {@link HttpClient} of its own, which keeps its connections alive and multiplexes
+ * HTTP/2 on HTTPS upstreams, and runs its internal tasks on virtual threads: a caller blocked on a response only
+ * parks its virtual thread. The connect and response timeouts of {@code upstream.clients.<name>.*} apply; the
+ * pool sizes, gzip and DNS settings are specific to Reactor Netty and do not.
+ * </p>
+ */
+public class UpstreamRestClientFactory implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamRestClientFactory.class);
+
+    private final UpstreamClientProperties properties;
+    private final Map<String, HttpClient> httpClients = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("upstream-http-", 0).factory());
+
+    public UpstreamRestClientFactory(UpstreamClientProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns a client for the named upstream. Clients for the same name share the same HTTP client.
+     *
+     * @param name    The upstream name, key of the {@code upstream.clients.*} settings.
+     * @param baseUrl The base URL of the upstream API.
+     */
+    public RestClient create(String name, String baseUrl) {
+        UpstreamClientProperties.Client settings = properties.client(name);
+        HttpClient httpClient = httpClients.computeIfAbsent(name, n -> {
+            boolean http2 = settings.isHttp2() && baseUrl.regionMatches(true, 0, "https:", 0, 6);
+            logger.info("Blocking upstream client '{}' -> {} ({}, response timeout {})", n, baseUrl,
+                    http2 ? "HTTP/2 + HTTP/1.1" : "HTTP/1.1", settings.getResponseTimeout());
+            return HttpClient.newBuilder()
+                    .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(settings.getConnectTimeout())
+                    .executor(executor)
+                    .build();
+        });
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(settings.getResponseTimeout());
+        return RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        httpClients.values().forEach(HttpClient::close);
+        httpClients.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,76 @@
+package com.fabrick.interview.upstream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.test.StepVerifier;
+
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UpstreamMetricsTest {
+
+    @Test
+    @DisplayName("Should time each subscription by outcome, count the streamed items and track the calls in flight")
+    void shouldRecordCalls() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UpstreamMetrics metrics = new UpstreamMetrics(registry);
+
+        Flux<String> stations = metrics.timeFlux("aviation", "stationinfo", Flux.just("KAPA", "KBJC", "KCOS"));
+        StepVerifier.create(stations).expectNextCount(3).verifyComplete();
+        StepVerifier.create(stations).expectNextCount(3).verifyComplete();
+        WebClientResponseException notFound = WebClientResponseException.create(404, "Not Found", HttpHeaders.EMPTY, new byte[0], null);
+        StepVerifier.create(metrics.timeMono("aviation", "airport", Mono.error(notFound))).verifyError();
+
+        assertEquals(2, registry.get(UpstreamMetrics.REQUESTS).tag("endpoint", "stationinfo").tag("outcome", "SUCCESS").timer().count());
+        assertEquals(1, registry.get(UpstreamMetrics.REQUESTS).tag("endpoint", "airport").tag("outcome", "CLIENT_ERROR").timer().count());
+        assertEquals(6, registry.get(UpstreamMetrics.RESPONSE_ITEMS).tag("endpoint", "stationinfo").summary().totalAmount());
+        assertEquals(0, registry.get(UpstreamMetrics.ACTIVE_REQUESTS).tag("upstream", "aviation").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should time blocking calls like the reactive ones")
+    void shouldRecordBlockingCalls() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UpstreamMetrics metrics = new UpstreamMetrics(registry);
+
+        assertEquals(List.of("KAPA", "KBJC"), metrics.time("aviation", "stationinfo", () -> List.of("KAPA", "KBJC")));
+        HttpClientErrorException notFound = HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found",
+                HttpHeaders.EMPTY, new byte[0], null);
+        assertThrows(HttpClientErrorException.class, () -> metrics.time("nasa", "neo", () -> {
+            throw notFound;
+        }));
+
+        assertEquals(2, registry.get(UpstreamMetrics.RESPONSE_ITEMS).tag("endpoint", "stationinfo").summary().totalAmount());
+        assertEquals(1, registry.get(UpstreamMetrics.REQUESTS).tag("endpoint", "neo").tag("outcome", "CLIENT_ERROR")
+                .tag("exception", "NotFound").timer().count());
+        assertEquals(UpstreamMetrics.Outcome.TIMEOUT, UpstreamMetrics.outcome(SignalType.ON_ERROR,
+                new ResourceAccessException("I/O error", new HttpTimeoutException("request timed out"))));
+        assertEquals(0, registry.get(UpstreamMetrics.ACTIVE_REQUESTS).tag("upstream", "nasa").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should classify timeouts and server errors found in the cause chain")
+    void shouldClassifyOutcomes() {
+        WebClientResponseException unavailable = WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null);
+
+        assertEquals(UpstreamMetrics.Outcome.SERVER_ERROR, UpstreamMetrics.outcome(SignalType.ON_ERROR, unavailable));
+        assertEquals(UpstreamMetrics.Outcome.TIMEOUT,
+                UpstreamMetrics.outcome(SignalType.ON_ERROR, new IllegalStateException(new TimeoutException())));
+        assertEquals(UpstreamMetrics.Outcome.CANCELLED, UpstreamMetrics.outcome(SignalType.CANCEL, null));
+        assertEquals(UpstreamMetrics.Outcome.ERROR, UpstreamMetrics.outcome(SignalType.ON_ERROR, new IllegalStateException()));
+    }
+}
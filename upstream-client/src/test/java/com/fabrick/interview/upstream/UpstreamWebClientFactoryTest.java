@@ -0,0 +1,71 @@
+package com.fabrick.interview.upstream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamWebClientFactoryTest {
+
+    private static final String BODY = "{\"data\":\"" + "x".repeat(10_000) + "\"}";
+
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private DisposableServer server;
+    private UpstreamWebClientFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .compress(true)
+                .handle((request, response) -> {
+                    clientPorts.add(request.remoteAddress().getPort());
+                    acceptEncodings.add(String.valueOf(request.requestHeaders().get("Accept-Encoding")));
+                    return response.header("Content-Type", "application/json").sendString(Mono.just(BODY));
+                })
+                .bindNow();
+        factory = new UpstreamWebClientFactory(WebClient.builder(), new UpstreamClientProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.destroy();
+        server.disposeNow();
+    }
+
+    @Test
+    @DisplayName("Should negotiate gzip and reuse the pooled connection across requests")
+    void shouldReuseConnectionsAndDecompress() {
+        WebClient client = factory.create("test", "http://127.0.0.1:" + server.port());
+
+        for (int i = 0; i < 3; i++) {
+            String body = client.get().uri("/neo/{id}", i).retrieve().bodyToMono(String.class).block();
+            assertEquals(BODY, body);
+            // The connection goes back to the pool asynchronously, right after the body is consumed
+            Mono.delay(Duration.ofMillis(50)).block();
+        }
+
+        // Every request came from the same client socket
+        assertEquals(List.of(clientPorts.get(0), clientPorts.get(0), clientPorts.get(0)), clientPorts);
+        assertEquals(List.of("gzip", "gzip", "gzip"), acceptEncodings);
+    }
+
+    @Test
+    @DisplayName("Should strip query strings and identifiers from the uri tag")
+    void shouldBoundUriTagCardinality() {
+        assertEquals("/neo/{id}", UpstreamWebClientFactory.uriTag("/neo/3542519?api_key=DEMO_KEY"));
+        assertEquals("/stationinfo", UpstreamWebClientFactory.uriTag("/stationinfo?bbox=-105,39,-104,40"));
+    }
+}
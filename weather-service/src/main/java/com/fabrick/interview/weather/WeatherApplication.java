@@ -1,11 +1,14 @@
 package com.fabrick.interview.weather;
 
+import com.fabrick.interview.weather.config.ModelRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
 @EnableCaching
+@ImportRuntimeHints(ModelRuntimeHints.class)
 public class WeatherApplication {
 
     public static void main(String[] args) {
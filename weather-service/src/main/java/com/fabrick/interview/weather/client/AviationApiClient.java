@@ -1,17 +1,32 @@
 package com.fabrick.interview.weather.client;
 
+import com.fabrick.interview.support.jfr.CacheMissEvent;
+import com.fabrick.interview.support.limit.ConcurrencyLimitExceededException;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.tracing.ObservedDecoder;
+import com.fabrick.interview.support.tracing.ReactiveObservations;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fabrick.interview.upstream.UpstreamWebClientFactory;
 import com.fabrick.interview.weather.exception.AviationServiceException;
 import com.fabrick.interview.weather.model.Airport;
 import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Reactive client component responsible for interacting with the external Aviation Weather Center API.
  * <p>
@@ -19,22 +34,42 @@ import reactor.core.publisher.Mono;
  * It implements local caching via Caffeine to reduce external calls and latency, and includes
  * custom error handling logic to manage external service failures gracefully.
  * </p>
+ * <p>
+ * Each call is observed as {@code upstream.call}, split into {@code upstream.fetch} (round trip until the response
+ * headers) and {@code upstream.decode} (the body, bound as a stream while it is received: see {@link ObservedDecoder}),
+ * tagged with the logical endpoint.
+ * </p>
  */
 @Service
 public class AviationApiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(AviationApiClient.class);
     private final WebClient webClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final PeerCache peerCache;
 
     /**
      * Constructs the AviationApiClient with a configured WebClient.
      *
-     * @param webClientBuilder The builder to create the WebClient instance.
-     * @param baseUrl          The base URL of the Aviation Weather API, injected from properties.
+     * @param upstreamClients The factory of the pooled upstream clients (pool "aviation", tuned via {@code upstream.clients.aviation.*}).
+     * @param upstreamMetrics     The recorder of the upstream call latencies and result sizes.
+     * @param observationRegistry The registry of the fetch/decode stage observations.
+     * @param objectMapper        The application's Jackson mapper, used to decode the response bodies (observed).
+     * @param peerCache           The peer cache tier deciding which replica calls the API for a given bounding box.
+     * @param baseUrl             The base URL of the Aviation Weather API, injected from properties.
      */
-    public AviationApiClient(WebClient.Builder webClientBuilder,
+    public AviationApiClient(UpstreamWebClientFactory upstreamClients, UpstreamMetrics upstreamMetrics,
+                             ObservationRegistry observationRegistry, ObjectMapper objectMapper, PeerCache peerCache,
                              @Value("${external.aviation.base-url}") String baseUrl) {
-        this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(objectMapper);
+        decoder.setMaxInMemorySize(upstreamClients.maxInMemorySize("aviation"));
+        this.webClient = upstreamClients.builder("aviation", baseUrl)
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new ObservedDecoder<>(decoder, observationRegistry, "aviation")))
+                .build();
+        this.upstreamMetrics = upstreamMetrics;
+        this.observationRegistry = observationRegistry;
+        this.peerCache = peerCache;
     }
 
     /**
@@ -51,9 +86,23 @@ public class AviationApiClient {
      * @param bbox A string representing the bounding box coordinates (minLon,minLat,maxLon,maxLat).
      * @return A {@link Flux} emitting {@link Station} objects found within the area.
      */
-    @Cacheable("stations")
+    @Cacheable(value = "stations", condition = "@peerCache.owns(#bbox)")
     public Flux<Station> getStationsInBox(String bbox) {
-        return webClient.get()
+        return fetchStationsInBox(bbox);
+    }
+
+    /**
+     * Loads the stations bypassing the local cache: from {@code /stationinfo} when this replica owns the bounding
+     * box, otherwise from its owner replica (see {@link PeerCache}). The loader of the "stations" cache (background
+     * refresh and preload). Same error handling as {@link #getStationsInBox(String)}.
+     */
+    public Flux<Station> fetchStationsInBox(String bbox) {
+        return peerCache.<List<Station>>load("stations", bbox, () -> callStationInfo(bbox).collectList())
+                .flatMapIterable(stations -> stations);
+    }
+
+    private Flux<Station> callStationInfo(String bbox) {
+        Mono<ResponseEntity<Flux<Station>>> response = webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/stationinfo")
                         .queryParam("bbox", bbox)
@@ -62,13 +111,19 @@ public class AviationApiClient {
                 .retrieve()
                 .onStatus(
                         status -> status.is5xxServerError(),
-                        response -> Mono.error(new AviationServiceException("External Aviation API is currently unavailable."))
+                        clientResponse -> Mono.error(new AviationServiceException("External Aviation API is currently unavailable."))
                 )
-                .bodyToFlux(Station.class)
-                .doOnSubscribe(s -> logger.info("Cache MISS - Fetching Stations bbox: {}", bbox))
+                .toEntityFlux(Station.class);
+        return upstreamMetrics.timeFlux("aviation", "stationinfo", fetchAndDecode("stationinfo", bbox, response))
+                .doOnSubscribe(s -> {
+                    logger.debug("Cache MISS - Fetching Stations bbox: {}", bbox);
+                    CacheMissEvent.emit("stations", bbox);
+                })
                 .onErrorResume(e -> {
                     // Se è l'errore critico, lo rilanciamo al Controller
                     if (e instanceof AviationServiceException) return Flux.error(e);
+                    // Anche il rifiuto per sovraccarico, che diventa un 503
+                    if (e instanceof ConcurrencyLimitExceededException) return Flux.error(e);
 
                     // Altrimenti (es. errori di parsing o 404 soft), logghiamo e restituiamo vuoto
                     logger.error("Error fetching stations: {}", e.getMessage());
@@ -87,18 +142,39 @@ public class AviationApiClient {
      * @param bbox A string representing the bounding box coordinates (minLon,minLat,maxLon,maxLat).
      * @return A {@link Flux} emitting {@link Airport} objects found within the area.
      */
-    @Cacheable("airports")
+    @Cacheable(value = "airports", condition = "@peerCache.owns(#bbox)")
     public Flux<Airport> getAirportsInBox(String bbox) {
-        return webClient.get()
+        return fetchAirportsInBox(bbox);
+    }
+
+    /**
+     * Loads the airports bypassing the local cache: from {@code /airport} when this replica owns the bounding box,
+     * otherwise from its owner replica (see {@link PeerCache}). The loader of the "airports" cache (background
+     * refresh and preload).
+     */
+    public Flux<Airport> fetchAirportsInBox(String bbox) {
+        return peerCache.<List<Airport>>load("airports", bbox, () -> callAirport(bbox).collectList())
+                .flatMapIterable(airports -> airports);
+    }
+
+    private Flux<Airport> callAirport(String bbox) {
+        Mono<ResponseEntity<Flux<Airport>>> response = webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/airport")
                         .queryParam("bbox", bbox)
                         .queryParam("format", "json")
                         .build())
                 .retrieve()
-                .bodyToFlux(Airport.class)
-                .doOnSubscribe(s -> logger.info("Cache MISS - Fetching Airports bbox: {}", bbox))
-                .doOnNext(a -> logger.debug("CLIENT: Ricevuto aeroporto: {}", a.getId()))
+                .onStatus(
+                        status -> status.is5xxServerError(),
+                        clientResponse -> Mono.error(new AviationServiceException("External Aviation API is currently unavailable."))
+                )
+                .toEntityFlux(Airport.class);
+        return upstreamMetrics.timeFlux("aviation", "airport", fetchAndDecode("airport", bbox, response))
+                .doOnSubscribe(s -> {
+                    logger.debug("Cache MISS - Fetching Airports bbox: {}", bbox);
+                    CacheMissEvent.emit("airports", bbox);
+                })
                 .cache();
     }
 
@@ -113,15 +189,52 @@ public class AviationApiClient {
      * @return A {@link Mono} containing the {@link Station} details if found, or empty if not.
      */
     public Mono<Station> getStationMetadata(String id) {
-        return webClient.get()
+        return upstreamMetrics.timeMono("aviation", "airport-metadata", this.callAirportIds("airport-metadata", id).next())
+                .doOnError(e -> logger.error("CLIENT ERROR su metadata: ", e));
+    }
+
+    /**
+     * Retrieves the metadata of several airports or stations in a single call: {@code /airport} accepts a
+     * comma-separated list of IDs. Used to resolve the origins of a batch search in one round trip.
+     *
+     * @param ids The ICAO codes or IDs of the stations/airports.
+     * @return A {@link Flux} of the {@link Station} details found; the unknown IDs are simply missing.
+     */
+    public Flux<Station> getLocations(List<String> ids) {
+        return upstreamMetrics.timeFlux("aviation", "airport-locations", this.callAirportIds("airport-locations", String.join(",", ids)))
+                .doOnError(e -> logger.error("CLIENT ERROR su metadata: ", e));
+    }
+
+    private Flux<Station> callAirportIds(String endpoint, String ids) {
+        Mono<ResponseEntity<Flux<Station>>> response = webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/airport")
-                        .queryParam("ids", id)
+                        .queryParam("ids", ids)
                         .queryParam("format", "json")
                         .build())
                 .retrieve()
-                .bodyToFlux(Station.class)
-                .next()
-                .doOnError(e -> logger.error("CLIENT ERROR su metadata: ", e));
+                .onStatus(
+                        status -> status.is5xxServerError(),
+                        clientResponse -> Mono.error(new AviationServiceException("External Aviation API is currently unavailable."))
+                )
+                .toEntityFlux(Station.class);
+        return fetchAndDecode(endpoint, ids, response);
+    }
+
+    /**
+     * Observes the call as {@code upstream.call}: the round trip until the response headers as
+     * {@code upstream.fetch}, then the body, decoded as a stream by the {@link ObservedDecoder}.
+     */
+    private <T> Flux<T> fetchAndDecode(String endpoint, String key, Mono<ResponseEntity<Flux<T>>> response) {
+        Flux<T> call = ReactiveObservations.observe(() -> stage("upstream.fetch", endpoint, key), response)
+                .flatMapMany(HttpEntity::getBody);
+        return ReactiveObservations.observe(() -> stage("upstream.call", endpoint, key), call);
+    }
+
+    private Observation stage(String name, String endpoint, String key) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("upstream", "aviation")
+                .lowCardinalityKeyValue("endpoint", endpoint)
+                .highCardinalityKeyValue("key", key);
     }
-}
\ No newline at end of file
+}
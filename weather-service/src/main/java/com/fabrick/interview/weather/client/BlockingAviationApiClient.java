@@ -0,0 +1,182 @@
+package com.fabrick.interview.weather.client;
+
+import com.fabrick.interview.support.jfr.CacheMissEvent;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.upstream.UpstreamMetrics;
+import com.fabrick.interview.upstream.UpstreamRestClientFactory;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Blocking counterpart of {@link AviationApiClient}, used by the {@code virtual-threads} profile: the same
+ * endpoints, error handling, stage observations and upstream metrics, written as plain sequential code over a
+ * {@link RestClient} and meant to run on a virtual thread.
+ * <p>
+ * The searches read and fill the same "stations" and "airports" caches as the reactive client (which stays in
+ * charge of their background refresh and preload), and concurrent misses of one bounding box wait for a single
+ * call. With the peer cache tier enabled, only the bounding boxes this replica owns are cached here and loaded from
+ * the API; the others are asked to their owner, exactly as the reactive client does (see {@link PeerCache}).
+ * </p>
+ */
+@Service
+@Profile("virtual-threads")
+public class BlockingAviationApiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingAviationApiClient.class);
+    private final RestClient restClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final ObjectReader stationsReader;
+    private final ObjectReader airportsReader;
+    private final PeerCache peerCache;
+
+    /**
+     * @param upstreamClients The factory of the blocking upstream clients (settings of {@code upstream.clients.aviation.*}).
+     * @param peerCache       The peer cache tier deciding which replica calls the API for a given bounding box.
+     * @param baseUrl         The base URL of the Aviation Weather API, injected from properties.
+     */
+    public BlockingAviationApiClient(UpstreamRestClientFactory upstreamClients, UpstreamMetrics upstreamMetrics,
+                                     ObservationRegistry observationRegistry, ObjectMapper objectMapper,
+                                     PeerCache peerCache, @Value("${external.aviation.base-url}") String baseUrl) {
+        this.restClient = upstreamClients.create("aviation", baseUrl);
+        this.upstreamMetrics = upstreamMetrics;
+        this.observationRegistry = observationRegistry;
+        this.stationsReader = objectMapper.readerForListOf(Station.class);
+        this.airportsReader = objectMapper.readerForListOf(Airport.class);
+        this.peerCache = peerCache;
+    }
+
+    /**
+     * Retrieves the weather stations within a bounding box from {@code /stationinfo}, cached in "stations".
+     * A 5xx answer throws {@link AviationServiceException}; other failures are logged and give an empty list.
+     *
+     * @param bbox A string representing the bounding box coordinates (minLon,minLat,maxLon,maxLat).
+     */
+    @Cacheable(value = "stations", sync = true, condition = "@peerCache.owns(#bbox)")
+    public List<Station> getStationsInBox(String bbox) {
+        return peerCache.<List<Station>>load("stations", bbox, () -> Mono.fromCallable(() -> callStationInfo(bbox))).block();
+    }
+
+    private List<Station> callStationInfo(String bbox) {
+        logger.debug("Cache MISS - Fetching Stations bbox: {}", bbox);
+        CacheMissEvent.emit("stations", bbox);
+        try {
+            return upstreamMetrics.time("aviation", "stationinfo",
+                    () -> this.<Station>call("stationinfo", "/stationinfo", "bbox", bbox, stationsReader));
+        } catch (AviationServiceException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Error fetching stations: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Retrieves the airports within a bounding box from {@code /airport}, cached in "airports".
+     *
+     * @param bbox A string representing the bounding box coordinates (minLon,minLat,maxLon,maxLat).
+     */
+    @Cacheable(value = "airports", sync = true, condition = "@peerCache.owns(#bbox)")
+    public List<Airport> getAirportsInBox(String bbox) {
+        return peerCache.<List<Airport>>load("airports", bbox, () -> Mono.fromCallable(() -> callAirport(bbox))).block();
+    }
+
+    private List<Airport> callAirport(String bbox) {
+        logger.debug("Cache MISS - Fetching Airports bbox: {}", bbox);
+        CacheMissEvent.emit("airports", bbox);
+        return upstreamMetrics.time("aviation", "airport",
+                () -> this.<Airport>call("airport", "/airport", "bbox", bbox, airportsReader));
+    }
+
+    /**
+     * Retrieves the coordinates of an airport or station by its ID, from {@code /airport}.
+     *
+     * @param id The ICAO code or ID of the station/airport (e.g., "KDEN").
+     * @return The details, or {@code null} if the ID is unknown.
+     */
+    public Station getStationMetadata(String id) {
+        try {
+            List<Station> stations = upstreamMetrics.time("aviation", "airport-metadata",
+                    () -> this.<Station>call("airport-metadata", "/airport", "ids", id, stationsReader));
+            return stations.isEmpty() ? null : stations.getFirst();
+        } catch (RuntimeException e) {
+            logger.error("CLIENT ERROR su metadata: ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the coordinates of several airports or stations in a single call to {@code /airport}.
+     *
+     * @param ids The ICAO codes or IDs of the stations/airports.
+     * @return The details found; the unknown IDs are simply missing.
+     */
+    public List<Station> getLocations(List<String> ids) {
+        String joined = String.join(",", ids);
+        try {
+            return upstreamMetrics.time("aviation", "airport-locations",
+                    () -> this.<Station>call("airport-locations", "/airport", "ids", joined, stationsReader));
+        } catch (RuntimeException e) {
+            logger.error("CLIENT ERROR su metadata: ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Observes the call as {@code upstream.call}, split into {@code upstream.fetch} and {@code upstream.decode}.
+     */
+    private <T> List<T> call(String endpoint, String path, String param, String key, ObjectReader reader) {
+        return stage("upstream.call", endpoint, key).observe(() -> {
+            byte[] body = stage("upstream.fetch", endpoint, key).observe(() -> restClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path(path)
+                            .queryParam(param, key)
+                            .queryParam("format", "json")
+                            .build())
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is5xxServerError, (request, response) -> {
+                        throw new AviationServiceException("External Aviation API is currently unavailable.");
+                    })
+                    .body(byte[].class));
+            if (body == null) {
+                return List.of();
+            }
+            return stage("upstream.decode", endpoint, key)
+                    .highCardinalityKeyValue("bytes", Integer.toString(body.length))
+                    .observe(() -> this.<T>decode(endpoint, body, reader));
+        });
+    }
+
+    private <T> List<T> decode(String endpoint, byte[] body, ObjectReader reader) {
+        try {
+            return reader.readValue(body);
+        } catch (IOException e) {
+            throw new DecodingException("Invalid Aviation Weather " + endpoint + " response: " + e.getMessage(), e);
+        }
+    }
+
+    private Observation stage(String name, String endpoint, String key) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("upstream", "aviation")
+                .lowCardinalityKeyValue("endpoint", endpoint)
+                .highCardinalityKeyValue("key", key);
+    }
+}
@@ -1,13 +1,26 @@
 package com.fabrick.interview.weather.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fabrick.interview.support.cache.CachePolicyProperties;
+import com.fabrick.interview.support.cache.ManagedCaches;
+import com.fabrick.interview.support.peer.PeerCache;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fabrick.interview.weather.client.AviationApiClient;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ResolvableType;
+import reactor.core.publisher.Flux;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
 
 
 /**
@@ -20,20 +33,55 @@ import java.util.concurrent.TimeUnit;
  * This implementation specifically addresses the "Bonus Point" requirement regarding local caching,
  * reducing the load on the external Aviation Weather API and improving response times.
  * </p>
+ * <p>
+ * The rendered responses of the proximity searches are tied to the entries (and reference data version) they were
+ * computed from, and dropped with them.
+ * </p>
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    /**
+     * Default time to live of the cached aviation data, also the {@code Cache-Control} max-age of the responses
+     * computed from it.
+     */
+    public static final Duration TTL = Duration.ofMinutes(10);
+
+    private final ManagedCaches caches;
+    private final PeerCache peerCache;
+    private final ObjectProvider<AviationApiClient> client;
+    private final ObjectProvider<RenderedResponseCache> responseCache;
+
+    /**
+     * @param client The aviation client, resolved lazily (it is itself proxied by this cache manager).
+     */
+    public CacheConfig(ManagedCaches caches, PeerCache peerCache, ObjectProvider<AviationApiClient> client,
+                       ObjectProvider<RenderedResponseCache> responseCache) {
+        this.caches = caches;
+        this.peerCache = peerCache;
+        this.client = client;
+        this.responseCache = responseCache;
+    }
+
     /**
      * Defines and configures the {@link CacheManager} bean for "stations" and "airports".
      * <p>
-     * The cache is configured with the following policies:
+     * Both caches are built by {@link ManagedCaches}, with these defaults, overridable with
+     * {@code cache.policies.<name>.*} and tunable at runtime through {@code /actuator/cacheadmin}:
      * <ul>
-     * <li><b>Maximum Size:</b> 500 entries. Limits memory usage to prevent overflows.</li>
+     * <li><b>Maximum Size:</b> 500 entries. Limits memory usage to prevent overflows. When bounded by weight instead,
+     * an entry weighs its number of stations or airports.</li>
      * <li><b>Expiration:</b> Entries expire 10 minutes after write (TTL). Ensures weather data remains relatively fresh.</li>
      * <li><b>Async Mode:</b> Enabled ({@code setAsyncCacheMode(true)}). This is crucial for compatibility with
      * the Reactive Stack (WebFlux), allowing cache operations to return {@code CompletableFuture} and avoiding thread blocking.</li>
+     * <li><b>Statistics:</b> Recorded, so hits, misses, evictions and load times are published as {@code cache.*} meters.</li>
+     * <li><b>Loaders:</b> The uncached bounding box calls, collected into the list Spring caches for a {@code Flux};
+     * used by {@code refresh-after-write} and by the preloads.</li>
+     * <li><b>Rendered responses:</b> Dropped with the entry they were computed from, whatever the removal cause,
+     * which is why each cache is built with its own removal listener.</li>
+     * <li><b>Peer cache tier:</b> With {@code peer-cache.enabled}, only the bounding boxes this replica owns are
+     * cached and served to the other replicas.</li>
      * </ul>
      * </p>
      *
@@ -41,16 +89,40 @@ public class CacheConfig {
      */
     @Bean
     public CacheManager cacheManager() {
-        // Initialize cache manager for specific cache names used in the service layer
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("stations", "airports");
-
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(500)
-                .expireAfterWrite(10, TimeUnit.MINUTES));
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Static mode: only the caches registered below exist
+        cacheManager.setCacheNames(List.of());
 
         // Enable async mode for WebFlux compatibility
         cacheManager.setAsyncCacheMode(true);
 
+        // Register the specific cache names used in the service layer, each with its own removal listener
+        register(cacheManager, "stations", bbox -> client.getObject().fetchStationsInBox(bbox));
+        register(cacheManager, "airports", bbox -> client.getObject().fetchAirportsInBox(bbox));
+
+        // The other replicas ask this one for the bounding boxes it owns (no-op unless peer-cache.enabled)
+        peerCache.register("stations", ResolvableType.forClassWithGenerics(List.class, Station.class).getType(),
+                bbox -> client.getObject().getStationsInBox(bbox).collectList());
+        peerCache.register("airports", ResolvableType.forClassWithGenerics(List.class, Airport.class).getType(),
+                bbox -> client.getObject().getAirportsInBox(bbox).collectList());
+
         return cacheManager;
     }
+
+    private void register(CaffeineCacheManager cacheManager, String name, Function<String, Flux<?>> fetch) {
+        RenderedResponseCache responses = responseCache.getIfAvailable();
+        cacheManager.registerCustomCache(name, caches.builder(name)
+                .defaults(CachePolicyProperties.Policy.of(500, TTL))
+                .removalListener(responses != null ? responses.invalidationListener(name) : null)
+                .loader(key -> fetch.apply((String) key).collectList().toFuture())
+                .build());
+    }
+
+    /**
+     * Drops the rendered responses computed from the replaced reference data snapshot.
+     */
+    @EventListener
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        responseCache.ifAvailable(responses -> responses.invalidate("reference", event.previousVersion()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.fabrick.interview.weather.config;
+
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.DistanceKernels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the geometry primitives used for exact proximity filtering and distance ordering.
+ */
+@Configuration
+public class GeoConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoConfig.class);
+
+    /**
+     * Selects the {@link DistanceKernel} once at startup.
+     *
+     * @param mode {@code auto} (vector when the Vector API is available), {@code vector} or {@code scalar}.
+     * @return The kernel shared by the reference data indexes and the service layer.
+     */
+    @Bean
+    public DistanceKernel distanceKernel(@Value("${geo.distance-kernel:auto}") String mode) {
+        DistanceKernel kernel = DistanceKernels.select(mode);
+        logger.info("Using the {} distance kernel", kernel.name());
+        return kernel;
+    }
+}
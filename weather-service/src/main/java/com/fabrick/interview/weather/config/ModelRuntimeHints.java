@@ -0,0 +1,27 @@
+package com.fabrick.interview.weather.config;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.ProximityRequest;
+import com.fabrick.interview.weather.model.Station;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints of the types bound by Jackson, for the AOT-processed and native builds.
+ * <p>
+ * {@link Station} and {@link Airport} are decoded with {@code ObjectReader}s (upstream responses and reference data
+ * snapshots), the responses are written by the rendered response cache and the RSocket payloads are bound by the
+ * messaging codecs, so Spring cannot infer them from the controller signatures. Nested types (e.g. the clusters and
+ * their bounding boxes) and the deserializers named by {@code @JsonDeserialize} are registered with their owner.
+ * </p>
+ */
+public class ModelRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Station.class, Airport.class, ClusterResponse.class, ProximityRequest.class);
+    }
+}
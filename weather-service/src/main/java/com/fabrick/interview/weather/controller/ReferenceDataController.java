@@ -0,0 +1,42 @@
+package com.fabrick.interview.weather.controller;
+
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.ReferenceDataStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * REST Controller exposing the state of the locally held station/airport reference data.
+ * <p>
+ * It reports the active snapshot version and the latency of the last reload, and allows operators
+ * to trigger a reload without waiting for the next scheduled refresh.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/fabrick/v1.0/reference-data")
+@Tag(name = "Reference Data", description = "Status and reload of the local station/airport datasets")
+public class ReferenceDataController {
+
+    private final ReferenceDataManager referenceData;
+
+    public ReferenceDataController(ReferenceDataManager referenceData) {
+        this.referenceData = referenceData;
+    }
+
+    @Operation(summary = "Reference data status", description = "Returns the active snapshot version, its size and the outcome of the last reload.")
+    @GetMapping
+    public ReferenceDataStatus getStatus() {
+        return referenceData.status();
+    }
+
+    @Operation(summary = "Reload reference data", description = "Reloads the datasets in the background and publishes the new snapshot atomically.")
+    @PostMapping("/reload")
+    public Mono<ReferenceDataStatus> reload() {
+        return referenceData.reload();
+    }
+}
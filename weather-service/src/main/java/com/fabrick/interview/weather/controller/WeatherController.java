@@ -1,15 +1,31 @@
 package com.fabrick.interview.weather.controller;
 
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fabrick.interview.weather.config.CacheConfig;
+import com.fabrick.interview.weather.exception.InvalidBatchRequestException;
 import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.ProximityResult;
 import com.fabrick.interview.weather.model.Station;
 import com.fabrick.interview.weather.service.WeatherService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * REST Controller responsible for exposing APIs related to aviation weather entities.
@@ -20,6 +36,18 @@ import reactor.core.publisher.Flux;
  * </p>
  * <p>
  * The logic relies on calculating a geographic "Bounding Box" around the source entity.
+ * Both searches accept optional attribute filters (country, state, elevation range) applied on top of it,
+ * and have a clustered variant for wide areas, returning aggregated tile cells that can be drilled down one by one.
+ * </p>
+ * <p>
+ * Every search is answered from the {@link RenderedResponseCache}: the JSON of a given origin, range and filter (or
+ * zoom, or cell) is encoded once and written as is until the data it was computed from changes. Each response carries
+ * a strong {@code ETag} and a {@code Cache-Control} max-age bound to the cache TTL, and a conditional request for the
+ * current version is answered with {@code 304 Not Modified} before anything is computed.
+ * </p>
+ * <p>
+ * The batch searches take many origins at once (e.g. the airports of a flight plan) and stream one result per origin;
+ * they are not rendered in advance, but share the upstream caches of the single searches.
  * </p>
  */
 @RestController
@@ -27,16 +55,22 @@ import reactor.core.publisher.Flux;
 @Tag(name = "Weather", description = "Operations for Airports and Weather Stations")
 public class WeatherController {
 
-    private static final Logger logger = LoggerFactory.getLogger(WeatherController.class);
     private final WeatherService weatherService;
+    private final RenderedResponseCache responseCache;
+    private final int maxBatchIds;
 
     /**
      * Dependency Injection constructor.
      *
      * @param weatherService The service containing business logic for geographic lookups.
+     * @param responseCache  The cache of the rendered JSON responses.
+     * @param maxBatchIds    The maximum number of origins of a batch search.
      */
-    public WeatherController(WeatherService weatherService) {
+    public WeatherController(WeatherService weatherService, RenderedResponseCache responseCache,
+                             @Value("${batch.max-ids:100}") int maxBatchIds) {
         this.weatherService = weatherService;
+        this.responseCache = responseCache;
+        this.maxBatchIds = maxBatchIds;
     }
 
     /**
@@ -49,19 +83,42 @@ public class WeatherController {
      * @param airportId The ICAO code of the airport (e.g., "KDEN" for Denver International).
      * @param closestBy A modifier for the bounding box size (in degrees). Default is 0.0.
      * Example: If lat=10 and closestBy=1, the search range is [9, 11].
-     * @return A {@link Flux} emitting {@link Station} objects found within the calculated area.
+     * @param country      Optional country code of the stations (e.g., "US").
+     * @param state        Optional state code of the stations (e.g., "CO").
+     * @param minElevation Optional minimum elevation of the stations, in meters.
+     * @param maxElevation Optional maximum elevation of the stations, in meters.
+     * @param exchange     The exchange the JSON array of the {@link Station} objects found within the calculated area
+     *                     is written to.
+     * @return A {@link Mono} completing once the response is written.
      */
     @Operation(summary = "Find Stations near Airport", description = "Retrieves weather stations within a calculated bounding box around a specific airport.")
+    @ApiResponse(responseCode = "200", description = "Stations found, closest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Station.class))))
     @GetMapping("/airports/{airportId}/stations")
-    public Flux<Station> getStationsByAirport(
+    public Mono<Void> getStationsByAirport(
             @Parameter(description = "ICAO Code of the Airport (e.g., KDEN)", example = "KDEN")
             @PathVariable("airportId") String airportId,
 
             @Parameter(description = "Range modifier for the bounding box. Default: 0.0")
-            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy) {
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
+
+            @Parameter(description = "Country code filter (e.g., US)")
+            @RequestParam(value = "country", required = false) String country,
 
-        logger.info(">>> CONTROLLER: Richiesta ricevuta. Airport: {}, Range: {}", airportId, closestBy);
-        return weatherService.findStationsCloseToAirport(airportId, closestBy);
+            @Parameter(description = "State code filter (e.g., CO)")
+            @RequestParam(value = "state", required = false) String state,
+
+            @Parameter(description = "Minimum elevation in meters")
+            @RequestParam(value = "minElevation", required = false) Double minElevation,
+
+            @Parameter(description = "Maximum elevation in meters")
+            @RequestParam(value = "maxElevation", required = false) Double maxElevation,
+
+            ServerWebExchange exchange) {
+
+        AttributeFilter filter = new AttributeFilter(country, state, minElevation, maxElevation);
+        return responseCache.respond(exchange, responseKey("stations", airportId, closestBy, filter), CacheConfig.TTL,
+                () -> weatherService.findStationsCloseToAirport(airportId, closestBy, filter));
     }
 
     /**
@@ -73,18 +130,258 @@ public class WeatherController {
      *
      * @param stationId The ICAO code or ID of the weather station (e.g., "KAPA").
      * @param closestBy A modifier for the bounding box size (in degrees). Default is 0.0.
-     * @return A {@link Flux} emitting {@link Airport} objects found within the calculated area.
+     * @param country      Optional country code of the airports.
+     * @param state        Optional state code of the airports.
+     * @param minElevation Optional minimum elevation of the airports, in meters.
+     * @param maxElevation Optional maximum elevation of the airports, in meters.
+     * @param exchange     The exchange the JSON array of the {@link Airport} objects found within the calculated area
+     *                     is written to.
+     * @return A {@link Mono} completing once the response is written.
      */
     @Operation(summary = "Find Airports near Station", description = "Retrieves airports within a calculated bounding box around a specific weather station.")
+    @ApiResponse(responseCode = "200", description = "Airports found, closest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Airport.class))))
     @GetMapping("/stations/{stationId}/airports")
-    public Flux<Airport> getAirportsByStation(
+    public Mono<Void> getAirportsByStation(
             @Parameter(description = "ICAO Code of the Station", example = "KAPA")
             @PathVariable("stationId") String stationId,
 
             @Parameter(description = "Range modifier for the bounding box. Default: 0.0")
-            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy) {
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
+
+            @Parameter(description = "Country code filter (e.g., US)")
+            @RequestParam(value = "country", required = false) String country,
+
+            @Parameter(description = "State code filter (e.g., CO)")
+            @RequestParam(value = "state", required = false) String state,
+
+            @Parameter(description = "Minimum elevation in meters")
+            @RequestParam(value = "minElevation", required = false) Double minElevation,
+
+            @Parameter(description = "Maximum elevation in meters")
+            @RequestParam(value = "maxElevation", required = false) Double maxElevation,
+
+            ServerWebExchange exchange) {
+
+        AttributeFilter filter = new AttributeFilter(country, state, minElevation, maxElevation);
+        return responseCache.respond(exchange, responseKey("airports", stationId, closestBy, filter), CacheConfig.TTL,
+                () -> weatherService.findAirportsCloseToStation(stationId, closestBy, filter));
+    }
+
+    /**
+     * Batch variant of {@link #getStationsByAirport}: retrieves the stations near each of many airports, such as the
+     * airports of a flight plan, with far fewer upstream calls than one search per airport.
+     * <p>
+     * Each airport gets one {@link ProximityResult} (its stations closest first, or an error if it is unknown),
+     * emitted as soon as it is ready, so the order of the results is not the order of the IDs. Streamed as
+     * newline-delimited JSON, or written as a JSON array for {@code Accept: application/json}.
+     * </p>
+     *
+     * @param airportIds   The ICAO codes of the airports, comma-separated or repeated ({@code batch.max-ids} at most).
+     * @param closestBy    A modifier for the bounding box size (in degrees), the same for every airport. Default is 0.0.
+     * @param country      Optional country code of the stations (e.g., "US").
+     * @param state        Optional state code of the stations (e.g., "CO").
+     * @param minElevation Optional minimum elevation of the stations, in meters.
+     * @param maxElevation Optional maximum elevation of the stations, in meters.
+     * @return A {@link Flux} of one result per distinct airport.
+     */
+    @Operation(summary = "Find Stations near many Airports", description = "Retrieves the weather stations around each of the given airports, planning overlapping areas into shared upstream queries.")
+    @ApiResponse(responseCode = "200", description = "One result per airport, in completion order",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = ProximityResult.class)))
+    @ApiResponse(responseCode = "400", description = "No airport, or too many")
+    @GetMapping(value = "/airports/stations", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<ProximityResult<Station>> getStationsByAirports(
+            @Parameter(description = "ICAO Codes of the Airports", example = "KDEN,KAPA,KCOS")
+            @RequestParam("ids") List<String> airportIds,
+
+            @Parameter(description = "Range modifier for the bounding boxes. Default: 0.0")
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
 
-        logger.info(">>> CONTROLLER: Richiesta ricevuta. Station: {}, Range: {}", stationId, closestBy);
-        return weatherService.findAirportsCloseToStation(stationId, closestBy);
+            @Parameter(description = "Country code filter (e.g., US)")
+            @RequestParam(value = "country", required = false) String country,
+
+            @Parameter(description = "State code filter (e.g., CO)")
+            @RequestParam(value = "state", required = false) String state,
+
+            @Parameter(description = "Minimum elevation in meters")
+            @RequestParam(value = "minElevation", required = false) Double minElevation,
+
+            @Parameter(description = "Maximum elevation in meters")
+            @RequestParam(value = "maxElevation", required = false) Double maxElevation) {
+
+        return weatherService.findStationsCloseToAirports(batchIds(airportIds), closestBy,
+                new AttributeFilter(country, state, minElevation, maxElevation));
+    }
+
+    /**
+     * Batch variant of {@link #getAirportsByStation}, like {@link #getStationsByAirports}.
+     *
+     * @param stationIds   The ICAO codes or IDs of the stations, comma-separated or repeated ({@code batch.max-ids} at most).
+     * @param closestBy    A modifier for the bounding box size (in degrees), the same for every station. Default is 0.0.
+     * @param country      Optional country code of the airports.
+     * @param state        Optional state code of the airports.
+     * @param minElevation Optional minimum elevation of the airports, in meters.
+     * @param maxElevation Optional maximum elevation of the airports, in meters.
+     * @return A {@link Flux} of one result per distinct station.
+     */
+    @Operation(summary = "Find Airports near many Stations", description = "Retrieves the airports around each of the given weather stations, planning overlapping areas into shared upstream queries.")
+    @ApiResponse(responseCode = "200", description = "One result per station, in completion order",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = ProximityResult.class)))
+    @ApiResponse(responseCode = "400", description = "No station, or too many")
+    @GetMapping(value = "/stations/airports", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<ProximityResult<Airport>> getAirportsByStations(
+            @Parameter(description = "ICAO Codes of the Stations", example = "KAPA,KBJC")
+            @RequestParam("ids") List<String> stationIds,
+
+            @Parameter(description = "Range modifier for the bounding boxes. Default: 0.0")
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
+
+            @Parameter(description = "Country code filter (e.g., US)")
+            @RequestParam(value = "country", required = false) String country,
+
+            @Parameter(description = "State code filter (e.g., CO)")
+            @RequestParam(value = "state", required = false) String state,
+
+            @Parameter(description = "Minimum elevation in meters")
+            @RequestParam(value = "minElevation", required = false) Double minElevation,
+
+            @Parameter(description = "Maximum elevation in meters")
+            @RequestParam(value = "maxElevation", required = false) Double maxElevation) {
+
+        return weatherService.findAirportsCloseToStations(batchIds(stationIds), closestBy,
+                new AttributeFilter(country, state, minElevation, maxElevation));
+    }
+
+    /**
+     * Clustered variant of {@link #getStationsByAirport}: returns the tile cells holding the stations
+     * instead of the stations themselves, so that the response size is bounded by the number of cells.
+     *
+     * @param airportId The ICAO code of the airport.
+     * @param closestBy A modifier for the bounding box size (in degrees). Default is 0.0.
+     * @param zoom      Optional zoom level of the cells; chosen from the box size when missing.
+     * @param exchange  The exchange the clusters are written to.
+     * @return A {@link Mono} completing once the response is written.
+     */
+    @Operation(summary = "Cluster Stations near Airport", description = "Retrieves the weather stations around an airport aggregated into tile cells (count, centroid, representative IDs).")
+    @ApiResponse(responseCode = "200", description = "Clusters of the stations",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ClusterResponse.class)))
+    @GetMapping("/airports/{airportId}/stations/clusters")
+    public Mono<Void> getStationClustersByAirport(
+            @Parameter(description = "ICAO Code of the Airport (e.g., KDEN)", example = "KDEN")
+            @PathVariable("airportId") String airportId,
+
+            @Parameter(description = "Range modifier for the bounding box. Default: 0.0")
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
+
+            @Parameter(description = "Zoom level of the cells (cell size = 360 / 2^zoom degrees). Default: from the box size")
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+
+            ServerWebExchange exchange) {
+
+        return responseCache.respondValue(exchange, "stations-clusters:" + airportId + ':' + closestBy + ':' + zoom, CacheConfig.TTL,
+                () -> weatherService.clusterStationsCloseToAirport(airportId, closestBy, zoom));
+    }
+
+    /**
+     * Drill-down of a station cluster: returns every station of the cell, closest to the airport first.
+     *
+     * @param airportId The ICAO code of the airport.
+     * @param cellId    The cell identifier returned by the clustered search ({@code zoom-row-col}).
+     * @param exchange  The exchange the stations of the cell are written to.
+     * @return A {@link Mono} completing once the response is written.
+     */
+    @Operation(summary = "Stations of a Cluster", description = "Retrieves the exact weather stations of one tile cell.")
+    @ApiResponse(responseCode = "200", description = "Stations of the cell, closest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Station.class))))
+    @GetMapping("/airports/{airportId}/stations/clusters/{cellId}")
+    public Mono<Void> getStationsByAirportCluster(
+            @Parameter(description = "ICAO Code of the Airport (e.g., KDEN)", example = "KDEN")
+            @PathVariable("airportId") String airportId,
+
+            @Parameter(description = "Cell identifier (zoom-row-col)", example = "7-46-31")
+            @PathVariable("cellId") String cellId,
+
+            ServerWebExchange exchange) {
+
+        return responseCache.respond(exchange, "stations-cluster:" + airportId + ':' + cellId, CacheConfig.TTL,
+                () -> weatherService.findStationsInCluster(airportId, cellId));
+    }
+
+    /**
+     * Clustered variant of {@link #getAirportsByStation}.
+     *
+     * @param stationId The ICAO code or ID of the weather station.
+     * @param closestBy A modifier for the bounding box size (in degrees). Default is 0.0.
+     * @param zoom      Optional zoom level of the cells; chosen from the box size when missing.
+     * @param exchange  The exchange the clusters are written to.
+     * @return A {@link Mono} completing once the response is written.
+     */
+    @Operation(summary = "Cluster Airports near Station", description = "Retrieves the airports around a weather station aggregated into tile cells (count, centroid, representative IDs).")
+    @ApiResponse(responseCode = "200", description = "Clusters of the airports",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ClusterResponse.class)))
+    @GetMapping("/stations/{stationId}/airports/clusters")
+    public Mono<Void> getAirportClustersByStation(
+            @Parameter(description = "ICAO Code of the Station", example = "KAPA")
+            @PathVariable("stationId") String stationId,
+
+            @Parameter(description = "Range modifier for the bounding box. Default: 0.0")
+            @RequestParam(value = "closestBy", defaultValue = "0.0") double closestBy,
+
+            @Parameter(description = "Zoom level of the cells (cell size = 360 / 2^zoom degrees). Default: from the box size")
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+
+            ServerWebExchange exchange) {
+
+        return responseCache.respondValue(exchange, "airports-clusters:" + stationId + ':' + closestBy + ':' + zoom, CacheConfig.TTL,
+                () -> weatherService.clusterAirportsCloseToStation(stationId, closestBy, zoom));
+    }
+
+    /**
+     * Drill-down of an airport cluster: returns every airport of the cell, closest to the station first.
+     *
+     * @param stationId The ICAO code or ID of the weather station.
+     * @param cellId    The cell identifier returned by the clustered search ({@code zoom-row-col}).
+     * @param exchange  The exchange the airports of the cell are written to.
+     * @return A {@link Mono} completing once the response is written.
+     */
+    @Operation(summary = "Airports of a Cluster", description = "Retrieves the exact airports of one tile cell.")
+    @ApiResponse(responseCode = "200", description = "Airports of the cell, closest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = Airport.class))))
+    @GetMapping("/stations/{stationId}/airports/clusters/{cellId}")
+    public Mono<Void> getAirportsByStationCluster(
+            @Parameter(description = "ICAO Code of the Station", example = "KAPA")
+            @PathVariable("stationId") String stationId,
+
+            @Parameter(description = "Cell identifier (zoom-row-col)", example = "7-46-31")
+            @PathVariable("cellId") String cellId,
+
+            ServerWebExchange exchange) {
+
+        return responseCache.respond(exchange, "airports-cluster:" + stationId + ':' + cellId, CacheConfig.TTL,
+                () -> weatherService.findAirportsInCluster(stationId, cellId));
+    }
+
+    /**
+     * The distinct, trimmed IDs of a batch search, in request order.
+     */
+    private List<String> batchIds(List<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!id.isBlank()) {
+                distinct.add(id.trim());
+            }
+        }
+        if (distinct.isEmpty() || distinct.size() > maxBatchIds) {
+            throw new InvalidBatchRequestException("ids must list between 1 and " + maxBatchIds + " distinct IDs.");
+        }
+        return List.copyOf(distinct);
+    }
+
+    /**
+     * The normalized request of a proximity search: the filter codes are already normalized by {@link AttributeFilter}.
+     */
+    private static String responseKey(String search, String originId, double closestBy, AttributeFilter filter) {
+        return search + ':' + originId + ':' + closestBy + ':' + filter.country() + ':' + filter.state()
+                + ':' + filter.minElevation() + ':' + filter.maxElevation();
     }
-}
\ No newline at end of file
+}
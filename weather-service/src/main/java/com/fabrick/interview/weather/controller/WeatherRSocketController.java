@@ -0,0 +1,134 @@
+package com.fabrick.interview.weather.controller;
+
+import com.fabrick.interview.support.limit.ConcurrencyLimitExceededException;
+import com.fabrick.interview.support.peer.PeerLoadException;
+import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.exception.InvalidClusterCellException;
+import com.fabrick.interview.weather.exception.StationNotFoundException;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.ProximityRequest;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.service.WeatherService;
+import io.rsocket.exceptions.CustomRSocketException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * RSocket endpoint exposing the operations of {@link WeatherController} to internal callers, on the TCP port set by
+ * {@code spring.rsocket.server.port}.
+ * <p>
+ * Callers keep one multiplexed connection open and issue request-stream interactions on it: stations and airports
+ * are emitted one by one, closest first, as requested (backpressure is carried by the RSocket {@code REQUEST_N}
+ * frames); the clustered searches emit a single {@link ClusterResponse}. Data is encoded in CBOR unless the caller
+ * sets another data MIME type in its {@code SETUP} frame. The results come from the same service, reference data and
+ * caches as the HTTP endpoints.
+ * </p>
+ * <p>
+ * Routes (payload {@link ProximityRequest}, optional):
+ * <ul>
+ * <li>{@code airports.{airportId}.stations} and {@code stations.{stationId}.airports}</li>
+ * <li>{@code airports.{airportId}.stations.clusters} and {@code stations.{stationId}.airports.clusters}</li>
+ * <li>{@code airports.{airportId}.stations.clusters.{cellId}} and {@code stations.{stationId}.airports.clusters.{cellId}}
+ * (no payload)</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Failures end the interaction with an {@code ERROR} frame of a stable application error code, the HTTP status the
+ * REST endpoints answer with: {@link #NOT_FOUND} (unknown airport or station), {@link #INVALID_REQUEST} (invalid
+ * cluster cell), {@link #UPSTREAM_UNAVAILABLE} (Aviation Weather API failure), {@link #OVERLOADED} (upstream
+ * concurrency limit reached), and {@link #INTERNAL_ERROR} otherwise, without details. The message is the detail of
+ * the matching HTTP problem.
+ * </p>
+ */
+@Controller
+public class WeatherRSocketController {
+
+    public static final int INVALID_REQUEST = 0x400;
+    public static final int NOT_FOUND = 0x404;
+    public static final int INTERNAL_ERROR = 0x500;
+    public static final int UPSTREAM_UNAVAILABLE = 0x502;
+    public static final int OVERLOADED = 0x503;
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherRSocketController.class);
+
+    private final WeatherService weatherService;
+
+    public WeatherRSocketController(WeatherService weatherService) {
+        this.weatherService = weatherService;
+    }
+
+    @MessageMapping("airports.{airportId}.stations")
+    public Flux<Station> getStationsByAirport(@DestinationVariable String airportId,
+                                              @Payload(required = false) ProximityRequest request) {
+        ProximityRequest params = request != null ? request : ProximityRequest.DEFAULTS;
+        return weatherService.findStationsCloseToAirport(airportId, params.effectiveClosestBy(), params.filter());
+    }
+
+    @MessageMapping("stations.{stationId}.airports")
+    public Flux<Airport> getAirportsByStation(@DestinationVariable String stationId,
+                                              @Payload(required = false) ProximityRequest request) {
+        ProximityRequest params = request != null ? request : ProximityRequest.DEFAULTS;
+        return weatherService.findAirportsCloseToStation(stationId, params.effectiveClosestBy(), params.filter());
+    }
+
+    @MessageMapping("airports.{airportId}.stations.clusters")
+    public Mono<ClusterResponse> getStationClustersByAirport(@DestinationVariable String airportId,
+                                                             @Payload(required = false) ProximityRequest request) {
+        ProximityRequest params = request != null ? request : ProximityRequest.DEFAULTS;
+        return weatherService.clusterStationsCloseToAirport(airportId, params.effectiveClosestBy(), params.zoom());
+    }
+
+    @MessageMapping("stations.{stationId}.airports.clusters")
+    public Mono<ClusterResponse> getAirportClustersByStation(@DestinationVariable String stationId,
+                                                             @Payload(required = false) ProximityRequest request) {
+        ProximityRequest params = request != null ? request : ProximityRequest.DEFAULTS;
+        return weatherService.clusterAirportsCloseToStation(stationId, params.effectiveClosestBy(), params.zoom());
+    }
+
+    @MessageMapping("airports.{airportId}.stations.clusters.{cellId}")
+    public Flux<Station> getStationsByAirportCluster(@DestinationVariable String airportId,
+                                                     @DestinationVariable String cellId) {
+        return weatherService.findStationsInCluster(airportId, cellId);
+    }
+
+    @MessageMapping("stations.{stationId}.airports.clusters.{cellId}")
+    public Flux<Airport> getAirportsByStationCluster(@DestinationVariable String stationId,
+                                                     @DestinationVariable String cellId) {
+        return weatherService.findAirportsInCluster(stationId, cellId);
+    }
+
+    @MessageExceptionHandler({AirportNotFoundException.class, StationNotFoundException.class})
+    public Mono<Void> handleNotFound(RuntimeException e) {
+        return Mono.error(new CustomRSocketException(NOT_FOUND, e.getMessage()));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleInvalidCell(InvalidClusterCellException e) {
+        return Mono.error(new CustomRSocketException(INVALID_REQUEST, e.getMessage()));
+    }
+
+    @MessageExceptionHandler({AviationServiceException.class, PeerLoadException.class})
+    public Mono<Void> handleAviationError(RuntimeException e) {
+        return Mono.error(new CustomRSocketException(UPSTREAM_UNAVAILABLE, e.getMessage()));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleOverload(ConcurrencyLimitExceededException e) {
+        return Mono.error(new CustomRSocketException(OVERLOADED, e.getMessage()));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleUnexpected(Exception e) {
+        logger.error("RSocket request failed", e);
+        return Mono.error(new CustomRSocketException(INTERNAL_ERROR, "Internal error"));
+    }
+}
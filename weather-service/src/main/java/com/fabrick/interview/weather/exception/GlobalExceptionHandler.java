@@ -1,5 +1,6 @@
 package com.fabrick.interview.weather.exception;
 
+import com.fabrick.interview.support.peer.PeerLoadException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -37,4 +38,31 @@ public class GlobalExceptionHandler {
         problem.setProperty("timestamp", Instant.now());
         return problem;
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(InvalidClusterCellException.class)
+    public ProblemDetail handleInvalidClusterCell(InvalidClusterCellException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setTitle("Invalid Cluster Cell");
+        problem.setType(URI.create("https://api.fabrick.com/errors/invalid-cluster-cell"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+
+    @ExceptionHandler(InvalidBatchRequestException.class)
+    public ProblemDetail handleInvalidBatchRequest(InvalidBatchRequestException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setTitle("Invalid Batch Request");
+        problem.setType(URI.create("https://api.fabrick.com/errors/invalid-batch-request"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+
+    @ExceptionHandler(PeerLoadException.class)
+    public ProblemDetail handlePeerLoadError(PeerLoadException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_GATEWAY, e.getMessage());
+        problem.setTitle("Aviation Weather Service Unavailable");
+        problem.setType(URI.create("https://api.fabrick.com/errors/external-service-error"));
+        problem.setProperty("timestamp", Instant.now());
+        return problem;
+    }
+}
@@ -0,0 +1,7 @@
+package com.fabrick.interview.weather.exception;
+
+public class InvalidClusterCellException extends RuntimeException {
+    public InvalidClusterCellException(String cellId) {
+        super("Cluster cell [" + cellId + "] is not valid: expected 'zoom-row-col'.");
+    }
+}
@@ -0,0 +1,148 @@
+package com.fabrick.interview.weather.geo;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Plans the upstream queries of a batch proximity search: the search boxes of many origins are merged into a few
+ * larger boxes, each queried once, whose rows are then split back per origin.
+ * <p>
+ * The merge is greedy: as long as two groups can be merged, the pair wasting the least area is merged first. Two
+ * groups can be merged when the box holding both spans at most {@code batch.max-query-degrees} on each axis, and
+ * its area is at most {@code batch.merge-slack} times the area covered by the requested boxes of both groups. The
+ * covered area is estimated from below (the overlap of two groups is taken as the overlap of their boxes), so a
+ * query never fetches more than {@code batch.merge-slack} times the area the client asked for: heavily overlapping
+ * boxes, like the airports along a route, collapse into a handful of queries, while distant ones stay apart.
+ * </p>
+ */
+@Component
+public class BoxPlanner {
+
+    private final double mergeSlack;
+    private final double maxQueryDegrees;
+    private final int concurrency;
+
+    public BoxPlanner(@Value("${batch.merge-slack:2.0}") double mergeSlack,
+                      @Value("${batch.max-query-degrees:10.0}") double maxQueryDegrees,
+                      @Value("${batch.concurrency:4}") int concurrency) {
+        this.mergeSlack = Math.max(1.0, mergeSlack);
+        this.maxQueryDegrees = maxQueryDegrees;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Groups the origins into upstream queries.
+     *
+     * @param origins The origins, each searched within its own box.
+     * @param box     The search box of an origin.
+     * @param <K>     The origin type.
+     * @return The queries, in the order of their first origin; each holds its origins in the given order.
+     */
+    public <K> List<Query<K>> plan(List<K> origins, Function<K, BoundingBox> box) {
+        int n = origins.size();
+        // slot i holds the group of origin i, then the groups merged into it (always from a later slot)
+        List<Group<K>> groups = new ArrayList<>(n);
+        for (K origin : origins) {
+            BoundingBox bounds = box.apply(origin);
+            List<K> members = new ArrayList<>();
+            members.add(origin);
+            groups.add(new Group<>(bounds, bounds.area(), members));
+        }
+        // waste of each pair (i < j), only recomputed for the group changed by a merge
+        double[][] wastes = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                wastes[i][j] = waste(groups.get(i), groups.get(j));
+            }
+        }
+
+        while (true) {
+            int bestI = -1;
+            int bestJ = -1;
+            double bestWaste = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (groups.get(i) == null) {
+                    continue;
+                }
+                for (int j = i + 1; j < n; j++) {
+                    if (wastes[i][j] < bestWaste && groups.get(j) != null) {
+                        bestWaste = wastes[i][j];
+                        bestI = i;
+                        bestJ = j;
+                    }
+                }
+            }
+            if (bestI < 0) {
+                break;
+            }
+            Group<K> a = groups.get(bestI);
+            Group<K> b = groups.set(bestJ, null);
+            a.members.addAll(b.members);
+            Group<K> merged = new Group<>(a.box.union(b.box), covered(a, b), a.members);
+            groups.set(bestI, merged);
+            for (int k = 0; k < n; k++) {
+                Group<K> other = groups.get(k);
+                if (other != null && k != bestI) {
+                    double waste = waste(merged, other);
+                    if (k < bestI) {
+                        wastes[k][bestI] = waste;
+                    } else {
+                        wastes[bestI][k] = waste;
+                    }
+                }
+            }
+        }
+
+        List<Query<K>> queries = new ArrayList<>();
+        for (Group<K> group : groups) {
+            if (group != null) {
+                queries.add(new Query<>(group.box, List.copyOf(group.members)));
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Upstream queries of a batch run at once.
+     */
+    public int concurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return The area the merged box would fetch beyond what the groups cover, or {@code +Infinity} when they
+     *         cannot be merged.
+     */
+    private double waste(Group<?> a, Group<?> b) {
+        BoundingBox union = a.box.union(b.box);
+        if (union.maxLon() - union.minLon() > maxQueryDegrees || union.maxLat() - union.minLat() > maxQueryDegrees) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double covered = covered(a, b);
+        // 1e-9: boxes of points (closestBy = 0) on the same spot or line merge, others never do
+        if (union.area() > mergeSlack * covered + 1e-9) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return union.area() - covered;
+    }
+
+    private static double covered(Group<?> a, Group<?> b) {
+        return Math.max(Math.max(a.covered, b.covered), a.covered + b.covered - a.box.overlapArea(b.box));
+    }
+
+    private record Group<K>(BoundingBox box, double covered, List<K> members) {}
+
+    /**
+     * One upstream query of a batch.
+     *
+     * @param box     The box to query, holding the boxes of all its origins.
+     * @param origins The origins whose rows are split out of the result.
+     * @param <K>     The origin type.
+     */
+    public record Query<K>(BoundingBox box, List<K> origins) {}
+}
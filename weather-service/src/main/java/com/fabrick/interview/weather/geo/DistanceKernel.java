@@ -0,0 +1,48 @@
+package com.fabrick.interview.weather.geo;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+
+/**
+ * Batch geometry primitives over coordinates laid out as primitive latitude/longitude arrays.
+ * <p>
+ * Two implementations exist: {@link ScalarDistanceKernel}, which works on every JVM, and
+ * {@link VectorDistanceKernel}, which processes several points per instruction through the
+ * incubating Vector API. {@link DistanceKernels#select(String)} picks one at startup.
+ * </p>
+ */
+public interface DistanceKernel {
+
+    /**
+     * Mean Earth radius used by the great-circle computations, in kilometres.
+     */
+    double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * Collects the positions of the points lying inside the box (edges included).
+     *
+     * @param latitudes  Point latitudes, in degrees.
+     * @param longitudes Point longitudes, in degrees.
+     * @param length     Number of points to examine, starting at index 0.
+     * @param box        The box to test against.
+     * @param matches    Output array (at least {@code length} long) receiving the matching indices, in ascending order.
+     * @return The number of indices written to {@code matches}.
+     */
+    int filterInBox(double[] latitudes, double[] longitudes, int length, BoundingBox box, int[] matches);
+
+    /**
+     * Computes the haversine (great-circle) distance between an origin and every point.
+     *
+     * @param originLat  Origin latitude, in degrees.
+     * @param originLon  Origin longitude, in degrees.
+     * @param latitudes  Point latitudes, in degrees.
+     * @param longitudes Point longitudes, in degrees.
+     * @param length     Number of points, starting at index 0.
+     * @param distances  Output array (at least {@code length} long) receiving the distances in kilometres.
+     */
+    void distances(double originLat, double originLon, double[] latitudes, double[] longitudes, int length, double[] distances);
+
+    /**
+     * @return A short name identifying the implementation (for logs and metrics).
+     */
+    String name();
+}
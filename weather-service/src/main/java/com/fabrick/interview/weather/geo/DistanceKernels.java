@@ -0,0 +1,60 @@
+package com.fabrick.interview.weather.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Selects the {@link DistanceKernel} implementation at startup.
+ * <p>
+ * The vector kernel is used only when the {@code jdk.incubator.vector} module is resolved and the
+ * CPU offers at least two double lanes; otherwise (or when forced via configuration) the scalar
+ * kernel is used. The vector class is loaded reflectively so that the scalar fallback works on
+ * JVMs started without {@code --add-modules jdk.incubator.vector}.
+ * </p>
+ */
+public final class DistanceKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceKernels.class);
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "com.fabrick.interview.weather.geo.VectorDistanceKernel";
+
+    private DistanceKernels() {}
+
+    /**
+     * @param mode {@code auto} (default), {@code vector} or {@code scalar}.
+     * @return The selected kernel; {@code vector} degrades to scalar when the Vector API is unavailable.
+     */
+    public static DistanceKernel select(String mode) {
+        String normalized = mode == null ? "auto" : mode.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals("scalar")) {
+            DistanceKernel vector = vectorKernel();
+            if (vector != null) {
+                return vector;
+            }
+            if (normalized.equals("vector")) {
+                logger.warn("Vector distance kernel requested but {} is not available, using the scalar kernel", VECTOR_MODULE);
+            }
+        }
+        return scalar();
+    }
+
+    public static DistanceKernel scalar() {
+        return new ScalarDistanceKernel();
+    }
+
+    private static DistanceKernel vectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            Class<? extends DistanceKernel> type = Class.forName(VECTOR_KERNEL).asSubclass(DistanceKernel.class);
+            int lanes = (int) type.getMethod("lanes").invoke(null);
+            return lanes >= 2 ? type.getDeclaredConstructor().newInstance() : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Unable to initialise the vector distance kernel: {}", e.toString());
+            return null;
+        }
+    }
+}
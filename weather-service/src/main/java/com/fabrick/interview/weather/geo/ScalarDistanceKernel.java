@@ -0,0 +1,44 @@
+package com.fabrick.interview.weather.geo;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+
+/**
+ * Portable {@link DistanceKernel} processing one point at a time.
+ */
+public final class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public int filterInBox(double[] latitudes, double[] longitudes, int length, BoundingBox box, int[] matches) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            double lat = latitudes[i];
+            double lon = longitudes[i];
+            if (lat >= box.minLat() && lat <= box.maxLat() && lon >= box.minLon() && lon <= box.maxLon()) {
+                matches[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void distances(double originLat, double originLon, double[] latitudes, double[] longitudes, int length, double[] distances) {
+        double lat1 = Math.toRadians(originLat);
+        double lon1 = Math.toRadians(originLon);
+        double cosLat1 = Math.cos(lat1);
+        for (int i = 0; i < length; i++) {
+            distances[i] = haversine(lat1, lon1, cosLat1, Math.toRadians(latitudes[i]), Math.toRadians(longitudes[i]));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2) {
+        double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+        double sinDLon = Math.sin((lon2 - lon1) * 0.5);
+        double a = sinDLat * sinDLat + cosLat1 * Math.cos(lat2) * sinDLon * sinDLon;
+        return 2.0 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(a, 1.0)));
+    }
+}
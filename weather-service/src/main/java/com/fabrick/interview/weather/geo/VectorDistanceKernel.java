@@ -0,0 +1,94 @@
+package com.fabrick.interview.weather.geo;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DistanceKernel} using the incubating Vector API ({@code jdk.incubator.vector}) to test
+ * bounding-box membership and compute haversine distances for {@link #lanes()} points per
+ * instruction. The remainder that does not fill a whole vector is processed by the scalar code.
+ * <p>
+ * This class must only be loaded when the {@code jdk.incubator.vector} module is resolved
+ * (JVM started with {@code --add-modules jdk.incubator.vector}); {@link DistanceKernels} takes care of that.
+ * </p>
+ */
+public final class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    @Override
+    public int filterInBox(double[] latitudes, double[] longitudes, int length, BoundingBox box, int[] matches) {
+        DoubleVector minLat = DoubleVector.broadcast(SPECIES, box.minLat());
+        DoubleVector maxLat = DoubleVector.broadcast(SPECIES, box.maxLat());
+        DoubleVector minLon = DoubleVector.broadcast(SPECIES, box.minLon());
+        DoubleVector maxLon = DoubleVector.broadcast(SPECIES, box.maxLon());
+
+        int count = 0;
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector lat = DoubleVector.fromArray(SPECIES, latitudes, i);
+            DoubleVector lon = DoubleVector.fromArray(SPECIES, longitudes, i);
+            VectorMask<Double> inside = lat.compare(VectorOperators.GE, minLat)
+                    .and(lat.compare(VectorOperators.LE, maxLat))
+                    .and(lon.compare(VectorOperators.GE, minLon))
+                    .and(lon.compare(VectorOperators.LE, maxLon));
+            long bits = inside.toLong();
+            while (bits != 0) {
+                matches[count++] = i + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        for (; i < length; i++) {
+            double lat = latitudes[i];
+            double lon = longitudes[i];
+            if (lat >= box.minLat() && lat <= box.maxLat() && lon >= box.minLon() && lon <= box.maxLon()) {
+                matches[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void distances(double originLat, double originLon, double[] latitudes, double[] longitudes, int length, double[] distances) {
+        double lat1 = Math.toRadians(originLat);
+        double lon1 = Math.toRadians(originLon);
+        double cosLat1 = Math.cos(lat1);
+
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector lat2 = DoubleVector.fromArray(SPECIES, latitudes, i).mul(DEG_TO_RAD);
+            DoubleVector lon2 = DoubleVector.fromArray(SPECIES, longitudes, i).mul(DEG_TO_RAD);
+            DoubleVector sinDLat = lat2.sub(lat1).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector sinDLon = lon2.sub(lon1).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector a = sinDLat.mul(sinDLat)
+                    .add(lat2.lanewise(VectorOperators.COS).mul(cosLat1).mul(sinDLon.mul(sinDLon)))
+                    .min(1.0);
+            a.lanewise(VectorOperators.SQRT)
+                    .lanewise(VectorOperators.ASIN)
+                    .mul(2.0 * EARTH_RADIUS_KM)
+                    .intoArray(distances, i);
+        }
+        for (; i < length; i++) {
+            distances[i] = ScalarDistanceKernel.haversine(lat1, lon1, cosLat1,
+                    Math.toRadians(latitudes[i]), Math.toRadians(longitudes[i]));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + lanes() + "x" + SPECIES.elementSize();
+    }
+
+    /**
+     * @return The number of doubles processed per vector operation on this CPU.
+     */
+    public static int lanes() {
+        return SPECIES.length();
+    }
+}
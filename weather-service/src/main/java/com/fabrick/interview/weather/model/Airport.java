@@ -1,8 +1,9 @@
 package com.fabrick.interview.weather.model;
 
-import com.fasterxml.jackson.annotation.JsonAlias;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Objects;
 
 /**
  * Data Transfer Object (DTO) representing an Airport entity.
@@ -10,20 +11,19 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * This class serves a dual purpose:
  * <ol>
  * <li>It maps incoming data from the external Aviation Weather API, handling various field names
- * (e.g., "icaoId", "station_id") via {@link JsonAlias}.</li>
+ * (e.g., "icaoId", "station_id") via {@link GeoEntityDeserializer}, ignoring the unknown ones.</li>
  * <li>It defines the clean JSON structure returned by this microservice's API via {@link JsonProperty}.</li>
  * </ol>
  * </p>
  */
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class Airport {
+@JsonDeserialize(using = GeoEntityDeserializer.AirportDeserializer.class)
+public class Airport implements GeoEntity {
 
     /**
      * The unique ICAO identifier for the airport (e.g., "KDEN").
      * Maps to multiple possible keys from the external API to ensure robustness.
      */
     @JsonProperty("id")
-    @JsonAlias({"icaoId", "station_id", "id", "siteId"})
     private String id;
 
     /**
@@ -31,35 +31,30 @@ public class Airport {
      * Output as "name" in the JSON response as per project requirements.
      */
     @JsonProperty("name")
-    @JsonAlias({"site", "name", "siteName"})
     private String name;
 
     /**
      * The state or region code where the airport is located (e.g., "CO").
      */
     @JsonProperty("state")
-    @JsonAlias({"state", "region"})
     private String state;
 
     /**
      * The country code (e.g., "US").
      */
     @JsonProperty("country")
-    @JsonAlias({"country"})
     private String country;
 
     /**
      * The latitude coordinate of the airport.
      */
     @JsonProperty("latitude")
-    @JsonAlias({"lat", "latitude"})
     private double latitude;
 
     /**
      * The longitude coordinate of the airport.
      */
     @JsonProperty("longitude")
-    @JsonAlias({"lon", "longitude"})
     private double longitude;
 
     /**
@@ -67,7 +62,6 @@ public class Airport {
      * Can be null if the external source does not provide it.
      */
     @JsonProperty("elevation")
-    @JsonAlias({"elev", "elevation", "elevation_m"})
     private Double elevation;
 
     /**
@@ -104,4 +98,22 @@ public class Airport {
     public double getLatitude() { return latitude; }
     public double getLongitude() { return longitude; }
     public Double getElevation() { return elevation; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Airport other)) return false;
+        return Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0
+                && Objects.equals(id, other.id)
+                && Objects.equals(name, other.name)
+                && Objects.equals(state, other.state)
+                && Objects.equals(country, other.country)
+                && Objects.equals(elevation, other.elevation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, state, country, latitude, longitude, elevation);
+    }
 }
\ No newline at end of file
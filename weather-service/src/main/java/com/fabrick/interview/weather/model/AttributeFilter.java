@@ -0,0 +1,74 @@
+package com.fabrick.interview.weather.model;
+
+import java.util.Locale;
+
+/**
+ * Optional attribute constraints applied to station and airport searches on top of the
+ * geographic proximity criterion.
+ * <p>
+ * Country and state codes are compared case-insensitively (they are normalized to upper case).
+ * When an elevation bound is set, entities with unknown elevation are excluded.
+ * </p>
+ *
+ * @param country      Country code (e.g. "US"), or {@code null} for any.
+ * @param state        State/region code (e.g. "CO"), or {@code null} for any.
+ * @param minElevation Minimum elevation in meters (inclusive), or {@code null} for no lower bound.
+ * @param maxElevation Maximum elevation in meters (inclusive), or {@code null} for no upper bound.
+ */
+public record AttributeFilter(String country, String state, Double minElevation, Double maxElevation) {
+
+    /**
+     * Filter accepting every entity.
+     */
+    public static final AttributeFilter NONE = new AttributeFilter(null, null, null, null);
+
+    public AttributeFilter {
+        country = normalize(country);
+        state = normalize(state);
+    }
+
+    /**
+     * @return Whether no constraint is set.
+     */
+    public boolean isEmpty() {
+        return country == null && state == null && !hasElevationBounds();
+    }
+
+    public boolean hasElevationBounds() {
+        return minElevation != null || maxElevation != null;
+    }
+
+    /**
+     * Checks every constraint against the given entity.
+     */
+    public boolean matches(GeoEntity entity) {
+        return (country == null || country.equals(normalize(entity.getCountry())))
+                && (state == null || state.equals(normalize(entity.getState())))
+                && matchesElevation(entity.getElevation());
+    }
+
+    /**
+     * Checks only the elevation constraint.
+     *
+     * @param elevation The elevation in meters, or {@code null} (or NaN) when unknown.
+     */
+    public boolean matchesElevation(Double elevation) {
+        if (!hasElevationBounds()) {
+            return true;
+        }
+        if (elevation == null || elevation.isNaN()) {
+            return false;
+        }
+        return (minElevation == null || elevation >= minElevation) && (maxElevation == null || elevation <= maxElevation);
+    }
+
+    /**
+     * Normalizes a country/state code the way both the filters and the attribute indexes expect it.
+     */
+    public static String normalize(String code) {
+        if (code == null || code.isBlank()) {
+            return null;
+        }
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,70 @@
+package com.fabrick.interview.weather.model;
+
+import java.util.Locale;
+
+/**
+ * Immutable geographic bounding box expressed in decimal degrees.
+ * <p>
+ * Instances are usually created via {@link #around(double, double, double)}, which reproduces the
+ * "closestBy" semantics of the API: the box extends {@code delta} degrees in every direction
+ * from the given point.
+ * </p>
+ *
+ * @param minLon Western edge (minimum longitude).
+ * @param minLat Southern edge (minimum latitude).
+ * @param maxLon Eastern edge (maximum longitude).
+ * @param maxLat Northern edge (maximum latitude).
+ */
+public record BoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+
+    /**
+     * Builds the box centred on the given coordinates and extended by {@code delta} degrees.
+     *
+     * @param lat   Latitude of the centre.
+     * @param lon   Longitude of the centre.
+     * @param delta Range modifier in degrees.
+     * @return The resulting bounding box.
+     */
+    public static BoundingBox around(double lat, double lon, double delta) {
+        return new BoundingBox(lon - delta, lat - delta, lon + delta, lat + delta);
+    }
+
+    /**
+     * Checks whether the given point lies inside the box (edges included).
+     */
+    public boolean contains(double lat, double lon) {
+        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    }
+
+    /**
+     * @return The smallest box holding both this box and {@code other}.
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minLon, other.minLon), Math.min(minLat, other.minLat),
+                Math.max(maxLon, other.maxLon), Math.max(maxLat, other.maxLat));
+    }
+
+    /**
+     * @return The area of the box, in square degrees.
+     */
+    public double area() {
+        return (maxLon - minLon) * (maxLat - minLat);
+    }
+
+    /**
+     * @return The area shared with {@code other}, in square degrees ({@code 0} when they are disjoint).
+     */
+    public double overlapArea(BoundingBox other) {
+        double width = Math.min(maxLon, other.maxLon) - Math.max(minLon, other.minLon);
+        double height = Math.min(maxLat, other.maxLat) - Math.max(minLat, other.minLat);
+        return width > 0 && height > 0 ? width * height : 0;
+    }
+
+    /**
+     * Formats the box as expected by the {@code bbox} query parameter of the Aviation Weather API
+     * ({@code minLon,minLat,maxLon,maxLat} with four decimal places).
+     */
+    public String toQueryParam() {
+        return String.format(Locale.US, "%.4f,%.4f,%.4f,%.4f", minLon, minLat, maxLon, maxLat);
+    }
+}
@@ -0,0 +1,16 @@
+package com.fabrick.interview.weather.model;
+
+import java.util.List;
+
+/**
+ * Pre-aggregated group of stations or airports falling in the same {@link TileCell}.
+ *
+ * @param cellId            The cell identifier, usable to drill down to the exact rows.
+ * @param count             The number of entities in the cell.
+ * @param latitude          Latitude of the centroid of the entities.
+ * @param longitude         Longitude of the centroid of the entities.
+ * @param bounds            The area covered by the cell.
+ * @param representativeIds Identifiers of the entities closest to the centroid (closest first).
+ */
+public record Cluster(String cellId, int count, double latitude, double longitude, BoundingBox bounds,
+                      List<String> representativeIds) {}
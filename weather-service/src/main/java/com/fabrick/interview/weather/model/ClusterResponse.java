@@ -0,0 +1,17 @@
+package com.fabrick.interview.weather.model;
+
+import java.util.List;
+
+/**
+ * Clustered answer to a proximity search: the cells of one zoom level intersecting the search area.
+ * <p>
+ * Cells are aggregated as a whole, so a cell on the border of the area may count entities lying
+ * slightly outside it; drilling down into a cell returns exactly the {@code count} entities it holds.
+ * </p>
+ *
+ * @param zoom        The zoom level of the cells.
+ * @param cellDegrees The size of a cell, in degrees.
+ * @param total       The sum of the cell counts.
+ * @param clusters    The non-empty cells, largest first.
+ */
+public record ClusterResponse(int zoom, double cellDegrees, long total, List<Cluster> clusters) {}
@@ -0,0 +1,26 @@
+package com.fabrick.interview.weather.model;
+
+/**
+ * Common read-only view over the geographic entities exposed by the Weather Service
+ * ({@link Station} and {@link Airport}).
+ * <p>
+ * Both DTOs share the same shape (ICAO identifier, descriptive fields and coordinates), which allows
+ * the reference-data layer to index and query them through a single code path.
+ * </p>
+ */
+public interface GeoEntity {
+
+    String getId();
+
+    String getName();
+
+    String getState();
+
+    String getCountry();
+
+    double getLatitude();
+
+    double getLongitude();
+
+    Double getElevation();
+}
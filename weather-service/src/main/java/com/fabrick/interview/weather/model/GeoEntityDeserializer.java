@@ -0,0 +1,215 @@
+package com.fabrick.interview.weather.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadCapability;
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Hand-written Jackson deserializers of {@link Station} and {@link Airport}, in place of the generic bean
+ * deserializer and its alias lookups, for every row of the {@code /stationinfo} and {@code /airport} responses (and
+ * of the reference data, peer cache and RSocket payloads).
+ * <p>
+ * One pass over the fields of the object, switching directly on their names: every key accepted by the upstream
+ * versions ({@code icaoId}, {@code lat}, {@code elev}, ...) and the canonical keys written by this service
+ * ({@code id}, {@code latitude}, {@code elevation}, ...). When a key appears more than once under different aliases,
+ * the last one wins. Unknown fields are skipped without decoding their value.
+ * </p>
+ * <p>
+ * Textual numbers are parsed from the characters of the parser buffer, never through a {@code String}; numbers may
+ * also be quoted, and a blank or {@code null} elevation is {@code null}. The state and country codes are interned
+ * in a small shared table: the rows of a response share one instance per code, and a code already seen is read
+ * without allocating.
+ * </p>
+ *
+ * @param <T> The entity type.
+ */
+public abstract class GeoEntityDeserializer<T extends GeoEntity> extends StdDeserializer<T> {
+
+    private static final CodeTable CODES = new CodeTable();
+
+    protected GeoEntityDeserializer(Class<T> type) {
+        super(type);
+    }
+
+    protected abstract T create(String id, String name, String state, String country,
+                                double latitude, double longitude, Double elevation);
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        String field;
+        if (p.isExpectedStartObjectToken()) {
+            field = p.nextFieldName();
+        } else if (p.hasToken(JsonToken.FIELD_NAME)) {
+            field = p.currentName();
+        } else if (p.hasToken(JsonToken.END_OBJECT)) {
+            field = null;
+        } else {
+            @SuppressWarnings("unchecked")
+            T unexpected = (T) ctxt.handleUnexpectedToken(handledType(), p);
+            return unexpected;
+        }
+        String id = null;
+        String name = null;
+        String state = null;
+        String country = null;
+        double latitude = 0;
+        double longitude = 0;
+        Double elevation = null;
+        for (; field != null; field = p.nextFieldName()) {
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "icaoId", "station_id", "id", "siteId" -> id = text(p, ctxt, value);
+                case "site", "name", "siteName" -> name = text(p, ctxt, value);
+                case "state", "region" -> state = code(p, ctxt, value);
+                case "country" -> country = code(p, ctxt, value);
+                case "lat", "latitude" -> latitude = orZero(number(p, ctxt, value));
+                case "lon", "longitude" -> longitude = orZero(number(p, ctxt, value));
+                case "elev", "elevation", "elevation_m" -> elevation = number(p, ctxt, value);
+                default -> p.skipChildren();
+            }
+        }
+        return create(id, name, state, country, latitude, longitude, elevation);
+    }
+
+    private static String text(JsonParser p, DeserializationContext ctxt, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isScalarValue()) {
+            return p.getValueAsString();
+        }
+        return (String) ctxt.handleUnexpectedToken(String.class, p);
+    }
+
+    private static String code(JsonParser p, DeserializationContext ctxt, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return CODES.intern(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        return text(p, ctxt, value);
+    }
+
+    private static Double number(JsonParser p, DeserializationContext ctxt, JsonToken value) throws IOException {
+        switch (value) {
+            case VALUE_NUMBER_INT:
+                return p.getDoubleValue();
+            case VALUE_NUMBER_FLOAT:
+                if (p.getReadCapabilities().isEnabled(StreamReadCapability.EXACT_FLOATS)) {
+                    // binary formats (Smile, CBOR) hold the value itself
+                    return p.getDoubleValue();
+                }
+                return NumberInput.parseDouble(p.getTextCharacters(), p.getTextOffset(), p.getTextLength(), true);
+            case VALUE_STRING:
+                return quoted(p, ctxt);
+            case VALUE_NULL:
+                return null;
+            default:
+                return (Double) ctxt.handleUnexpectedToken(Double.class, p);
+        }
+    }
+
+    private static Double quoted(JsonParser p, DeserializationContext ctxt) throws IOException {
+        char[] chars = p.getTextCharacters();
+        int start = p.getTextOffset();
+        int end = start + p.getTextLength();
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        try {
+            return NumberInput.parseDouble(chars, start, end - start, true);
+        } catch (NumberFormatException e) {
+            return (Double) ctxt.handleWeirdStringValue(Double.class, p.getText(), "not a valid number");
+        }
+    }
+
+    private static double orZero(Double value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Fixed-size table of the short codes seen, one per slot by hash, the last one winning on a collision. The race
+     * between readers and writers is benign: a {@code String} is safely published through its final fields, and a
+     * reader missing a write only allocates its own copy.
+     */
+    private static final class CodeTable {
+
+        private static final int MAX_LENGTH = 16;
+
+        private final String[] slots = new String[1024];
+
+        String intern(char[] chars, int offset, int length) {
+            if (length > MAX_LENGTH) {
+                return new String(chars, offset, length);
+            }
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (slots.length - 1);
+            String cached = slots[slot];
+            if (cached != null && matches(cached, chars, offset, length)) {
+                return cached;
+            }
+            String code = new String(chars, offset, length);
+            slots[slot] = code;
+            return code;
+        }
+
+        private static boolean matches(String cached, char[] chars, int offset, int length) {
+            if (cached.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The deserializer of {@link Station}.
+     */
+    public static final class StationDeserializer extends GeoEntityDeserializer<Station> {
+
+        public StationDeserializer() {
+            super(Station.class);
+        }
+
+        @Override
+        protected Station create(String id, String name, String state, String country,
+                                 double latitude, double longitude, Double elevation) {
+            return new Station(id, name, state, country, latitude, longitude, elevation);
+        }
+    }
+
+    /**
+     * The deserializer of {@link Airport}.
+     */
+    public static final class AirportDeserializer extends GeoEntityDeserializer<Airport> {
+
+        public AirportDeserializer() {
+            super(Airport.class);
+        }
+
+        @Override
+        protected Airport create(String id, String name, String state, String country,
+                                 double latitude, double longitude, Double elevation) {
+            return new Airport(id, name, state, country, latitude, longitude, elevation);
+        }
+    }
+}
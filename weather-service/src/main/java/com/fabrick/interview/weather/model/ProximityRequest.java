@@ -0,0 +1,29 @@
+package com.fabrick.interview.weather.model;
+
+/**
+ * The optional parameters of a proximity search sent to the RSocket endpoint, with the same meaning and defaults as
+ * the query parameters of the HTTP one.
+ *
+ * @param closestBy    Range modifier for the bounding box, in degrees, or {@code null} for 0.0.
+ * @param country      Country code filter, or {@code null}.
+ * @param state        State code filter, or {@code null}.
+ * @param minElevation Minimum elevation in meters, or {@code null}.
+ * @param maxElevation Maximum elevation in meters, or {@code null}.
+ * @param zoom         Zoom level of the clusters, or {@code null} to choose it from the box size (clustered searches only).
+ */
+public record ProximityRequest(Double closestBy, String country, String state,
+                               Double minElevation, Double maxElevation, Integer zoom) {
+
+    /**
+     * Request with every parameter defaulted.
+     */
+    public static final ProximityRequest DEFAULTS = new ProximityRequest(null, null, null, null, null, null);
+
+    public double effectiveClosestBy() {
+        return closestBy != null ? closestBy : 0.0;
+    }
+
+    public AttributeFilter filter() {
+        return new AttributeFilter(country, state, minElevation, maxElevation);
+    }
+}
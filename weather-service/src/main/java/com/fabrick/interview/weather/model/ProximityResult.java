@@ -0,0 +1,22 @@
+package com.fabrick.interview.weather.model;
+
+import java.util.List;
+
+/**
+ * The answer of a batch proximity search for one of its origins.
+ *
+ * @param id      The origin airport or station, as requested.
+ * @param results The entities found, closest first; empty when the origin is unknown.
+ * @param error   Why the origin could not be searched (e.g. unknown ID), or {@code null}.
+ * @param <T>     The entity type.
+ */
+public record ProximityResult<T extends GeoEntity>(String id, List<T> results, String error) {
+
+    public static <T extends GeoEntity> ProximityResult<T> found(String id, List<T> results) {
+        return new ProximityResult<>(id, results, null);
+    }
+
+    public static <T extends GeoEntity> ProximityResult<T> failed(String id, RuntimeException error) {
+        return new ProximityResult<>(id, List.of(), error.getMessage());
+    }
+}
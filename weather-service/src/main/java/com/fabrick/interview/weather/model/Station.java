@@ -1,8 +1,9 @@
 package com.fabrick.interview.weather.model;
 
-import com.fasterxml.jackson.annotation.JsonAlias;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Objects;
 
 /**
  * Data Transfer Object (DTO) representing a Weather Observation Station.
@@ -13,20 +14,19 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * <p>
  * Key features:
  * <ul>
- * <li><b>Robust Input:</b> Uses {@link JsonAlias} to accept various field names from the external source (e.g., "station_id", "icaoId").</li>
+ * <li><b>Robust Input:</b> Decoded by {@link GeoEntityDeserializer}, which accepts various field names from the external source (e.g., "station_id", "icaoId") and ignores the unknown ones.</li>
  * <li><b>Compliant Output:</b> Uses {@link JsonProperty} to ensure the JSON response matches the specific keys required by the assignment (e.g., outputting "site" instead of "name").</li>
  * </ul>
  * </p>
  */
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class Station {
+@JsonDeserialize(using = GeoEntityDeserializer.StationDeserializer.class)
+public class Station implements GeoEntity {
 
     /**
      * The unique ICAO identifier for the station (e.g., "KAFF").
      * Accepts multiple input keys to ensure compatibility with different API versions.
      */
     @JsonProperty("id")
-    @JsonAlias({"icaoId", "station_id", "id", "siteId"})
     private String id;
 
     /**
@@ -37,35 +37,30 @@ public class Station {
      * </p>
      */
     @JsonProperty("site")
-    @JsonAlias({"site", "name", "siteName"})
     private String name;
 
     /**
      * The state or region code where the station is located (e.g., "CO").
      */
     @JsonProperty("state")
-    @JsonAlias({"state", "region"})
     private String state;
 
     /**
      * The country code (e.g., "US").
      */
     @JsonProperty("country")
-    @JsonAlias({"country"})
     private String country;
 
     /**
      * The latitude coordinate of the station.
      */
     @JsonProperty("latitude")
-    @JsonAlias({"lat", "latitude"})
     private double latitude;
 
     /**
      * The longitude coordinate of the station.
      */
     @JsonProperty("longitude")
-    @JsonAlias({"lon", "longitude"})
     private double longitude;
 
     /**
@@ -73,7 +68,6 @@ public class Station {
      * Use of the wrapper class {@link Double} allows for null values if data is missing.
      */
     @JsonProperty("elevation")
-    @JsonAlias({"elev", "elevation", "elevation_m"})
     private Double elevation;
 
     /**
@@ -110,4 +104,22 @@ public class Station {
     public double getLatitude() { return latitude; }
     public double getLongitude() { return longitude; }
     public Double getElevation() { return elevation; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Station other)) return false;
+        return Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0
+                && Objects.equals(id, other.id)
+                && Objects.equals(name, other.name)
+                && Objects.equals(state, other.state)
+                && Objects.equals(country, other.country)
+                && Objects.equals(elevation, other.elevation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, state, country, latitude, longitude, elevation);
+    }
 }
\ No newline at end of file
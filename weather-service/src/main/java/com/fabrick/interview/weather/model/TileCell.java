@@ -0,0 +1,100 @@
+package com.fabrick.interview.weather.model;
+
+import com.fabrick.interview.weather.exception.InvalidClusterCellException;
+
+/**
+ * Address of a cell in the tile pyramid used to cluster stations and airports.
+ * <p>
+ * At zoom level {@code z} the world is divided into square cells of {@code 360 / 2^z} degrees:
+ * {@code 2^z} columns of longitude and {@code 2^(z-1)} rows of latitude (a single row at zoom 0).
+ * Each cell splits into four cells at the next level, so the parent of {@code (z, row, col)} is
+ * {@code (z - 1, row / 2, col / 2)}. The textual identifier is {@code "zoom-row-col"}.
+ * </p>
+ *
+ * @param zoom The zoom level.
+ * @param row  The latitude band, counted northwards from the South Pole.
+ * @param col  The longitude band, counted eastwards from the antimeridian.
+ */
+public record TileCell(int zoom, int row, int col) {
+
+    /**
+     * Highest zoom level supported (cells of about 0.02 degrees).
+     */
+    public static final int MAX_ZOOM = 14;
+
+    /**
+     * @return The size of a cell at the given zoom level, in degrees.
+     */
+    public static double cellDegrees(int zoom) {
+        return 360.0 / (1L << zoom);
+    }
+
+    /**
+     * Returns the cell containing the given point. Points on the north pole or on the antimeridian
+     * (longitude 180) belong to the last row/column.
+     */
+    public static TileCell containing(double lat, double lon, int zoom) {
+        double degrees = cellDegrees(zoom);
+        return new TileCell(zoom, clampRow((int) Math.floor((lat + 90.0) / degrees), zoom),
+                clampColumn((int) Math.floor((lon + 180.0) / degrees), zoom));
+    }
+
+    /**
+     * Parses an identifier produced by {@link #id()}.
+     *
+     * @throws InvalidClusterCellException If the identifier is malformed or out of range.
+     */
+    public static TileCell parse(String id) {
+        String[] parts = id.split("-");
+        if (parts.length != 3) {
+            throw new InvalidClusterCellException(id);
+        }
+        try {
+            TileCell cell = new TileCell(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            if (cell.zoom < 0 || cell.zoom > MAX_ZOOM || cell.row < 0 || cell.row >= rows(cell.zoom)
+                    || cell.col < 0 || cell.col >= columns(cell.zoom)) {
+                throw new InvalidClusterCellException(id);
+            }
+            return cell;
+        } catch (NumberFormatException e) {
+            throw new InvalidClusterCellException(id);
+        }
+    }
+
+    public static int rows(int zoom) {
+        return zoom == 0 ? 1 : 1 << (zoom - 1);
+    }
+
+    public static int columns(int zoom) {
+        return 1 << zoom;
+    }
+
+    private static int clampRow(int row, int zoom) {
+        return Math.max(0, Math.min(row, rows(zoom) - 1));
+    }
+
+    private static int clampColumn(int col, int zoom) {
+        return Math.max(0, Math.min(col, columns(zoom) - 1));
+    }
+
+    public String id() {
+        return zoom + "-" + row + "-" + col;
+    }
+
+    /**
+     * @return The area covered by the cell.
+     */
+    public BoundingBox bounds() {
+        double degrees = cellDegrees(zoom);
+        double minLat = row * degrees - 90.0;
+        double minLon = col * degrees - 180.0;
+        return new BoundingBox(minLon, minLat, Math.min(minLon + degrees, 180.0), Math.min(minLat + degrees, 90.0));
+    }
+
+    /**
+     * @return Whether the given point belongs to this cell (see {@link #containing(double, double, int)}).
+     */
+    public boolean contains(double lat, double lon) {
+        return equals(containing(lat, lon, zoom));
+    }
+}
@@ -0,0 +1,78 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.AttributeFilter;
+import org.roaringbitmap.buffer.BufferFastAggregation;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.util.NavigableMap;
+
+/**
+ * Compressed (Roaring) bitmap indexes over the attributes of a {@link GeoTable}, mapping each
+ * attribute value to the set of entity ordinals holding it.
+ * <p>
+ * Elevations are indexed in buckets of {@value #ELEVATION_BUCKET_METERS} meters, so an elevation
+ * range selects a superset of the matching entities: callers must still check the exact bounds
+ * (without materializing the entity) for the candidates they keep.
+ * </p>
+ */
+interface AttributeBitmaps {
+
+    double ELEVATION_BUCKET_METERS = 250.0;
+
+    /**
+     * @return The ordinals of the entities with the given (normalized) country code, or {@code null} if none.
+     */
+    ImmutableRoaringBitmap country(String code);
+
+    /**
+     * @return The ordinals of the entities with the given (normalized) state code, or {@code null} if none.
+     */
+    ImmutableRoaringBitmap state(String code);
+
+    /**
+     * @return The elevation buckets, ordered by bucket number; entities with unknown elevation are not indexed.
+     */
+    NavigableMap<Integer, ImmutableRoaringBitmap> elevationBuckets();
+
+    static int elevationBucket(double elevation) {
+        return (int) Math.floor(elevation / ELEVATION_BUCKET_METERS);
+    }
+
+    /**
+     * Intersects the bitmaps selected by every constraint of the filter.
+     *
+     * @param filter The attribute constraints.
+     * @return {@code null} when the filter has no constraint (every ordinal qualifies), otherwise the
+     * candidate ordinals (possibly empty).
+     */
+    default ImmutableRoaringBitmap select(AttributeFilter filter) {
+        if (filter.isEmpty()) {
+            return null;
+        }
+        ImmutableRoaringBitmap result = null;
+        if (filter.country() != null) {
+            result = country(filter.country());
+            if (result == null) {
+                return new MutableRoaringBitmap();
+            }
+        }
+        if (filter.state() != null) {
+            ImmutableRoaringBitmap states = state(filter.state());
+            if (states == null) {
+                return new MutableRoaringBitmap();
+            }
+            result = result == null ? states : ImmutableRoaringBitmap.and(result, states);
+        }
+        if (filter.hasElevationBounds()) {
+            int from = filter.minElevation() == null ? Integer.MIN_VALUE : elevationBucket(filter.minElevation());
+            int to = filter.maxElevation() == null ? Integer.MAX_VALUE : elevationBucket(filter.maxElevation());
+            if (from > to) {
+                return new MutableRoaringBitmap();
+            }
+            MutableRoaringBitmap band = BufferFastAggregation.or(elevationBuckets().subMap(from, true, to, true).values().iterator());
+            result = result == null ? band : ImmutableRoaringBitmap.and(result, band);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.GeoEntity;
+
+/**
+ * Creates an entity from its raw attributes. Matches the full constructors of
+ * {@link com.fabrick.interview.weather.model.Station} and {@link com.fabrick.interview.weather.model.Airport},
+ * so {@code Station::new} and {@code Airport::new} can be used directly.
+ *
+ * @param <T> The entity type.
+ */
+@FunctionalInterface
+public interface GeoEntityFactory<T extends GeoEntity> {
+
+    T create(String id, String name, String state, String country, double latitude, double longitude, Double elevation);
+}
@@ -0,0 +1,54 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.GeoEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only, queryable collection of geographic entities (stations or airports) belonging to a
+ * {@link ReferenceSnapshot}.
+ * <p>
+ * Implementations must be immutable and thread-safe: a table is shared by every request that
+ * observed the snapshot it belongs to.
+ * </p>
+ *
+ * @param <T> The entity type.
+ */
+public interface GeoTable<T extends GeoEntity> {
+
+    /**
+     * @return The number of entities held by the table.
+     */
+    int size();
+
+    /**
+     * Looks up an entity by its ICAO identifier.
+     *
+     * @param id The identifier (case-sensitive, as provided by the upstream source).
+     * @return The entity, or empty if the table does not contain it.
+     */
+    Optional<T> findById(String id);
+
+    /**
+     * Returns every entity located inside the given bounding box (edges included).
+     *
+     * @param box The area to search.
+     * @return The matching entities, in no particular order.
+     */
+    default List<T> findInBox(BoundingBox box) {
+        return findInBox(box, AttributeFilter.NONE);
+    }
+
+    /**
+     * Returns every entity located inside the given bounding box (edges included) and matching the
+     * given attribute constraints.
+     *
+     * @param box    The area to search.
+     * @param filter The attribute constraints ({@link AttributeFilter#NONE} for none).
+     * @return The matching entities, in no particular order.
+     */
+    List<T> findInBox(BoundingBox box, AttributeFilter filter);
+}
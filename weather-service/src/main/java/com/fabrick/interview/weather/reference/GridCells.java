@@ -0,0 +1,37 @@
+package com.fabrick.interview.weather.reference;
+
+/**
+ * Helper for the fixed-size latitude/longitude grid used to partition the reference datasets.
+ * <p>
+ * A cell is identified by a {@code long} key packing its row (latitude band) in the upper 32 bits
+ * and its column (longitude band) in the lower 32 bits.
+ * </p>
+ */
+final class GridCells {
+
+    private GridCells() {}
+
+    static int row(double lat, double cellDegrees) {
+        return (int) Math.floor((lat + 90.0) / cellDegrees);
+    }
+
+    static int column(double lon, double cellDegrees) {
+        return (int) Math.floor((lon + 180.0) / cellDegrees);
+    }
+
+    static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    static long keyOf(double lat, double lon, double cellDegrees) {
+        return key(row(lat, cellDegrees), column(lon, cellDegrees));
+    }
+
+    static int rowOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int columnOf(long key) {
+        return (int) key;
+    }
+}
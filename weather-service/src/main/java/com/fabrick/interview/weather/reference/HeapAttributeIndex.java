@@ -0,0 +1,151 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.GeoEntity;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable {@link AttributeBitmaps} for a {@link HeapGeoTable}.
+ * <p>
+ * Like the grid index, the attribute index supports copy-on-write deltas: {@link #apply(Map, Map)}
+ * clones only the bitmaps of the values touched by the change set and shares all the others.
+ * </p>
+ */
+final class HeapAttributeIndex implements AttributeBitmaps {
+
+    private final Map<String, ImmutableRoaringBitmap> countries;
+    private final Map<String, ImmutableRoaringBitmap> states;
+    private final NavigableMap<Integer, ImmutableRoaringBitmap> elevations;
+
+    private HeapAttributeIndex(Map<String, ImmutableRoaringBitmap> countries,
+                               Map<String, ImmutableRoaringBitmap> states,
+                               NavigableMap<Integer, ImmutableRoaringBitmap> elevations) {
+        this.countries = countries;
+        this.states = states;
+        this.elevations = elevations;
+    }
+
+    /**
+     * Indexes the given slots; {@code null} slots are skipped.
+     */
+    static HeapAttributeIndex build(List<? extends GeoEntity> slots) {
+        Editor editor = new Editor(new HashMap<>(), new HashMap<>(), new TreeMap<>());
+        for (int ordinal = 0; ordinal < slots.size(); ordinal++) {
+            GeoEntity entity = slots.get(ordinal);
+            if (entity != null) {
+                editor.add(ordinal, entity);
+            }
+        }
+        return editor.finish();
+    }
+
+    /**
+     * Derives a new index: the ordinals in {@code removed} are first dropped from the bitmaps of their
+     * old values, then the ordinals in {@code added} are added to the bitmaps of their new values.
+     *
+     * @param removed Old entities by ordinal (removed, updated or whose slot is reused).
+     * @param added   New entities by ordinal (added or updated).
+     */
+    HeapAttributeIndex apply(Map<Integer, ? extends GeoEntity> removed, Map<Integer, ? extends GeoEntity> added) {
+        Editor editor = new Editor(new HashMap<>(countries), new HashMap<>(states), new TreeMap<>(elevations));
+        removed.forEach((ordinal, entity) -> editor.remove(ordinal, entity));
+        added.forEach((ordinal, entity) -> editor.add(ordinal, entity));
+        return editor.finish();
+    }
+
+    @Override
+    public ImmutableRoaringBitmap country(String code) {
+        return countries.get(code);
+    }
+
+    @Override
+    public ImmutableRoaringBitmap state(String code) {
+        return states.get(code);
+    }
+
+    @Override
+    public NavigableMap<Integer, ImmutableRoaringBitmap> elevationBuckets() {
+        return Collections.unmodifiableNavigableMap(elevations);
+    }
+
+    /**
+     * Applies changes to copies of the index maps, cloning each shared bitmap at most once.
+     */
+    private static final class Editor {
+
+        private final Map<String, ImmutableRoaringBitmap> countries;
+        private final Map<String, ImmutableRoaringBitmap> states;
+        private final NavigableMap<Integer, ImmutableRoaringBitmap> elevations;
+        private final Set<MutableRoaringBitmap> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Editor(Map<String, ImmutableRoaringBitmap> countries,
+               Map<String, ImmutableRoaringBitmap> states,
+               NavigableMap<Integer, ImmutableRoaringBitmap> elevations) {
+            this.countries = countries;
+            this.states = states;
+            this.elevations = elevations;
+        }
+
+        void add(int ordinal, GeoEntity entity) {
+            String country = AttributeFilter.normalize(entity.getCountry());
+            String state = AttributeFilter.normalize(entity.getState());
+            if (country != null) {
+                owned(countries, country).add(ordinal);
+            }
+            if (state != null) {
+                owned(states, state).add(ordinal);
+            }
+            if (entity.getElevation() != null && !entity.getElevation().isNaN()) {
+                owned(elevations, AttributeBitmaps.elevationBucket(entity.getElevation())).add(ordinal);
+            }
+        }
+
+        void remove(int ordinal, GeoEntity entity) {
+            String country = AttributeFilter.normalize(entity.getCountry());
+            String state = AttributeFilter.normalize(entity.getState());
+            if (country != null && countries.containsKey(country)) {
+                owned(countries, country).remove(ordinal);
+            }
+            if (state != null && states.containsKey(state)) {
+                owned(states, state).remove(ordinal);
+            }
+            if (entity.getElevation() != null && !entity.getElevation().isNaN()) {
+                int bucket = AttributeBitmaps.elevationBucket(entity.getElevation());
+                if (elevations.containsKey(bucket)) {
+                    owned(elevations, bucket).remove(ordinal);
+                }
+            }
+        }
+
+        HeapAttributeIndex finish() {
+            for (MutableRoaringBitmap bitmap : owned) {
+                bitmap.runOptimize();
+            }
+            countries.values().removeIf(ImmutableRoaringBitmap::isEmpty);
+            states.values().removeIf(ImmutableRoaringBitmap::isEmpty);
+            elevations.values().removeIf(ImmutableRoaringBitmap::isEmpty);
+            return new HeapAttributeIndex(countries, states, elevations);
+        }
+
+        private <K> MutableRoaringBitmap owned(Map<K, ImmutableRoaringBitmap> index, K key) {
+            ImmutableRoaringBitmap current = index.get(key);
+            if (current instanceof MutableRoaringBitmap mutable && owned.contains(mutable)) {
+                return mutable;
+            }
+            MutableRoaringBitmap copy = current == null ? new MutableRoaringBitmap() : current.toMutableRoaringBitmap();
+            owned.add(copy);
+            index.put(key, copy);
+            return copy;
+        }
+    }
+}
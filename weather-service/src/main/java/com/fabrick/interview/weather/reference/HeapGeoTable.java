@@ -0,0 +1,380 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.DistanceKernels;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.GeoEntity;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory {@link GeoTable} backed by a hash index on the identifier and a uniform grid index on
+ * the coordinates.
+ * <p>
+ * Instances are immutable. A new version of the dataset is either indexed from scratch via
+ * {@link #build(Collection, double, DistanceKernel)} or derived from the current table via
+ * {@link #diff(Collection)} and {@link #apply(TableDelta)}: in the latter case unchanged grid cells
+ * (and the entity instances they hold) are shared with the previous table and only the cells
+ * touched by the delta are rebuilt.
+ * </p>
+ * <p>
+ * Cells fully covered by a query box are returned wholesale; the points of partially covered cells
+ * are filtered by the configured {@link DistanceKernel} over the cell's primitive coordinate arrays.
+ * </p>
+ * <p>
+ * Every entity owns a stable ordinal (its slot), which keys the {@link AttributeBitmaps} used by
+ * {@link #findInBox(BoundingBox, AttributeFilter)}. Deltas keep the ordinals of the untouched
+ * entities and hand the slots freed by removals over to the additions.
+ * </p>
+ *
+ * @param <T> The entity type.
+ */
+public final class HeapGeoTable<T extends GeoEntity> implements GeoTable<T> {
+
+    private final double cellDegrees;
+    private final DistanceKernel kernel;
+    private final List<T> slots;
+    private final Map<String, Integer> ordinals;
+    private final Map<Long, Cell<T>> cells;
+    private final HeapAttributeIndex attributes;
+
+    private HeapGeoTable(double cellDegrees, DistanceKernel kernel, List<T> slots, Map<String, Integer> ordinals,
+                         Map<Long, Cell<T>> cells, HeapAttributeIndex attributes) {
+        this.cellDegrees = cellDegrees;
+        this.kernel = kernel;
+        this.slots = slots;
+        this.ordinals = ordinals;
+        this.cells = cells;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Indexes the given entities from scratch. When the same identifier appears more than once,
+     * the last occurrence wins.
+     *
+     * @param entities    The dataset content.
+     * @param cellDegrees The size of a grid cell, in degrees.
+     * @param kernel      The kernel filtering the points of partially covered cells.
+     * @return The new table.
+     */
+    public static <T extends GeoEntity> HeapGeoTable<T> build(Collection<T> entities, double cellDegrees, DistanceKernel kernel) {
+        List<T> slots = new ArrayList<>(indexById(entities).values());
+        Map<String, Integer> ordinals = new HashMap<>(slots.size() * 2);
+        Map<Long, List<Integer>> grouped = new HashMap<>();
+        for (int ordinal = 0; ordinal < slots.size(); ordinal++) {
+            T entity = slots.get(ordinal);
+            ordinals.put(entity.getId(), ordinal);
+            grouped.computeIfAbsent(GridCells.keyOf(entity.getLatitude(), entity.getLongitude(), cellDegrees),
+                    k -> new ArrayList<>()).add(ordinal);
+        }
+
+        Map<Long, Cell<T>> cells = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((key, members) -> cells.put(key, Cell.of(members, slots)));
+        return new HeapGeoTable<>(cellDegrees, kernel, slots, ordinals, cells, HeapAttributeIndex.build(slots));
+    }
+
+    /**
+     * Same as {@link #build(Collection, double, DistanceKernel)} with the scalar kernel.
+     */
+    public static <T extends GeoEntity> HeapGeoTable<T> build(Collection<T> entities, double cellDegrees) {
+        return build(entities, cellDegrees, DistanceKernels.scalar());
+    }
+
+    /**
+     * Computes the difference between this table and a freshly loaded version of the dataset.
+     *
+     * @param fresh The complete content of the new version.
+     * @return The delta to hand to {@link #apply(TableDelta)}.
+     */
+    public TableDelta<T> diff(Collection<T> fresh) {
+        Map<String, T> freshById = indexById(fresh);
+        Map<String, T> added = new HashMap<>();
+        Map<String, T> updated = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+
+        freshById.forEach((id, entity) -> {
+            T current = get(id);
+            if (current == null) {
+                added.put(id, entity);
+            } else if (!current.equals(entity)) {
+                updated.put(id, entity);
+            }
+        });
+        for (String id : ordinals.keySet()) {
+            if (!freshById.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        return new TableDelta<>(added, updated, removed);
+    }
+
+    /**
+     * Derives a new table by applying the given delta, rebuilding only the grid cells that contain
+     * (or contained) a changed entity and only the attribute bitmaps of the changed values.
+     *
+     * @param delta The changes, usually computed by {@link #diff(Collection)}.
+     * @return The new table together with the number of rebuilt cells.
+     */
+    public DeltaResult<T> apply(TableDelta<T> delta) {
+        if (delta.isEmpty()) {
+            return new DeltaResult<>(this, 0);
+        }
+
+        List<T> newSlots = new ArrayList<>(slots);
+        Map<String, Integer> newOrdinals = new HashMap<>(ordinals);
+        Map<Integer, T> vacated = new HashMap<>();
+        Map<Integer, T> filled = new HashMap<>();
+        Set<Long> affected = new HashSet<>();
+        Deque<Integer> free = new ArrayDeque<>();
+
+        // Cells that lose an entity (removed, or updated and possibly moved elsewhere)
+        for (String id : delta.removed()) {
+            int ordinal = ordinals.get(id);
+            T previous = slots.get(ordinal);
+            affected.add(cellKey(previous));
+            vacated.put(ordinal, previous);
+            newSlots.set(ordinal, null);
+            newOrdinals.remove(id);
+            free.add(ordinal);
+        }
+        delta.updated().forEach((id, entity) -> {
+            int ordinal = ordinals.get(id);
+            T previous = slots.get(ordinal);
+            affected.add(cellKey(previous));
+            affected.add(cellKey(entity));
+            vacated.put(ordinal, previous);
+            filled.put(ordinal, entity);
+            newSlots.set(ordinal, entity);
+        });
+
+        // Additions reuse the slots freed by the removals first
+        delta.added().forEach((id, entity) -> {
+            int ordinal;
+            if (free.isEmpty()) {
+                ordinal = newSlots.size();
+                newSlots.add(entity);
+            } else {
+                ordinal = free.poll();
+                newSlots.set(ordinal, entity);
+            }
+            affected.add(cellKey(entity));
+            filled.put(ordinal, entity);
+            newOrdinals.put(id, ordinal);
+        });
+
+        // Carry over the untouched members of every affected cell, then add the upserts
+        Map<Long, List<Integer>> rebuilt = new HashMap<>();
+        for (Long key : affected) {
+            List<Integer> members = new ArrayList<>();
+            Cell<T> previous = cells.get(key);
+            if (previous != null) {
+                for (int ordinal : previous.ordinals()) {
+                    if (!vacated.containsKey(ordinal)) {
+                        members.add(ordinal);
+                    }
+                }
+            }
+            rebuilt.put(key, members);
+        }
+        filled.forEach((ordinal, entity) -> rebuilt.get(cellKey(entity)).add(ordinal));
+
+        Map<Long, Cell<T>> newCells = new HashMap<>(cells);
+        rebuilt.forEach((key, members) -> {
+            if (members.isEmpty()) {
+                newCells.remove(key);
+            } else {
+                newCells.put(key, Cell.of(members, newSlots));
+            }
+        });
+        HeapGeoTable<T> table = new HeapGeoTable<>(cellDegrees, kernel, newSlots, newOrdinals, newCells,
+                attributes.apply(vacated, filled));
+        return new DeltaResult<>(table, rebuilt.size());
+    }
+
+    @Override
+    public int size() {
+        return ordinals.size();
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    /**
+     * Intersects the attribute bitmaps selected by the filter, then picks the cheaper plan: when the
+     * selection is smaller than the spatial candidates (the members of the overlapping cells) its ordinals
+     * are checked against the box directly, otherwise the cells are scanned and their points are kept only
+     * if their ordinal is selected.
+     */
+    @Override
+    public List<T> findInBox(BoundingBox box, AttributeFilter filter) {
+        ImmutableRoaringBitmap selected = attributes.select(filter);
+        if (selected == null) {
+            return findInBox(box, null, filter);
+        }
+        if (selected.isEmpty()) {
+            return List.of();
+        }
+
+        long[] spatialCandidates = new long[1];
+        forEachOverlappingCell(box, (cell, row, col) -> spatialCandidates[0] += cell.ordinals().length);
+        if (selected.getLongCardinality() >= spatialCandidates[0]) {
+            return findInBox(box, selected, filter);
+        }
+
+        List<T> result = new ArrayList<>();
+        selected.forEach((int ordinal) -> {
+            T entity = slots.get(ordinal);
+            if (entity != null && box.contains(entity.getLatitude(), entity.getLongitude())
+                    && filter.matchesElevation(entity.getElevation())) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return The number of non-empty grid cells.
+     */
+    public int cellCount() {
+        return cells.size();
+    }
+
+    private List<T> findInBox(BoundingBox box, ImmutableRoaringBitmap selected, AttributeFilter filter) {
+        List<T> result = new ArrayList<>();
+        forEachOverlappingCell(box, (cell, row, col) -> collect(cell, row, col, box, selected, filter, result));
+        return result;
+    }
+
+    private void forEachOverlappingCell(BoundingBox box, CellVisitor<T> visitor) {
+        int minRow = Math.max(GridCells.row(box.minLat(), cellDegrees), 0);
+        int maxRow = GridCells.row(Math.min(box.maxLat(), 90.0), cellDegrees);
+        // clamped like the rows: a negative column would pack into a key sorting after every column of its row
+        int minCol = Math.max(GridCells.column(box.minLon(), cellDegrees), 0);
+        int maxCol = GridCells.column(Math.min(box.maxLon(), 180.0), cellDegrees);
+        if (minRow > maxRow || minCol > maxCol) {
+            return;
+        }
+
+        long candidateCells = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (candidateCells <= cells.size()) {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    Cell<T> cell = cells.get(GridCells.key(row, col));
+                    if (cell != null) {
+                        visitor.visit(cell, row, col);
+                    }
+                }
+            }
+        } else {
+            // Very wide boxes: scanning the populated cells is cheaper than probing empty ones
+            cells.forEach((key, cell) -> {
+                int row = GridCells.rowOf(key);
+                int col = GridCells.columnOf(key);
+                if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol) {
+                    visitor.visit(cell, row, col);
+                }
+            });
+        }
+    }
+
+    private void collect(Cell<T> cell, int row, int col, BoundingBox box, ImmutableRoaringBitmap selected,
+                         AttributeFilter filter, List<T> result) {
+        double cellMinLat = row * cellDegrees - 90.0;
+        double cellMinLon = col * cellDegrees - 180.0;
+        boolean fullyInside = cellMinLat >= box.minLat() && cellMinLat + cellDegrees <= box.maxLat()
+                && cellMinLon >= box.minLon() && cellMinLon + cellDegrees <= box.maxLon();
+        if (fullyInside && selected == null) {
+            result.addAll(cell.entities());
+            return;
+        }
+
+        int[] matches;
+        int count;
+        if (fullyInside) {
+            matches = null;
+            count = cell.ordinals().length;
+        } else {
+            matches = new int[cell.ordinals().length];
+            count = kernel.filterInBox(cell.latitudes(), cell.longitudes(), matches.length, box, matches);
+        }
+        for (int i = 0; i < count; i++) {
+            int index = matches == null ? i : matches[i];
+            if (selected == null) {
+                result.add(cell.entities().get(index));
+            } else if (selected.contains(cell.ordinals()[index])) {
+                T entity = cell.entities().get(index);
+                if (filter.matchesElevation(entity.getElevation())) {
+                    result.add(entity);
+                }
+            }
+        }
+    }
+
+    private T get(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? null : slots.get(ordinal);
+    }
+
+    private long cellKey(T entity) {
+        return GridCells.keyOf(entity.getLatitude(), entity.getLongitude(), cellDegrees);
+    }
+
+    private static <T extends GeoEntity> Map<String, T> indexById(Collection<T> entities) {
+        Map<String, T> byId = new LinkedHashMap<>(entities.size() * 2);
+        for (T entity : entities) {
+            if (entity != null && entity.getId() != null) {
+                byId.put(entity.getId(), entity);
+            }
+        }
+        return byId;
+    }
+
+    /**
+     * Outcome of {@link #apply(TableDelta)}.
+     *
+     * @param table        The derived table.
+     * @param rebuiltCells The number of grid cells that had to be rebuilt.
+     */
+    public record DeltaResult<T extends GeoEntity>(HeapGeoTable<T> table, int rebuiltCells) {}
+
+    @FunctionalInterface
+    private interface CellVisitor<T> {
+        void visit(Cell<T> cell, int row, int col);
+    }
+
+    /**
+     * A grid cell: its members and their ordinals, plus their coordinates laid out as primitive arrays, so that
+     * partially covered cells can be filtered by the {@link DistanceKernel} without dereferencing every entity.
+     */
+    private record Cell<T>(List<T> entities, int[] ordinals, double[] latitudes, double[] longitudes) {
+
+        static <T extends GeoEntity> Cell<T> of(List<Integer> members, List<T> slots) {
+            List<T> entities = new ArrayList<>(members.size());
+            int[] ordinals = new int[members.size()];
+            double[] latitudes = new double[members.size()];
+            double[] longitudes = new double[members.size()];
+            for (int i = 0; i < members.size(); i++) {
+                T entity = slots.get(members.get(i));
+                entities.add(entity);
+                ordinals[i] = members.get(i);
+                latitudes[i] = entity.getLatitude();
+                longitudes[i] = entity.getLongitude();
+            }
+            return new Cell<>(List.copyOf(entities), ordinals, latitudes, longitudes);
+        }
+    }
+}
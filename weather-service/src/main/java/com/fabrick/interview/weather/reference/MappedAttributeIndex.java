@@ -0,0 +1,79 @@
+package com.fabrick.interview.weather.reference;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import static com.fabrick.interview.weather.reference.ReferenceFileFormat.*;
+
+/**
+ * {@link AttributeBitmaps} over the attributes section of a mapped table.
+ * <p>
+ * Only the small key directory is read when the table is opened; the bitmaps themselves are
+ * {@link ImmutableRoaringBitmap} views over the mapped pages and are never copied to the heap.
+ * </p>
+ */
+final class MappedAttributeIndex implements AttributeBitmaps {
+
+    private final Map<String, ImmutableRoaringBitmap> countries;
+    private final Map<String, ImmutableRoaringBitmap> states;
+    private final NavigableMap<Integer, ImmutableRoaringBitmap> elevations;
+
+    private MappedAttributeIndex(Map<String, ImmutableRoaringBitmap> countries,
+                                 Map<String, ImmutableRoaringBitmap> states,
+                                 NavigableMap<Integer, ImmutableRoaringBitmap> elevations) {
+        this.countries = countries;
+        this.states = states;
+        this.elevations = elevations;
+    }
+
+    /**
+     * @param table   The table buffer.
+     * @param section Offset of the attributes section within the table.
+     * @param strings Resolves string area references.
+     */
+    static MappedAttributeIndex read(ByteBuffer table, int section, IntFunction<String> strings) {
+        int countryCount = table.getInt(section);
+        int stateCount = table.getInt(section + 4);
+        int bucketCount = table.getInt(section + 8);
+
+        Map<String, ImmutableRoaringBitmap> countries = new HashMap<>(countryCount * 2);
+        Map<String, ImmutableRoaringBitmap> states = new HashMap<>(stateCount * 2);
+        NavigableMap<Integer, ImmutableRoaringBitmap> elevations = new TreeMap<>();
+        int entry = section + ATTRIBUTES_HEADER_SIZE;
+        for (int i = 0; i < countryCount + stateCount + bucketCount; i++, entry += ATTRIBUTE_ENTRY_SIZE) {
+            int key = table.getInt(entry);
+            ImmutableRoaringBitmap bitmap = new ImmutableRoaringBitmap(
+                    table.slice(section + table.getInt(entry + 4), table.getInt(entry + 8)).order(ORDER));
+            if (i < countryCount) {
+                countries.put(strings.apply(key), bitmap);
+            } else if (i < countryCount + stateCount) {
+                states.put(strings.apply(key), bitmap);
+            } else {
+                elevations.put(key, bitmap);
+            }
+        }
+        return new MappedAttributeIndex(countries, states, Collections.unmodifiableNavigableMap(elevations));
+    }
+
+    @Override
+    public ImmutableRoaringBitmap country(String code) {
+        return countries.get(code);
+    }
+
+    @Override
+    public ImmutableRoaringBitmap state(String code) {
+        return states.get(code);
+    }
+
+    @Override
+    public NavigableMap<Integer, ImmutableRoaringBitmap> elevationBuckets() {
+        return elevations;
+    }
+}
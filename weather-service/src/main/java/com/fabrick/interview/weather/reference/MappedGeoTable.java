@@ -0,0 +1,207 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.GeoEntity;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.fabrick.interview.weather.reference.ReferenceFileFormat.*;
+
+/**
+ * {@link GeoTable} that queries a table section of a memory-mapped reference file in place.
+ * <p>
+ * Nothing is deserialized up front: identifier lookups binary-search the id index, box queries
+ * binary-search the cell index and scan the contiguous record ranges of the matching cells, and an
+ * entity object is only created for each row actually returned. Attribute filters intersect the
+ * mapped {@link AttributeBitmaps} with the record ranges of the candidate cells, so that only the
+ * coordinates of the surviving ordinals are read. Only absolute buffer reads are
+ * used, so a single instance can be shared by any number of threads.
+ * </p>
+ *
+ * @param <T> The entity type.
+ */
+final class MappedGeoTable<T extends GeoEntity> implements GeoTable<T> {
+
+    private final ByteBuffer buffer;
+    private final GeoEntityFactory<T> factory;
+    private final double cellDegrees;
+    private final int recordCount;
+    private final int cellCount;
+    private final int idIndexStart;
+    private final int cellsStart;
+    private final int stringsStart;
+    private final AttributeBitmaps attributes;
+
+    MappedGeoTable(ByteBuffer table, GeoEntityFactory<T> factory, double cellDegrees) {
+        this.buffer = table;
+        this.factory = factory;
+        this.cellDegrees = cellDegrees;
+        this.recordCount = table.getInt(0);
+        this.cellCount = table.getInt(4);
+        this.idIndexStart = TABLE_HEADER_SIZE + recordCount * RECORD_SIZE;
+        this.cellsStart = (int) align8(idIndexStart + 4L * recordCount);
+        this.stringsStart = cellsStart + cellCount * CELL_ENTRY_SIZE;
+        this.attributes = MappedAttributeIndex.read(table, table.getInt(TABLE_ATTRIBUTES_OFFSET), this::readString);
+    }
+
+    @Override
+    public int size() {
+        return recordCount;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int ordinal = buffer.getInt(idIndexStart + mid * 4);
+            int cmp = compareString(stringRef(ordinal, RECORD_ID), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(materialize(ordinal));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<T> findInBox(BoundingBox box, AttributeFilter filter) {
+        List<T> result = new ArrayList<>();
+        ImmutableRoaringBitmap selected = attributes.select(filter);
+        if (selected == null) {
+            forEachOverlappingCell(box, (row, col, first, count) -> collect(row, col, first, count, box, result));
+            return result;
+        }
+        if (selected.isEmpty()) {
+            return result;
+        }
+
+        // Records are laid out cell by cell: the spatial candidates are a handful of ordinal ranges
+        MutableRoaringBitmap spatial = new MutableRoaringBitmap();
+        forEachOverlappingCell(box, (row, col, first, count) -> spatial.add((long) first, (long) first + count));
+        ImmutableRoaringBitmap.and(spatial, selected).forEach((int ordinal) -> {
+            int at = recordOffset(ordinal);
+            double elevation = buffer.getDouble(at + RECORD_ELEVATION);
+            if (box.contains(buffer.getDouble(at + RECORD_LATITUDE), buffer.getDouble(at + RECORD_LONGITUDE))
+                    && filter.matchesElevation(Double.isNaN(elevation) ? null : elevation)) {
+                result.add(materialize(ordinal));
+            }
+        });
+        return result;
+    }
+
+    private void forEachOverlappingCell(BoundingBox box, CellVisitor visitor) {
+        int minRow = Math.max(GridCells.row(box.minLat(), cellDegrees), 0);
+        int maxRow = GridCells.row(Math.min(box.maxLat(), 90.0), cellDegrees);
+        // clamped like the rows: a negative column would pack into a key sorting after every column of its row
+        int minCol = Math.max(GridCells.column(box.minLon(), cellDegrees), 0);
+        int maxCol = GridCells.column(Math.min(box.maxLon(), 180.0), cellDegrees);
+        if (minRow > maxRow || minCol > maxCol) {
+            return;
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            long last = GridCells.key(row, maxCol);
+            for (int cell = firstCellAtOrAfter(GridCells.key(row, minCol)); cell < cellCount; cell++) {
+                int entry = cellsStart + cell * CELL_ENTRY_SIZE;
+                long key = buffer.getLong(entry);
+                if (key > last) {
+                    break;
+                }
+                visitor.visit(GridCells.rowOf(key), GridCells.columnOf(key), buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+            }
+        }
+    }
+
+    private void collect(int row, int col, int first, int count, BoundingBox box, List<T> result) {
+        double cellMinLat = row * cellDegrees - 90.0;
+        double cellMinLon = col * cellDegrees - 180.0;
+        boolean fullyInside = cellMinLat >= box.minLat() && cellMinLat + cellDegrees <= box.maxLat()
+                && cellMinLon >= box.minLon() && cellMinLon + cellDegrees <= box.maxLon();
+
+        for (int ordinal = first; ordinal < first + count; ordinal++) {
+            int at = recordOffset(ordinal);
+            if (fullyInside || box.contains(buffer.getDouble(at + RECORD_LATITUDE), buffer.getDouble(at + RECORD_LONGITUDE))) {
+                result.add(materialize(ordinal));
+            }
+        }
+    }
+
+    private int firstCellAtOrAfter(long key) {
+        int low = 0;
+        int high = cellCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(cellsStart + mid * CELL_ENTRY_SIZE) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private T materialize(int ordinal) {
+        int at = recordOffset(ordinal);
+        double elevation = buffer.getDouble(at + RECORD_ELEVATION);
+        return factory.create(
+                readString(buffer.getInt(at + RECORD_ID)),
+                readString(buffer.getInt(at + RECORD_NAME)),
+                readString(buffer.getInt(at + RECORD_STATE)),
+                readString(buffer.getInt(at + RECORD_COUNTRY)),
+                buffer.getDouble(at + RECORD_LATITUDE),
+                buffer.getDouble(at + RECORD_LONGITUDE),
+                Double.isNaN(elevation) ? null : elevation);
+    }
+
+    private int recordOffset(int ordinal) {
+        return TABLE_HEADER_SIZE + ordinal * RECORD_SIZE;
+    }
+
+    private int stringRef(int ordinal, int field) {
+        return buffer.getInt(recordOffset(ordinal) + field);
+    }
+
+    private String readString(int ref) {
+        if (ref == NULL_STRING) {
+            return null;
+        }
+        int at = stringsStart + ref;
+        byte[] bytes = new byte[buffer.getShort(at) & 0xFFFF];
+        buffer.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the stored string at {@code ref} with {@code key} in unsigned byte order, without copying it.
+     */
+    private int compareString(int ref, byte[] key) {
+        int at = stringsStart + ref;
+        int length = buffer.getShort(at) & 0xFFFF;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(at + 2 + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(int row, int col, int first, int count);
+    }
+}
@@ -0,0 +1,109 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import static com.fabrick.interview.weather.reference.ReferenceFileFormat.*;
+
+/**
+ * Opens binary reference files (see {@link ReferenceFileFormat}) as memory-mapped
+ * {@link ReferenceSnapshot}s.
+ * <p>
+ * The file is mapped read-only, so co-located replicas mapping the same file share its pages
+ * through the OS page cache, and the heap footprint of a snapshot does not depend on the dataset
+ * size. The mapping is released by the garbage collector once no snapshot references it.
+ * </p>
+ */
+public final class MappedReferenceFile {
+
+    private MappedReferenceFile() {}
+
+    /**
+     * Reads only the version stored in the header of the file, without mapping it.
+     *
+     * @param path The reference file.
+     * @return The dataset version the file was compiled from.
+     */
+    public static String readVersion(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or EOF
+            }
+            checkHeader(path, header);
+            return version(header);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read reference file " + path, e);
+        }
+    }
+
+    /**
+     * Maps the file and exposes it as a snapshot.
+     *
+     * @param path       The reference file.
+     * @param generation Generation number to assign to the snapshot.
+     * @return A snapshot whose tables query the mapped file in place.
+     */
+    public static ReferenceSnapshot open(Path path, long generation) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Reference file too large: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ORDER);
+            checkHeader(path, mapped);
+            if (mapped.getLong(HEADER_FILE_LENGTH) != size) {
+                throw new IllegalStateException("Truncated reference file: " + path);
+            }
+
+            double cellDegrees = mapped.getDouble(HEADER_CELL_DEGREES);
+            int stationsOffset = (int) mapped.getLong(HEADER_STATIONS_OFFSET);
+            int airportsOffset = (int) mapped.getLong(HEADER_AIRPORTS_OFFSET);
+            GeoTable<Station> stations = new MappedGeoTable<>(
+                    mapped.slice(stationsOffset, airportsOffset - stationsOffset).order(ORDER), Station::new, cellDegrees);
+            GeoTable<Airport> airports = new MappedGeoTable<>(
+                    mapped.slice(airportsOffset, (int) size - airportsOffset).order(ORDER), Airport::new, cellDegrees);
+            return new ReferenceSnapshot(version(mapped), generation, stations, airports, Instant.now());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map reference file " + path, e);
+        }
+    }
+
+    /**
+     * @return Whether a reference file exists at the given path.
+     */
+    public static boolean exists(Path path) {
+        return Files.isRegularFile(path);
+    }
+
+    private static void checkHeader(Path path, ByteBuffer header) {
+        if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a reference file: " + path);
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported reference file format " + header.getInt(4) + ": " + path);
+        }
+    }
+
+    private static String version(ByteBuffer header) {
+        byte[] raw = new byte[VERSION_LENGTH];
+        header.get(HEADER_VERSION, raw);
+        int length = 0;
+        while (length < raw.length && raw[length] != 0) {
+            length++;
+        }
+        return new String(raw, 0, length, StandardCharsets.US_ASCII);
+    }
+}
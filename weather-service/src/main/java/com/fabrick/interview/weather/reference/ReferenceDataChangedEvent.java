@@ -0,0 +1,10 @@
+package com.fabrick.interview.weather.reference;
+
+/**
+ * Published by the {@link ReferenceDataManager} when a new snapshot replaces the active one.
+ *
+ * @param previousVersion Version of the replaced snapshot.
+ * @param version         Version of the new active snapshot.
+ */
+public record ReferenceDataChangedEvent(String previousVersion, String version) {
+}
@@ -0,0 +1,90 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the raw station and airport reference datasets.
+ * <p>
+ * Each dataset is a JSON array in the same format returned by the Aviation Weather API
+ * (e.g. the {@code stations.cache.json.gz} bulk file), so the regular {@link Station} and
+ * {@link Airport} mappings are reused. Locations are Spring resource locations
+ * ({@code file:}, {@code classpath:}, {@code https:}); a {@code .gz} suffix enables transparent
+ * decompression.
+ * </p>
+ */
+@Component
+public class ReferenceDataLoader {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    public ReferenceDataLoader(ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Loads both datasets. Blocking: callers must run it off the request threads.
+     *
+     * @param stationsLocation Location of the stations file (may be blank).
+     * @param airportsLocation Location of the airports file (may be blank).
+     * @return The parsed content together with a checksum identifying this version.
+     */
+    public LoadedDataset load(String stationsLocation, String airportsLocation) {
+        MessageDigest digest = sha256();
+        List<Station> stations = read(stationsLocation, Station.class, digest);
+        List<Airport> airports = read(airportsLocation, Airport.class, digest);
+        String checksum = HexFormat.of().formatHex(digest.digest(), 0, 6);
+        return new LoadedDataset(checksum, stations, airports);
+    }
+
+    private <T> List<T> read(String location, Class<T> type, MessageDigest digest) {
+        if (!StringUtils.hasText(location)) {
+            return List.of();
+        }
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream raw = resource.getInputStream();
+             InputStream in = location.endsWith(".gz") ? new GZIPInputStream(raw) : raw) {
+            byte[] content = in.readAllBytes();
+            digest.update(content);
+            CollectionType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, type);
+            return objectMapper.readValue(new ByteArrayInputStream(content), listType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read reference dataset from " + location, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Raw content of one version of the reference datasets.
+     *
+     * @param checksum Short hex digest of the source bytes, used as the snapshot version.
+     * @param stations The parsed stations.
+     * @param airports The parsed airports.
+     */
+    public record LoadedDataset(String checksum, List<Station> stations, List<Airport> airports) {}
+}
@@ -0,0 +1,270 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.ReferenceDataLoader.LoadedDataset;
+import com.fabrick.interview.weather.reference.ReferenceDataStatus.Mode;
+import com.fabrick.interview.weather.reference.ReferenceDataStatus.Reload;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the locally held copy of the station and airport reference datasets.
+ * <p>
+ * Reloads run on a dedicated single-threaded scheduler, so they are serialized and never execute on
+ * the request (event-loop) threads. Each reload:
+ * <ol>
+ * <li>Loads the new version of the source files and skips the swap if its checksum is unchanged.</li>
+ * <li>Diffs it against the active snapshot and, when the change set is small enough, derives the new
+ * tables by applying the delta (rebuilding only the affected grid cells and sharing everything else).</li>
+ * <li>Publishes the new immutable {@link ReferenceSnapshot} with a single atomic reference swap.
+ * In-flight requests keep using the snapshot they already read; the previous one becomes garbage as
+ * soon as they complete. A {@link ReferenceDataChangedEvent} is then published, so that results derived
+ * from the previous version can be dropped.</li>
+ * </ol>
+ * </p>
+ * <p>
+ * When {@code reference-data.mapped-file} is set, snapshots are served from a memory-mapped binary
+ * file instead (see {@link MappedReferenceFile}): an existing file is mapped synchronously at startup,
+ * so the dataset is ready within milliseconds, and every reload that finds new source content
+ * recompiles the file and remaps it. Without source locations the manager only watches the file for
+ * a new version, e.g. one compiled by another replica sharing the same path.
+ * </p>
+ * <p>
+ * When no dataset location is configured the manager stays disabled and {@link #snapshot()} is
+ * always empty, letting the service fall back to the upstream API.
+ * </p>
+ */
+@Component
+public class ReferenceDataManager implements ApplicationEventPublisherAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataManager.class);
+
+    /**
+     * Above this fraction of changed entities a full rebuild is cheaper than applying the delta.
+     */
+    private static final double MAX_DELTA_RATIO = 0.5;
+
+    private final ReferenceDataLoader loader;
+    private final DistanceKernel kernel;
+    private final String stationsLocation;
+    private final String airportsLocation;
+    private final Path mappedFile;
+    private final Duration refreshInterval;
+    private final double cellDegrees;
+
+    private final AtomicReference<ReferenceSnapshot> current = new AtomicReference<>();
+    private final AtomicReference<Reload> lastReload = new AtomicReference<>();
+    private final Scheduler reloadScheduler = Schedulers.newSingle("reference-data-reload", true);
+    private Disposable refreshTask;
+    private ApplicationEventPublisher eventPublisher;
+
+    public ReferenceDataManager(ReferenceDataLoader loader,
+                                DistanceKernel kernel,
+                                @Value("${reference-data.stations-location:}") String stationsLocation,
+                                @Value("${reference-data.airports-location:}") String airportsLocation,
+                                @Value("${reference-data.mapped-file:}") String mappedFile,
+                                @Value("${reference-data.refresh-interval:PT1H}") Duration refreshInterval,
+                                @Value("${reference-data.grid-cell-degrees:1.0}") double cellDegrees) {
+        this.loader = loader;
+        this.kernel = kernel;
+        this.stationsLocation = stationsLocation;
+        this.airportsLocation = airportsLocation;
+        this.mappedFile = StringUtils.hasText(mappedFile) ? Path.of(mappedFile) : null;
+        this.refreshInterval = refreshInterval;
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * Receives the publisher of the {@link ReferenceDataChangedEvent}s, sent after each snapshot swap.
+     */
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Schedules the initial load and the periodic refresh once the application is ready to serve,
+     * so that startup is not delayed by the dataset download.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            logger.info("Reference data disabled: no dataset location configured, using the upstream API only");
+            return;
+        }
+        Duration initialDelay = Duration.ZERO;
+        if (mappedFile != null && MappedReferenceFile.exists(mappedFile)) {
+            // Mapping is cheap: serve the existing file right away and refresh it in the background
+            reloadNow();
+            if (!hasSourceLocations()) {
+                initialDelay = refreshInterval;
+            }
+        }
+        refreshTask = Flux.interval(initialDelay, refreshInterval, reloadScheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> reload(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+        reloadScheduler.dispose();
+    }
+
+    /**
+     * @return Whether at least one dataset location or a mapped file is configured.
+     */
+    public boolean isEnabled() {
+        return hasSourceLocations() || mappedFile != null;
+    }
+
+    /**
+     * Returns the active snapshot. Callers should read it once per request and keep the reference.
+     *
+     * @return The active snapshot, or empty if the feature is disabled or the first load did not complete yet.
+     */
+    public Optional<ReferenceSnapshot> snapshot() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Triggers a reload in the background.
+     *
+     * @return A {@link Mono} emitting the status after the reload completed (successfully or not).
+     */
+    public Mono<ReferenceDataStatus> reload() {
+        return Mono.fromCallable(this::reloadNow)
+                .subscribeOn(reloadScheduler)
+                .map(reload -> status());
+    }
+
+    /**
+     * @return The current state, including the active version and the latency of the last reload.
+     */
+    public ReferenceDataStatus status() {
+        ReferenceSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            return new ReferenceDataStatus(isEnabled(), null, 0, 0, 0, null, lastReload.get());
+        }
+        return new ReferenceDataStatus(isEnabled(), snapshot.version(), snapshot.generation(),
+                snapshot.stations().size(), snapshot.airports().size(), snapshot.loadedAt(), lastReload.get());
+    }
+
+    private synchronized Reload reloadNow() {
+        long start = System.nanoTime();
+        Reload reload;
+        try {
+            reload = mappedFile != null ? remap(start) : apply(loader.load(stationsLocation, airportsLocation), start);
+        } catch (RuntimeException e) {
+            logger.error("Reference data reload failed, keeping version {}", versionOf(current.get()), e);
+            reload = new Reload(Mode.FAILED, elapsedSince(start), 0, 0, Instant.now(), e.getMessage());
+        }
+        lastReload.set(reload);
+        return reload;
+    }
+
+    private Reload apply(LoadedDataset dataset, long start) {
+        ReferenceSnapshot previous = current.get();
+        if (previous != null && previous.version().equals(dataset.checksum())) {
+            logger.debug("Reference data unchanged (version {})", previous.version());
+            return new Reload(Mode.UNCHANGED, elapsedSince(start), 0, 0, Instant.now(), null);
+        }
+
+        long generation = previous == null ? 1 : previous.generation() + 1;
+        if (previous != null
+                && previous.stations() instanceof HeapGeoTable<Station> stations
+                && previous.airports() instanceof HeapGeoTable<Airport> airports) {
+            TableDelta<Station> stationDelta = stations.diff(dataset.stations());
+            TableDelta<Airport> airportDelta = airports.diff(dataset.airports());
+            int changed = stationDelta.size() + airportDelta.size();
+            int total = Math.max(dataset.stations().size() + dataset.airports().size(), 1);
+
+            if ((double) changed / total <= MAX_DELTA_RATIO) {
+                HeapGeoTable.DeltaResult<Station> newStations = stations.apply(stationDelta);
+                HeapGeoTable.DeltaResult<Airport> newAirports = airports.apply(airportDelta);
+                publish(new ReferenceSnapshot(dataset.checksum(), generation,
+                        newStations.table(), newAirports.table(), Instant.now()));
+                int rebuiltCells = newStations.rebuiltCells() + newAirports.rebuiltCells();
+                Reload reload = new Reload(Mode.DELTA, elapsedSince(start), changed, rebuiltCells, Instant.now(), null);
+                logger.info("Reference data {} -> {} (delta: {} entities, {} cells) in {} ms",
+                        previous.version(), dataset.checksum(), changed, rebuiltCells, reload.duration().toMillis());
+                return reload;
+            }
+        }
+
+        publish(new ReferenceSnapshot(dataset.checksum(), generation,
+                HeapGeoTable.build(dataset.stations(), cellDegrees, kernel),
+                HeapGeoTable.build(dataset.airports(), cellDegrees, kernel),
+                Instant.now()));
+        Reload reload = new Reload(Mode.FULL, elapsedSince(start), 0, 0, Instant.now(), null);
+        logger.info("Reference data {} -> {} (full: {} stations, {} airports) in {} ms",
+                versionOf(previous), dataset.checksum(), dataset.stations().size(), dataset.airports().size(),
+                reload.duration().toMillis());
+        return reload;
+    }
+
+    private Reload remap(long start) {
+        ReferenceSnapshot previous = current.get();
+        if (hasSourceLocations()) {
+            LoadedDataset dataset = loader.load(stationsLocation, airportsLocation);
+            if (previous != null && previous.version().equals(dataset.checksum())) {
+                return new Reload(Mode.UNCHANGED, elapsedSince(start), 0, 0, Instant.now(), null);
+            }
+            ReferenceFileWriter.write(dataset, mappedFile, cellDegrees);
+        }
+
+        if (previous != null && previous.version().equals(MappedReferenceFile.readVersion(mappedFile))) {
+            return new Reload(Mode.UNCHANGED, elapsedSince(start), 0, 0, Instant.now(), null);
+        }
+        ReferenceSnapshot snapshot = MappedReferenceFile.open(mappedFile, previous == null ? 1 : previous.generation() + 1);
+        publish(snapshot);
+        Reload reload = new Reload(Mode.MAPPED, elapsedSince(start), 0, 0, Instant.now(), null);
+        logger.info("Reference data {} -> {} (mapped {}: {} stations, {} airports) in {} ms",
+                versionOf(previous), snapshot.version(), mappedFile, snapshot.stations().size(),
+                snapshot.airports().size(), reload.duration().toMillis());
+        return reload;
+    }
+
+    private boolean hasSourceLocations() {
+        return StringUtils.hasText(stationsLocation) || StringUtils.hasText(airportsLocation);
+    }
+
+    private void publish(ReferenceSnapshot snapshot) {
+        ReferenceSnapshot previous = current.getAndSet(snapshot);
+        if (previous != null && eventPublisher != null) {
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(previous.version(), snapshot.version()));
+        }
+    }
+
+    private static String versionOf(ReferenceSnapshot snapshot) {
+        return snapshot == null ? "none" : snapshot.version();
+    }
+
+    private static Duration elapsedSince(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,57 @@
+package com.fabrick.interview.weather.reference;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Externally visible state of the {@link ReferenceDataManager}.
+ *
+ * @param enabled    Whether a reference dataset location or mapped file is configured.
+ * @param version    Version of the active snapshot, or {@code null} if none has been published yet.
+ * @param generation Generation of the active snapshot (0 if none).
+ * @param stations   Number of stations in the active snapshot.
+ * @param airports   Number of airports in the active snapshot.
+ * @param loadedAt   When the active snapshot was published.
+ * @param lastReload Outcome of the most recent reload attempt, or {@code null} if none ran yet.
+ */
+public record ReferenceDataStatus(boolean enabled,
+                                  String version,
+                                  long generation,
+                                  int stations,
+                                  int airports,
+                                  Instant loadedAt,
+                                  Reload lastReload) {
+
+    /**
+     * How a reload produced (or did not produce) a new snapshot.
+     */
+    public enum Mode {
+        /** Every index was built from scratch. */
+        FULL,
+        /** Only the changed entities and the grid cells containing them were rebuilt. */
+        DELTA,
+        /** A binary reference file was (re)compiled and/or memory-mapped. */
+        MAPPED,
+        /** The source content did not change; the active snapshot was kept. */
+        UNCHANGED,
+        /** The reload failed; the active snapshot was kept. */
+        FAILED
+    }
+
+    /**
+     * Outcome of a single reload.
+     *
+     * @param mode            How the reload was applied.
+     * @param duration        Wall-clock time spent loading, diffing and indexing.
+     * @param changedEntities Number of added, updated and removed entities (delta reloads only).
+     * @param rebuiltCells    Number of rebuilt grid cells (delta reloads only).
+     * @param completedAt     When the reload finished.
+     * @param error           Failure message ({@link Mode#FAILED} only).
+     */
+    public record Reload(Mode mode,
+                         Duration duration,
+                         int changedEntities,
+                         int rebuiltCells,
+                         Instant completedAt,
+                         String error) {}
+}
@@ -0,0 +1,80 @@
+package com.fabrick.interview.weather.reference;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary reference dataset file written by {@link ReferenceFileWriter} and memory-mapped
+ * by {@link MappedReferenceFile}. All values are little-endian.
+ *
+ * <pre>
+ * Header (64 bytes)
+ *   0  int     magic ("FBRF")
+ *   4  int     format version
+ *   8  double  grid cell size in degrees
+ *   16 long    offset of the stations table
+ *   24 long    offset of the airports table
+ *   32 long    total file length
+ *   40 byte[24] dataset version (ASCII, zero padded)
+ *
+ * Table (8-byte aligned)
+ *   0  int     record count (n)
+ *   4  int     cell count (c)
+ *   8  int     string area length
+ *   12 int     offset of the attributes section, relative to the table
+ *   16 record[n]  fixed-width records, sorted by grid cell
+ *      int[n]     ordinals sorted by identifier (unsigned UTF-8 order), padded to 8 bytes
+ *      cell[c]    (long key, int first ordinal, int count), sorted by key
+ *      strings    deduplicated entries: (unsigned short length, UTF-8 bytes), padded to 8 bytes
+ *      attributes bitmap indexes, see below
+ *
+ * Attributes section
+ *   0  int     country entries (a), 4 int state entries (s), 8 int elevation bucket entries (b), 12 int reserved
+ *   16 entry[a + s + b]  (int key, int bitmap offset relative to the section, int bitmap length)
+ *      bitmaps   Roaring bitmaps of record ordinals, in the portable serialization format
+ *   Country and state keys are string area offsets of the normalized (upper case) codes; elevation
+ *   keys are bucket numbers (see {@link AttributeBitmaps#elevationBucket(double)}).
+ *
+ * Record (40 bytes)
+ *   0  double latitude
+ *   8  double longitude
+ *   16 double elevation (NaN when unknown)
+ *   24 int    id, 28 int name, 32 int state, 36 int country (string area offsets, -1 when null)
+ * </pre>
+ */
+final class ReferenceFileFormat {
+
+    static final int MAGIC = 0x46524246;
+    static final int FORMAT_VERSION = 2;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_CELL_DEGREES = 8;
+    static final int HEADER_STATIONS_OFFSET = 16;
+    static final int HEADER_AIRPORTS_OFFSET = 24;
+    static final int HEADER_FILE_LENGTH = 32;
+    static final int HEADER_VERSION = 40;
+    static final int VERSION_LENGTH = 24;
+
+    static final int TABLE_HEADER_SIZE = 16;
+    static final int TABLE_ATTRIBUTES_OFFSET = 12;
+    static final int ATTRIBUTES_HEADER_SIZE = 16;
+    static final int ATTRIBUTE_ENTRY_SIZE = 12;
+    static final int RECORD_SIZE = 40;
+    static final int CELL_ENTRY_SIZE = 16;
+
+    static final int RECORD_LATITUDE = 0;
+    static final int RECORD_LONGITUDE = 8;
+    static final int RECORD_ELEVATION = 16;
+    static final int RECORD_ID = 24;
+    static final int RECORD_NAME = 28;
+    static final int RECORD_STATE = 32;
+    static final int RECORD_COUNTRY = 36;
+
+    static final int NULL_STRING = -1;
+
+    private ReferenceFileFormat() {}
+
+    static long align8(long value) {
+        return (value + 7) & ~7L;
+    }
+}
@@ -0,0 +1,274 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.reference.ReferenceDataLoader.LoadedDataset;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.fabrick.interview.weather.reference.ReferenceFileFormat.*;
+
+/**
+ * Compiles a {@link LoadedDataset} into the binary format described by {@link ReferenceFileFormat}.
+ * <p>
+ * The file is written next to its destination and then atomically moved in place, so replicas
+ * mapping the same path never observe a partially written file; mappings of the previous version
+ * stay valid until they are released.
+ * </p>
+ */
+public final class ReferenceFileWriter {
+
+    private ReferenceFileWriter() {}
+
+    /**
+     * Writes the dataset to {@code target}, replacing any existing file atomically.
+     *
+     * @param dataset     The dataset to compile.
+     * @param target      Destination path.
+     * @param cellDegrees Size of the grid cells of the spatial index, in degrees.
+     */
+    public static void write(LoadedDataset dataset, Path target, double cellDegrees) {
+        EncodedTable stations = encode(dataset.stations(), cellDegrees);
+        EncodedTable airports = encode(dataset.airports(), cellDegrees);
+
+        long stationsOffset = HEADER_SIZE;
+        long airportsOffset = align8(stationsOffset + stations.length());
+        long fileLength = align8(airportsOffset + airports.length());
+
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileLength);
+                out.order(ORDER);
+                out.putInt(0, MAGIC);
+                out.putInt(4, FORMAT_VERSION);
+                out.putDouble(HEADER_CELL_DEGREES, cellDegrees);
+                out.putLong(HEADER_STATIONS_OFFSET, stationsOffset);
+                out.putLong(HEADER_AIRPORTS_OFFSET, airportsOffset);
+                out.putLong(HEADER_FILE_LENGTH, fileLength);
+                byte[] version = dataset.checksum().getBytes(StandardCharsets.US_ASCII);
+                out.put(HEADER_VERSION, version, 0, Math.min(version.length, VERSION_LENGTH));
+                stations.writeTo(out, (int) stationsOffset);
+                airports.writeTo(out, (int) airportsOffset);
+                out.force();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write reference file " + target, e);
+        }
+    }
+
+    private static <T extends GeoEntity> EncodedTable encode(List<T> entities, double cellDegrees) {
+        // Deduplicate by id (last wins, as in HeapGeoTable) and lay records out cell by cell
+        Map<String, T> byId = new LinkedHashMap<>();
+        for (T entity : entities) {
+            if (entity != null && entity.getId() != null) {
+                byId.put(entity.getId(), entity);
+            }
+        }
+        List<T> records = byId.values().stream()
+                .sorted(Comparator.<T>comparingLong(e -> GridCells.keyOf(e.getLatitude(), e.getLongitude(), cellDegrees))
+                        .thenComparing(GeoEntity::getId))
+                .toList();
+
+        StringArea strings = new StringArea();
+        int[][] refs = new int[records.size()][];
+        byte[][] ids = new byte[records.size()][];
+        for (int i = 0; i < records.size(); i++) {
+            T e = records.get(i);
+            refs[i] = new int[]{strings.add(e.getId()), strings.add(e.getName()), strings.add(e.getState()), strings.add(e.getCountry())};
+            ids[i] = e.getId().getBytes(StandardCharsets.UTF_8);
+        }
+
+        Integer[] byIdOrder = new Integer[records.size()];
+        for (int i = 0; i < byIdOrder.length; i++) {
+            byIdOrder[i] = i;
+        }
+        Arrays.sort(byIdOrder, (a, b) -> Arrays.compareUnsigned(ids[a], ids[b]));
+
+        ByteArrayOutputStream cells = new ByteArrayOutputStream();
+        int cellCount = 0;
+        ByteBuffer entry = ByteBuffer.allocate(CELL_ENTRY_SIZE).order(ORDER);
+        for (int start = 0; start < records.size(); ) {
+            long key = GridCells.keyOf(records.get(start).getLatitude(), records.get(start).getLongitude(), cellDegrees);
+            int end = start + 1;
+            while (end < records.size()
+                    && GridCells.keyOf(records.get(end).getLatitude(), records.get(end).getLongitude(), cellDegrees) == key) {
+                end++;
+            }
+            entry.clear();
+            entry.putLong(key).putInt(start).putInt(end - start);
+            cells.write(entry.array(), 0, CELL_ENTRY_SIZE);
+            cellCount++;
+            start = end;
+        }
+
+        byte[] attributes = encodeAttributes(records, strings);
+        return new EncodedTable(records, refs, byIdOrder, cellCount, cells.toByteArray(), strings.toByteArray(), attributes);
+    }
+
+    /**
+     * Builds the attribute bitmaps over the record ordinals; the normalized codes are added to the string
+     * area, so this must run before the area is serialized.
+     */
+    private static byte[] encodeAttributes(List<? extends GeoEntity> records, StringArea strings) {
+        SortedMap<String, MutableRoaringBitmap> countries = new TreeMap<>();
+        SortedMap<String, MutableRoaringBitmap> states = new TreeMap<>();
+        SortedMap<Integer, MutableRoaringBitmap> elevations = new TreeMap<>();
+        for (int ordinal = 0; ordinal < records.size(); ordinal++) {
+            GeoEntity e = records.get(ordinal);
+            String country = AttributeFilter.normalize(e.getCountry());
+            String state = AttributeFilter.normalize(e.getState());
+            if (country != null) {
+                countries.computeIfAbsent(country, k -> new MutableRoaringBitmap()).add(ordinal);
+            }
+            if (state != null) {
+                states.computeIfAbsent(state, k -> new MutableRoaringBitmap()).add(ordinal);
+            }
+            if (e.getElevation() != null && !e.getElevation().isNaN()) {
+                elevations.computeIfAbsent(AttributeBitmaps.elevationBucket(e.getElevation()), k -> new MutableRoaringBitmap()).add(ordinal);
+            }
+        }
+
+        List<Integer> keys = new ArrayList<>();
+        List<MutableRoaringBitmap> bitmaps = new ArrayList<>();
+        countries.forEach((code, bitmap) -> {
+            keys.add(strings.add(code));
+            bitmaps.add(bitmap);
+        });
+        states.forEach((code, bitmap) -> {
+            keys.add(strings.add(code));
+            bitmaps.add(bitmap);
+        });
+        elevations.forEach((bucket, bitmap) -> {
+            keys.add(bucket);
+            bitmaps.add(bitmap);
+        });
+
+        int directoryEnd = ATTRIBUTES_HEADER_SIZE + bitmaps.size() * ATTRIBUTE_ENTRY_SIZE;
+        int length = directoryEnd;
+        for (MutableRoaringBitmap bitmap : bitmaps) {
+            bitmap.runOptimize();
+            length += bitmap.serializedSizeInBytes();
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(length).order(ORDER);
+        out.putInt(0, countries.size());
+        out.putInt(4, states.size());
+        out.putInt(8, elevations.size());
+        int position = directoryEnd;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            MutableRoaringBitmap bitmap = bitmaps.get(i);
+            int size = bitmap.serializedSizeInBytes();
+            int entry = ATTRIBUTES_HEADER_SIZE + i * ATTRIBUTE_ENTRY_SIZE;
+            out.putInt(entry, keys.get(i));
+            out.putInt(entry + 4, position);
+            out.putInt(entry + 8, size);
+            bitmap.serialize(out.slice(position, size).order(ORDER));
+            position += size;
+        }
+        return out.array();
+    }
+
+    /**
+     * Table content ready to be copied into the output file.
+     */
+    private record EncodedTable(List<? extends GeoEntity> records, int[][] refs, Integer[] byIdOrder,
+                                int cellCount, byte[] cells, byte[] strings, byte[] attributes) {
+
+        long recordsEnd() {
+            return TABLE_HEADER_SIZE + (long) records.size() * RECORD_SIZE;
+        }
+
+        long cellsStart() {
+            return align8(recordsEnd() + 4L * records.size());
+        }
+
+        long attributesStart() {
+            return align8(cellsStart() + cells.length + strings.length);
+        }
+
+        long length() {
+            return attributesStart() + attributes.length;
+        }
+
+        void writeTo(ByteBuffer out, int offset) {
+            out.putInt(offset, records.size());
+            out.putInt(offset + 4, cellCount);
+            out.putInt(offset + 8, strings.length);
+            out.putInt(offset + TABLE_ATTRIBUTES_OFFSET, (int) attributesStart());
+
+            for (int i = 0; i < records.size(); i++) {
+                GeoEntity e = records.get(i);
+                int at = offset + TABLE_HEADER_SIZE + i * RECORD_SIZE;
+                out.putDouble(at + RECORD_LATITUDE, e.getLatitude());
+                out.putDouble(at + RECORD_LONGITUDE, e.getLongitude());
+                out.putDouble(at + RECORD_ELEVATION, e.getElevation() == null ? Double.NaN : e.getElevation());
+                out.putInt(at + RECORD_ID, refs[i][0]);
+                out.putInt(at + RECORD_NAME, refs[i][1]);
+                out.putInt(at + RECORD_STATE, refs[i][2]);
+                out.putInt(at + RECORD_COUNTRY, refs[i][3]);
+            }
+
+            int idIndex = offset + (int) recordsEnd();
+            for (int i = 0; i < byIdOrder.length; i++) {
+                out.putInt(idIndex + i * 4, byIdOrder[i]);
+            }
+
+            int cellsAt = offset + (int) cellsStart();
+            out.put(cellsAt, cells);
+            out.put(cellsAt + cells.length, strings);
+            out.put(offset + (int) attributesStart(), attributes);
+        }
+    }
+
+    /**
+     * Deduplicating string pool: each distinct value is stored once as (unsigned short length, UTF-8 bytes).
+     */
+    private static final class StringArea {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        int add(String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+            return offsets.computeIfAbsent(value, v -> {
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                int length = Math.min(utf8.length, 0xFFFF);
+                int offset = bytes.size();
+                bytes.write(length & 0xFF);
+                bytes.write((length >>> 8) & 0xFF);
+                bytes.write(utf8, 0, length);
+                return offset;
+            });
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.model.Station;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Immutable, versioned view of the station and airport reference datasets.
+ * <p>
+ * A snapshot is published by the {@link ReferenceDataManager} through a single atomic reference
+ * swap. Request handlers read the current snapshot once and use it for the whole request, so they
+ * always observe a consistent pair of tables even while a reload is in progress.
+ * </p>
+ *
+ * @param version    Content checksum of the source files the snapshot was built from.
+ * @param generation Monotonic counter, incremented at every published snapshot.
+ * @param stations   The weather observation stations.
+ * @param airports   The airports.
+ * @param loadedAt   When the snapshot was published.
+ */
+public record ReferenceSnapshot(String version,
+                                long generation,
+                                GeoTable<Station> stations,
+                                GeoTable<Airport> airports,
+                                Instant loadedAt) {
+
+    /**
+     * Resolves the coordinates of an airport or station by identifier, looking at the airports
+     * first (consistently with the upstream metadata lookup, which queries the airport endpoint).
+     *
+     * @param id The ICAO identifier.
+     * @return The matching entity, or empty if neither table contains it.
+     */
+    public Optional<GeoEntity> findLocation(String id) {
+        Optional<GeoEntity> airport = airports.findById(id).map(GeoEntity.class::cast);
+        return airport.isPresent() ? airport : stations.findById(id).map(GeoEntity.class::cast);
+    }
+}
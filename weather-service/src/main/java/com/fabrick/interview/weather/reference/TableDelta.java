@@ -0,0 +1,33 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.GeoEntity;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Difference between the content of a {@link HeapGeoTable} and a freshly loaded version of the
+ * same dataset, keyed by entity identifier.
+ *
+ * @param added   Entities present only in the new version.
+ * @param updated Entities present in both versions whose attributes changed (new values).
+ * @param removed Identifiers present only in the old version.
+ * @param <T>     The entity type.
+ */
+public record TableDelta<T extends GeoEntity>(Map<String, T> added, Map<String, T> updated, Set<String> removed) {
+
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * @return The total number of changed entities.
+     */
+    public int size() {
+        return added.size() + updated.size() + removed.size();
+    }
+
+    boolean touches(String id) {
+        return updated.containsKey(id) || removed.contains(id) || added.containsKey(id);
+    }
+}
@@ -0,0 +1,186 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Cluster;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.model.TileCell;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated clusters of a dataset for every zoom level from 0 to a maximum (see {@link TileCell}).
+ * <p>
+ * Only the finest level is computed from the entities; every coarser level is derived from the
+ * four children of each cell (counts and coordinate sums add up, representatives are picked among
+ * the children's representatives), so building the whole pyramid costs little more than grouping
+ * the dataset once. Queries only touch the cells of the requested level, hence their cost depends
+ * on the number of cells in the area and not on the number of entities.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ *
+ * @param <T> The entity type.
+ */
+public final class TilePyramid<T extends GeoEntity> {
+
+    private final List<Map<Long, Cluster>> levels;
+
+    private TilePyramid(List<Map<Long, Cluster>> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Aggregates the entities at every zoom level up to {@code maxZoom}.
+     *
+     * @param entities        The dataset content.
+     * @param maxZoom         The finest zoom level to build.
+     * @param representatives The maximum number of representative identifiers per cluster.
+     */
+    public static <T extends GeoEntity> TilePyramid<T> build(Collection<T> entities, int maxZoom, int representatives) {
+        List<Map<Long, Cluster>> levels = new ArrayList<>(maxZoom + 1);
+        Map<Long, Aggregate> level = group(entities, maxZoom, representatives);
+        for (int zoom = maxZoom; ; zoom--) {
+            levels.add(0, toClusters(level));
+            if (zoom == 0) {
+                break;
+            }
+            level = parentsOf(level, zoom - 1, representatives);
+        }
+        return new TilePyramid<>(levels);
+    }
+
+    /**
+     * Aggregates the entities at a single zoom level, without building a pyramid (used for ad-hoc
+     * datasets such as an upstream search result).
+     */
+    public static <T extends GeoEntity> List<Cluster> aggregate(Collection<T> entities, int zoom, int representatives) {
+        return sorted(toClusters(group(entities, zoom, representatives)).values());
+    }
+
+    /**
+     * @return The finest zoom level available.
+     */
+    public int maxZoom() {
+        return levels.size() - 1;
+    }
+
+    /**
+     * Returns the non-empty cells of the given level intersecting the box, largest first.
+     *
+     * @param box  The search area.
+     * @param zoom The zoom level, at most {@link #maxZoom()}.
+     */
+    public List<Cluster> clusters(BoundingBox box, int zoom) {
+        if (box.minLat() > 90.0 || box.maxLat() < -90.0 || box.minLon() > 180.0 || box.maxLon() < -180.0) {
+            return List.of();
+        }
+        Map<Long, Cluster> level = levels.get(zoom);
+        TileCell min = TileCell.containing(Math.max(box.minLat(), -90.0), Math.max(box.minLon(), -180.0), zoom);
+        TileCell max = TileCell.containing(Math.min(box.maxLat(), 90.0), Math.min(box.maxLon(), 180.0), zoom);
+
+        List<Cluster> result = new ArrayList<>();
+        long candidateCells = (long) (max.row() - min.row() + 1) * (max.col() - min.col() + 1);
+        if (candidateCells <= level.size()) {
+            for (int row = min.row(); row <= max.row(); row++) {
+                for (int col = min.col(); col <= max.col(); col++) {
+                    Cluster cluster = level.get(GridCells.key(row, col));
+                    if (cluster != null) {
+                        result.add(cluster);
+                    }
+                }
+            }
+        } else {
+            level.forEach((key, cluster) -> {
+                int row = GridCells.rowOf(key);
+                int col = GridCells.columnOf(key);
+                if (row >= min.row() && row <= max.row() && col >= min.col() && col <= max.col()) {
+                    result.add(cluster);
+                }
+            });
+        }
+        return sorted(result);
+    }
+
+    private static <T extends GeoEntity> Map<Long, Aggregate> group(Collection<T> entities, int zoom, int representatives) {
+        Map<Long, Aggregate> level = new HashMap<>();
+        for (T entity : entities) {
+            TileCell cell = TileCell.containing(entity.getLatitude(), entity.getLongitude(), zoom);
+            Aggregate aggregate = level.computeIfAbsent(GridCells.key(cell.row(), cell.col()), k -> new Aggregate(cell));
+            aggregate.count++;
+            aggregate.latitudeSum += entity.getLatitude();
+            aggregate.longitudeSum += entity.getLongitude();
+            aggregate.candidates.add(entity);
+        }
+        level.values().forEach(aggregate -> aggregate.pickRepresentatives(representatives));
+        return level;
+    }
+
+    private static Map<Long, Aggregate> parentsOf(Map<Long, Aggregate> children, int zoom, int representatives) {
+        Map<Long, Aggregate> level = new HashMap<>();
+        for (Aggregate child : children.values()) {
+            TileCell cell = new TileCell(zoom, child.cell.row() >> 1, child.cell.col() >> 1);
+            Aggregate aggregate = level.computeIfAbsent(GridCells.key(cell.row(), cell.col()), k -> new Aggregate(cell));
+            aggregate.count += child.count;
+            aggregate.latitudeSum += child.latitudeSum;
+            aggregate.longitudeSum += child.longitudeSum;
+            aggregate.candidates.addAll(child.candidates);
+        }
+        level.values().forEach(aggregate -> aggregate.pickRepresentatives(representatives));
+        return level;
+    }
+
+    private static Map<Long, Cluster> toClusters(Map<Long, Aggregate> level) {
+        Map<Long, Cluster> clusters = new HashMap<>(level.size() * 2);
+        level.forEach((key, aggregate) -> clusters.put(key, aggregate.toCluster()));
+        return clusters;
+    }
+
+    private static List<Cluster> sorted(Collection<Cluster> clusters) {
+        List<Cluster> result = new ArrayList<>(clusters);
+        result.sort(Comparator.comparingInt(Cluster::count).reversed().thenComparing(Cluster::cellId));
+        return result;
+    }
+
+    /**
+     * Mutable accumulator of a cell while a level is being built.
+     */
+    private static final class Aggregate {
+
+        private final TileCell cell;
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private List<GeoEntity> candidates = new ArrayList<>();
+
+        Aggregate(TileCell cell) {
+            this.cell = cell;
+        }
+
+        /**
+         * Keeps only the candidates closest to the centroid (planar distance is enough to rank points of one cell).
+         */
+        void pickRepresentatives(int limit) {
+            double latitude = latitudeSum / count;
+            double longitude = longitudeSum / count;
+            candidates.sort(Comparator.<GeoEntity>comparingDouble(e -> {
+                double dLat = e.getLatitude() - latitude;
+                double dLon = e.getLongitude() - longitude;
+                return dLat * dLat + dLon * dLon;
+            }).thenComparing(GeoEntity::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+            if (candidates.size() > limit) {
+                candidates = new ArrayList<>(candidates.subList(0, limit));
+            }
+        }
+
+        Cluster toCluster() {
+            List<String> ids = candidates.stream().map(GeoEntity::getId).toList();
+            return new Cluster(cell.id(), count, latitudeSum / count, longitudeSum / count, cell.bounds(), ids);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.fabrick.interview.weather.reference;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.model.TileCell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the {@link TilePyramid}s of the active {@link ReferenceSnapshot} and the clustering settings.
+ * <p>
+ * The pyramids are built lazily, by the first clustered request that observes a new snapshot
+ * generation, so reloads are not slowed down when clustering is not used.
+ * </p>
+ */
+@Component
+public class TilePyramids {
+
+    private static final Logger logger = LoggerFactory.getLogger(TilePyramids.class);
+
+    private final int maxZoom;
+    private final int representatives;
+    private final int targetCellsPerAxis;
+    private final AtomicReference<Built> current = new AtomicReference<>();
+
+    public TilePyramids(@Value("${clusters.max-zoom:10}") int maxZoom,
+                        @Value("${clusters.representatives:3}") int representatives,
+                        @Value("${clusters.target-cells-per-axis:16}") int targetCellsPerAxis) {
+        this.maxZoom = Math.max(0, Math.min(maxZoom, TileCell.MAX_ZOOM));
+        this.representatives = representatives;
+        this.targetCellsPerAxis = targetCellsPerAxis;
+    }
+
+    public TilePyramid<Station> stations(ReferenceSnapshot snapshot) {
+        return forSnapshot(snapshot).stations();
+    }
+
+    public TilePyramid<Airport> airports(ReferenceSnapshot snapshot) {
+        return forSnapshot(snapshot).airports();
+    }
+
+    /**
+     * Resolves the zoom level of a clustered search.
+     *
+     * @param requested The zoom level asked by the client, or {@code null} to pick the finest level at which
+     *                  the box spans at most {@code clusters.target-cells-per-axis} cells per axis.
+     * @param box       The search area.
+     * @return A zoom level between 0 and {@code clusters.max-zoom}.
+     */
+    public int zoomFor(Integer requested, BoundingBox box) {
+        int zoom;
+        if (requested != null) {
+            zoom = requested;
+        } else {
+            double span = Math.max(box.maxLon() - box.minLon(), box.maxLat() - box.minLat());
+            zoom = span <= 0 ? maxZoom : (int) Math.floor(Math.log(360.0 * targetCellsPerAxis / span) / Math.log(2));
+        }
+        return Math.max(0, Math.min(zoom, maxZoom));
+    }
+
+    public int representatives() {
+        return representatives;
+    }
+
+    private Built forSnapshot(ReferenceSnapshot snapshot) {
+        Built built = current.get();
+        if (built != null && built.generation() == snapshot.generation()) {
+            return built;
+        }
+        synchronized (this) {
+            built = current.get();
+            if (built == null || built.generation() != snapshot.generation()) {
+                long start = System.nanoTime();
+                BoundingBox world = new BoundingBox(-180.0, -90.0, 180.0, 90.0);
+                built = new Built(snapshot.generation(),
+                        TilePyramid.build(snapshot.stations().findInBox(world), maxZoom, representatives),
+                        TilePyramid.build(snapshot.airports().findInBox(world), maxZoom, representatives));
+                current.set(built);
+                logger.info("Tile pyramids built for reference data {} (zoom 0-{}) in {} ms",
+                        snapshot.version(), maxZoom, (System.nanoTime() - start) / 1_000_000);
+            }
+            return built;
+        }
+    }
+
+    private record Built(long generation, TilePyramid<Station> stations, TilePyramid<Airport> airports) {}
+}
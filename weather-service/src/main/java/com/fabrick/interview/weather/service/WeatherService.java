@@ -1,10 +1,33 @@
 package com.fabrick.interview.weather.service;
 
 import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.ProximityResult;
 import com.fabrick.interview.weather.model.Station;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface WeatherService {
-    Flux<Station> findStationsCloseToAirport(String airportId, double closestBy);
-    Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy);
+    default Flux<Station> findStationsCloseToAirport(String airportId, double closestBy) {
+        return findStationsCloseToAirport(airportId, closestBy, AttributeFilter.NONE);
+    }
+
+    default Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy) {
+        return findAirportsCloseToStation(stationId, closestBy, AttributeFilter.NONE);
+    }
+
+    Flux<Station> findStationsCloseToAirport(String airportId, double closestBy, AttributeFilter filter);
+    Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy, AttributeFilter filter);
+
+    Flux<ProximityResult<Station>> findStationsCloseToAirports(List<String> airportIds, double closestBy, AttributeFilter filter);
+    Flux<ProximityResult<Airport>> findAirportsCloseToStations(List<String> stationIds, double closestBy, AttributeFilter filter);
+
+    Mono<ClusterResponse> clusterStationsCloseToAirport(String airportId, double closestBy, Integer zoom);
+    Mono<ClusterResponse> clusterAirportsCloseToStation(String stationId, double closestBy, Integer zoom);
+
+    Flux<Station> findStationsInCluster(String airportId, String cellId);
+    Flux<Airport> findAirportsInCluster(String stationId, String cellId);
 }
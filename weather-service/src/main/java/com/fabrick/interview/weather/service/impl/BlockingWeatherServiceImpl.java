@@ -0,0 +1,222 @@
+package com.fabrick.interview.weather.service.impl;
+
+import com.fabrick.interview.support.blocking.BlockingCalls;
+import com.fabrick.interview.support.response.RenderedResponseCache;
+import com.fabrick.interview.weather.client.BlockingAviationApiClient;
+import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.exception.StationNotFoundException;
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.model.ProximityResult;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.model.TileCell;
+import com.fabrick.interview.weather.reference.GeoTable;
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.ReferenceSnapshot;
+import com.fabrick.interview.weather.reference.TilePyramid;
+import com.fabrick.interview.weather.reference.TilePyramids;
+import com.fabrick.interview.weather.service.WeatherService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the {@link WeatherService} for the {@code virtual-threads} profile: the same searches,
+ * stages and metrics as {@link WeatherServiceImpl}, written as sequential blocking code over
+ * {@link BlockingAviationApiClient} and run on a virtual thread per request (see {@link BlockingCalls}).
+ * <p>
+ * The upstream queries of a batch search run one after the other, and its results are emitted once all are done.
+ * </p>
+ */
+@Service
+@Profile("virtual-threads")
+public class BlockingWeatherServiceImpl implements WeatherService {
+
+    private final BlockingAviationApiClient apiClient;
+    private final ReferenceDataManager referenceData;
+    private final TilePyramids tilePyramids;
+    private final BoxPlanner boxPlanner;
+    private final SearchStages stages;
+
+    public BlockingWeatherServiceImpl(BlockingAviationApiClient apiClient, ReferenceDataManager referenceData,
+                                      DistanceKernel distanceKernel, TilePyramids tilePyramids, BoxPlanner boxPlanner,
+                                      MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.apiClient = apiClient;
+        this.referenceData = referenceData;
+        this.tilePyramids = tilePyramids;
+        this.boxPlanner = boxPlanner;
+        this.stages = new SearchStages(distanceKernel, meterRegistry, observationRegistry);
+    }
+
+    @Override
+    public Flux<Station> findStationsCloseToAirport(String airportId, double closestBy, AttributeFilter filter) {
+        return BlockingCalls.flux(context -> findCloseTo("stations", airportId, closestBy, filter,
+                ReferenceSnapshot::stations, apiClient::getStationsInBox, () -> new AirportNotFoundException(airportId), context));
+    }
+
+    @Override
+    public Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy, AttributeFilter filter) {
+        return BlockingCalls.flux(context -> findCloseTo("airports", stationId, closestBy, filter,
+                ReferenceSnapshot::airports, apiClient::getAirportsInBox, () -> new StationNotFoundException(stationId), context));
+    }
+
+    @Override
+    public Flux<ProximityResult<Station>> findStationsCloseToAirports(List<String> airportIds, double closestBy, AttributeFilter filter) {
+        return BlockingCalls.flux(context -> findCloseToEach("stations", airportIds, closestBy, filter,
+                ReferenceSnapshot::stations, apiClient::getStationsInBox, AirportNotFoundException::new, context));
+    }
+
+    @Override
+    public Flux<ProximityResult<Airport>> findAirportsCloseToStations(List<String> stationIds, double closestBy, AttributeFilter filter) {
+        return BlockingCalls.flux(context -> findCloseToEach("airports", stationIds, closestBy, filter,
+                ReferenceSnapshot::airports, apiClient::getAirportsInBox, StationNotFoundException::new, context));
+    }
+
+    @Override
+    public Mono<ClusterResponse> clusterStationsCloseToAirport(String airportId, double closestBy, Integer zoom) {
+        return BlockingCalls.mono(context -> cluster("stations", airportId, closestBy, zoom, tilePyramids::stations,
+                apiClient::getStationsInBox, () -> new AirportNotFoundException(airportId), context));
+    }
+
+    @Override
+    public Mono<ClusterResponse> clusterAirportsCloseToStation(String stationId, double closestBy, Integer zoom) {
+        return BlockingCalls.mono(context -> cluster("airports", stationId, closestBy, zoom, tilePyramids::airports,
+                apiClient::getAirportsInBox, () -> new StationNotFoundException(stationId), context));
+    }
+
+    @Override
+    public Flux<Station> findStationsInCluster(String airportId, String cellId) {
+        return BlockingCalls.flux(context -> drillDown("stations", airportId, cellId, ReferenceSnapshot::stations,
+                apiClient::getStationsInBox, () -> new AirportNotFoundException(airportId), context));
+    }
+
+    @Override
+    public Flux<Airport> findAirportsInCluster(String stationId, String cellId) {
+        return BlockingCalls.flux(context -> drillDown("airports", stationId, cellId, ReferenceSnapshot::airports,
+                apiClient::getAirportsInBox, () -> new StationNotFoundException(stationId), context));
+    }
+
+    private <T extends GeoEntity> List<T> findCloseTo(String entity, String originId, double closestBy, AttributeFilter filter,
+                                                      Function<ReferenceSnapshot, GeoTable<T>> table,
+                                                      Function<String, List<T>> upstreamSearch,
+                                                      Supplier<RuntimeException> notFound, ContextView context) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(originId));
+        if (origin.isPresent()) {
+            RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+            BoundingBox bbox = stages.calculateBBox(context, origin.get(), closestBy);
+            List<T> results = stages.stage(context, "weather.reference.search", entity)
+                    .observe(() -> table.apply(snapshot.get()).findInBox(bbox, filter));
+            return stages.orderByDistance(context, origin.get(), stages.recordResults(entity, "reference", results));
+        }
+
+        Station meta = metadata(originId, notFound);
+        String bbox = stages.calculateBBox(context, meta, closestBy).toQueryParam();
+        RenderedResponseCache.dependsOn(context, entity, bbox);
+        List<T> results = upstreamSearch.apply(bbox).stream().filter(filter::matches).toList();
+        return stages.orderByDistance(context, meta, stages.recordResults(entity, "upstream", results));
+    }
+
+    private <T extends GeoEntity> List<ProximityResult<T>> findCloseToEach(String entity, List<String> originIds, double closestBy,
+                                                                          AttributeFilter filter,
+                                                                          Function<ReferenceSnapshot, GeoTable<T>> table,
+                                                                          Function<String, List<T>> upstreamSearch,
+                                                                          Function<String, RuntimeException> notFound,
+                                                                          ContextView context) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        List<ProximityResult<T>> results = new ArrayList<>(originIds.size());
+        List<String> remote = new ArrayList<>();
+        for (String id : originIds) {
+            if (snapshot.flatMap(s -> s.findLocation(id)).isPresent()) {
+                results.add(ProximityResult.found(id, findCloseTo(entity, id, closestBy, filter, table, upstreamSearch,
+                        () -> notFound.apply(id), context)));
+            } else {
+                remote.add(id);
+            }
+        }
+        if (remote.isEmpty()) {
+            return results;
+        }
+
+        SearchStages.BatchPlan plan = stages.planBatch(context, entity, remote, apiClient.getLocations(remote), closestBy, boxPlanner);
+        for (String id : plan.missing()) {
+            results.add(ProximityResult.failed(id, notFound.apply(id)));
+        }
+        for (BoxPlanner.Query<SearchStages.BatchOrigin> query : plan.queries()) {
+            List<T> rows;
+            try {
+                rows = upstreamSearch.apply(query.box().toQueryParam());
+            } catch (AviationServiceException e) {
+                // a failed query only fails its own origins
+                results.addAll(stages.failBatch(query, e));
+                continue;
+            }
+            results.addAll(stages.splitBatch(context, entity, query, filter, rows));
+        }
+        return results;
+    }
+
+    private <T extends GeoEntity> ClusterResponse cluster(String entity, String originId, double closestBy, Integer zoom,
+                                                          Function<ReferenceSnapshot, TilePyramid<T>> pyramid,
+                                                          Function<String, List<T>> upstreamSearch,
+                                                          Supplier<RuntimeException> notFound, ContextView context) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(originId));
+        if (origin.isPresent()) {
+            BoundingBox bbox = BoundingBox.around(origin.get().getLatitude(), origin.get().getLongitude(), closestBy);
+            int level = tilePyramids.zoomFor(zoom, bbox);
+            RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+            return SearchStages.response(level, pyramid.apply(snapshot.get()).clusters(bbox, level));
+        }
+
+        Station meta = metadata(originId, notFound);
+        BoundingBox bbox = BoundingBox.around(meta.getLatitude(), meta.getLongitude(), closestBy);
+        int level = tilePyramids.zoomFor(zoom, bbox);
+        RenderedResponseCache.dependsOn(context, entity, bbox.toQueryParam());
+        List<T> entities = upstreamSearch.apply(bbox.toQueryParam());
+        return SearchStages.response(level, TilePyramid.aggregate(entities, level, tilePyramids.representatives()));
+    }
+
+    private <T extends GeoEntity> List<T> drillDown(String entity, String originId, String cellId,
+                                                    Function<ReferenceSnapshot, GeoTable<T>> table,
+                                                    Function<String, List<T>> upstreamSearch,
+                                                    Supplier<RuntimeException> notFound, ContextView context) {
+        TileCell cell = TileCell.parse(cellId);
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(originId));
+        if (origin.isPresent()) {
+            RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+            return stages.orderByDistance(context, origin.get(),
+                    SearchStages.inCell(cell, table.apply(snapshot.get()).findInBox(cell.bounds())));
+        }
+
+        Station meta = metadata(originId, notFound);
+        RenderedResponseCache.dependsOn(context, entity, cell.bounds().toQueryParam());
+        return stages.orderByDistance(context, meta,
+                SearchStages.inCell(cell, upstreamSearch.apply(cell.bounds().toQueryParam())));
+    }
+
+    private Station metadata(String id, Supplier<RuntimeException> notFound) {
+        Station meta = apiClient.getStationMetadata(id);
+        if (meta == null) {
+            throw notFound.get();
+        }
+        return meta;
+    }
+}
@@ -0,0 +1,222 @@
+package com.fabrick.interview.weather.service.impl;
+
+import com.fabrick.interview.support.tracing.ReactiveObservations;
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Cluster;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.model.ProximityResult;
+import com.fabrick.interview.weather.model.TileCell;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The synchronous stages shared by the reactive and the blocking implementations of the weather service: bounding
+ * box, distance ordering and result size, observed as children of the request observation held in the Reactor
+ * context.
+ */
+final class SearchStages {
+
+    private static final List<String> ENTITIES = List.of("stations", "airports");
+    private static final List<String> SOURCES = List.of("reference", "upstream");
+
+    private final DistanceKernel distanceKernel;
+    private final ObservationRegistry observationRegistry;
+    /** The meters of each entity (and source), built once: the tags take a handful of fixed values. */
+    private final Map<String, DistributionSummary> searchResults = new HashMap<>();
+    private final Map<String, DistributionSummary> batchOrigins = new HashMap<>();
+    private final Map<String, DistributionSummary> batchQueries = new HashMap<>();
+
+    SearchStages(DistanceKernel distanceKernel, MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.distanceKernel = distanceKernel;
+        this.observationRegistry = observationRegistry;
+        for (String entity : ENTITIES) {
+            for (String source : SOURCES) {
+                searchResults.put(entity + ':' + source, DistributionSummary.builder("weather.search.results")
+                        .description("Entities returned per proximity search")
+                        .tag("entity", entity)
+                        .tag("source", source)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            batchOrigins.put(entity, DistributionSummary.builder("weather.batch.origins")
+                    .description("Origins of a batch proximity search located upstream")
+                    .tag("entity", entity)
+                    .register(meterRegistry));
+            batchQueries.put(entity, DistributionSummary.builder("weather.batch.queries")
+                    .description("Upstream box queries per batch proximity search")
+                    .tag("entity", entity)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Drops the entities lying on the shared edge with a neighbouring cell, which belong to the neighbour.
+     */
+    static <T extends GeoEntity> List<T> inCell(TileCell cell, List<T> entities) {
+        return entities.stream().filter(e -> cell.contains(e.getLatitude(), e.getLongitude())).toList();
+    }
+
+    static ClusterResponse response(int zoom, List<Cluster> clusters) {
+        long total = 0;
+        for (Cluster cluster : clusters) {
+            total += cluster.count();
+        }
+        return new ClusterResponse(zoom, TileCell.cellDegrees(zoom), total, clusters);
+    }
+
+    /**
+     * Records the size of a proximity search result ({@code weather.search.results}), after the attribute filter.
+     */
+    <T> List<T> recordResults(String entity, String source, List<T> results) {
+        searchResults.get(entity + ':' + source).record(results.size());
+        return results;
+    }
+
+    /**
+     * Sorts the entities by great-circle distance from the origin (closest first).
+     * <p>
+     * Distances are computed in one batch over primitive coordinate arrays; each sort key packs the
+     * distance (as a float, whose bit pattern orders like the value for non-negative numbers) with the
+     * original position, so a single primitive sort yields a stable ordering.
+     * </p>
+     */
+    <T extends GeoEntity> List<T> orderByDistance(ContextView context, GeoEntity origin, List<T> entities) {
+        int n = entities.size();
+        if (n < 2) {
+            return entities;
+        }
+        return stage(context, "weather.distance.order", null)
+                .highCardinalityKeyValue("entities", Integer.toString(n))
+                .observe(() -> sortByDistance(origin, entities));
+    }
+
+    private <T extends GeoEntity> List<T> sortByDistance(GeoEntity origin, List<T> entities) {
+        int n = entities.size();
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = entities.get(i).getLatitude();
+            longitudes[i] = entities.get(i).getLongitude();
+        }
+        double[] distances = new double[n];
+        distanceKernel.distances(origin.getLatitude(), origin.getLongitude(), latitudes, longitudes, n, distances);
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) Float.floatToIntBits((float) distances[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        List<T> ordered = new ArrayList<>(n);
+        for (long key : keys) {
+            ordered.add(entities.get((int) key));
+        }
+        return ordered;
+    }
+
+    /**
+     * Plans the upstream queries of a batch search, once its origins are located: each origin is matched to its
+     * location by ID (ignoring case) and the boxes of the located ones are merged by the {@link BoxPlanner}. Records
+     * the origins and queries of the batch ({@code weather.batch.origins}, {@code weather.batch.queries}).
+     *
+     * @param ids       The origins searched upstream, as requested.
+     * @param locations The locations returned for them, in any order.
+     */
+    BatchPlan planBatch(ContextView context, String entity, List<String> ids, List<? extends GeoEntity> locations,
+                        double closestBy, BoxPlanner planner) {
+        Map<String, GeoEntity> byId = new HashMap<>();
+        for (GeoEntity location : locations) {
+            if (location.getId() != null) {
+                byId.putIfAbsent(location.getId().toUpperCase(Locale.ROOT), location);
+            }
+        }
+        List<BatchOrigin> origins = new ArrayList<>(ids.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            GeoEntity location = byId.get(id.toUpperCase(Locale.ROOT));
+            if (location == null) {
+                missing.add(id);
+            } else {
+                origins.add(new BatchOrigin(id, location, calculateBBox(context, location, closestBy)));
+            }
+        }
+        List<BoxPlanner.Query<BatchOrigin>> queries = stage(context, "weather.batch.plan", entity)
+                .highCardinalityKeyValue("origins", Integer.toString(origins.size()))
+                .observe(() -> planner.plan(origins, BatchOrigin::box));
+        batchOrigins.get(entity).record(origins.size());
+        batchQueries.get(entity).record(queries.size());
+        return new BatchPlan(queries, missing);
+    }
+
+    /**
+     * Splits the rows of one upstream query of a batch back out per origin: the rows within the box of the origin,
+     * filtered and ordered exactly like a single search.
+     */
+    <T extends GeoEntity> List<ProximityResult<T>> splitBatch(ContextView context, String entity, BoxPlanner.Query<BatchOrigin> query,
+                                                             AttributeFilter filter, List<T> rows) {
+        List<ProximityResult<T>> results = new ArrayList<>(query.origins().size());
+        for (BatchOrigin origin : query.origins()) {
+            List<T> inBox = new ArrayList<>();
+            for (T row : rows) {
+                if (origin.box().contains(row.getLatitude(), row.getLongitude()) && filter.matches(row)) {
+                    inBox.add(row);
+                }
+            }
+            results.add(ProximityResult.found(origin.id(),
+                    orderByDistance(context, origin.location(), recordResults(entity, "upstream", inBox))));
+        }
+        return results;
+    }
+
+    /**
+     * Answers the origins of one upstream query of a batch with the failure of the query, so that the other queries
+     * of the batch are still answered.
+     */
+    <T extends GeoEntity> List<ProximityResult<T>> failBatch(BoxPlanner.Query<BatchOrigin> query, RuntimeException error) {
+        List<ProximityResult<T>> results = new ArrayList<>(query.origins().size());
+        for (BatchOrigin origin : query.origins()) {
+            results.add(ProximityResult.failed(origin.id(), error));
+        }
+        return results;
+    }
+
+    BoundingBox calculateBBox(ContextView context, GeoEntity origin, double delta) {
+        return stage(context, "weather.bbox.calculate", null)
+                .observe(() -> BoundingBox.around(origin.getLatitude(), origin.getLongitude(), delta));
+    }
+
+    /**
+     * Creates the observation of a synchronous stage, child of the request observation held in the Reactor context.
+     */
+    Observation stage(ContextView context, String name, String entity) {
+        Observation observation = Observation.createNotStarted(name, observationRegistry);
+        if (entity != null) {
+            observation.lowCardinalityKeyValue("entity", entity);
+        }
+        return ReactiveObservations.child(observation, context);
+    }
+
+    /**
+     * An origin of a batch search located upstream, with its search box.
+     */
+    record BatchOrigin(String id, GeoEntity location, BoundingBox box) {}
+
+    /**
+     * The upstream queries of a batch search, and the origins without location.
+     */
+    record BatchPlan(List<BoxPlanner.Query<BatchOrigin>> queries, List<String> missing) {}
+}
@@ -1,73 +1,326 @@
 package com.fabrick.interview.weather.service.impl;
 
+import com.fabrick.interview.support.response.RenderedResponseCache;
 import com.fabrick.interview.weather.client.AviationApiClient;
 import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
 import com.fabrick.interview.weather.exception.StationNotFoundException;
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.geo.DistanceKernel;
 import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.GeoEntity;
+import com.fabrick.interview.weather.model.ProximityResult;
 import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.model.TileCell;
+import com.fabrick.interview.weather.reference.GeoTable;
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.ReferenceSnapshot;
+import com.fabrick.interview.weather.reference.TilePyramid;
+import com.fabrick.interview.weather.reference.TilePyramids;
 import com.fabrick.interview.weather.service.WeatherService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Implementation of the {@link WeatherService} resolving proximity searches between airports and stations.
+ * <p>
+ * Results are ordered by great-circle distance from the origin airport/station, computed in batch by
+ * the {@link DistanceKernel} selected at startup.
+ * </p>
+ * <p>
+ * Clustered searches answer wide areas with the cells of a {@link TilePyramid} instead of the
+ * individual rows; the rows of a single cell can then be fetched with a drill-down search.
+ * </p>
+ * <p>
+ * The CPU-bound stages are observed ({@code weather.bbox.calculate}, {@code weather.reference.search},
+ * {@code weather.distance.order}, {@code weather.batch.plan}) next to the upstream stages of {@link AviationApiClient}.
+ * </p>
+ * <p>
+ * Batch searches answer many origins at once: the origins are located in a single upstream call, and their boxes
+ * are merged by the {@link BoxPlanner} into a few upstream queries, whose rows are split back per origin.
+ * </p>
+ * <p>
+ * Proximity searches record what their result is derived from (the reference snapshot version, or the
+ * {@code stations}/{@code airports} cache entry of the box) for the {@link RenderedResponseCache}.
+ * </p>
+ * <p>
+ * The default, reactive implementation; {@link BlockingWeatherServiceImpl} replaces it in the
+ * {@code virtual-threads} profile.
+ * </p>
+ */
 @Service
+@Profile("!virtual-threads")
 public class WeatherServiceImpl implements WeatherService {
 
     private static final Logger logger = LoggerFactory.getLogger(WeatherServiceImpl.class);
     private final AviationApiClient apiClient;
+    private final ReferenceDataManager referenceData;
+    private final TilePyramids tilePyramids;
+    private final BoxPlanner boxPlanner;
+    private final SearchStages stages;
 
-    public WeatherServiceImpl(AviationApiClient apiClient) {
+    public WeatherServiceImpl(AviationApiClient apiClient, ReferenceDataManager referenceData, DistanceKernel distanceKernel,
+                              TilePyramids tilePyramids, BoxPlanner boxPlanner, MeterRegistry meterRegistry,
+                              ObservationRegistry observationRegistry) {
         this.apiClient = apiClient;
+        this.referenceData = referenceData;
+        this.tilePyramids = tilePyramids;
+        this.boxPlanner = boxPlanner;
+        this.stages = new SearchStages(distanceKernel, meterRegistry, observationRegistry);
     }
 
     /**
      * Finds observation stations close to a given airport.
      * Throws AirportNotFoundException if the airport ID is invalid.
+     * <p>
+     * When a local reference snapshot is available and knows the airport, the search is answered
+     * entirely from it (the attribute filter is resolved by the snapshot's bitmap indexes); otherwise the
+     * upstream API is queried and its results are filtered before being ordered.
+     * </p>
      */
     @Override
-    public Flux<Station> findStationsCloseToAirport(String airportId, double closestBy) {
-        logger.debug("SERVICE: Cerco metadati per aeroporto {}", airportId);
+    public Flux<Station> findStationsCloseToAirport(String airportId, double closestBy, AttributeFilter filter) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(airportId));
+        if (origin.isPresent()) {
+            GeoEntity meta = origin.get();
+            logger.debug("SERVICE: Stations near {} from reference data {}", airportId, snapshot.get().version());
+            return Flux.deferContextual(context -> {
+                RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+                BoundingBox bbox = stages.calculateBBox(context, meta, closestBy);
+                List<Station> stations = stages.stage(context, "weather.reference.search", "stations")
+                        .observe(() -> snapshot.get().stations().findInBox(bbox, filter));
+                return Flux.fromIterable(stages.orderByDistance(context, meta, stages.recordResults("stations", "reference", stations)));
+            });
+        }
 
-        return apiClient.getStationMetadata(airportId)
+        return Flux.deferContextual(context -> apiClient.getStationMetadata(airportId)
                 .switchIfEmpty(Mono.error(new AirportNotFoundException(airportId)))
                 .flatMapMany(meta -> {
-                    logger.info("SERVICE: Trovato {}. Coord: Lat={}, Lon={}",
-                            meta.getName(), meta.getLatitude(), meta.getLongitude());
-
-                    String bbox = calculateBBox(meta.getLatitude(), meta.getLongitude(), closestBy);
-                    logger.info("SERVICE: Cerco stazioni nel BBOX: {}", bbox);
-
-                    return apiClient.getStationsInBox(bbox);
-                });
+                    String bbox = stages.calculateBBox(context, meta, closestBy).toQueryParam();
+                    RenderedResponseCache.dependsOn(context, "stations", bbox);
+                    return apiClient.getStationsInBox(bbox)
+                            .filter(filter::matches)
+                            .collectList()
+                            .flatMapIterable(stations -> stages.orderByDistance(context, meta, stages.recordResults("stations", "upstream", stations)));
+                }));
     }
 
     /**
      * Finds airports close to a given observation station.
      * Throws StationNotFoundException if the station ID is invalid.
+     * <p>
+     * Served from the local reference snapshot when possible, like
+     * {@link #findStationsCloseToAirport(String, double, AttributeFilter)}.
+     * </p>
      */
     @Override
-    public Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy) {
-        return apiClient.getStationMetadata(stationId)
+    public Flux<Airport> findAirportsCloseToStation(String stationId, double closestBy, AttributeFilter filter) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(stationId));
+        if (origin.isPresent()) {
+            GeoEntity meta = origin.get();
+            logger.debug("SERVICE: Airports near {} from reference data {}", stationId, snapshot.get().version());
+            return Flux.deferContextual(context -> {
+                RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+                BoundingBox bbox = stages.calculateBBox(context, meta, closestBy);
+                List<Airport> airports = stages.stage(context, "weather.reference.search", "airports")
+                        .observe(() -> snapshot.get().airports().findInBox(bbox, filter));
+                return Flux.fromIterable(stages.orderByDistance(context, meta, stages.recordResults("airports", "reference", airports)));
+            });
+        }
+
+        return Flux.deferContextual(context -> apiClient.getStationMetadata(stationId)
                 .switchIfEmpty(Mono.error(new StationNotFoundException(stationId)))
                 .flatMapMany(meta -> {
-                    logger.info("SERVICE: Trovato {}. Coord: Lat={}, Lon={}",
-                            meta.getName(), meta.getLatitude(), meta.getLongitude());
+                    String bbox = stages.calculateBBox(context, meta, closestBy).toQueryParam();
+                    RenderedResponseCache.dependsOn(context, "airports", bbox);
+                    return apiClient.getAirportsInBox(bbox)
+                            .filter(filter::matches)
+                            .collectList()
+                            .flatMapIterable(airports -> stages.orderByDistance(context, meta, stages.recordResults("airports", "upstream", airports)));
+                }));
+    }
+
+    /**
+     * Finds the observation stations close to each of the given airports.
+     * <p>
+     * The airports known to the local reference snapshot are answered from it first. The others are located in a
+     * single upstream call, and their boxes merged into a few {@code /stationinfo} queries, run concurrently: the
+     * results of the airports of a query are emitted as soon as it completes. An unknown airport gets an error
+     * result instead of failing the batch.
+     * </p>
+     */
+    @Override
+    public Flux<ProximityResult<Station>> findStationsCloseToAirports(List<String> airportIds, double closestBy, AttributeFilter filter) {
+        return findCloseToEach("stations", airportIds, closestBy, filter, ReferenceSnapshot::stations,
+                apiClient::getStationsInBox, AirportNotFoundException::new);
+    }
+
+    /**
+     * Finds the airports close to each of the given stations, like
+     * {@link #findStationsCloseToAirports(List, double, AttributeFilter)}.
+     */
+    @Override
+    public Flux<ProximityResult<Airport>> findAirportsCloseToStations(List<String> stationIds, double closestBy, AttributeFilter filter) {
+        return findCloseToEach("airports", stationIds, closestBy, filter, ReferenceSnapshot::airports,
+                apiClient::getAirportsInBox, StationNotFoundException::new);
+    }
+
+    /**
+     * Clusters the stations close to a given airport. With a local reference snapshot the clusters are
+     * read from the pre-built pyramid; otherwise the upstream search result is aggregated on the fly.
+     */
+    @Override
+    public Mono<ClusterResponse> clusterStationsCloseToAirport(String airportId, double closestBy, Integer zoom) {
+        return cluster("stations", airportId, closestBy, zoom, tilePyramids::stations, apiClient::getStationsInBox,
+                () -> new AirportNotFoundException(airportId));
+    }
+
+    /**
+     * Clusters the airports close to a given station, like {@link #clusterStationsCloseToAirport(String, double, Integer)}.
+     */
+    @Override
+    public Mono<ClusterResponse> clusterAirportsCloseToStation(String stationId, double closestBy, Integer zoom) {
+        return cluster("airports", stationId, closestBy, zoom, tilePyramids::airports, apiClient::getAirportsInBox,
+                () -> new StationNotFoundException(stationId));
+    }
+
+    /**
+     * Returns the stations of one cluster cell, closest to the airport first.
+     */
+    @Override
+    public Flux<Station> findStationsInCluster(String airportId, String cellId) {
+        return drillDown("stations", airportId, cellId, ReferenceSnapshot::stations, apiClient::getStationsInBox,
+                () -> new AirportNotFoundException(airportId));
+    }
+
+    /**
+     * Returns the airports of one cluster cell, closest to the station first.
+     */
+    @Override
+    public Flux<Airport> findAirportsInCluster(String stationId, String cellId) {
+        return drillDown("airports", stationId, cellId, ReferenceSnapshot::airports, apiClient::getAirportsInBox,
+                () -> new StationNotFoundException(stationId));
+    }
+
+    private <T extends GeoEntity> Flux<ProximityResult<T>> findCloseToEach(String entity, List<String> originIds, double closestBy,
+                                                                          AttributeFilter filter,
+                                                                          Function<ReferenceSnapshot, GeoTable<T>> table,
+                                                                          Function<String, Flux<T>> upstreamSearch,
+                                                                          Function<String, RuntimeException> notFound) {
+        return Flux.deferContextual(context -> {
+            Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+            List<ProximityResult<T>> local = new ArrayList<>();
+            List<String> remote = new ArrayList<>();
+            for (String id : originIds) {
+                Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(id));
+                if (origin.isPresent()) {
+                    BoundingBox bbox = stages.calculateBBox(context, origin.get(), closestBy);
+                    List<T> results = stages.stage(context, "weather.reference.search", entity)
+                            .observe(() -> table.apply(snapshot.get()).findInBox(bbox, filter));
+                    local.add(ProximityResult.found(id,
+                            stages.orderByDistance(context, origin.get(), stages.recordResults(entity, "reference", results))));
+                } else {
+                    remote.add(id);
+                }
+            }
+            if (remote.isEmpty()) {
+                return Flux.fromIterable(local);
+            }
+            logger.debug("SERVICE: Batch of {} {} searches, {} located upstream", originIds.size(), entity, remote.size());
 
-                    String bbox = calculateBBox(meta.getLatitude(), meta.getLongitude(), closestBy);
-                    return apiClient.getAirportsInBox(bbox);
-                });
+            Flux<ProximityResult<T>> upstream = apiClient.getLocations(remote)
+                    .collectList()
+                    .flatMapMany(locations -> {
+                        SearchStages.BatchPlan plan = stages.planBatch(context, entity, remote, locations, closestBy, boxPlanner);
+                        Flux<ProximityResult<T>> missing = Flux.fromIterable(plan.missing())
+                                .map(id -> ProximityResult.failed(id, notFound.apply(id)));
+                        Flux<ProximityResult<T>> found = Flux.fromIterable(plan.queries())
+                                .flatMap(query -> upstreamSearch.apply(query.box().toQueryParam())
+                                        .collectList()
+                                        .flatMapIterable(rows -> stages.splitBatch(context, entity, query, filter, rows))
+                                        // a failed query only fails its own origins
+                                        .onErrorResume(AviationServiceException.class,
+                                                e -> Flux.fromIterable(stages.<T>failBatch(query, e))),
+                                        boxPlanner.concurrency());
+                        return missing.concatWith(found);
+                    });
+            return Flux.fromIterable(local).concatWith(upstream);
+        });
     }
 
-    private String calculateBBox(double lat, double lon, double delta) {
-        double minLon = lon - delta;
-        double minLat = lat - delta;
-        double maxLon = lon + delta;
-        double maxLat = lat + delta;
+    private <T extends GeoEntity> Mono<ClusterResponse> cluster(String entity, String originId, double closestBy, Integer zoom,
+                                                               Function<ReferenceSnapshot, TilePyramid<T>> pyramid,
+                                                               Function<String, Flux<T>> upstreamSearch,
+                                                               Supplier<RuntimeException> notFound) {
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(originId));
+        if (origin.isPresent()) {
+            BoundingBox bbox = BoundingBox.around(origin.get().getLatitude(), origin.get().getLongitude(), closestBy);
+            int level = tilePyramids.zoomFor(zoom, bbox);
+            return Mono.deferContextual(context -> {
+                RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+                return Mono.fromSupplier(() -> SearchStages.response(level, pyramid.apply(snapshot.get()).clusters(bbox, level)));
+            });
+        }
 
-        return String.format(Locale.US, "%.4f,%.4f,%.4f,%.4f", minLon, minLat, maxLon, maxLat);
+        return Mono.deferContextual(context -> apiClient.getStationMetadata(originId)
+                .switchIfEmpty(Mono.error(notFound))
+                .flatMap(meta -> {
+                    BoundingBox bbox = BoundingBox.around(meta.getLatitude(), meta.getLongitude(), closestBy);
+                    int level = tilePyramids.zoomFor(zoom, bbox);
+                    RenderedResponseCache.dependsOn(context, entity, bbox.toQueryParam());
+                    return upstreamSearch.apply(bbox.toQueryParam())
+                            .collectList()
+                            .map(entities -> SearchStages.response(level, TilePyramid.aggregate(entities, level, tilePyramids.representatives())));
+                }));
+    }
+
+    private <T extends GeoEntity> Flux<T> drillDown(String entity, String originId, String cellId,
+                                                    Function<ReferenceSnapshot, GeoTable<T>> table,
+                                                    Function<String, Flux<T>> upstreamSearch,
+                                                    Supplier<RuntimeException> notFound) {
+        TileCell cell;
+        try {
+            cell = TileCell.parse(cellId);
+        } catch (RuntimeException e) {
+            return Flux.error(e);
+        }
+
+        Optional<ReferenceSnapshot> snapshot = referenceData.snapshot();
+        Optional<GeoEntity> origin = snapshot.flatMap(s -> s.findLocation(originId));
+        if (origin.isPresent()) {
+            return Flux.deferContextual(context -> {
+                RenderedResponseCache.dependsOn(context, "reference", snapshot.get().version());
+                return Flux.fromIterable(stages.orderByDistance(context, origin.get(),
+                        SearchStages.inCell(cell, table.apply(snapshot.get()).findInBox(cell.bounds()))));
+            });
+        }
+
+        return Flux.deferContextual(context -> apiClient.getStationMetadata(originId)
+                .switchIfEmpty(Mono.error(notFound))
+                .flatMapMany(meta -> {
+                    RenderedResponseCache.dependsOn(context, entity, cell.bounds().toQueryParam());
+                    return upstreamSearch.apply(cell.bounds().toQueryParam())
+                            .filter(e -> cell.contains(e.getLatitude(), e.getLongitude()))
+                            .collectList()
+                            .flatMapIterable(entities -> stages.orderByDistance(context, meta, entities));
+                }));
     }
-}
\ No newline at end of file
+}
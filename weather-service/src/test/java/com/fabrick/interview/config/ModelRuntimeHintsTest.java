@@ -0,0 +1,31 @@
+package com.fabrick.interview.config;
+
+import com.fabrick.interview.weather.config.ModelRuntimeHints;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Cluster;
+import com.fabrick.interview.weather.model.GeoEntityDeserializer;
+import com.fabrick.interview.weather.model.Station;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelRuntimeHintsTest {
+
+    @Test
+    @DisplayName("Should register the Jackson bindings of stations, airports, their deserializers and the nested cluster types")
+    void shouldRegisterBindingHints() {
+        RuntimeHints hints = new RuntimeHints();
+        new ModelRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> type : new Class<?>[]{Station.class, Airport.class, Cluster.class, BoundingBox.class,
+                GeoEntityDeserializer.StationDeserializer.class, GeoEntityDeserializer.AirportDeserializer.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), type.getName());
+        }
+    }
+}
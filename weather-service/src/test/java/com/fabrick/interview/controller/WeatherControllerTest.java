@@ -2,18 +2,31 @@ package com.fabrick.interview.controller;
 
 import com.fabrick.interview.weather.WeatherApplication;
 import com.fabrick.interview.weather.controller.WeatherController;
+import com.fabrick.interview.weather.exception.InvalidClusterCellException;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ProximityResult;
 import com.fabrick.interview.weather.model.Station;
 import com.fabrick.interview.weather.service.WeatherService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 
+import java.util.List;
+
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
 @ContextConfiguration(classes = WeatherApplication.class)
 @WebFluxTest(WeatherController.class)
@@ -30,7 +43,7 @@ class WeatherControllerTest {
     void getStationsByAirport() {
 
         Station mockStation = new Station("KAPA", "Centennial", "CO", "US", 39.0, -104.0, 1790.0);
-        given(weatherService.findStationsCloseToAirport("KDEN", 0.5))
+        given(weatherService.findStationsCloseToAirport("KDEN", 0.5, AttributeFilter.NONE))
                 .willReturn(Flux.just(mockStation));
 
 
@@ -53,7 +66,7 @@ class WeatherControllerTest {
     @DisplayName("GET /stations/{id}/airports should use default closestBy if missing")
     void getAirportsByStationDefaultParam() {
 
-        given(weatherService.findAirportsCloseToStation("KAPA", 0.0))
+        given(weatherService.findAirportsCloseToStation("KAPA", 0.0, AttributeFilter.NONE))
                 .willReturn(Flux.empty());
 
 
@@ -62,4 +75,99 @@ class WeatherControllerTest {
                 .exchange()
                 .expectStatus().isOk();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /airports/{id}/stations should pass the attribute filters to the service")
+    void getStationsByAirportWithFilters() {
+
+        Station mockStation = new Station("KAPA", "Centennial", "CO", "US", 39.0, -104.0, 1790.0);
+        given(weatherService.findStationsCloseToAirport("KDEN", 1.0, new AttributeFilter("US", "CO", 1500.0, null)))
+                .willReturn(Flux.just(mockStation));
+
+        webClient.get()
+                .uri("/api/fabrick/v1.0/airports/KDEN/stations?closestBy=1.0&country=us&state=CO&minElevation=1500")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Station.class)
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("GET /airports/{id}/stations should answer 304 to the ETag of the current response")
+    void getStationsByAirportNotModified() {
+
+        Station mockStation = new Station("KAPA", "Centennial", "CO", "US", 39.0, -104.0, 1790.0);
+        given(weatherService.findStationsCloseToAirport("KDEN", 2.0, AttributeFilter.NONE))
+                .willReturn(Flux.just(mockStation));
+
+        String etag = webClient.get()
+                .uri("/api/fabrick/v1.0/airports/KDEN/stations?closestBy=2.0")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, "max-age=\\d+, public")
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        webClient.get()
+                .uri("/api/fabrick/v1.0/airports/KDEN/stations?closestBy=2.0")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        then(weatherService).should(times(1)).findStationsCloseToAirport("KDEN", 2.0, AttributeFilter.NONE);
+    }
+
+    @Test
+    @DisplayName("GET /airports/{id}/stations/clusters/{cellId} should return 400 for a malformed cell")
+    void getStationsByAirportClusterInvalidCell() {
+
+        given(weatherService.findStationsInCluster("KDEN", "nope"))
+                .willReturn(Flux.error(new InvalidClusterCellException("nope")));
+
+        webClient.get()
+                .uri("/api/fabrick/v1.0/airports/KDEN/stations/clusters/nope")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /airports/stations should stream one result per distinct airport as NDJSON")
+    void getStationsByAirports() {
+
+        Station mockStation = new Station("KAPA", "Centennial", "CO", "US", 39.0, -104.0, 1790.0);
+        given(weatherService.findStationsCloseToAirports(List.of("KDEN", "KCOS"), 1.0, AttributeFilter.NONE))
+                .willReturn(Flux.just(
+                        ProximityResult.found("KCOS", List.of()),
+                        ProximityResult.found("KDEN", List.of(mockStation))));
+
+        webClient.get()
+                .uri("/api/fabrick/v1.0/airports/stations?ids=KDEN, KCOS,KDEN&closestBy=1.0")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .consumeWith(response -> {
+                    String[] lines = response.getResponseBody().trim().split("\n");
+                    assert lines.length == 2;
+                    assert lines[0].contains("\"id\":\"KCOS\"");
+                    assert lines[1].contains("\"id\":\"KAPA\"");
+                });
+    }
+
+    @Test
+    @DisplayName("GET /stations/airports should return 400 without any ID")
+    void getAirportsByStationsWithoutIds() {
+
+        webClient.get()
+                .uri("/api/fabrick/v1.0/stations/airports?ids=,")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Invalid Batch Request");
+
+        then(weatherService).should(never()).findAirportsCloseToStations(anyList(), anyDouble(), any());
+    }
+}
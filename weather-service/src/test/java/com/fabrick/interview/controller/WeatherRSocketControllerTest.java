@@ -0,0 +1,92 @@
+package com.fabrick.interview.controller;
+
+import com.fabrick.interview.weather.WeatherApplication;
+import com.fabrick.interview.weather.controller.WeatherRSocketController;
+import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ProximityRequest;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.service.WeatherService;
+import io.rsocket.exceptions.CustomRSocketException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rsocket.server.LocalRSocketServerPort;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@SpringBootTest(classes = WeatherApplication.class, properties = "spring.rsocket.server.port=0")
+class WeatherRSocketControllerTest {
+
+    @MockitoBean
+    private WeatherService weatherService;
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void connect() {
+        requester = requesterBuilder.tcp("localhost", port);
+    }
+
+    @AfterEach
+    void disconnect() {
+        requester.dispose();
+    }
+
+    @Test
+    @DisplayName("Should stream the stations close to the airport, as requested by the caller")
+    void shouldStreamStations() {
+        AttributeFilter filter = new AttributeFilter("US", null, null, null);
+        given(weatherService.findStationsCloseToAirport("KDEN", 1.0, filter)).willReturn(Flux.just(
+                new Station("KAPA", "Centennial", "CO", "US", 39.57, -104.85, 1790.0),
+                new Station("KBJC", "Broomfield", "CO", "US", 39.91, -105.12, 1724.0)));
+
+        StepVerifier.create(requester.route("airports.{id}.stations", "KDEN")
+                        .data(new ProximityRequest(1.0, "US", null, null, null, null))
+                        .retrieveFlux(Station.class), 1)
+                .expectNextMatches(station -> station.getId().equals("KAPA"))
+                .thenRequest(1)
+                .expectNextMatches(station -> station.getId().equals("KBJC"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should end the stream with the stable error code of the failure")
+    void shouldMapErrors() {
+        given(weatherService.findStationsCloseToAirport("NOPE", 0.0, AttributeFilter.NONE))
+                .willReturn(Flux.error(new AirportNotFoundException("NOPE")));
+        given(weatherService.findStationsCloseToAirport("KDEN", 0.0, AttributeFilter.NONE))
+                .willReturn(Flux.error(new AviationServiceException("External Aviation API is currently unavailable.")));
+        given(weatherService.findStationsCloseToAirport("KAPA", 0.0, AttributeFilter.NONE))
+                .willReturn(Flux.error(new IllegalStateException("secret internals")));
+
+        expectError("NOPE", WeatherRSocketController.NOT_FOUND, "Airport with ID [NOPE] not found.");
+        expectError("KDEN", WeatherRSocketController.UPSTREAM_UNAVAILABLE, "External Aviation API is currently unavailable.");
+        expectError("KAPA", WeatherRSocketController.INTERNAL_ERROR, "Internal error");
+    }
+
+    private void expectError(String airportId, int code, String message) {
+        StepVerifier.create(requester.route("airports.{id}.stations", airportId).retrieveFlux(Station.class))
+                .expectErrorSatisfies(error -> {
+                    CustomRSocketException exception = (CustomRSocketException) error;
+                    assertEquals(code, exception.errorCode());
+                    assertEquals(message, exception.getMessage());
+                })
+                .verify();
+    }
+}
@@ -0,0 +1,60 @@
+package com.fabrick.interview.geo;
+
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.model.BoundingBox;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoxPlannerTest {
+
+    private final BoxPlanner planner = new BoxPlanner(2.0, 10.0, 4);
+
+    @Test
+    @DisplayName("Should merge the overlapping boxes of a route into a handful of queries holding every box")
+    void shouldMergeRoute() {
+        List<BoundingBox> route = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            // diagonal route from Denver to the north-east, one airport every ~50 km
+            route.add(BoundingBox.around(39.8 + 0.3 * i, -104.7 + 0.3 * i, 1.0));
+        }
+
+        List<BoxPlanner.Query<BoundingBox>> queries = planner.plan(route, Function.identity());
+
+        assertTrue(queries.size() <= 4, "Queries: " + queries.size());
+        assertEquals(route.size(), queries.stream().mapToInt(query -> query.origins().size()).sum());
+        double requested = 0;
+        for (BoxPlanner.Query<BoundingBox> query : queries) {
+            assertTrue(query.box().maxLon() - query.box().minLon() <= 10.0);
+            for (BoundingBox box : query.origins()) {
+                assertEquals(query.box(), query.box().union(box));
+                requested += box.area();
+            }
+        }
+        double queried = queries.stream().mapToDouble(query -> query.box().area()).sum();
+        // the boxes overlap: the queries fetch less area than the separate searches would
+        assertTrue(queried < requested, queried + " >= " + requested);
+    }
+
+    @Test
+    @DisplayName("Should keep distant and barely overlapping boxes apart, and merge the boxes of the same spot")
+    void shouldKeepDistantBoxesApart() {
+        BoundingBox denver = BoundingBox.around(39.86, -104.67, 1.0);
+        BoundingBox neighbour = BoundingBox.around(42.36, -102.17, 1.0);
+        BoundingBox newYork = BoundingBox.around(40.64, -73.78, 1.0);
+
+        assertEquals(3, planner.plan(List.of(denver, neighbour, newYork), Function.identity()).size());
+
+        BoundingBox point = BoundingBox.around(39.86, -104.67, 0.0);
+        BoundingBox other = BoundingBox.around(39.57, -104.85, 0.0);
+        List<BoxPlanner.Query<BoundingBox>> queries = planner.plan(List.of(point, other, point), Function.identity());
+        assertEquals(2, queries.size());
+        assertEquals(List.of(point, point), queries.get(0).origins());
+    }
+}
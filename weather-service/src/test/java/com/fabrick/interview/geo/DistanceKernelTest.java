@@ -0,0 +1,67 @@
+package com.fabrick.interview.geo;
+
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.DistanceKernels;
+import com.fabrick.interview.weather.geo.ScalarDistanceKernel;
+import com.fabrick.interview.weather.model.BoundingBox;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceKernelTest {
+
+    private final DistanceKernel scalar = new ScalarDistanceKernel();
+    private final DistanceKernel selected = DistanceKernels.select("auto");
+
+    @Test
+    @DisplayName("Should select the vector kernel when the Vector API module is available")
+    void shouldSelectVectorKernel() {
+        boolean vectorAvailable = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(vectorAvailable, selected.name().startsWith("vector"));
+        assertEquals("scalar", DistanceKernels.select("scalar").name());
+    }
+
+    @Test
+    @DisplayName("Should compute known great-circle distances")
+    void shouldComputeKnownDistances() {
+        double[] distances = new double[1];
+        // Denver (KDEN) to New York (KJFK): ~2,610 km
+        selected.distances(39.8561, -104.6737, new double[]{40.6413}, new double[]{-73.7781}, 1, distances);
+        assertEquals(2610, distances[0], 5);
+    }
+
+    @Test
+    @DisplayName("Should produce the same results as the scalar kernel, remainder lanes included")
+    void shouldMatchScalarKernel() {
+        Random random = new Random(7);
+        int n = 1_003;
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        BoundingBox box = BoundingBox.around(10, 20, 35);
+
+        int[] expectedMatches = new int[n];
+        int[] actualMatches = new int[n];
+        int expectedCount = scalar.filterInBox(latitudes, longitudes, n, box, expectedMatches);
+        int actualCount = selected.filterInBox(latitudes, longitudes, n, box, actualMatches);
+        assertEquals(expectedCount, actualCount);
+        assertArrayEquals(Arrays.copyOf(expectedMatches, expectedCount), Arrays.copyOf(actualMatches, actualCount));
+
+        double[] expected = new double[n];
+        double[] actual = new double[n];
+        scalar.distances(45.0, 9.0, latitudes, longitudes, n, expected);
+        selected.distances(45.0, 9.0, latitudes, longitudes, n, actual);
+        for (int i = 0; i < n; i++) {
+            assertTrue(Math.abs(expected[i] - actual[i]) < 1e-6, "distance mismatch at " + i);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.fabrick.interview.model;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.Station;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GeoEntityDeserializerTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    @DisplayName("Should bind the upstream keys, skip the unknown fields and share the state and country codes")
+    void shouldBindUpstreamKeys() throws Exception {
+        String json = """
+                [
+                  {"icaoId": "KDEN", "iataId": "DEN", "wmoId": 72565, "site": "Denver Intl", "lat": 39.8466,
+                   "lon": -104.6562, "elev": 1640, "state": "CO", "country": "US", "priority": 1,
+                   "siteType": ["METAR", "TAF"], "runways": [{"id": "16L/34R", "dimension": {"length": 12000}}]},
+                  {"station_id": "KAPA", "siteName": "Denver/Centennial", "latitude": "39.5701 ",
+                   "longitude": -1.048493E2, "elevation_m": null, "region": "CO", "country": "US"}
+                ]
+                """;
+
+        List<Station> stations = objectMapper.readerForListOf(Station.class).readValue(json);
+
+        assertEquals(List.of(
+                new Station("KDEN", "Denver Intl", "CO", "US", 39.8466, -104.6562, 1640.0),
+                new Station("KAPA", "Denver/Centennial", "CO", "US", 39.5701, -104.8493, null)), stations);
+        assertSame(stations.get(0).getState(), stations.get(1).getState());
+        assertSame(stations.get(0).getCountry(), stations.get(1).getCountry());
+    }
+
+    @Test
+    @DisplayName("Should read back what the service writes, in JSON, Smile and CBOR")
+    void shouldRoundTripCanonicalKeys() throws Exception {
+        List<Station> stations = List.of(
+                new Station("KAFF", "Air Force Academy", "CO", "US", 38.9697, -104.8164, 1974.5),
+                new Station("LIRF", "Roma Fiumicino", null, "IT", 41.8045, 12.2508, null));
+        List<Airport> airports = List.of(new Airport("KDEN", "Denver Intl", "CO", "US", 39.8466, -104.6562, 1640.0));
+
+        for (ObjectMapper mapper : List.of(objectMapper, new ObjectMapper(new SmileFactory()),
+                new ObjectMapper(new CBORFactory()))) {
+            assertEquals(stations, mapper.readerForListOf(Station.class).readValue(mapper.writeValueAsBytes(stations)));
+            assertEquals(airports, mapper.readerForListOf(Airport.class).readValue(mapper.writeValueAsBytes(airports)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should let the last alias of a field win and read blank numbers as missing")
+    void shouldHandleRepeatedAndBlankFields() throws Exception {
+        Airport airport = objectMapper.readValue("""
+                {"id": "KDEN", "icaoId": "KDEN2", "name": "Denver", "site": "Denver Intl", "lat": 39.8,
+                 "lon": -104.6, "elev": " ", "state": null, "extra": {"nested": [1, 2, {"deep": true}]}}
+                """, Airport.class);
+
+        assertEquals("KDEN2", airport.getId());
+        assertEquals("Denver Intl", airport.getName());
+        assertNull(airport.getElevation());
+        assertNull(airport.getState());
+        assertNull(airport.getCountry());
+    }
+}
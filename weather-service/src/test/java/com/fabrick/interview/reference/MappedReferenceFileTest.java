@@ -0,0 +1,152 @@
+package com.fabrick.interview.reference;
+
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.HeapGeoTable;
+import com.fabrick.interview.weather.reference.MappedReferenceFile;
+import com.fabrick.interview.weather.reference.ReferenceDataLoader.LoadedDataset;
+import com.fabrick.interview.weather.reference.ReferenceFileWriter;
+import com.fabrick.interview.weather.reference.ReferenceSnapshot;
+import com.fabrick.interview.weather.reference.TableDelta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedReferenceFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should answer lookups and box queries from the mapped file like the heap index")
+    void shouldMatchHeapIndex() {
+        Random random = new Random(42);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            stations.add(new Station("S" + i, "Station " + i, i % 3 == 0 ? null : "CO", "US",
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180,
+                    i % 5 == 0 ? null : random.nextDouble() * 3000));
+        }
+        List<Airport> airports = List.of(new Airport("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0));
+
+        Path file = tempDir.resolve("reference.bin");
+        ReferenceFileWriter.write(new LoadedDataset("abc123", stations, airports), file, 1.0);
+        ReferenceSnapshot mapped = MappedReferenceFile.open(file, 1);
+        HeapGeoTable<Station> heap = HeapGeoTable.build(stations, 1.0);
+
+        assertEquals("abc123", mapped.version());
+        assertEquals("abc123", MappedReferenceFile.readVersion(file));
+        assertEquals(2_000, mapped.stations().size());
+        assertEquals(stations.get(15), mapped.stations().findById("S15").orElseThrow());
+        assertEquals(stations.get(7), mapped.stations().findById("S7").orElseThrow());
+        assertTrue(mapped.stations().findById("missing").isEmpty());
+        assertEquals(airports.get(0), mapped.findLocation("KDEN").orElseThrow());
+
+        for (int i = 0; i < 50; i++) {
+            BoundingBox box = BoundingBox.around(random.nextDouble() * 160 - 80, random.nextDouble() * 340 - 170,
+                    random.nextDouble() * 15);
+            assertEquals(new HashSet<>(heap.findInBox(box)), new HashSet<>(mapped.stations().findInBox(box)));
+        }
+
+        List<Station> everything = new ArrayList<>(mapped.stations().findInBox(new BoundingBox(-180, -90, 180, 90)));
+        everything.sort(Comparator.comparing(Station::getId));
+        assertEquals(2_000, everything.size());
+    }
+
+    @Test
+    @DisplayName("Should match the heap index for boxes crossing the antimeridian, the poles and the grid edges")
+    void shouldMatchHeapIndexAtGridEdges() {
+        List<Station> stations = List.of(
+                new Station("PADK", "Adak", "AK", "US", 51.88, -176.65, 5.0),
+                new Station("PASY", "Shemya", "AK", "US", 52.71, 174.11, 30.0),
+                new Station("WEST", "West edge", null, "XX", 0.0, -180.0, null),
+                new Station("EAST", "East edge", null, "XX", 0.0, 180.0, null),
+                new Station("SPOL", "South Pole", null, "AQ", -90.0, 0.0, 2835.0),
+                new Station("NPOL", "North Pole", null, "XX", 90.0, 0.0, null));
+        Path file = tempDir.resolve("edges.bin");
+        ReferenceFileWriter.write(new LoadedDataset("edges", stations, List.of()), file, 1.0);
+        ReferenceSnapshot mapped = MappedReferenceFile.open(file, 1);
+        HeapGeoTable<Station> heap = HeapGeoTable.build(stations, 1.0);
+
+        // PADK with closestBy=5: the box starts west of -180
+        BoundingBox adak = BoundingBox.around(51.88, -176.65, 5.0);
+        assertEquals(List.of(stations.get(0)), mapped.stations().findInBox(adak));
+        assertEquals(List.of(stations.get(0)), mapped.stations().findInBox(adak, new AttributeFilter("US", null, null, null)));
+
+        for (BoundingBox box : List.of(adak, BoundingBox.around(52.71, 174.11, 10.0), BoundingBox.around(0.0, -180.0, 1.0),
+                BoundingBox.around(0.0, 180.0, 1.0), BoundingBox.around(-90.0, 0.0, 2.0), BoundingBox.around(90.0, 0.0, 2.0),
+                new BoundingBox(-200, -100, 200, 100))) {
+            assertEquals(new HashSet<>(heap.findInBox(box)), new HashSet<>(mapped.stations().findInBox(box)), box.toString());
+        }
+        assertEquals(6, mapped.stations().findInBox(new BoundingBox(-200, -100, 200, 100)).size());
+    }
+
+    @Test
+    @DisplayName("Should resolve attribute filters through the bitmap indexes, before and after a delta")
+    void shouldFilterByAttributes() {
+        Random random = new Random(7);
+        String[] countries = {"US", "CA", "MX"};
+        String[] states = {"CO", "NY", "ON", null};
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            stations.add(new Station("S" + i, "Station " + i, states[i % states.length], countries[i % countries.length],
+                    random.nextDouble() * 60, random.nextDouble() * 60 - 130,
+                    i % 7 == 0 ? null : random.nextDouble() * 3000));
+        }
+        List<AttributeFilter> filters = List.of(
+                new AttributeFilter("us", null, null, null),
+                new AttributeFilter("US", "co", null, null),
+                new AttributeFilter(null, null, 1000.0, 1600.0),
+                new AttributeFilter("CA", null, null, 300.0),
+                new AttributeFilter("CA", "CO", 100.0, 2900.0),
+                new AttributeFilter("FR", null, null, null));
+
+        Path file = tempDir.resolve("reference.bin");
+        ReferenceFileWriter.write(new LoadedDataset("v1", stations, List.of()), file, 1.0);
+        ReferenceSnapshot mapped = MappedReferenceFile.open(file, 1);
+        HeapGeoTable<Station> heap = HeapGeoTable.build(stations, 1.0);
+
+        // Delta: drop 100 stations, move/re-tag 100, add 100 (reusing the freed ordinals)
+        List<Station> fresh = new ArrayList<>(stations.subList(100, stations.size()));
+        for (int i = 0; i < 100; i++) {
+            Station s = fresh.get(i);
+            fresh.set(i, new Station(s.getId(), s.getName(), "NY", "MX", s.getLatitude() + 0.5, s.getLongitude(), 50.0));
+            fresh.add(new Station("N" + i, "New " + i, "CO", "US", random.nextDouble() * 60, random.nextDouble() * 60 - 130, 1200.0));
+        }
+        TableDelta<Station> delta = heap.diff(fresh);
+        HeapGeoTable<Station> updated = heap.apply(delta).table();
+        HeapGeoTable<Station> rebuilt = HeapGeoTable.build(fresh, 1.0);
+
+        for (int i = 0; i < 30; i++) {
+            BoundingBox box = i == 0 ? new BoundingBox(-180, -90, 180, 90)
+                    : BoundingBox.around(random.nextDouble() * 60, random.nextDouble() * 60 - 130, random.nextDouble() * 10);
+            for (AttributeFilter filter : filters) {
+                Set<Station> expected = bruteForce(stations, box, filter);
+                assertEquals(expected, new HashSet<>(heap.findInBox(box, filter)));
+                assertEquals(expected, new HashSet<>(mapped.stations().findInBox(box, filter)));
+                assertEquals(bruteForce(fresh, box, filter), new HashSet<>(updated.findInBox(box, filter)));
+                assertEquals(new HashSet<>(rebuilt.findInBox(box, filter)), new HashSet<>(updated.findInBox(box, filter)));
+            }
+        }
+    }
+
+    private static Set<Station> bruteForce(List<Station> stations, BoundingBox box, AttributeFilter filter) {
+        return stations.stream()
+                .filter(s -> box.contains(s.getLatitude(), s.getLongitude()) && filter.matches(s))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,103 @@
+package com.fabrick.interview.reference;
+
+import com.fabrick.interview.weather.geo.DistanceKernels;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.ReferenceDataLoader;
+import com.fabrick.interview.weather.reference.ReferenceDataLoader.LoadedDataset;
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.ReferenceDataStatus;
+import com.fabrick.interview.weather.reference.ReferenceSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataManagerTest {
+
+    private static final Station KDEN = new Station("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0);
+    private static final Station KAPA = new Station("KAPA", "Centennial", "CO", "US", 39.57, -104.85, 1793.0);
+    private static final Station KJFK = new Station("KJFK", "New York JFK", "NY", "US", 40.64, -73.78, 4.0);
+    private static final Airport DEN = new Airport("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0);
+
+    @Mock
+    private ReferenceDataLoader loader;
+
+    private ReferenceDataManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new ReferenceDataManager(loader, DistanceKernels.scalar(), "classpath:stations.json", "", "", Duration.ofHours(1), 1.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stop();
+    }
+
+    @Test
+    @DisplayName("Should publish a full snapshot on the first load")
+    void shouldPublishFullSnapshot() {
+        when(loader.load("classpath:stations.json", "")).thenReturn(
+                new LoadedDataset("v1", List.of(KDEN, KAPA, KJFK), List.of(DEN)));
+
+        ReferenceDataStatus status = manager.reload().block();
+
+        assertEquals(ReferenceDataStatus.Mode.FULL, status.lastReload().mode());
+        assertEquals("v1", status.version());
+        assertEquals(3, status.stations());
+        assertEquals(List.of(KJFK), manager.snapshot().orElseThrow().stations()
+                .findInBox(BoundingBox.around(40.64, -73.78, 0.5)));
+    }
+
+    @Test
+    @DisplayName("Should apply small changes as a delta and keep earlier snapshots consistent")
+    void shouldApplyDelta() {
+        Station movedKapa = new Station("KAPA", "Centennial", "CO", "US", 40.60, -73.70, 1793.0);
+        when(loader.load("classpath:stations.json", "")).thenReturn(
+                new LoadedDataset("v1", List.of(KDEN, KAPA, KJFK), List.of(DEN)),
+                new LoadedDataset("v2", List.of(KDEN, movedKapa, KJFK), List.of(DEN)));
+
+        manager.reload().block();
+        ReferenceSnapshot inFlight = manager.snapshot().orElseThrow();
+        ReferenceDataStatus status = manager.reload().block();
+
+        assertEquals(ReferenceDataStatus.Mode.DELTA, status.lastReload().mode());
+        assertEquals(1, status.lastReload().changedEntities());
+        assertEquals(2, status.lastReload().rebuiltCells());
+        assertEquals(2, status.generation());
+
+        BoundingBox newYork = BoundingBox.around(40.64, -73.78, 0.5);
+        assertEquals(2, manager.snapshot().orElseThrow().stations().findInBox(newYork).size());
+        assertEquals(1, inFlight.stations().findInBox(newYork).size());
+        assertEquals(KAPA, inFlight.stations().findById("KAPA").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should keep the active snapshot when the content is unchanged or the load fails")
+    void shouldKeepSnapshotWhenUnchangedOrFailing() {
+        when(loader.load("classpath:stations.json", ""))
+                .thenReturn(new LoadedDataset("v1", List.of(KDEN), List.of(DEN)))
+                .thenReturn(new LoadedDataset("v1", List.of(KDEN), List.of(DEN)))
+                .thenThrow(new IllegalStateException("boom"));
+
+        manager.reload().block();
+        ReferenceSnapshot first = manager.snapshot().orElseThrow();
+
+        assertEquals(ReferenceDataStatus.Mode.UNCHANGED, manager.reload().block().lastReload().mode());
+        assertEquals(ReferenceDataStatus.Mode.FAILED, manager.reload().block().lastReload().mode());
+        assertTrue(manager.snapshot().orElseThrow() == first);
+    }
+}
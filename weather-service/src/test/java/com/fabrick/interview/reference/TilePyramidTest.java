@@ -0,0 +1,78 @@
+package com.fabrick.interview.reference;
+
+import com.fabrick.interview.weather.model.BoundingBox;
+import com.fabrick.interview.weather.model.Cluster;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.model.TileCell;
+import com.fabrick.interview.weather.reference.TilePyramid;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TilePyramidTest {
+
+    @Test
+    @DisplayName("Should aggregate every level consistently with a direct aggregation of the entities")
+    void shouldMatchDirectAggregation() {
+        Random random = new Random(3);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            stations.add(new Station("S" + i, "Station " + i, "CO", "US",
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, null));
+        }
+        stations.add(new Station("NP", "North Pole", null, null, 90.0, 180.0, null));
+
+        TilePyramid<Station> pyramid = TilePyramid.build(stations, 8, 3);
+        BoundingBox world = new BoundingBox(-180, -90, 180, 90);
+
+        assertEquals(8, pyramid.maxZoom());
+        for (int zoom = 0; zoom <= 8; zoom++) {
+            List<Cluster> clusters = pyramid.clusters(world, zoom);
+            assertEquals(stations.size(), clusters.stream().mapToInt(Cluster::count).sum());
+
+            List<Cluster> direct = TilePyramid.aggregate(stations, zoom, 3);
+            assertEquals(direct.size(), clusters.size());
+            for (int i = 0; i < direct.size(); i++) {
+                assertEquals(direct.get(i).cellId(), clusters.get(i).cellId());
+                assertEquals(direct.get(i).count(), clusters.get(i).count());
+                assertEquals(direct.get(i).latitude(), clusters.get(i).latitude(), 1e-9);
+                assertEquals(direct.get(i).longitude(), clusters.get(i).longitude(), 1e-9);
+            }
+        }
+        assertEquals(1, pyramid.clusters(world, 0).size());
+    }
+
+    @Test
+    @DisplayName("Should return only the cells intersecting the box, each with representatives inside the cell")
+    void shouldSelectIntersectingCells() {
+        Random random = new Random(5);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            stations.add(new Station("S" + i, "Station " + i, "CO", "US",
+                    30 + random.nextDouble() * 20, -110 + random.nextDouble() * 20, null));
+        }
+        TilePyramid<Station> pyramid = TilePyramid.build(stations, 10, 2);
+        BoundingBox box = BoundingBox.around(40, -100, 3);
+
+        List<Cluster> clusters = pyramid.clusters(box, 6);
+        assertTrue(clusters.size() <= 9);
+        for (Cluster cluster : clusters) {
+            TileCell cell = TileCell.parse(cluster.cellId());
+            assertTrue(cluster.bounds().maxLat() >= box.minLat() && cluster.bounds().minLat() <= box.maxLat());
+            assertTrue(cluster.bounds().maxLon() >= box.minLon() && cluster.bounds().minLon() <= box.maxLon());
+            assertTrue(cluster.representativeIds().size() <= 2);
+            for (String id : cluster.representativeIds()) {
+                Station station = stations.get(Integer.parseInt(id.substring(1)));
+                assertTrue(cell.contains(station.getLatitude(), station.getLongitude()));
+            }
+        }
+        assertEquals(clusters.size(), new HashSet<>(clusters.stream().map(Cluster::cellId).toList()).size());
+    }
+}
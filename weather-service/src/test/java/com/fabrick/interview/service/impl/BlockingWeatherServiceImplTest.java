@@ -0,0 +1,139 @@
+package com.fabrick.interview.service.impl;
+
+import com.fabrick.interview.weather.client.BlockingAviationApiClient;
+import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.ScalarDistanceKernel;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ProximityResult;
+import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.TilePyramids;
+import com.fabrick.interview.weather.service.impl.BlockingWeatherServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlockingWeatherServiceImplTest {
+
+    @Mock
+    private BlockingAviationApiClient apiClient;
+
+    @Mock
+    private ReferenceDataManager referenceData;
+
+    @Spy
+    private DistanceKernel distanceKernel = new ScalarDistanceKernel();
+
+    @Spy
+    private TilePyramids tilePyramids = new TilePyramids(10, 3, 16);
+
+    @Spy
+    private BoxPlanner boxPlanner = new BoxPlanner(2.0, 10.0, 4);
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+    @InjectMocks
+    private BlockingWeatherServiceImpl weatherService;
+
+    @Test
+    @DisplayName("Should filter and order the upstream stations on a virtual thread")
+    void shouldSearchUpstreamOnVirtualThread() {
+        Station origin = new Station("KDEN", "Denver Intl", "CO", "US", 40.0, -100.0, 1600.0);
+        Station far = new Station("KAPA", "Centennial", "CO", "US", 40.5, -100.5, 1790.0);
+        Station close = new Station("KCLO", "Closer", "CO", "US", 40.01, -100.01, 1650.0);
+        Station low = new Station("KLOW", "Low", "KS", "US", 40.2, -99.9, 600.0);
+
+        when(apiClient.getStationMetadata("KDEN")).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().isVirtual(), "Blocking call on " + Thread.currentThread());
+            return origin;
+        });
+        when(apiClient.getStationsInBox("-101.0000,39.0000,-99.0000,41.0000")).thenReturn(List.of(far, low, close));
+
+        StepVerifier.create(weatherService.findStationsCloseToAirport("KDEN", 1.0, new AttributeFilter(null, null, 1000.0, null)))
+                .expectNext(close, far)
+                .verifyComplete();
+
+        assertEquals(2, meterRegistry.get("weather.search.results").tag("entity", "stations").tag("source", "upstream").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should fail with AirportNotFoundException when the airport is unknown")
+    void shouldHandleMissingMetadata() {
+        when(apiClient.getStationMetadata("INVALID")).thenReturn(null);
+
+        StepVerifier.create(weatherService.findStationsCloseToAirport("INVALID", 1.0))
+                .expectError(AirportNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should search a batch of stations with one upstream query per merged box")
+    void shouldPlanBatchSearch() {
+        Station kapa = new Station("KAPA", "Centennial", "CO", "US", 39.57, -104.85, 1790.0);
+        Station kbjc = new Station("KBJC", "Broomfield", "CO", "US", 39.91, -105.12, 1724.0);
+        Airport kden = new Airport("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0);
+        Airport kcos = new Airport("KCOS", "Colorado Springs", "CO", "US", 38.81, -104.70, 1881.0);
+
+        when(apiClient.getLocations(List.of("KAPA", "KBJC", "NOPE"))).thenReturn(List.of(kbjc, kapa));
+        when(apiClient.getAirportsInBox("-106.1200,38.5700,-103.8500,40.9100")).thenReturn(List.of(kcos, kden));
+
+        List<ProximityResult<Airport>> results = weatherService
+                .findAirportsCloseToStations(List.of("KAPA", "KBJC", "NOPE"), 1.0, AttributeFilter.NONE)
+                .collectList()
+                .block();
+
+        assertEquals(List.of(
+                new ProximityResult<>("NOPE", List.of(), "Station with ID [NOPE] not found."),
+                ProximityResult.found("KAPA", List.of(kden, kcos)),
+                ProximityResult.found("KBJC", List.of(kden))), results);
+        verify(apiClient, times(1)).getAirportsInBox(anyString());
+    }
+
+    @Test
+    @DisplayName("Should fail only the stations of a batch query the upstream failed, and answer the others")
+    void shouldIsolateFailedBatchQuery() {
+        Station kapa = new Station("KAPA", "Centennial", "CO", "US", 39.57, -104.85, 1790.0);
+        Station phnl = new Station("PHNL", "Honolulu", "HI", "US", 21.3, -157.9, 4.0);
+        Airport kden = new Airport("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0);
+
+        when(apiClient.getLocations(List.of("KAPA", "PHNL"))).thenReturn(List.of(kapa, phnl));
+        when(apiClient.getAirportsInBox("-105.8500,38.5700,-103.8500,40.5700")).thenReturn(List.of(kden));
+        when(apiClient.getAirportsInBox("-158.9000,20.3000,-156.9000,22.3000"))
+                .thenThrow(new AviationServiceException("External Aviation API is currently unavailable."));
+
+        List<ProximityResult<Airport>> results = weatherService
+                .findAirportsCloseToStations(List.of("KAPA", "PHNL"), 1.0, AttributeFilter.NONE)
+                .collectList()
+                .block();
+
+        assertEquals(List.of(
+                ProximityResult.found("KAPA", List.of(kden)),
+                new ProximityResult<>("PHNL", List.of(), "External Aviation API is currently unavailable.")), results);
+    }
+}
@@ -2,19 +2,45 @@ package com.fabrick.interview.service.impl;
 
 import com.fabrick.interview.weather.client.AviationApiClient;
 import com.fabrick.interview.weather.exception.AirportNotFoundException;
+import com.fabrick.interview.weather.exception.AviationServiceException;
+import com.fabrick.interview.weather.geo.BoxPlanner;
+import com.fabrick.interview.weather.geo.DistanceKernel;
+import com.fabrick.interview.weather.geo.ScalarDistanceKernel;
+import com.fabrick.interview.weather.model.Airport;
+import com.fabrick.interview.weather.model.AttributeFilter;
+import com.fabrick.interview.weather.model.ClusterResponse;
+import com.fabrick.interview.weather.model.ProximityResult;
 import com.fabrick.interview.weather.model.Station;
+import com.fabrick.interview.weather.reference.HeapGeoTable;
+import com.fabrick.interview.weather.reference.ReferenceDataManager;
+import com.fabrick.interview.weather.reference.ReferenceSnapshot;
+import com.fabrick.interview.weather.reference.TilePyramids;
 import com.fabrick.interview.weather.service.impl.WeatherServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,6 +50,24 @@ class WeatherServiceImplTest {
     @Mock
     private AviationApiClient apiClient;
 
+    @Mock
+    private ReferenceDataManager referenceData;
+
+    @Spy
+    private DistanceKernel distanceKernel = new ScalarDistanceKernel();
+
+    @Spy
+    private TilePyramids tilePyramids = new TilePyramids(10, 3, 16);
+
+    @Spy
+    private BoxPlanner boxPlanner = new BoxPlanner(2.0, 10.0, 4);
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.create();
+
     @InjectMocks
     private WeatherServiceImpl weatherService;
 
@@ -61,4 +105,126 @@ class WeatherServiceImplTest {
                 .expectError(AirportNotFoundException.class)
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should answer from the local reference snapshot, closest first, without calling the upstream API")
+    void shouldUseReferenceSnapshot() {
+        Station kapa = new Station("KAPA", "Centennial", "CO", "US", 40.1, -100.1, 1700.0);
+        Station closer = new Station("KCLO", "Closer", "CO", "US", 40.01, -100.01, 1650.0);
+        Station far = new Station("KJFK", "New York JFK", "NY", "US", 40.6, -73.8, 4.0);
+        Airport kden = new Airport("KDEN", "Denver Intl", "CO", "US", 40.0, -100.0, 1600.0);
+        ReferenceSnapshot snapshot = new ReferenceSnapshot("v1", 1,
+                HeapGeoTable.build(List.of(kapa, far, closer), 1.0),
+                HeapGeoTable.build(List.of(kden), 1.0),
+                Instant.now());
+
+        when(referenceData.snapshot()).thenReturn(Optional.of(snapshot));
+
+        StepVerifier.create(weatherService.findStationsCloseToAirport("KDEN", 1.0))
+                .expectNext(closer, kapa)
+                .verifyComplete();
+
+        assertEquals(2, meterRegistry.get("weather.search.results").tag("entity", "stations").tag("source", "reference").summary().totalAmount());
+
+        verify(apiClient, never()).getStationMetadata(anyString());
+    }
+
+    @Test
+    @DisplayName("Should apply the attribute filter to the upstream results")
+    void shouldFilterUpstreamResults() {
+        Station origin = new Station("KDEN", "Denver Intl", "CO", "US", 40.0, -100.0, 1600.0);
+        Station high = new Station("KAPA", "Centennial", "CO", "US", 40.1, -100.1, 1790.0);
+        Station low = new Station("KLOW", "Low", "KS", "US", 40.2, -99.9, 600.0);
+        Station unknown = new Station("KUNK", "Unknown", "CO", "US", 40.3, -99.8, null);
+
+        when(apiClient.getStationMetadata("KDEN")).thenReturn(Mono.just(origin));
+        when(apiClient.getStationsInBox(anyString())).thenReturn(Flux.just(low, unknown, high));
+
+        StepVerifier.create(weatherService.findStationsCloseToAirport("KDEN", 1.0, new AttributeFilter("us", null, 1000.0, null)))
+                .expectNext(high)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should cluster the stations of the snapshot and drill down to the rows of one cell")
+    void shouldClusterAndDrillDown() {
+        Station kapa = new Station("KAPA", "Centennial", "CO", "US", 39.57, -104.85, 1790.0);
+        Station kbjc = new Station("KBJC", "Broomfield", "CO", "US", 39.91, -105.12, 1724.0);
+        Station kcos = new Station("KCOS", "Colorado Springs", "CO", "US", 38.81, -104.70, 1881.0);
+        Station kjfk = new Station("KJFK", "New York JFK", "NY", "US", 40.64, -73.78, 4.0);
+        Airport kden = new Airport("KDEN", "Denver Intl", "CO", "US", 39.86, -104.67, 1655.0);
+        ReferenceSnapshot snapshot = new ReferenceSnapshot("v1", 1,
+                HeapGeoTable.build(List.of(kapa, kbjc, kcos, kjfk), 1.0),
+                HeapGeoTable.build(List.of(kden), 1.0),
+                Instant.now());
+        when(referenceData.snapshot()).thenReturn(Optional.of(snapshot));
+
+        ClusterResponse response = weatherService.clusterStationsCloseToAirport("KDEN", 20.0, 3).block();
+
+        // 45-degree cells: the cell holding KJFK intersects the box as well and is counted as a whole
+        assertEquals(3, response.zoom());
+        assertEquals(4, response.total());
+        assertEquals(2, response.clusters().size());
+        assertEquals(3, response.clusters().get(0).count());
+        assertEquals(List.of("KAPA", "KBJC", "KCOS"), response.clusters().get(0).representativeIds().stream().sorted().toList());
+
+        StepVerifier.create(weatherService.findStationsInCluster("KDEN", response.clusters().get(0).cellId()))
+                .expectNext(kapa, kbjc, kcos)
+                .verifyComplete();
+        verify(apiClient, never()).getStationMetadata(anyString());
+    }
+
+    @Test
+    @DisplayName("Should locate a batch of airports in one call, query their merged boxes once and split the rows per airport")
+    void shouldPlanBatchSearch() {
+        Station kden = new Station("KDEN", "Denver Intl", "CO", "US", 40.0, -100.0, 1600.0);
+        Station kapa = new Station("KAPA", "Centennial", "CO", "US", 40.5, -100.5, 1790.0);
+        Station kcos = new Station("KCOS", "Colorado Springs", "CO", "US", 40.2, -99.8, 1881.0);
+        Station kjfk = new Station("KJFK", "New York JFK", "NY", "US", 40.6, -73.8, 4.0);
+        Station shared = new Station("S1", "Shared", "CO", "US", 40.1, -100.1, 1700.0);
+        Station north = new Station("S2", "North", "CO", "US", 41.3, -101.3, 1700.0);
+        Station east = new Station("S3", "East", "CO", "US", 39.3, -98.9, 1700.0);
+        Station coast = new Station("S4", "Coast", "NY", "US", 40.7, -74.0, 10.0);
+
+        when(apiClient.getLocations(List.of("KDEN", "kapa", "KCOS", "KJFK", "NOPE")))
+                .thenReturn(Flux.just(kjfk, kcos, kden, kapa));
+        when(apiClient.getStationsInBox("-101.5000,39.0000,-98.8000,41.5000")).thenReturn(Flux.just(shared, north, east));
+        when(apiClient.getStationsInBox("-74.8000,39.6000,-72.8000,41.6000")).thenReturn(Flux.just(coast));
+
+        Map<String, ProximityResult<Station>> results = weatherService
+                .findStationsCloseToAirports(List.of("KDEN", "kapa", "KCOS", "KJFK", "NOPE"), 1.0, AttributeFilter.NONE)
+                .collect(Collectors.toMap(ProximityResult::id, result -> result))
+                .block();
+
+        assertEquals(List.of(shared), results.get("KDEN").results());
+        assertEquals(List.of(shared, north), results.get("kapa").results());
+        assertEquals(List.of(shared, east), results.get("KCOS").results());
+        assertEquals(List.of(coast), results.get("KJFK").results());
+        assertEquals("Airport with ID [NOPE] not found.", results.get("NOPE").error());
+        assertEquals(2, meterRegistry.get("weather.batch.queries").summary().totalAmount());
+        verify(apiClient, times(2)).getStationsInBox(anyString());
+        verify(apiClient, never()).getStationMetadata(anyString());
+    }
+
+    @Test
+    @DisplayName("Should fail only the airports of a batch query the upstream failed, and answer the others")
+    void shouldIsolateFailedBatchQuery() {
+        Station kden = new Station("KDEN", "Denver Intl", "CO", "US", 40.0, -100.0, 1600.0);
+        Station kjfk = new Station("KJFK", "New York JFK", "NY", "US", 40.6, -73.8, 4.0);
+        Station shared = new Station("S1", "Shared", "CO", "US", 40.1, -100.1, 1700.0);
+
+        when(apiClient.getLocations(List.of("KDEN", "KJFK"))).thenReturn(Flux.just(kden, kjfk));
+        when(apiClient.getStationsInBox("-101.0000,39.0000,-99.0000,41.0000")).thenReturn(Flux.just(shared));
+        when(apiClient.getStationsInBox("-74.8000,39.6000,-72.8000,41.6000"))
+                .thenReturn(Flux.error(new AviationServiceException("External Aviation API is currently unavailable.")));
+
+        Map<String, ProximityResult<Station>> results = weatherService
+                .findStationsCloseToAirports(List.of("KDEN", "KJFK"), 1.0, AttributeFilter.NONE)
+                .collect(Collectors.toMap(ProximityResult::id, result -> result))
+                .block();
+
+        assertEquals(ProximityResult.found("KDEN", List.of(shared)), results.get("KDEN"));
+        assertEquals(new ProximityResult<>("KJFK", List.of(), "External Aviation API is currently unavailable."),
+                results.get("KJFK"));
+    }
+}